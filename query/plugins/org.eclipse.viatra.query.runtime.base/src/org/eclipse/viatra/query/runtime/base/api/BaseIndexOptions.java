@@ -8,12 +8,14 @@
  *******************************************************************************/
 package org.eclipse.viatra.query.runtime.base.api;
 
+import java.nio.file.Path;
 import java.util.Objects;
 
 import org.eclipse.viatra.query.runtime.base.api.filters.IBaseIndexFeatureFilter;
 import org.eclipse.viatra.query.runtime.base.api.filters.IBaseIndexObjectFilter;
 import org.eclipse.viatra.query.runtime.base.api.filters.IBaseIndexResourceFilter;
 import org.eclipse.viatra.query.runtime.base.api.profiler.ProfilerMode;
+import org.eclipse.viatra.query.runtime.matchers.util.Preconditions;
 
 /**
  * The base index options indicate how the indices are built.
@@ -73,6 +75,40 @@ public class BaseIndexOptions {
      * @since 2.3
      */
     protected static final ProfilerMode INDEX_PROFILER_MODE_DEFAULT = ProfilerMode.OFF;
+    
+    /**
+     * By default, the model is traversed by a single thread.
+     * 
+     * @since 2.9
+     */
+    protected static final int TRAVERSAL_PARALLELISM_DEFAULT = 1;
+    
+    /**
+     * By default, feature instances are stored in object-keyed hash maps.
+     * 
+     * @since 2.9
+     */
+    protected static final boolean COMPACT_FEATURE_STORAGE_DEFAULT = false;
+    
+    /**
+     * By default, registered features are indexed immediately.
+     * 
+     * @since 2.9
+     */
+    protected static final boolean LAZY_FEATURE_INDEXING_DEFAULT = false;
+    
+    /**
+     * By default, resources are indexed by reading their contents.
+     * 
+     * @since 2.9
+     */
+    
+    /**
+     * By default, only the number of feature instances is counted.
+     * 
+     * @since 2.9
+     */
+    protected static final boolean FEATURE_DEGREE_STATISTICS_DEFAULT = false;
 
     /**
      * @since 1.6
@@ -103,6 +139,42 @@ public class BaseIndexOptions {
      * @since 2.3
      */
     protected ProfilerMode indexerProfilerMode = INDEX_PROFILER_MODE_DEFAULT; 
+    
+    /**
+     * The number of threads used for reading the model during full-model traversals.
+     * 
+     * @since 2.9
+     */
+    protected int traversalParallelism = TRAVERSAL_PARALLELISM_DEFAULT;
+    
+    /**
+     * Whether feature instances are stored by integer identifiers.
+     * 
+     * @since 2.9
+     */
+    protected boolean compactFeatureStorage = COMPACT_FEATURE_STORAGE_DEFAULT;
+    
+    /**
+     * Whether the instance index of registered features is only built on first use.
+     * 
+     * @since 2.9
+     */
+    protected boolean lazyFeatureIndexing = LAZY_FEATURE_INDEXING_DEFAULT;
+    
+    /**
+     * The directory of the persisted index fragments of resources loaded while the index is active, or null if
+     * fragments are not used.
+     * 
+     * @since 2.9
+     */
+    protected Path resourceIndexFragmentLocation = null;
+    
+    /**
+     * Whether the degree distributions of features with statistics are maintained.
+     * 
+     * @since 2.9
+     */
+    protected boolean featureDegreeStatistics = FEATURE_DEGREE_STATISTICS_DEFAULT;
 
     /**
      * Creates a base index options with the default values.
@@ -255,6 +327,109 @@ public class BaseIndexOptions {
         return result;
     }
     
+    /**
+     * Sets the number of threads used for reading the model when it is traversed for indexing, e.g. when a model
+     * root is added or new types are registered. If greater than one, the resources of the model (or the model roots
+     * themselves) are read in parallel, while the index is still updated by the calling thread. The model must not be
+     * modified during the traversal by any thread.
+     * 
+     * @param traversalParallelism
+     *            a positive number; 1 means a sequential traversal
+     * @since 2.9
+     */
+    public BaseIndexOptions withTraversalParallelism(int traversalParallelism) {
+        Preconditions.checkArgument(traversalParallelism > 0, "Traversal parallelism must be positive");
+        BaseIndexOptions result = copy();
+        result.traversalParallelism = traversalParallelism;
+        return result;
+    }
+    
+    /**
+     * Sets whether the instances of structural features are stored in a compact form. In compact mode, each indexed
+     * holder and value gets a dense integer identifier, and the feature instances are stored in primitive int-keyed
+     * maps, reducing the memory footprint of large models; the results of index queries are the same in both modes,
+     * but lookups are somewhat slower due to the identifier translation.
+     * 
+     * @since 2.9
+     */
+    public BaseIndexOptions withCompactFeatureStorage(boolean compactFeatureStorage) {
+        BaseIndexOptions result = copy();
+        result.compactFeatureStorage = compactFeatureStorage;
+        return result;
+    }
+    
+    /**
+     * Sets whether the instances of registered features are indexed lazily. In lazy mode, registering a feature for
+     * instance indexing does not traverse the model; queries navigating the feature forward from a given holder are
+     * answered directly from the EMF model, while the index of the feature (required for inverse navigation,
+     * enumerating all instances, statistics or feature listeners) is built by a traversal on its first use. The
+     * first use of any lazily registered feature indexes all such features that are not indexed yet in a single
+     * traversal.
+     * 
+     * <p>
+     * During a coalescing period (see {@link NavigationHelper#coalesceTraversals(java.util.concurrent.Callable)}),
+     * the index of a feature that is used for the first time by statistics or feature listeners is only built at the
+     * end of the period, as for features registered during the period. Inverse navigation and enumeration of the
+     * instances of a lazily registered feature build its index right away by a traversal of their own, so that they
+     * return complete results even during a coalescing period.
+     * 
+     * <p>
+     * Lazy indexing is not applied in wildcard mode, in dynamic EMF mode, and for features that cannot be traversed
+     * directly (e.g. not well-behaving derived features); such features are indexed as usual.
+     * 
+     * @since 2.9
+     */
+    public BaseIndexOptions withLazyFeatureIndexing(boolean lazyFeatureIndexing) {
+        BaseIndexOptions result = copy();
+        result.lazyFeatureIndexing = lazyFeatureIndexing;
+        return result;
+    }
+    
+    /**
+     * Sets the directory of persisted index fragments. If set, file and platform resources that are loaded while the
+     * index is active are indexed after their loading has finished: the visited elements, attributes and references
+     * of the resource are stored in a fragment file in the given directory, together with the timestamp, length and
+     * content hash of the resource; when an unchanged resource is loaded again, the fragment is merged into the index
+     * instead of reading the contents of each object. The content hash is only computed if the timestamp or length of
+     * the resource has changed.
+     * 
+     * <p>
+     * The directory is written directly, bypassing the URI converter of the resource set; it should be a cache
+     * location private to the application, not a folder of the model. The adapter of the index is still attached to
+     * each loaded object, as it is required for change notifications.
+     * 
+     * <p>
+     * Only self-contained resources are persisted: resources with references to other resources, unresolved proxies,
+     * cross-resource containment or attribute values that cannot be recreated from their literal are indexed as
+     * usual. Fragments are not used if an object filter is set, and for resources that were already loaded when they
+     * were added to the index.
+     * 
+     * @param resourceIndexFragmentLocation
+     *            the directory of fragment files, or null to disable fragments
+     * @since 2.9
+     */
+    public BaseIndexOptions withResourceIndexFragmentLocation(Path resourceIndexFragmentLocation) {
+        BaseIndexOptions result = copy();
+        result.resourceIndexFragmentLocation = resourceIndexFragmentLocation;
+        return result;
+    }
+    
+    /**
+     * Sets whether detailed statistics are maintained for features indexed at least at the
+     * {@link IndexingLevel#STATISTICS} level: besides the number of feature instances, the number of distinct holders
+     * and values, the maximal out- and in-degrees and the degree histograms are kept up to date (see
+     * {@link NavigationHelper#getFeatureStatistics(org.eclipse.emf.ecore.EStructuralFeature)}). These statistics allow
+     * query planners to estimate the cost of navigating features precisely even if their instances are not indexed,
+     * at the price of storing a counter for each holder and value of the feature.
+     * 
+     * @since 2.9
+     */
+    public BaseIndexOptions withFeatureDegreeStatistics(boolean featureDegreeStatistics) {
+        BaseIndexOptions result = copy();
+        result.featureDegreeStatistics = featureDegreeStatistics;
+        return result;
+    }
+    
     /**
      * @return whether the base index option has wildcard mode set
      */
@@ -290,6 +465,51 @@ public class BaseIndexOptions {
     public ProfilerMode getIndexerProfilerMode() {
         return indexerProfilerMode;
     }
+    
+    /**
+     * Returns the number of threads used for reading the model during full-model traversals.
+     * 
+     * @since 2.9
+     */
+    public int getTraversalParallelism() {
+        return traversalParallelism;
+    }
+    
+    /**
+     * Returns whether the instances of structural features are stored in a compact form.
+     * 
+     * @since 2.9
+     */
+    public boolean isCompactFeatureStorage() {
+        return compactFeatureStorage;
+    }
+    
+    /**
+     * Returns whether the instances of registered features are indexed lazily.
+     * 
+     * @since 2.9
+     */
+    public boolean isLazyFeatureIndexing() {
+        return lazyFeatureIndexing;
+    }
+    
+    /**
+     * Returns the directory of persisted index fragments of loaded resources, or null if fragments are not used.
+     * 
+     * @since 2.9
+     */
+    public Path getResourceIndexFragmentLocation() {
+        return resourceIndexFragmentLocation;
+    }
+    
+    /**
+     * Returns whether degree statistics are maintained for features.
+     * 
+     * @since 2.9
+     */
+    public boolean isFeatureDegreeStatistics() {
+        return featureDegreeStatistics;
+    }
 
     /**
      * Creates an independent copy of itself. The values of each option will be the same as this options. This method is
@@ -306,6 +526,11 @@ public class BaseIndexOptions {
         baseIndexOptions.featureFilterConfiguration = this.featureFilterConfiguration;
         baseIndexOptions.strictNotificationMode = this.strictNotificationMode;
         baseIndexOptions.indexerProfilerMode = this.indexerProfilerMode;
+        baseIndexOptions.traversalParallelism = this.traversalParallelism;
+        baseIndexOptions.compactFeatureStorage = this.compactFeatureStorage;
+        baseIndexOptions.lazyFeatureIndexing = this.lazyFeatureIndexing;
+        baseIndexOptions.resourceIndexFragmentLocation = this.resourceIndexFragmentLocation;
+        baseIndexOptions.featureDegreeStatistics = this.featureDegreeStatistics;
         return baseIndexOptions;
     }
 
@@ -313,7 +538,8 @@ public class BaseIndexOptions {
     public int hashCode() {
         return Objects.hash(dynamicEMFMode, notifierFilterConfiguration, resourceFilterConfiguration,
                 featureFilterConfiguration, traverseOnlyWellBehavingDerivedFeatures, wildcardMode, strictNotificationMode,
-                danglingFreeAssumption, indexerProfilerMode);
+                danglingFreeAssumption, indexerProfilerMode, traversalParallelism, compactFeatureStorage,
+                lazyFeatureIndexing, resourceIndexFragmentLocation, featureDegreeStatistics);
     }
 
     @Override
@@ -361,6 +587,21 @@ public class BaseIndexOptions {
         if (indexerProfilerMode != other.indexerProfilerMode) {
             return false;
         }
+        if (traversalParallelism != other.traversalParallelism) {
+            return false;
+        }
+        if (compactFeatureStorage != other.compactFeatureStorage) {
+            return false;
+        }
+        if (lazyFeatureIndexing != other.lazyFeatureIndexing) {
+            return false;
+        }
+        if (!Objects.equals(resourceIndexFragmentLocation, other.resourceIndexFragmentLocation)) {
+            return false;
+        }
+        if (featureDegreeStatistics != other.featureDegreeStatistics) {
+            return false;
+        }
         return true;
     }
     
@@ -374,6 +615,11 @@ public class BaseIndexOptions {
         appendModifier(sb, traverseOnlyWellBehavingDerivedFeatures, TRAVERSE_ONLY_WELLBEHAVING_DERIVED_FEATURES_DEFAULT, "wellBehavingOnly");
         appendModifier(sb, strictNotificationMode, STRICT_NOTIFICATION_MODE_DEFAULT, "strictNotificationMode");
         appendModifier(sb, indexerProfilerMode, INDEX_PROFILER_MODE_DEFAULT, "indexerProfilerMode");
+        appendModifier(sb, traversalParallelism, TRAVERSAL_PARALLELISM_DEFAULT, "traversalParallelism=");
+        appendModifier(sb, compactFeatureStorage, COMPACT_FEATURE_STORAGE_DEFAULT, "compactFeatureStorage");
+        appendModifier(sb, lazyFeatureIndexing, LAZY_FEATURE_INDEXING_DEFAULT, "lazyFeatureIndexing");
+        appendModifier(sb, resourceIndexFragmentLocation, null, "resourceIndexFragmentLocation=");
+        appendModifier(sb, featureDegreeStatistics, FEATURE_DEGREE_STATISTICS_DEFAULT, "featureDegreeStatistics");
         appendModifier(sb, notifierFilterConfiguration, null, "notifierFilter=");
         appendModifier(sb, resourceFilterConfiguration, null, "resourceFilter=");
         appendModifier(sb, featureFilterConfiguration, null, "featureFilterConfiguration=");
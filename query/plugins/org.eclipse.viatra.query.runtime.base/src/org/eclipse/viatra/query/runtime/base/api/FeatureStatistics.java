@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.api;
+
+import java.util.Arrays;
+
+/**
+ * An immutable snapshot of the degree statistics of a structural feature, as maintained by the base index if
+ * {@link BaseIndexOptions#withFeatureDegreeStatistics(boolean)} is enabled.
+ *
+ * <p>
+ * The out-degree of a holder is the number of feature instances (holder-value pairs, counted with multiplicity) it is
+ * the holder of; the in-degree of a value is defined similarly. Degree histograms are logarithmic: the element at index
+ * <code>i</code> is the number of holders (values) with a degree between <code>2^i</code> and
+ * <code>2^(i+1) - 1</code>.
+ *
+ * @see NavigationHelper#getFeatureStatistics(org.eclipse.emf.ecore.EStructuralFeature)
+ * @since 2.9
+ */
+public final class FeatureStatistics {
+
+    private final long instanceCount;
+    private final long sourceCount;
+    private final long targetCount;
+    private final int maxOutDegree;
+    private final int maxInDegree;
+    private final int[] outDegreeHistogram;
+    private final int[] inDegreeHistogram;
+
+    public FeatureStatistics(long instanceCount, long sourceCount, long targetCount, int maxOutDegree,
+            int maxInDegree, int[] outDegreeHistogram, int[] inDegreeHistogram) {
+        this.instanceCount = instanceCount;
+        this.sourceCount = sourceCount;
+        this.targetCount = targetCount;
+        this.maxOutDegree = maxOutDegree;
+        this.maxInDegree = maxInDegree;
+        this.outDegreeHistogram = outDegreeHistogram.clone();
+        this.inDegreeHistogram = inDegreeHistogram.clone();
+    }
+
+    /**
+     * @return the number of feature instances, counted with multiplicity
+     */
+    public long getInstanceCount() {
+        return instanceCount;
+    }
+
+    /**
+     * @return the number of distinct holders of the feature
+     */
+    public long getSourceCount() {
+        return sourceCount;
+    }
+
+    /**
+     * @return the number of distinct values of the feature
+     */
+    public long getTargetCount() {
+        return targetCount;
+    }
+
+    /**
+     * @return the average number of feature instances per holder, or 0 if there are no instances
+     */
+    public double getAverageOutDegree() {
+        return sourceCount == 0 ? 0.0 : ((double) instanceCount) / sourceCount;
+    }
+
+    /**
+     * @return the average number of feature instances per value, or 0 if there are no instances
+     */
+    public double getAverageInDegree() {
+        return targetCount == 0 ? 0.0 : ((double) instanceCount) / targetCount;
+    }
+
+    public int getMaxOutDegree() {
+        return maxOutDegree;
+    }
+
+    public int getMaxInDegree() {
+        return maxInDegree;
+    }
+
+    /**
+     * @return a copy of the logarithmic histogram of holder out-degrees
+     */
+    public int[] getOutDegreeHistogram() {
+        return outDegreeHistogram.clone();
+    }
+
+    /**
+     * @return a copy of the logarithmic histogram of value in-degrees
+     */
+    public int[] getInDegreeHistogram() {
+        return inDegreeHistogram.clone();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FeatureStatistics[instances=%d, sources=%d, targets=%d, maxOut=%d, maxIn=%d, out=%s, in=%s]",
+                instanceCount, sourceCount, targetCount, maxOutDegree, maxInDegree,
+                Arrays.toString(outDegreeHistogram), Arrays.toString(inDegreeHistogram));
+    }
+}
@@ -706,6 +706,38 @@ public interface NavigationHelper {
      * 	block of an invocation of {#link {@link #coalesceTraversals(Callable)}}. 
      */
     public boolean isCoalescing();
+    
+    /**
+     * The given callback will be executed, and the changes of feature instances caused by model modifications within it
+     * are buffered until it returns. Afterwards only the net changes are applied to the index and delivered to the
+     * feature listeners: an insertion and a removal of the same feature instance (e.g. setting and resetting a value,
+     * or moving a subtree within the model) cancel each other out, and the remaining changes are delivered together.
+     * 
+     * <p>
+     * <b>Limitation</b>: only feature instances are buffered; instances of classes and data types are updated
+     * immediately, and their listeners are notified immediately. Therefore, while the callback is executed, the
+     * instance sets of the index (and the notifications delivered so far) may be inconsistent with its feature-related
+     * queries, e.g. a newly created object is already an instance of its class, but its feature values are not yet
+     * visible. Callers should only rely on the index being consistent after the method returns.
+     * 
+     * <p>
+     * Nested invocations are executed as part of the outermost one. If the callback throws an exception, the changes
+     * buffered so far are still applied, as the model has already been modified.
+     * 
+     * <p>
+     * The default implementation executes the callable without any buffering.
+     * 
+     * @param callable
+     * @throws InvocationTargetException if the callable throws an exception
+     * @since 2.9
+     */
+    public default <V> V batchFeatureUpdates(Callable<V> callable) throws InvocationTargetException {
+        try {
+            return callable.call();
+        } catch (Exception e) {
+            throw new InvocationTargetException(e);
+        }
+    }
 
     /**
      * Adds a coarse-grained listener that will be invoked after the NavigationHelper index or the underlying model is changed. Can be used
@@ -889,5 +921,23 @@ public interface NavigationHelper {
      */
     public int countFeatures(EStructuralFeature feature);
 
+    /**
+     * Returns the degree statistics of a feature indexed at least at the {@link IndexingLevel#STATISTICS} level.
+     * 
+     * @return the statistics of the feature, or null if degree statistics are not enabled by
+     *         {@link BaseIndexOptions#withFeatureDegreeStatistics(boolean)}
+     * @since 2.9
+     */
+    public FeatureStatistics getFeatureStatistics(EStructuralFeature feature);
+
+    /**
+     * Counts the entries currently stored by the index: the distinct indexed instances of classes and data types, and
+     * the distinct indexed feature instances (counted once for each indexed direction). The count is proportional to
+     * the memory used by the index, but it is computed by traversing the index, so it should not be called frequently.
+     * 
+     * @since 2.9
+     */
+    public long countIndexEntries();
+
     
 }
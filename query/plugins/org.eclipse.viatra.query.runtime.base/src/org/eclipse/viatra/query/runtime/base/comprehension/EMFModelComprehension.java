@@ -194,16 +194,28 @@ public class EMFModelComprehension {
 
         if (visitor.preOrder()) visitor.visitElement(source);
         for (EStructuralFeature feature : source.eClass().getEAllStructuralFeatures()) {
-            if (untraversableDirectly(feature))
+            if (visitor.deferFeature(source, feature))
                 continue;
-            final boolean visitorPrunes = visitor.pruneFeature(feature);
-            if (visitorPrunes && !unprunableFeature(visitor, source, feature))
-                continue;
-
-            traverseFeatureTargets(visitor, source, feature, visitorPrunes);
+            traverseObjectFeature(visitor, source, feature);
         }
         if (!visitor.preOrder()) visitor.visitElement(source);
     }
+
+    /**
+     * Traverses the values of a single feature of the given object the same way as {@link #traverseObject(EMFVisitor, EObject)};
+     * can be used to traverse features deferred by {@link EMFVisitor#deferFeature(EObject, EStructuralFeature)}.
+     * 
+     * @since 2.9
+     */
+    public void traverseObjectFeature(EMFVisitor visitor, EObject source, EStructuralFeature feature) {
+        if (untraversableDirectly(feature))
+            return;
+        final boolean visitorPrunes = visitor.pruneFeature(feature);
+        if (visitorPrunes && !unprunableFeature(visitor, source, feature))
+            return;
+
+        traverseFeatureTargets(visitor, source, feature, visitorPrunes);
+    }
     
     protected void traverseFeatureTargets(EMFVisitor visitor, EObject source, EStructuralFeature feature,
             final boolean visitorPrunes) {
@@ -109,6 +109,17 @@ public class EMFVisitor {
         return false;
     }
 
+    /**
+     * An opportunity for the visitor to skip a feature of an object during the traversal of the object, without the
+     * model comprehension reading its values; the visitor may traverse it later by
+     * {@link EMFModelComprehension#traverseObjectFeature(EMFVisitor, EObject, EStructuralFeature)}.
+     * 
+     * @since 2.9
+     */
+    public boolean deferFeature(EObject source, EStructuralFeature feature) {
+        return false;
+    }
+
     /**
      * @return if objects should be visited before their outgoing edges
      */
@@ -8,18 +8,26 @@
  *******************************************************************************/
 package org.eclipse.viatra.query.runtime.base.core;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.IntFunction;
 
 import org.apache.log4j.Logger;
+import org.eclipse.collections.api.iterator.IntIterator;
+import org.eclipse.collections.api.set.primitive.IntSet;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EClassifier;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.viatra.query.runtime.base.api.IStructuralFeatureInstanceProcessor;
 import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory;
+import org.eclipse.viatra.query.runtime.matchers.util.IMemoryView;
 import org.eclipse.viatra.query.runtime.matchers.util.IMultiset;
 
 /**
@@ -33,6 +41,8 @@ public class EMFBaseIndexInstanceStore extends AbstractBaseIndexStore {
     
     public EMFBaseIndexInstanceStore(NavigationHelperImpl navigationHelper, Logger logger) {
         super(navigationHelper, logger);
+        this.idRegistry = navigationHelper.getBaseIndexOptions().isCompactFeatureStorage() ? new ObjectIdRegistry()
+                : null;
     }
 
     /**
@@ -46,6 +56,16 @@ public class EMFBaseIndexInstanceStore extends AbstractBaseIndexStore {
      */
     private Map<Object, FeatureData> featureDataMap = CollectionsFactory.createMap();
     
+    /**
+     * identifiers of holders and values of features in compact feature storage mode; null otherwise
+     */
+    private final ObjectIdRegistry idRegistry;
+    
+    /**
+     * feature instance updates buffered during a batch of model changes; null if not batching
+     */
+    private FeatureUpdateBuffer featureUpdateBuffer;
+    
     /**
      * value -> featureKey(s);
      * constructed on-demand, null if unused (hopefully most of the time)
@@ -103,11 +123,7 @@ public class EMFBaseIndexInstanceStore extends AbstractBaseIndexStore {
          *         expected for non-unique features)
          */
         boolean insertFeatureTuple(boolean unique, final Object value, final EObject holder) {
-            // TODO we currently assume V2H map exists
-           boolean changed = addToValueToHolderMap(value, holder);
-            if (holderToValueMap != null) {
-                addToHolderToValueMap(value, holder);
-            }
+            boolean changed = addTuple(value, holder);
             
             if (unique && !changed) { 
                 navigationHelper.logIncidentFeatureTupleInsertion(value, holder, featureKey);
@@ -122,11 +138,7 @@ public class EMFBaseIndexInstanceStore extends AbstractBaseIndexStore {
         boolean removeFeatureTuple(boolean unique, final Object value, final EObject holder) {
             Object featureKey = getFeatureKey();
             try {
-                // TODO we currently assume V2H map exists
-                boolean changed = removeFromValueToHolderMap(value, holder);
-                if (holderToValueMap != null) {
-                    removeFromHolderToValueMap(value, holder);
-                }
+                boolean changed = removeTuple(value, holder);
                 
                 if (unique && !changed) { 
                     navigationHelper.logIncidentFeatureTupleRemoval(value, holder, featureKey);
@@ -138,6 +150,32 @@ public class EMFBaseIndexInstanceStore extends AbstractBaseIndexStore {
             }
         }
 
+        /**
+         * @return true if this was the first occurrence of the value for the holder
+         * @since 2.9
+         */
+        protected boolean addTuple(final Object value, final EObject holder) {
+            // TODO we currently assume V2H map exists
+            boolean changed = addToValueToHolderMap(value, holder);
+            if (holderToValueMap != null) {
+                addToHolderToValueMap(value, holder);
+            }
+            return changed;
+        }
+        
+        /**
+         * @return true if this was the last occurrence of the value for the holder
+         * @throws IllegalStateException if the value was not stored for the holder
+         * @since 2.9
+         */
+        protected boolean removeTuple(final Object value, final EObject holder) throws IllegalStateException {
+            // TODO we currently assume V2H map exists
+            boolean changed = removeFromValueToHolderMap(value, holder);
+            if (holderToValueMap != null) {
+                removeFromHolderToValueMap(value, holder);
+            }
+            return changed;
+        }
 
         protected boolean addToHolderToValueMap(Object value, EObject holder) {
             IMultiset<Object> values = holderToValueMap.computeIfAbsent(holder, 
@@ -196,6 +234,23 @@ public class EMFBaseIndexInstanceStore extends AbstractBaseIndexStore {
             return valueToHolderMap;
         }
         
+        /**
+         * @return the number of distinct holder-value pairs stored, counted in each direction that is indexed
+         * @since 2.9
+         */
+        long countEntries() {
+            long count = 0;
+            for (IMultiset<EObject> holders : valueToHolderMap.values()) {
+                count += holders.size();
+            }
+            if (holderToValueMap != null) {
+                for (IMultiset<Object> values : holderToValueMap.values()) {
+                    count += values.size();
+                }
+            }
+            return count;
+        }
+        
         public void forEach(IStructuralFeatureInstanceProcessor processor) {
             // TODO we currently assume V2H map exists
             if (valueToHolderMap != null) {
@@ -239,7 +294,421 @@ public class EMFBaseIndexInstanceStore extends AbstractBaseIndexStore {
            } else throw new UnsupportedOperationException("TODO implement");
         }
 
+        /**
+         * Returns the values of the holder without constructing the holder to value map if it is not available yet.
+         * @since 2.9
+         */
+        Set<Object> getDistinctValuesOfHolderByScanning(EObject holder) {
+            // while this is slower than using the holderToFeatureToValueMap, we do not want to construct that to avoid
+            // memory overhead
+            Set<Object> values = new HashSet<Object>();
+            for (Entry<Object, IMultiset<EObject>> entry : valueToHolderMap.entrySet()) {
+                if (entry.getValue().containsNonZero(holder)) {
+                    values.add(entry.getKey());
+                }
+            }
+            return values;
+        }
+        
+        /**
+         * Called when the feature is no longer indexed.
+         * @since 2.9
+         */
+        void dispose() {
+            // nothing to release
+        }
+        
+    }
+    
+    /**
+     * Feature data of the compact feature storage mode: holders and values are represented by their identifiers
+     * assigned by the {@link ObjectIdRegistry} of the store, and stored in primitive maps. Each distinct holder-value
+     * pair holds a reference to the identifiers of both objects.
+     * 
+     * @since 2.9
+     */
+    class CompactFeatureData extends FeatureData {
+        /** value id -> holder id(s) */
+        private final IntMultimap valueToHolderIds = new IntMultimap();
+        /**
+         * holder id -> value id(s);
+         * constructed on-demand, null if unused
+         */
+        private IntMultimap holderToValueIds;
+        
+        @Override
+        protected boolean addTuple(Object value, EObject holder) {
+            int valueId = idRegistry.acquire(value);
+            int holderId = idRegistry.acquire(holder);
+            boolean changed = valueToHolderIds.add(valueId, holderId);
+            if (holderToValueIds != null) {
+                holderToValueIds.add(holderId, valueId);
+            }
+            if (!changed) {
+                // only distinct pairs refer to the identifiers
+                idRegistry.release(valueId);
+                idRegistry.release(holderId);
+            }
+            return changed;
+        }
+        
+        @Override
+        protected boolean removeTuple(Object value, EObject holder) throws IllegalStateException {
+            int valueId = idRegistry.getId(value);
+            int holderId = idRegistry.getId(holder);
+            if (valueId == ObjectIdRegistry.NO_ID || holderId == ObjectIdRegistry.NO_ID) {
+                throw new IllegalStateException();
+            }
+            boolean changed = valueToHolderIds.remove(valueId, holderId);
+            if (holderToValueIds != null) {
+                holderToValueIds.remove(holderId, valueId);
+            }
+            if (changed) {
+                idRegistry.release(valueId);
+                idRegistry.release(holderId);
+            }
+            return changed;
+        }
+        
+        private IntMultimap getHolderToValueIds() {
+            if (holderToValueIds == null) {
+                IntMultimap inverse = new IntMultimap();
+                valueToHolderIds.forEach((valueId, holderId, count) -> {
+                    for (int i = 0; i < count; i++) {
+                        inverse.add(holderId, valueId);
+                    }
+                });
+                holderToValueIds = inverse;
+            }
+            return holderToValueIds;
+        }
+        
+        /**
+         * @return a read-only view of the holder to value direction, which is constructed if necessary
+         */
+        @Override
+        protected Map<EObject, IMultiset<Object>> getHolderToValueMap() {
+            return new IdMultimapView<>(getHolderToValueIds());
+        }
+        
+        /**
+         * @return a read-only view of the value to holder direction
+         */
+        @Override
+        protected Map<Object, IMultiset<EObject>> getValueToHolderMap() {
+            return new IdMultimapView<>(valueToHolderIds);
+        }
+        
+        @Override
+        long countEntries() {
+            long[] count = {0};
+            valueToHolderIds.forEach((valueId, holderId, multiplicity) -> count[0]++);
+            return holderToValueIds == null ? count[0] : 2 * count[0];
+        }
+        
+        @Override
+        public void forEach(IStructuralFeatureInstanceProcessor processor) {
+            valueToHolderIds.forEach((valueId, holderId, count) -> processor
+                    .process((EObject) idRegistry.getObject(holderId), idRegistry.getObject(valueId)));
+        }
+        
+        @Override
+        public Set<EObject> getAllDistinctHolders() {
+            return new IdSetView<>(getHolderToValueIds().keySet());
+        }
+        
+        @Override
+        public Set<Object> getAllDistinctValues() {
+            return new IdSetView<>(valueToHolderIds.keySet());
+        }
+        
+        @Override
+        public Set<EObject> getDistinctHoldersOfValue(Object value) {
+            int valueId = idRegistry.getId(value);
+            if (valueId == ObjectIdRegistry.NO_ID || !valueToHolderIds.containsKey(valueId))
+                return Collections.emptySet();
+            else return new IdSetView<>(valueToHolderIds.distinctIds(valueId));
+        }
+        
+        @Override
+        public Set<Object> getDistinctValuesOfHolder(EObject holder) {
+            int holderId = idRegistry.getId(holder);
+            IntMultimap holderToValues = getHolderToValueIds();
+            if (holderId == ObjectIdRegistry.NO_ID || !holderToValues.containsKey(holderId))
+                return Collections.emptySet();
+            else return new IdSetView<>(holderToValues.distinctIds(holderId));
+        }
+        
+        @Override
+        public boolean isInstance(EObject source, Object target) {
+            int valueId = idRegistry.getId(target);
+            int holderId = idRegistry.getId(source);
+            return valueId != ObjectIdRegistry.NO_ID && holderId != ObjectIdRegistry.NO_ID
+                    && valueToHolderIds.contains(valueId, holderId);
+        }
+        
+        @Override
+        Set<Object> getDistinctValuesOfHolderByScanning(EObject holder) {
+            Set<Object> values = new HashSet<Object>();
+            int holderId = idRegistry.getId(holder);
+            if (holderId != ObjectIdRegistry.NO_ID) {
+                for (IntIterator it = valueToHolderIds.keySet().intIterator(); it.hasNext();) {
+                    int valueId = it.next();
+                    if (valueToHolderIds.contains(valueId, holderId)) {
+                        values.add(idRegistry.getObject(valueId));
+                    }
+                }
+            }
+            return values;
+        }
+        
+        @Override
+        void dispose() {
+            valueToHolderIds.forEach((valueId, holderId, count) -> {
+                idRegistry.release(valueId);
+                idRegistry.release(holderId);
+            });
+        }
+    }
+    
+    /**
+     * An unmodifiable set of the objects identified by a set or array of identifiers. Views of identifier sets are
+     * live, while views of arrays are snapshots.
+     * 
+     * @since 2.9
+     */
+    private final class IdSetView<T> extends AbstractSet<T> {
+        private final IntSet idSet;
+        private final int[] idArray;
+        
+        IdSetView(IntSet ids) {
+            this.idSet = ids;
+            this.idArray = null;
+        }
+        
+        IdSetView(int[] ids) {
+            this.idSet = null;
+            this.idArray = ids;
+        }
+        
+        @Override
+        public int size() {
+            return idSet != null ? idSet.size() : idArray.length;
+        }
+        
+        @Override
+        public boolean contains(Object o) {
+            int id = idRegistry.getId(o);
+            if (id == ObjectIdRegistry.NO_ID) {
+                return false;
+            } else if (idSet != null) {
+                return idSet.contains(id);
+            } else {
+                for (int element : idArray) {
+                    if (element == id) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        }
+        
+        @Override
+        public Iterator<T> iterator() {
+            // identifier sets are copied, as they may be modified while iterating
+            return new IdIterator<>(idSet != null ? idSet.toArray() : idArray, this::getObject);
+        }
+        
+        @SuppressWarnings("unchecked")
+        private T getObject(int id) {
+            return (T) idRegistry.getObject(id);
+        }
+    }
+    
+    /**
+     * An unmodifiable, live map view of an identifier multimap, translating identifiers to objects.
+     * 
+     * @since 2.9
+     */
+    private final class IdMultimapView<K, V> extends AbstractMap<K, IMultiset<V>> {
+        private final IntMultimap ids;
+        
+        IdMultimapView(IntMultimap ids) {
+            this.ids = ids;
+        }
+        
+        @Override
+        public int size() {
+            return ids.keySet().size();
+        }
+        
+        @Override
+        public boolean containsKey(Object key) {
+            int id = idRegistry.getId(key);
+            return id != ObjectIdRegistry.NO_ID && ids.containsKey(id);
+        }
+        
+        @Override
+        public IMultiset<V> get(Object key) {
+            int id = idRegistry.getId(key);
+            return id != ObjectIdRegistry.NO_ID && ids.containsKey(id) ? new IdMultisetView<>(ids, id) : null;
+        }
+        
+        @Override
+        public Set<K> keySet() {
+            return new IdSetView<>(ids.keySet());
+        }
+        
+        @Override
+        public Set<Entry<K, IMultiset<V>>> entrySet() {
+            return new AbstractSet<Entry<K, IMultiset<V>>>() {
+                @Override
+                public int size() {
+                    return ids.keySet().size();
+                }
+                
+                @Override
+                public Iterator<Entry<K, IMultiset<V>>> iterator() {
+                    return new IdIterator<>(ids.keySet().toArray(), this::getEntry);
+                }
+                
+                @SuppressWarnings("unchecked")
+                private Entry<K, IMultiset<V>> getEntry(int id) {
+                    return new SimpleImmutableEntry<>((K) idRegistry.getObject(id), new IdMultisetView<>(ids, id));
+                }
+            };
+        }
+    }
+    
+    /**
+     * An unmodifiable, live multiset view of the identifiers associated with a key of an identifier multimap.
+     * 
+     * @since 2.9
+     */
+    private final class IdMultisetView<T> implements IMultiset<T> {
+        private final IntMultimap ids;
+        private final int key;
+        
+        IdMultisetView(IntMultimap ids, int key) {
+            this.ids = ids;
+            this.key = key;
+        }
+        
+        @Override
+        public int getCount(T value) {
+            return getCountUnsafe(value);
+        }
+        
+        @Override
+        public int getCountUnsafe(Object value) {
+            int id = idRegistry.getId(value);
+            return id == ObjectIdRegistry.NO_ID ? 0 : ids.count(key, id);
+        }
+        
+        @Override
+        public boolean containsNonZero(T value) {
+            return containsNonZeroUnsafe(value);
+        }
+        
+        @Override
+        public boolean containsNonZeroUnsafe(Object value) {
+            int id = idRegistry.getId(value);
+            return id != ObjectIdRegistry.NO_ID && ids.contains(key, id);
+        }
+        
+        @Override
+        public int size() {
+            return ids.distinctSize(key);
+        }
+        
+        @Override
+        public boolean isEmpty() {
+            return !ids.containsKey(key);
+        }
+        
+        @Override
+        public Set<T> distinctValues() {
+            return new IdSetView<>(ids.distinctIds(key));
+        }
+        
+        @Override
+        public Iterator<T> iterator() {
+            return distinctValues().iterator();
+        }
+        
+        @Override
+        public boolean addOne(T value) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public boolean addPositive(T value, int count) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public boolean addSigned(T value, int count) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public boolean removeOne(T value) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public boolean removeOneOrNop(T value) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public void clearAllOf(T value) {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException();
+        }
         
+        @Override
+        public boolean equals(Object obj) {
+            return IMemoryView.equals(this, obj);
+        }
+        
+        @Override
+        public int hashCode() {
+            return IMemoryView.hashCode(this);
+        }
+        
+        @Override
+        public String toString() {
+            return distinctValues().toString();
+        }
+    }
+    
+    private static final class IdIterator<T> implements Iterator<T> {
+        private final int[] ids;
+        private final IntFunction<T> resolver;
+        private int next = 0;
+        
+        IdIterator(int[] ids, IntFunction<T> resolver) {
+            this.ids = ids;
+            this.resolver = resolver;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            return next < ids.length;
+        }
+        
+        @Override
+        public T next() {
+            if (next >= ids.length) {
+                throw new NoSuchElementException();
+            }
+            return resolver.apply(ids[next++]);
+        }
     }
     
     
@@ -256,7 +725,7 @@ public class EMFBaseIndexInstanceStore extends AbstractBaseIndexStore {
      * TODO: specialize for to-one features and unique to-many features
      */
     protected FeatureData createFeatureData(Object featureKey) {
-        FeatureData data = new FeatureData();
+        FeatureData data = idRegistry != null ? new CompactFeatureData() : new FeatureData();
         data.featureKey = featureKey;
         return data;
     }
@@ -265,6 +734,25 @@ public class EMFBaseIndexInstanceStore extends AbstractBaseIndexStore {
 
 
     protected void insertFeatureTuple(final Object featureKey, boolean unique, final Object value, final EObject holder) {
+        if (featureUpdateBuffer != null) {
+            featureUpdateBuffer.record(featureKey, unique, value, holder, true);
+        } else {
+            applyFeatureTupleInsertion(featureKey, unique, value, holder);
+        }
+    }
+
+    protected void removeFeatureTuple(final Object featureKey, boolean unique, final Object value, final EObject holder) {
+        if (featureUpdateBuffer != null) {
+            featureUpdateBuffer.record(featureKey, unique, value, holder, false);
+        } else {
+            applyFeatureTupleRemoval(featureKey, unique, value, holder);
+        }
+    }
+
+    /**
+     * @since 2.9
+     */
+    void applyFeatureTupleInsertion(final Object featureKey, boolean unique, final Object value, final EObject holder) {
         boolean changed = getFeatureData(featureKey).insertFeatureTuple(unique, value, holder);
         if (changed) { // if not duplicated
             
@@ -277,7 +765,10 @@ public class EMFBaseIndexInstanceStore extends AbstractBaseIndexStore {
         }
     }
 
-    protected void removeFeatureTuple(final Object featureKey, boolean unique, final Object value, final EObject holder) {
+    /**
+     * @since 2.9
+     */
+    void applyFeatureTupleRemoval(final Object featureKey, boolean unique, final Object value, final EObject holder) {
         boolean changed = getFeatureData(featureKey).removeFeatureTuple(unique, value, holder);
         if (changed) { // if not duplicated
             
@@ -291,6 +782,47 @@ public class EMFBaseIndexInstanceStore extends AbstractBaseIndexStore {
     }
 
     
+    /**
+     * Starts buffering feature instance updates; the net changes are applied by
+     * {@link #finishBatchingFeatureUpdates()}.
+     * 
+     * @since 2.9
+     */
+    void startBatchingFeatureUpdates() {
+        featureUpdateBuffer = new FeatureUpdateBuffer();
+    }
+    
+    /**
+     * @since 2.9
+     */
+    boolean isBatchingFeatureUpdates() {
+        return featureUpdateBuffer != null;
+    }
+    
+    /**
+     * Applies the feature instance updates buffered so far; buffering continues afterwards.
+     * 
+     * @since 2.9
+     */
+    void flushFeatureUpdates() {
+        if (featureUpdateBuffer != null) {
+            featureUpdateBuffer.flush(this);
+        }
+    }
+    
+    /**
+     * Stops buffering feature instance updates, and applies the buffered net changes.
+     * 
+     * @since 2.9
+     */
+    void finishBatchingFeatureUpdates() {
+        FeatureUpdateBuffer buffer = featureUpdateBuffer;
+        featureUpdateBuffer = null;
+        if (buffer != null) {
+            buffer.flush(this);
+        }
+    }
+    
     public Set<Object> getFeatureKeysPointingTo(Object target) {
         final IMultiset<Object> sources = getValueToFeatureMap().get(target);
         return sources == null ? Collections.emptySet() : sources.distinctValues();
@@ -394,6 +926,31 @@ public class EMFBaseIndexInstanceStore extends AbstractBaseIndexStore {
     }
 
     // END ********* DataTypeMap *********
+
+    /**
+     * Counts the entries stored by this store: the distinct instances of classes and data types, and the distinct
+     * holder-value pairs of features (counted in each indexed direction).
+     * 
+     * @since 2.9
+     */
+    public long countEntries() {
+        long count = 0;
+        for (Set<EObject> instances : instanceMap.values()) {
+            count += instances.size();
+        }
+        for (IMultiset<Object> values : dataTypeMap.values()) {
+            count += values.size();
+        }
+        for (FeatureData featureData : featureDataMap.values()) {
+            count += featureData.countEntries();
+        }
+        if (valueToFeatureMap != null) {
+            for (IMultiset<Object> featureKeys : valueToFeatureMap.values()) {
+                count += featureKeys.size();
+            }
+        }
+        return count;
+    }
     
     protected Set<EObject> getHoldersOfFeature(Object featureKey) {
         FeatureData featureData = getFeatureData(featureKey);
@@ -426,25 +983,21 @@ public class EMFBaseIndexInstanceStore extends AbstractBaseIndexStore {
     }
 
     Set<Object> getOldValuesForHolderAndFeature(EObject source, Object featureKey) {
-        // while this is slower than using the holderToFeatureToValueMap, we do not want to construct that to avoid
-        // memory overhead
-        Map<Object, IMultiset<EObject>> oldValuesToHolders = getFeatureData(featureKey).valueToHolderMap;
-        Set<Object> oldValues = new HashSet<Object>();
-        for (Entry<Object, IMultiset<EObject>> entry : oldValuesToHolders.entrySet()) {
-            if (entry.getValue().containsNonZero(source)) {
-                oldValues.add(entry.getKey());
-            }
-        }
-        return oldValues;
+        flushFeatureUpdates();
+        return getFeatureData(featureKey).getDistinctValuesOfHolderByScanning(source);
     }
 
     protected void forgetFeature(Object featureKey) {
+        flushFeatureUpdates();
         FeatureData removed = featureDataMap.remove(featureKey);
         if (valueToFeatureMap != null) {
             for (Object value : removed.getAllDistinctValues()) {
                 removeFromValueToFeatureMap(featureKey, value);
             }
         }
+        if (removed != null) {
+            removed.dispose();
+        }
     }
 
     
@@ -8,12 +8,15 @@
  *******************************************************************************/
 package org.eclipse.viatra.query.runtime.base.core;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.log4j.Logger;
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectIntHashMap;
 import org.eclipse.emf.ecore.EClassifier;
 import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.viatra.query.runtime.base.api.FeatureStatistics;
 
 /**
  * @author Grill Balázs
@@ -26,9 +29,17 @@ public class EMFBaseIndexStatisticsStore extends AbstractBaseIndexStore {
      * {@link EStructuralFeature} or a String ID. 
      */
     private final Map<Object, Integer> stats = new HashMap<Object, Integer>();
+    
+    /**
+     * Degree distributions of features, maintained if {@link #featureDegreeStatistics} is set; the key is an
+     * {@link EStructuralFeature} or a String ID.
+     */
+    private final Map<Object, FeatureDegrees> featureDegrees = new HashMap<Object, FeatureDegrees>();
+    private final boolean featureDegreeStatistics;
 
     public EMFBaseIndexStatisticsStore(NavigationHelperImpl navigationHelper, Logger logger) {
         super(navigationHelper, logger);
+        featureDegreeStatistics = options.isFeatureDegreeStatistics();
     }
     public void addFeature(Object element, Object feature){
         addInstance(feature);
@@ -38,6 +49,39 @@ public class EMFBaseIndexStatisticsStore extends AbstractBaseIndexStore {
         removeInstance(feature);
     }
     
+    /**
+     * Counts a new feature instance.
+     * 
+     * @param value
+     *            the internal representation of the value
+     * @since 2.9
+     */
+    public void addFeature(Object element, Object feature, Object value) {
+        addInstance(feature);
+        if (featureDegreeStatistics) {
+            featureDegrees.computeIfAbsent(feature, key -> new FeatureDegrees()).add(element, value);
+        }
+    }
+    
+    /**
+     * Uncounts a removed feature instance.
+     * 
+     * @param value
+     *            the internal representation of the value
+     * @since 2.9
+     */
+    public void removeFeature(Object element, Object feature, Object value) {
+        removeInstance(feature);
+        if (featureDegreeStatistics) {
+            FeatureDegrees degrees = featureDegrees.get(feature);
+            if (degrees == null || !degrees.remove(element, value)) {
+                navigationHelper.logIncidentStatRemoval(feature);
+            } else if (degrees.isEmpty()) {
+                featureDegrees.remove(feature);
+            }
+        }
+    }
+    
     public void addInstance(Object key){
         Integer v = stats.get(key);
         stats.put(key, v == null ? 1 : v+1);
@@ -62,10 +106,111 @@ public class EMFBaseIndexStatisticsStore extends AbstractBaseIndexStore {
     
     public void removeType(Object key){
         stats.remove(key);
+        featureDegrees.remove(key);
     }
 
     public int countFeatures(Object feature) {
         return countInstances(feature);
     }
     
+    /**
+     * @return the statistics of the feature, or null if degree statistics are not maintained
+     * @since 2.9
+     */
+    public FeatureStatistics getFeatureStatistics(Object feature) {
+        if (!featureDegreeStatistics) {
+            return null;
+        }
+        FeatureDegrees degrees = featureDegrees.get(feature);
+        if (degrees == null) {
+            return new FeatureStatistics(0, 0, 0, 0, 0, new int[0], new int[0]);
+        }
+        return new FeatureStatistics(countFeatures(feature), degrees.sources.size(), degrees.targets.size(),
+                degrees.sources.maxDegree, degrees.targets.maxDegree, degrees.sources.logarithmicHistogram(),
+                degrees.targets.logarithmicHistogram());
+    }
+    
+    /**
+     * The holder and value degrees of a single feature
+     */
+    private static final class FeatureDegrees {
+        final DegreeCounter sources = new DegreeCounter();
+        final DegreeCounter targets = new DegreeCounter();
+        
+        void add(Object element, Object value) {
+            sources.increment(element);
+            targets.increment(value);
+        }
+        
+        boolean remove(Object element, Object value) {
+            if (!sources.canDecrement(element) || !targets.canDecrement(value)) {
+                return false;
+            }
+            sources.decrement(element);
+            targets.decrement(value);
+            return true;
+        }
+        
+        boolean isEmpty() {
+            return sources.size() == 0;
+        }
+    }
+    
+    /**
+     * Counts the degrees of nodes, and maintains the number of nodes for each degree.
+     */
+    private static final class DegreeCounter {
+        final ObjectIntHashMap<Object> degrees = new ObjectIntHashMap<>();
+        /**
+         * degree -> number of nodes with the degree; element 0 is unused
+         */
+        int[] histogram = new int[8];
+        int maxDegree = 0;
+        
+        int size() {
+            return degrees.size();
+        }
+        
+        void increment(Object node) {
+            int degree = degrees.addToValue(node, 1);
+            if (degree == histogram.length) {
+                histogram = Arrays.copyOf(histogram, 2 * degree);
+            }
+            histogram[degree]++;
+            if (degree > 1) {
+                histogram[degree - 1]--;
+            }
+            maxDegree = Math.max(maxDegree, degree);
+        }
+        
+        boolean canDecrement(Object node) {
+            return degrees.containsKey(node);
+        }
+        
+        void decrement(Object node) {
+            int degree = degrees.get(node);
+            if (degree == 1) {
+                degrees.remove(node);
+            } else {
+                degrees.put(node, degree - 1);
+            }
+            histogram[degree]--;
+            if (degree > 1) {
+                histogram[degree - 1]++;
+            }
+            if (degree == maxDegree && histogram[degree] == 0) {
+                // the node itself has the next highest degree, if any
+                maxDegree = degree - 1;
+            }
+        }
+        
+        int[] logarithmicHistogram() {
+            int[] result = new int[32 - Integer.numberOfLeadingZeros(maxDegree)];
+            for (int degree = 1; degree <= maxDegree; degree++) {
+                result[31 - Integer.numberOfLeadingZeros(degree)] += histogram[degree];
+            }
+            return result;
+        }
+    }
+    
 }
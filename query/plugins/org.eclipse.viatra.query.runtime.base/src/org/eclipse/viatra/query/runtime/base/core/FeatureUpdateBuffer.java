@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.eclipse.emf.ecore.EObject;
+
+/**
+ * Collects the insertions and removals of feature instances during a batch of model changes (see
+ * {@link org.eclipse.viatra.query.runtime.base.api.NavigationHelper#batchFeatureUpdates(java.util.concurrent.Callable)}),
+ * and keeps only their net effect: an insertion and a removal of the same feature instance cancel each other out,
+ * e.g. when a value is set and then reset, or when a subtree is moved within the model.
+ *
+ * @since 2.9
+ */
+final class FeatureUpdateBuffer {
+
+    /**
+     * A buffered feature instance with the net number of its insertions
+     */
+    private static final class BufferedUpdate {
+        final Object featureKey;
+        final EObject holder;
+        final Object value;
+        final int hash;
+        boolean unique;
+        int delta;
+
+        BufferedUpdate(Object featureKey, EObject holder, Object value) {
+            this.featureKey = featureKey;
+            this.holder = holder;
+            this.value = value;
+            this.hash = Objects.hash(featureKey, holder, value);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof BufferedUpdate)) {
+                return false;
+            }
+            BufferedUpdate other = (BufferedUpdate) obj;
+            return holder == other.holder && Objects.equals(featureKey, other.featureKey)
+                    && Objects.equals(value, other.value);
+        }
+    }
+
+    private final Map<BufferedUpdate, BufferedUpdate> updates = new LinkedHashMap<>();
+
+    void record(Object featureKey, boolean unique, Object value, EObject holder, boolean isInsertion) {
+        BufferedUpdate key = new BufferedUpdate(featureKey, holder, value);
+        BufferedUpdate update = updates.putIfAbsent(key, key);
+        if (update == null) {
+            update = key;
+        }
+        update.unique = unique;
+        update.delta += isInsertion ? 1 : -1;
+        if (update.delta == 0) {
+            updates.remove(update);
+        }
+    }
+
+    boolean isEmpty() {
+        return updates.isEmpty();
+    }
+
+    /**
+     * Applies the net changes to the given store and empties the buffer. Removals are applied before insertions, so
+     * replaced values of single-valued features are removed first.
+     */
+    void flush(EMFBaseIndexInstanceStore store) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        // the store may record further updates while notifying listeners
+        List<BufferedUpdate> pending = new ArrayList<>(updates.values());
+        updates.clear();
+        for (BufferedUpdate update : pending) {
+            for (int i = update.delta; i < 0; i++) {
+                store.applyFeatureTupleRemoval(update.featureKey, update.unique, update.value, update.holder);
+            }
+        }
+        for (BufferedUpdate update : pending) {
+            for (int i = 0; i < update.delta; i++) {
+                store.applyFeatureTupleInsertion(update.featureKey, update.unique, update.value, update.holder);
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.core;
+
+import java.util.Arrays;
+
+import org.eclipse.collections.api.set.primitive.MutableIntSet;
+import org.eclipse.collections.impl.map.mutable.primitive.IntIntHashMap;
+import org.eclipse.collections.impl.map.mutable.primitive.IntObjectHashMap;
+
+/**
+ * A multimap from integer keys to multisets of integer identifiers, used by the compact feature storage of the base
+ * index.
+ *
+ * <p>
+ * Most keys of a feature index are associated with only a few identifiers, so small multisets are stored as a plain
+ * array of occurrences (the first element is the number of occurrences stored, duplicates represent multiplicities);
+ * larger ones are stored in a primitive identifier-to-count hash map.
+ *
+ * @since 2.9
+ */
+final class IntMultimap {
+
+    /**
+     * Maximum number of occurrences stored in an array bucket
+     */
+    private static final int SMALL_BUCKET_LIMIT = 16;
+
+    /**
+     * Receives the distinct entries of the multimap.
+     */
+    @FunctionalInterface
+    interface EntryProcedure {
+        void value(int key, int id, int count);
+    }
+
+    /**
+     * key -> int[] or {@link IntIntHashMap}
+     */
+    private final IntObjectHashMap<Object> buckets = new IntObjectHashMap<>();
+
+    /**
+     * @return true if this was the first occurrence of the identifier for the key
+     */
+    boolean add(int key, int id) {
+        Object bucket = buckets.get(key);
+        if (bucket == null) {
+            buckets.put(key, new int[] { 1, id });
+            return true;
+        } else if (bucket instanceof int[]) {
+            int[] occurrences = (int[]) bucket;
+            int size = occurrences[0];
+            boolean first = indexOf(occurrences, id) < 0;
+            if (size < SMALL_BUCKET_LIMIT) {
+                if (size + 1 == occurrences.length) {
+                    occurrences = Arrays.copyOf(occurrences, Math.min(2 * size + 1, SMALL_BUCKET_LIMIT + 1));
+                    buckets.put(key, occurrences);
+                }
+                occurrences[size + 1] = id;
+                occurrences[0] = size + 1;
+            } else {
+                IntIntHashMap counts = new IntIntHashMap(2 * SMALL_BUCKET_LIMIT);
+                for (int i = 1; i <= size; i++) {
+                    counts.addToValue(occurrences[i], 1);
+                }
+                counts.addToValue(id, 1);
+                buckets.put(key, counts);
+            }
+            return first;
+        } else {
+            return ((IntIntHashMap) bucket).addToValue(id, 1) == 1;
+        }
+    }
+
+    /**
+     * @return true if this was the last occurrence of the identifier for the key
+     * @throws IllegalStateException
+     *             if the identifier has no occurrences for the key
+     */
+    boolean remove(int key, int id) {
+        Object bucket = buckets.get(key);
+        if (bucket == null) {
+            throw new IllegalStateException();
+        } else if (bucket instanceof int[]) {
+            int[] occurrences = (int[]) bucket;
+            int index = indexOf(occurrences, id);
+            if (index < 0) {
+                throw new IllegalStateException();
+            }
+            int size = occurrences[0];
+            occurrences[index] = occurrences[size];
+            occurrences[0] = size - 1;
+            if (size == 1) {
+                buckets.remove(key);
+            }
+            return indexOf(occurrences, id) < 0;
+        } else {
+            IntIntHashMap counts = (IntIntHashMap) bucket;
+            int count = counts.get(id);
+            if (count == 0) {
+                throw new IllegalStateException();
+            } else if (count == 1) {
+                counts.remove(id);
+                if (counts.isEmpty()) {
+                    buckets.remove(key);
+                }
+                return true;
+            } else {
+                counts.put(id, count - 1);
+                return false;
+            }
+        }
+    }
+
+    boolean contains(int key, int id) {
+        Object bucket = buckets.get(key);
+        if (bucket == null) {
+            return false;
+        } else if (bucket instanceof int[]) {
+            return indexOf((int[]) bucket, id) >= 0;
+        } else {
+            return ((IntIntHashMap) bucket).containsKey(id);
+        }
+    }
+
+    /**
+     * @return the multiplicity of the identifier for the key
+     */
+    int count(int key, int id) {
+        Object bucket = buckets.get(key);
+        if (bucket == null) {
+            return 0;
+        } else if (bucket instanceof int[]) {
+            return countOf((int[]) bucket, id);
+        } else {
+            return ((IntIntHashMap) bucket).get(id);
+        }
+    }
+
+    boolean containsKey(int key) {
+        return buckets.containsKey(key);
+    }
+
+    /**
+     * @return a live view of the keys with at least one identifier
+     */
+    MutableIntSet keySet() {
+        return buckets.keySet();
+    }
+
+    /**
+     * @return the number of distinct identifiers of the key
+     */
+    int distinctSize(int key) {
+        Object bucket = buckets.get(key);
+        if (bucket == null) {
+            return 0;
+        } else if (bucket instanceof int[]) {
+            return distinctIds((int[]) bucket).length;
+        } else {
+            return ((IntIntHashMap) bucket).size();
+        }
+    }
+
+    /**
+     * @return a new array of the distinct identifiers of the key
+     */
+    int[] distinctIds(int key) {
+        Object bucket = buckets.get(key);
+        if (bucket == null) {
+            return new int[0];
+        } else if (bucket instanceof int[]) {
+            return distinctIds((int[]) bucket);
+        } else {
+            return ((IntIntHashMap) bucket).keySet().toArray();
+        }
+    }
+
+    /**
+     * Calls the procedure for each distinct key-identifier pair, along with the multiplicity of the pair.
+     */
+    void forEach(EntryProcedure procedure) {
+        buckets.forEachKeyValue((key, bucket) -> {
+            if (bucket instanceof int[]) {
+                int[] occurrences = (int[]) bucket;
+                for (int id : distinctIds(occurrences)) {
+                    procedure.value(key, id, countOf(occurrences, id));
+                }
+            } else {
+                ((IntIntHashMap) bucket).forEachKeyValue((id, count) -> procedure.value(key, id, count));
+            }
+        });
+    }
+
+    private static int indexOf(int[] occurrences, int id) {
+        for (int i = occurrences[0]; i > 0; i--) {
+            if (occurrences[i] == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int countOf(int[] occurrences, int id) {
+        int count = 0;
+        for (int i = 1; i <= occurrences[0]; i++) {
+            if (occurrences[i] == id) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int[] distinctIds(int[] occurrences) {
+        int size = occurrences[0];
+        int[] result = new int[size];
+        int distinct = 0;
+        for (int i = 1; i <= size; i++) {
+            int id = occurrences[i];
+            boolean seen = false;
+            for (int j = 0; j < distinct && !seen; j++) {
+                seen = result[j] == id;
+            }
+            if (!seen) {
+                result[distinct++] = id;
+            }
+        }
+        return distinct == size ? result : Arrays.copyOf(result, distinct);
+    }
+}
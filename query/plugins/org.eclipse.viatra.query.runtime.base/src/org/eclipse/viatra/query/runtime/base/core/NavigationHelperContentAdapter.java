@@ -11,9 +11,13 @@
 package org.eclipse.viatra.query.runtime.base.core;
 
 import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.Callable;
 
 import org.eclipse.emf.common.notify.Adapter;
@@ -68,11 +72,23 @@ public class NavigationHelperContentAdapter extends AdapterImpl {
     private EMFVisitor removalVisitor;
     private EMFVisitor insertionVisitor;
 
+    /**
+     * The directory of persisted index fragments of loading resources, or null if fragments are not used, see
+     * {@link BaseIndexOptions#withResourceIndexFragmentLocation(Path)}
+     */
+    private final Path resourceIndexFragmentLocation;
+    // resources being loaded whose contents are indexed after loading has finished
+    private final Set<Resource> resourcesIndexedAfterLoading = new HashSet<Resource>();
+    // set while attaching the adapter to objects already indexed from a fragment
+    private boolean attachingIndexedContents = false;
+
     public NavigationHelperContentAdapter(final NavigationHelperImpl navigationHelper) {
         this.navigationHelper = navigationHelper;
         final BaseIndexOptions options = this.navigationHelper.getBaseIndexOptions();
         objectFilterConfiguration = options.getObjectFilterConfiguration();
         resourceFilterConfiguration = options.getResourceFilterConfiguration();
+        resourceIndexFragmentLocation = objectFilterConfiguration == null ? options.getResourceIndexFragmentLocation()
+                : null;
         this.comprehension = navigationHelper.getComprehension();
         
         removalVisitor = initChangeVisitor(false);
@@ -111,10 +127,14 @@ public class NavigationHelperContentAdapter extends AdapterImpl {
                     } else if (oNotifier instanceof Resource) {
                         if (notification.getFeatureID(Resource.class) == Resource.RESOURCE__IS_LOADED) {
                             final Resource resource = (Resource) oNotifier;
-                            if (comprehension.isLoading(resource))
+                            if (comprehension.isLoading(resource)) {
                                 navigationHelper.resolutionDelayingResources.add(resource);
-                            else
+                            } else {
                                 navigationHelper.resolutionDelayingResources.remove(resource);
+                                if (resourcesIndexedAfterLoading.remove(resource)) {
+                                    indexLoadedResource(resource);
+                                }
+                            }
                         }
                     }
                     return null;
@@ -209,6 +229,14 @@ public class NavigationHelperContentAdapter extends AdapterImpl {
             if (objectFilterConfiguration != null && objectFilterConfiguration.isFiltered(notifier)) {
                 return;
             }
+            if (resourceIndexFragmentLocation != null && notifier instanceof InternalEObject) {
+                Resource.Internal resource = ((InternalEObject) notifier).eDirectResource();
+                if (resource != null && resource.isLoading()) {
+                    // the whole resource is indexed when its loading has finished
+                    resourcesIndexedAfterLoading.add(resource);
+                    return;
+                }
+            }
             this.navigationHelper.coalesceTraversals(new Callable<Void>() {
                 @Override
                 public Void call() throws Exception {
@@ -238,6 +266,38 @@ public class NavigationHelperContentAdapter extends AdapterImpl {
         }
     }
 
+    /**
+     * Indexes the contents of a resource that was loaded while the index was active, using its persisted index
+     * fragment if possible.
+     */
+    private void indexLoadedResource(final Resource resource) throws InvocationTargetException {
+        final List<EObject> contents = ResourceIndexFragment.collectContents(resource, this);
+        final ResourceIndexFragment fragment = contents == null ? null
+                : ResourceIndexFragment.obtain(resourceIndexFragmentLocation, resource, contents, comprehension, insertionVisitor,
+                        navigationHelper.logger);
+        this.navigationHelper.coalesceTraversals(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                if (fragment == null) {
+                    for (EObject root : new ArrayList<EObject>(resource.getContents())) {
+                        addAdapter(root);
+                    }
+                    return null;
+                }
+                fragment.replay(insertionVisitor, contents);
+                attachingIndexedContents = true;
+                try {
+                    for (EObject eObject : contents) {
+                        simpleAddAdapter(eObject);
+                    }
+                } finally {
+                    attachingIndexedContents = false;
+                }
+                return null;
+            }
+        });
+    }
+
     // OFFICIAL ENTRY POINT OF BASE INDEX RELATED PARTS
     protected void removeAdapter(final Notifier notifier) {
         if (notifier == ignoreInsertionAndDeletion) {
@@ -332,7 +392,9 @@ public class NavigationHelperContentAdapter extends AdapterImpl {
     // WORKAROUND (TMP) for eContents vs. derived features bug
     protected void setTarget(final EObject target) {
         basicSetTarget(target);
-        spreadToChildren(target, true);
+        if (!attachingIndexedContents) {
+            spreadToChildren(target, true);
+        }
     }
 
     protected void unsetTarget(final EObject target) {
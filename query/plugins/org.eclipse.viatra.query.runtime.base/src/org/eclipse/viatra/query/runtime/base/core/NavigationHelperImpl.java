@@ -19,12 +19,14 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -48,10 +50,12 @@ import org.eclipse.emf.ecore.impl.ENotificationImpl;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.FeatureMapUtil;
 import org.eclipse.viatra.query.runtime.base.api.BaseIndexOptions;
 import org.eclipse.viatra.query.runtime.base.api.DataTypeListener;
 import org.eclipse.viatra.query.runtime.base.api.EMFBaseIndexChangeListener;
 import org.eclipse.viatra.query.runtime.base.api.FeatureListener;
+import org.eclipse.viatra.query.runtime.base.api.FeatureStatistics;
 import org.eclipse.viatra.query.runtime.base.api.IEClassifierProcessor.IEClassProcessor;
 import org.eclipse.viatra.query.runtime.base.api.IEClassifierProcessor.IEDataTypeProcessor;
 import org.eclipse.viatra.query.runtime.base.api.IEMFIndexingErrorListener;
@@ -119,6 +123,17 @@ public class NavigationHelperImpl implements NavigationHelper {
      * EDataTypes (or String ID in dynamic mode) to be registered once the coalescing period is over
      */
     protected Map<Object, IndexingLevel> delayedDataTypes = new HashMap<>();
+    /**
+     * EStructuralFeatures registered in lazy feature indexing mode that are not indexed yet, see
+     * {@link BaseIndexOptions#withLazyFeatureIndexing(boolean)}
+     * 
+     * @since 2.9
+     */
+    protected Map<Object, IndexingLevel> lazyFeatures = new HashMap<>();
+    /**
+     * Lazily registered features whose indexing has been deferred to the end of the current coalescing period
+     */
+    private final Map<Object, IndexingLevel> pendingLazyFeatures = new HashMap<>();
 
     /**
      * Features per EObject to be resolved later (towards the end of a coalescing period when no Resources are loading)
@@ -325,7 +340,9 @@ public class NavigationHelperImpl implements NavigationHelper {
     }
 
     protected FeatureData featureData(EStructuralFeature feature) {
-        return instanceStore.getFeatureData(toKey(feature));
+        Object featureKey = toKey(feature);
+        ensureLazyFeatureReadable(featureKey);
+        return instanceStore.getFeatureData(featureKey);
     }
 
     @Override
@@ -401,6 +418,7 @@ public class NavigationHelperImpl implements NavigationHelper {
     }
 
     protected Set<Setting> getSettingsForTarget(Object target) {
+        ensureLazyFeaturesReadable();
         Set<Setting> retSet = new HashSet<Setting>();
         for (Object featureKey : instanceStore.getFeatureKeysPointingTo(target)) {
             Set<EObject> holders = instanceStore.getFeatureData(featureKey).getDistinctHoldersOfValue(target);
@@ -440,13 +458,59 @@ public class NavigationHelperImpl implements NavigationHelper {
 
     @Override
     public Set<Object> getFeatureTargets(EObject source, EStructuralFeature _feature) {
+        if (lazyFeatures.containsKey(toKey(_feature))) {
+            return Collections.unmodifiableSet(getFeatureTargetsFromModel(source, _feature));
+        }
         return Collections.unmodifiableSet(featureData(_feature).getDistinctValuesOfHolder(source));
     }
 
     @Override
     public boolean isFeatureInstance(EObject source, Object target, EStructuralFeature _feature) {
+        if (lazyFeatures.containsKey(toKey(_feature))) {
+            return getFeatureTargetsFromModel(source, _feature).contains(target);
+        }
         return featureData(_feature).isInstance(source, target);
     }
+    
+    /**
+     * Reads the values of a lazily indexed feature directly from the model; returns the values the index would
+     * contain for the holder.
+     * 
+     * @since 2.9
+     */
+    protected Set<Object> getFeatureTargetsFromModel(EObject source, EStructuralFeature feature) {
+        // only holders within the scope of the index are considered
+        if (!feature.getEContainingClass().isSuperTypeOf(source.eClass()) || !isInIndexScope(source)) {
+            return Collections.emptySet();
+        }
+        Object value = source.eGet(feature);
+        if (feature.isMany()) {
+            Set<Object> result = new LinkedHashSet<>();
+            for (Object target : (Collection<?>) value) {
+                result.add(toCanonicalValueRepresentation(target));
+            }
+            return result;
+        } else if (value != null) {
+            return Collections.singleton(toCanonicalValueRepresentation(value));
+        } else {
+            return Collections.emptySet();
+        }
+    }
+    
+    /**
+     * Decides whether the object is within the scope of the index. The instance index of its class is used if
+     * available, otherwise the adapters of the object are checked.
+     * 
+     * @since 2.9
+     */
+    protected boolean isInIndexScope(EObject object) {
+        Object classKey = toKey(object.eClass());
+        if (wildcardMode.merge(getAllObservedClassesInternal().get(classKey)).hasInstances()) {
+            Set<EObject> instances = instanceStore.getInstanceSet(classKey);
+            return instances != null && instances.contains(object);
+        }
+        return object.eAdapters().contains(contentAdapter);
+    }
 
     @Override
     public Set<EObject> getDirectInstances(EClass type) {
@@ -529,11 +593,13 @@ public class NavigationHelperImpl implements NavigationHelper {
     @Override
     public Set<EObject> getHoldersOfFeature(EStructuralFeature _feature) {
         Object feature = toKey(_feature);
+        ensureLazyFeatureReadable(feature);
         return Collections.unmodifiableSet(instanceStore.getHoldersOfFeature(feature));
     }
     @Override
     public Set<Object> getValuesOfFeature(EStructuralFeature _feature) {
         Object feature = toKey(_feature);
+        ensureLazyFeatureReadable(feature);
         return Collections.unmodifiableSet(instanceStore.getValuesOfFeature(feature));
     }
 
@@ -575,6 +641,8 @@ public class NavigationHelperImpl implements NavigationHelper {
         Set<EStructuralFeature> registered = this.subscribedFeatureListeners.computeIfAbsent(listener, l -> new HashSet<>());
         Set<EStructuralFeature> delta = setMinus(features, registered);
         if (!delta.isEmpty()) {
+            // notifications are only sent about indexed features
+            delta.forEach(feature -> ensureLazyFeatureIndexed(toKey(feature)));
             registered.addAll(delta);
             if (featureListeners != null) { // if already computed
                 for (EStructuralFeature subscriptionType : delta) {
@@ -1007,6 +1075,9 @@ public class NavigationHelperImpl implements NavigationHelper {
     @Override
     public void registerEStructuralFeatures(Set<? extends EStructuralFeature> features, final IndexingLevel level) {
         if (isRegistrationNecessary(level) && features != null) {
+            if (baseIndexOptions.isLazyFeatureIndexing() && level.hasInstances()) {
+                features = registerLazyFeatures(features, level);
+            }
             final Set<Object> resolved = resolveFeaturesToKey(features);
 
             try {
@@ -1026,6 +1097,7 @@ public class NavigationHelperImpl implements NavigationHelper {
             ensureNoListeners(resolved, getFeatureListeners());
             observedFeatures.keySet().removeAll(resolved);
             delayedFeatures.keySet().removeAll(resolved);
+            lazyFeatures.keySet().removeAll(resolved);
             for (Object f : resolved) {
                 instanceStore.forgetFeature(f);
                 statsStore.removeType(f);
@@ -1033,6 +1105,154 @@ public class NavigationHelperImpl implements NavigationHelper {
         }
     }
 
+    /**
+     * Records the lazily indexable features instead of registering them.
+     * 
+     * @return the features that have to be registered immediately
+     * @since 2.9
+     */
+    protected Set<EStructuralFeature> registerLazyFeatures(Set<? extends EStructuralFeature> features,
+            IndexingLevel level) {
+        Set<EStructuralFeature> immediateFeatures = new HashSet<>();
+        for (EStructuralFeature feature : features) {
+            Object featureKey = toKey(feature);
+            IndexingLevel indexedLevel = observedFeatures.get(featureKey);
+            if (isLazilyIndexable(feature) && (indexedLevel == null || !indexedLevel.hasInstances())) {
+                lazyFeatures.merge(featureKey, level, IndexingLevel::merge);
+            } else {
+                immediateFeatures.add(feature);
+            }
+        }
+        return immediateFeatures;
+    }
+    
+    /**
+     * Decides whether the values of the feature can be read directly from the model in the same form as they would be
+     * indexed.
+     * 
+     * @since 2.9
+     */
+    protected boolean isLazilyIndexable(EStructuralFeature feature) {
+        return !isInDynamicEMFMode() && !comprehension.untraversableDirectly(feature)
+                && !FeatureMapUtil.isFeatureMap(feature);
+    }
+    
+    /**
+     * Builds the index of the given feature if it was registered lazily and it is not indexed yet. All other lazily
+     * registered features that are not indexed yet are indexed by the same model traversal, so that features used
+     * together, e.g. by the queries of a group, do not cause a traversal each. If called during a coalescing period,
+     * the features are indexed at its end, together with the other registrations of the period.
+     * 
+     * @since 2.9
+     */
+    protected void ensureLazyFeatureIndexed(Object featureKey) {
+        if (lazyFeatures.containsKey(featureKey)) {
+            ensureLazyFeaturesIndexed();
+        }
+    }
+    
+    /**
+     * Builds the index of the given feature as {@link #ensureLazyFeatureIndexed(Object)}, before navigating it
+     * inversely or enumerating its instances. During a coalescing period, the feature is indexed right away, see
+     * {@link #ensureLazyFeaturesReadable()}.
+     * 
+     * @since 2.9
+     */
+    protected void ensureLazyFeatureReadable(Object featureKey) {
+        if (lazyFeatures.containsKey(featureKey)
+                || (!pendingLazyFeatures.isEmpty() && pendingLazyFeatures.containsKey(featureKey))) {
+            ensureLazyFeaturesReadable();
+        }
+    }
+    
+    /**
+     * Builds the index of all lazily registered features as {@link #ensureLazyFeaturesIndexed()}, before navigating
+     * them inversely. During a coalescing period, the features that are not indexed yet (including the ones whose
+     * indexing has been deferred to the end of the period) are indexed right away by a traversal of their own, so that
+     * the read is answered from a complete index.
+     * 
+     * @since 2.9
+     */
+    protected void ensureLazyFeaturesReadable() {
+        if (!delayTraversals) {
+            pendingLazyFeatures.clear();
+            ensureLazyFeaturesIndexed();
+            return;
+        }
+        Map<Object, IndexingLevel> features = new HashMap<>(lazyFeatures);
+        lazyFeatures.clear();
+        for (Entry<Object, IndexingLevel> pending : pendingLazyFeatures.entrySet()) {
+            IndexingLevel delayedLevel = delayedFeatures.remove(pending.getKey());
+            if (delayedLevel != null) {
+                features.merge(pending.getKey(), delayedLevel, IndexingLevel::merge);
+            }
+        }
+        pendingLazyFeatures.clear();
+        if (!features.isEmpty()) {
+            traverseLazyFeatures(features);
+        }
+    }
+    
+    /**
+     * Builds the index of all lazily registered features that are not indexed yet, using a single model traversal.
+     * 
+     * @since 2.9
+     */
+    protected void ensureLazyFeaturesIndexed() {
+        if (!lazyFeatures.isEmpty()) {
+            Map<Object, IndexingLevel> features = new HashMap<>(lazyFeatures);
+            lazyFeatures.clear();
+            if (delayTraversals) {
+                pendingLazyFeatures.putAll(features);
+            }
+            registerLazyFeaturesForTraversal(features);
+        }
+    }
+    
+    /**
+     * Indexes the given lazily registered features by a traversal of their own, independently of the coalescing
+     * period in progress; the traversal is performed as the ones started at the end of coalescing periods, see
+     * {@link #considerRevisit()}.
+     */
+    private void traverseLazyFeatures(Map<Object, IndexingLevel> features) {
+        final Map<Object, IndexingLevel> toGatherFeatures = new HashMap<>();
+        for (Entry<Object, IndexingLevel> requested : features.entrySet()) {
+            IndexingLevel old = observedFeatures.get(requested.getKey());
+            IndexingLevel merged = requested.getValue().merge(old);
+            if (merged != old) {
+                toGatherFeatures.put(requested.getKey(), merged);
+            }
+        }
+        if (toGatherFeatures.isEmpty()) {
+            return;
+        }
+        toGatherFeatures.forEach((key, value) -> {
+            IndexingLevel oldIndexingLevel = getIndexingLevel(metaStore.getKnownFeatureForKey(key));
+            if (value.hasInstances() && oldIndexingLevel.hasStatistics() && !oldIndexingLevel.hasInstances()) {
+                statsStore.removeType(key);
+            }
+        });
+        observedFeatures.putAll(toGatherFeatures);
+        final NavigationHelperVisitor visitor = initTraversingVisitor(new HashMap<>(), toGatherFeatures,
+                new HashMap<>(), new HashMap<>(directlyObservedClasses));
+        ignoreResolveNotificationFeatures.addAll(toGatherFeatures.keySet());
+        try {
+            traverse(visitor);
+        } catch (Exception ex) {
+            processingFatal(ex, "index the lazily registered EStructuralFeatures: " + toGatherFeatures.keySet());
+        } finally {
+            ignoreResolveNotificationFeatures.removeAll(toGatherFeatures.keySet());
+        }
+    }
+    
+    private void registerLazyFeaturesForTraversal(Map<Object, IndexingLevel> features) {
+        try {
+            coalesceTraversals(() -> delayedFeatures.putAll(features));
+        } catch (InvocationTargetException ex) {
+            processingFatal(ex.getCause(), "index the lazily registered EStructuralFeatures: " + features.keySet());
+        }
+    }
+
     @Override
     public void registerEClasses(Set<EClass> classes, final IndexingLevel level) {
         if (isRegistrationNecessary(level) && classes != null) {
@@ -1174,6 +1394,31 @@ public class NavigationHelperImpl implements NavigationHelper {
         return finalResult;
     }
 
+    @Override
+    public <V> V batchFeatureUpdates(Callable<V> callable) throws InvocationTargetException {
+        if (instanceStore.isBatchingFeatureUpdates()) { // reentrant case, no special action needed
+            try {
+                return callable.call();
+            } catch (Exception e) {
+                throw new InvocationTargetException(e);
+            }
+        }
+        instanceStore.startBatchingFeatureUpdates();
+        try {
+            return callable.call();
+        } catch (Exception e) {
+            throw new InvocationTargetException(e);
+        } finally {
+            // the model has been changed even if the callable failed
+            try {
+                instanceStore.finishBatchingFeatureUpdates();
+            } catch (Exception ex) {
+                processingFatal(ex, "apply the batched feature updates");
+            }
+            notifyBaseIndexChangeListeners();
+        }
+    }
+
     protected <V> Callable<V> considerRevisit() {
         // has there been any requests for a retraversal at all?
         if (!delayedClasses.isEmpty() || !delayedFeatures.isEmpty() || !delayedDataTypes.isEmpty()) {
@@ -1291,8 +1536,21 @@ public class NavigationHelperImpl implements NavigationHelper {
     }
 
     protected void traverse(final NavigationHelperVisitor visitor) {
+        // the traversal reads the current state of the model
+        instanceStore.flushFeatureUpdates();
         // Cloning model roots avoids a concurrent modification exception
-        for (Notifier root : new HashSet<Notifier>(modelRoots)) {
+        final Set<Notifier> roots = new HashSet<Notifier>(modelRoots);
+        final int parallelism = baseIndexOptions.getTraversalParallelism();
+        if (parallelism > 1 && visitor instanceof TraversingVisitor) {
+            ParallelModelTraversal parallelTraversal = new ParallelModelTraversal(comprehension, visitor, parallelism);
+            List<Consumer<EMFVisitor>> units = parallelTraversal.collectUnits(roots);
+            if (units.size() > 1) {
+                parallelTraversal.traverse(units);
+                notifyBaseIndexChangeListeners();
+                return;
+            }
+        }
+        for (Notifier root : roots) {
             comprehension.traverseModel(visitor, root);
         }
         notifyBaseIndexChangeListeners();
@@ -1522,12 +1780,29 @@ public class NavigationHelperImpl implements NavigationHelper {
 
     @Override
     public int countFeatureTargets(EObject seedSource, EStructuralFeature feature) {
+        if (lazyFeatures.containsKey(toKey(feature))) {
+            return getFeatureTargetsFromModel(seedSource, feature).size();
+        }
         return featureData(feature).getDistinctValuesOfHolder(seedSource).size();
     }
 
     @Override
     public int countFeatures(EStructuralFeature feature) {
-        return statsStore.countFeatures(toKey(feature));
+        Object featureKey = toKey(feature);
+        ensureLazyFeatureIndexed(featureKey);
+        return statsStore.countFeatures(featureKey);
+    }
+
+    @Override
+    public FeatureStatistics getFeatureStatistics(EStructuralFeature feature) {
+        Object featureKey = toKey(feature);
+        ensureLazyFeatureIndexed(featureKey);
+        return statsStore.getFeatureStatistics(featureKey);
+    }
+
+    @Override
+    public long countIndexEntries() {
+        return instanceStore.countEntries();
     }
 
     protected IndexingLevel getIndexingLevel(Object type) {
@@ -1571,6 +1846,7 @@ public class NavigationHelperImpl implements NavigationHelper {
         if (level == null) {
             level = delayedFeatures.get(key);
         }
+        level = lazyFeatures.getOrDefault(key, IndexingLevel.NONE).merge(level);
         // Wildcard mode is never null
         return wildcardMode.merge(level);
     }
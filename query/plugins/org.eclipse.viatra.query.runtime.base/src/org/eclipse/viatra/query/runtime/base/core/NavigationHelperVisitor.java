@@ -307,10 +307,12 @@ public abstract class NavigationHelperVisitor extends EMFVisitor {
             }
         }
         if (countsFeature(featureKey)){
+            if (internalValueRepresentation == null)
+                internalValueRepresentation = metaStore.toInternalValueRepresentation(target);
             if (isInsertion) {
-                statsStore.addFeature(source, featureKey);
+                statsStore.addFeature(source, featureKey, internalValueRepresentation);
             }else{
-                statsStore.removeFeature(source, featureKey);
+                statsStore.removeFeature(source, featureKey, internalValueRepresentation);
             }
         }
         if (observesDataType(eAttributeType)) {
@@ -356,9 +358,9 @@ public abstract class NavigationHelperVisitor extends EMFVisitor {
         }
         if (countsFeature(featureKey)){
             if (isInsertion){
-                statsStore.addFeature(source, featureKey);
+                statsStore.addFeature(source, featureKey, target);
             } else {
-                statsStore.removeFeature(source, featureKey);
+                statsStore.removeFeature(source, featureKey, target);
             }
         }
     }
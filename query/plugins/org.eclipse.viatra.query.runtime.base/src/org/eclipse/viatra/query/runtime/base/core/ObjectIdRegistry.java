@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.core;
+
+import java.util.Arrays;
+
+import org.eclipse.collections.impl.map.mutable.primitive.ObjectIntHashMap;
+import org.eclipse.collections.impl.stack.mutable.primitive.IntArrayStack;
+
+/**
+ * Assigns dense, non-negative integer identifiers to the objects stored by the compact feature storage of the base
+ * index (see {@link org.eclipse.viatra.query.runtime.base.api.BaseIndexOptions#withCompactFeatureStorage(boolean)}).
+ *
+ * <p>
+ * Identifiers are reference counted: an object keeps its identifier while it is referred by at least one stored
+ * feature instance, afterwards the identifier is released and reused for other objects.
+ *
+ * @since 2.9
+ */
+final class ObjectIdRegistry {
+
+    static final int NO_ID = -1;
+
+    private final ObjectIntHashMap<Object> ids = new ObjectIntHashMap<>();
+    private Object[] objects = new Object[16];
+    private int[] referenceCounts = new int[16];
+    private final IntArrayStack freeIds = new IntArrayStack();
+    private int nextId = 0;
+
+    /**
+     * @return the identifier of the given object, or {@link #NO_ID} if it has none
+     */
+    int getId(Object object) {
+        return ids.getIfAbsent(object, NO_ID);
+    }
+
+    Object getObject(int id) {
+        return objects[id];
+    }
+
+    /**
+     * Increases the reference count of the given object, assigning a new identifier if necessary.
+     *
+     * @return the identifier of the object
+     */
+    int acquire(Object object) {
+        int id = ids.getIfAbsent(object, NO_ID);
+        if (id == NO_ID) {
+            id = freeIds.isEmpty() ? nextId++ : freeIds.pop();
+            if (id == objects.length) {
+                objects = Arrays.copyOf(objects, id * 2);
+                referenceCounts = Arrays.copyOf(referenceCounts, id * 2);
+            }
+            objects[id] = object;
+            ids.put(object, id);
+        }
+        referenceCounts[id]++;
+        return id;
+    }
+
+    /**
+     * Decreases the reference count of the object with the given identifier, releasing the identifier if the object
+     * is no longer referred.
+     */
+    void release(int id) {
+        if (--referenceCounts[id] == 0) {
+            ids.remove(objects[id]);
+            objects[id] = null;
+            freeIds.push(id);
+        }
+    }
+
+    /**
+     * @return the number of objects that currently have an identifier
+     */
+    int size() {
+        return ids.size();
+    }
+}
@@ -0,0 +1,379 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.viatra.query.runtime.base.comprehension.EMFModelComprehension;
+import org.eclipse.viatra.query.runtime.base.comprehension.EMFVisitor;
+
+/**
+ * Executes a full-model traversal of a {@link NavigationHelperVisitor.TraversingVisitor} using multiple threads.
+ *
+ * <p>
+ * The model roots are partitioned into traversal units (the resources of resource set roots, and the other roots
+ * themselves). Each unit is traversed by a worker thread with a recording visitor, that only reads the model and
+ * collects the visited elements, attributes and references into a buffer of the unit. The recorded events are then
+ * replayed to the original visitor on the calling thread, unit by unit in the order of the sequential traversal, so
+ * the contents of the index and the notifications of index listeners are the same as with a sequential traversal.
+ * Replaying starts as soon as the first unit is recorded. At most as many units are recorded ahead of the replayed one
+ * as the parallelism of the traversal, which bounds the number of buffered events. The worker threads are shared by
+ * all traversals.
+ *
+ * <p>
+ * Workers only read features that are neither derived nor volatile, as the implementation of those may not be
+ * thread-safe; such features are recorded as deferred and read by the calling thread during the replay. The adapter
+ * lists of objects, read when deciding whether a containment link is transient, are only accessed by one worker at a
+ * time.
+ *
+ * <p>
+ * Units that contain unresolved proxies (resolution may load resources and modify the resource set) or where the
+ * recording failed are traversed sequentially by the original visitor instead; before such a traversal, all workers
+ * are awaited so that the model is not read concurrently with its modification.
+ *
+ * <p>
+ * The model must not be modified by other threads during the traversal.
+ *
+ * @since 2.9
+ */
+final class ParallelModelTraversal {
+
+    /**
+     * The worker threads shared by all traversals; idle threads are terminated after a minute
+     */
+    private static final class Workers {
+        private static final AtomicInteger THREAD_INDEX = new AtomicInteger();
+        static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "VIATRA Base index traversal " + THREAD_INDEX.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private final EMFModelComprehension comprehension;
+    private final NavigationHelperVisitor visitor;
+    private final int parallelism;
+
+    /**
+     * Feature pruning decisions of the original visitor; computing them may update the metamodel store of the index
+     */
+    private final Map<EStructuralFeature, Boolean> pruneDecisions = new ConcurrentHashMap<>();
+    /**
+     * Features whose values are only read by the calling thread
+     */
+    private final Map<EStructuralFeature, Boolean> deferDecisions = new ConcurrentHashMap<>();
+    /**
+     * Classes whose lazily computed metamodel caches are already initialized
+     */
+    private final Map<EClass, Boolean> preparedClasses = new ConcurrentHashMap<>();
+    /**
+     * Guards calls to the original visitor and the lazy initialization of metamodel caches; held by the calling thread
+     * while replaying recorded events
+     */
+    private final Object metamodelLock = new Object();
+    /**
+     * Guards the access of workers to the adapter lists of objects
+     */
+    private final Object adapterLock = new Object();
+
+    ParallelModelTraversal(EMFModelComprehension comprehension, NavigationHelperVisitor visitor, int parallelism) {
+        this.comprehension = comprehension;
+        this.visitor = visitor;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @return the traversal units of the given roots in the order they are traversed sequentially
+     */
+    List<Consumer<EMFVisitor>> collectUnits(Iterable<Notifier> roots) {
+        List<Consumer<EMFVisitor>> units = new ArrayList<>();
+        for (Notifier root : roots) {
+            if (root instanceof ResourceSet) {
+                for (Resource resource : new ArrayList<>(((ResourceSet) root).getResources())) {
+                    units.add(v -> comprehension.traverseResourceIfUnfiltered(v, resource));
+                }
+            } else {
+                units.add(v -> comprehension.traverseModel(v, root));
+            }
+        }
+        return units;
+    }
+
+    void traverse(List<Consumer<EMFVisitor>> units) {
+        List<Future<Recording>> recordings = new ArrayList<>(units.size());
+        int submitted = 0;
+        try {
+            for (; submitted < Math.min(parallelism, units.size()); submitted++) {
+                recordings.add(submit(units.get(submitted)));
+            }
+            for (int i = 0; i < units.size(); i++) {
+                Recording recording = await(recordings.get(i));
+                recordings.set(i, null);
+                if (recording != null) {
+                    if (submitted < units.size()) {
+                        recordings.add(submit(units.get(submitted++)));
+                    }
+                    // The index updates its metamodel store while workers may still ask for pruning decisions
+                    synchronized (metamodelLock) {
+                        recording.replay(this);
+                    }
+                } else {
+                    // Recordings already submitted are kept, as they have read the model before its modification
+                    recordings.forEach(this::await);
+                    units.get(i).accept(visitor);
+                    if (submitted < units.size()) {
+                        recordings.add(submit(units.get(submitted++)));
+                    }
+                }
+            }
+        } finally {
+            // No worker may read the model after the traversal
+            recordings.forEach(this::await);
+        }
+    }
+
+    private Future<Recording> submit(Consumer<EMFVisitor> unit) {
+        return Workers.EXECUTOR.submit(() -> record(unit));
+    }
+
+    /**
+     * @return the recording, or null if the unit has to be traversed sequentially
+     */
+    private Recording await(Future<Recording> recording) {
+        if (recording == null) {
+            return null;
+        }
+        try {
+            return recording.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            // The sequential traversal will report the problem in the usual way
+            return null;
+        }
+    }
+
+    private Recording record(Consumer<EMFVisitor> unit) {
+        RecordingVisitor recordingVisitor = new RecordingVisitor();
+        try {
+            unit.accept(recordingVisitor);
+            return recordingVisitor.recording;
+        } catch (ProxyEncounteredException e) {
+            return null;
+        }
+    }
+
+    private boolean pruneFeature(EStructuralFeature feature) {
+        Boolean decision = pruneDecisions.get(feature);
+        if (decision == null) {
+            synchronized (metamodelLock) {
+                decision = pruneDecisions.computeIfAbsent(feature, visitor::pruneFeature);
+            }
+        }
+        return decision;
+    }
+
+    private boolean deferFeature(EStructuralFeature feature) {
+        Boolean decision = deferDecisions.get(feature);
+        if (decision == null) {
+            synchronized (metamodelLock) {
+                decision = deferDecisions.computeIfAbsent(feature,
+                        f -> (f.isDerived() || f.isVolatile()) && !comprehension.untraversableDirectly(f));
+            }
+        }
+        return decision;
+    }
+
+    private void prepareClass(EClass eClass) {
+        if (!preparedClasses.containsKey(eClass)) {
+            synchronized (metamodelLock) {
+                // Feature lists and feature IDs are computed lazily by EMF, which is not thread-safe
+                for (EStructuralFeature feature : eClass.getEAllStructuralFeatures()) {
+                    eClass.getFeatureID(feature);
+                }
+                eClass.getEAllSuperTypes();
+                preparedClasses.put(eClass, Boolean.TRUE);
+            }
+        }
+    }
+
+    /**
+     * Signals that a traversal unit cannot be recorded, as it refers to an unresolved proxy
+     */
+    private static final class ProxyEncounteredException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        static final ProxyEncounteredException INSTANCE = new ProxyEncounteredException();
+
+        private ProxyEncounteredException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Records the visit events of a traversal unit, and answers the pruning questions as the original visitor would.
+     */
+    private final class RecordingVisitor extends EMFVisitor {
+        final Recording recording = new Recording();
+
+        RecordingVisitor() {
+            super(visitor.preOrder());
+        }
+
+        @Override
+        public void visitElement(EObject source) {
+            EClass eClass = source.eClass();
+            if (eClass.eIsProxy()) {
+                throw ProxyEncounteredException.INSTANCE;
+            }
+            prepareClass(eClass);
+            recording.add(Recording.ELEMENT, source, null, null);
+        }
+
+        @Override
+        public void visitAttribute(EObject source, EAttribute feature, Object target) {
+            recording.add(Recording.ATTRIBUTE, source, feature, target);
+        }
+
+        @Override
+        public void visitInternalContainment(EObject source, EReference feature, EObject target) {
+            recording.add(Recording.CONTAINMENT, source, feature, target);
+        }
+
+        @Override
+        public void visitNonContainmentReference(EObject source, EReference feature, EObject target) {
+            recording.add(Recording.NON_CONTAINMENT, source, feature, target);
+        }
+
+        @Override
+        public void visitProxyReference(EObject source, EReference reference, EObject targetObject,
+                Integer position) {
+            throw ProxyEncounteredException.INSTANCE;
+        }
+
+        @Override
+        public boolean attemptProxyResolutions(EObject source, EReference feature) {
+            // Resolution modifies the model; proxies are handled by the sequential fallback
+            return false;
+        }
+
+        @Override
+        public boolean pruneFeature(EStructuralFeature feature) {
+            return ParallelModelTraversal.this.pruneFeature(feature);
+        }
+
+        @Override
+        public boolean deferFeature(EObject source, EStructuralFeature feature) {
+            if (ParallelModelTraversal.this.deferFeature(feature)) {
+                recording.add(Recording.DEFERRED_FEATURE, source, feature, null);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean pruneSubtrees(EObject source) {
+            return visitor.pruneSubtrees(source);
+        }
+
+        @Override
+        public boolean pruneSubtrees(Resource source) {
+            return visitor.pruneSubtrees(source);
+        }
+
+        @Override
+        public boolean avoidTransientContainmentLink(EObject source, EReference reference, EObject targetObject) {
+            synchronized (adapterLock) {
+                return visitor.avoidTransientContainmentLink(source, reference, targetObject);
+            }
+        }
+
+        @Override
+        public boolean descendAlongCrossResourceContainments() {
+            return visitor.descendAlongCrossResourceContainments();
+        }
+    }
+
+    /**
+     * A compact buffer of visit events
+     */
+    private static final class Recording {
+        static final byte ELEMENT = 0;
+        static final byte ATTRIBUTE = 1;
+        static final byte CONTAINMENT = 2;
+        static final byte NON_CONTAINMENT = 3;
+        static final byte DEFERRED_FEATURE = 4;
+
+        byte[] kinds = new byte[64];
+        Object[] arguments = new Object[3 * 64];
+        int size = 0;
+
+        void add(byte kind, EObject source, EStructuralFeature feature, Object target) {
+            if (size == kinds.length) {
+                kinds = Arrays.copyOf(kinds, size * 2);
+                arguments = Arrays.copyOf(arguments, 3 * size * 2);
+            }
+            kinds[size] = kind;
+            arguments[3 * size] = source;
+            arguments[3 * size + 1] = feature;
+            arguments[3 * size + 2] = target;
+            size++;
+        }
+
+        void replay(ParallelModelTraversal traversal) {
+            EMFVisitor target = traversal.visitor;
+            for (int i = 0; i < size; i++) {
+                EObject source = (EObject) arguments[3 * i];
+                switch (kinds[i]) {
+                case ELEMENT:
+                    target.visitElement(source);
+                    break;
+                case ATTRIBUTE:
+                    target.visitAttribute(source, (EAttribute) arguments[3 * i + 1], arguments[3 * i + 2]);
+                    break;
+                case CONTAINMENT:
+                    target.visitInternalContainment(source, (EReference) arguments[3 * i + 1],
+                            (EObject) arguments[3 * i + 2]);
+                    break;
+                case NON_CONTAINMENT:
+                    target.visitNonContainmentReference(source, (EReference) arguments[3 * i + 1],
+                            (EObject) arguments[3 * i + 2]);
+                    break;
+                case DEFERRED_FEATURE:
+                    // a derived containment may lead to the adapter lists of its subtree
+                    synchronized (traversal.adapterLock) {
+                        traversal.comprehension.traverseObjectFeature(target, source,
+                                (EStructuralFeature) arguments[3 * i + 1]);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown visit event " + kinds[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,674 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.base.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.notify.Adapter;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.URIConverter;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.viatra.query.runtime.base.comprehension.EMFModelComprehension;
+import org.eclipse.viatra.query.runtime.base.comprehension.EMFVisitor;
+
+/**
+ * The visit events of the traversal of a single resource, persisted in the fragment directory of the index (see
+ * {@link org.eclipse.viatra.query.runtime.base.api.BaseIndexOptions#withResourceIndexFragmentLocation(Path)}).
+ *
+ * <p>
+ * The fragment of a resource is stored in a file named after the hash of the resource URI. Objects are identified by
+ * their position among the proper contents of the resource, features by their URI; attribute values of primitive
+ * types are stored in binary form, other values by their literal representation. A fragment is only valid for the
+ * exact contents it was recorded from: it records the timestamp, length and content hash of the serialized resource.
+ * The hash is only skipped if the timestamp and length of the resource equal the recorded ones, and the recorded
+ * timestamp is older than the recording of the fragment by at least {@link #TIME_STAMP_SAFETY_WINDOW}; otherwise, a
+ * change within the resolution of the file system timestamps could go unnoticed. A fragment whose hash, metamodel
+ * features or object count do not match is ignored and recorded again.
+ *
+ * @since 2.9
+ */
+final class ResourceIndexFragment {
+
+    static final String FILE_EXTENSION = "vqindex";
+
+    private static final int MAGIC = 0x56514946;
+    private static final int VERSION = 3;
+    private static final String HASH_ALGORITHM = "SHA-256";
+    /**
+     * The time in milliseconds a resource has to be unmodified before the recording of its fragment to be identified
+     * by its timestamp and length; covers the coarsest common file system timestamp resolution (two seconds)
+     */
+    private static final long TIME_STAMP_SAFETY_WINDOW = 2000;
+    private static final long UNKNOWN = -1;
+
+    private static final byte ELEMENT = 0;
+    private static final byte ATTRIBUTE = 1;
+    private static final byte CONTAINMENT = 2;
+    private static final byte NON_CONTAINMENT = 3;
+
+    private static final byte VALUE_STRING = 0;
+    private static final byte VALUE_INT = 1;
+    private static final byte VALUE_LONG = 2;
+    private static final byte VALUE_DOUBLE = 3;
+    private static final byte VALUE_FLOAT = 4;
+    private static final byte VALUE_BOOLEAN = 5;
+    private static final byte VALUE_SHORT = 6;
+    private static final byte VALUE_BYTE = 7;
+    private static final byte VALUE_CHARACTER = 8;
+    private static final byte VALUE_LITERAL = 9;
+
+    private final int objectCount;
+    private final List<EStructuralFeature> features;
+    private byte[] kinds = new byte[64];
+    /**
+     * Source object, feature index and target object or value index of each event
+     */
+    private int[] arguments = new int[3 * 64];
+    private int size = 0;
+    private final List<Object> values = new ArrayList<>();
+
+    private ResourceIndexFragment(int objectCount, List<EStructuralFeature> features) {
+        this.objectCount = objectCount;
+        this.features = features;
+    }
+
+    /**
+     * Collects the proper contents of a resource that was just loaded.
+     *
+     * @return the contents in traversal order, or null if the resource cannot be indexed from a fragment because some
+     *         of its objects are contained by or already indexed via another resource
+     */
+    static List<EObject> collectContents(Resource resource, Adapter adapter) {
+        for (EObject root : resource.getContents()) {
+            if (((InternalEObject) root).eInternalContainer() != null) {
+                return null;
+            }
+        }
+        List<EObject> contents = new ArrayList<>();
+        for (Iterator<EObject> it = EcoreUtil.getAllProperContents(resource, false); it.hasNext();) {
+            EObject eObject = it.next();
+            if (eObject.eAdapters().contains(adapter)) {
+                return null;
+            }
+            contents.add(eObject);
+        }
+        return contents;
+    }
+
+    /**
+     * Returns the fragment of a resource that was just loaded from its URI. The persisted fragment is used if it
+     * belongs to the current serialized form of the resource; otherwise the resource is traversed, and the recorded
+     * fragment is persisted for the next load.
+     *
+     * @param location
+     *            the directory of the fragment files
+     * @param contents
+     *            the proper contents of the resource, as returned by {@link #collectContents(Resource, Adapter)}
+     * @param visitor
+     *            the visitor the fragment will be replayed to
+     * @return the fragment, or null if the resource cannot be represented by a fragment
+     */
+    static ResourceIndexFragment obtain(Path location, Resource resource, List<EObject> contents,
+            EMFModelComprehension comprehension, EMFVisitor visitor, Logger logger) {
+        ResourceSet resourceSet = resource.getResourceSet();
+        URI uri = resource.getURI();
+        if (resourceSet == null || uri == null || !(uri.isFile() || uri.isPlatformResource())
+                || !resource.getErrors().isEmpty()) {
+            return null;
+        }
+        URIConverter converter = resourceSet.getURIConverter();
+        Path fragmentFile;
+        ResourceVersion version;
+        try {
+            fragmentFile = location.resolve(toHex(digest(uri.toString().getBytes(StandardCharsets.UTF_8))) + "."
+                    + FILE_EXTENSION);
+            version = ResourceVersion.of(converter, uri);
+        } catch (IOException | NoSuchAlgorithmException e) {
+            logger.debug("Cannot determine the version of resource " + uri, e);
+            return null;
+        }
+        try {
+            if (Files.isRegularFile(fragmentFile)) {
+                ResourceIndexFragment fragment = read(fragmentFile, uri, version, converter, resourceSet,
+                        contents);
+                if (fragment != null) {
+                    if (version.hashComputed) {
+                        // the resource was touched or recently modified; record its current timestamp to avoid
+                        // hashing on the next load once it is outside the safety window
+                        fragment.write(fragmentFile, uri, version, logger);
+                    }
+                    return fragment;
+                }
+            }
+        } catch (IOException | NoSuchAlgorithmException | RuntimeException e) {
+            logger.debug("Ignoring unreadable index fragment " + fragmentFile + " of resource " + uri, e);
+        }
+        ResourceIndexFragment fragment = record(resource, contents, comprehension, visitor);
+        if (fragment != null) {
+            try {
+                version.computeHash(converter, uri);
+                fragment.write(fragmentFile, uri, version, logger);
+            } catch (IOException | NoSuchAlgorithmException e) {
+                logger.debug("Cannot persist index fragment " + fragmentFile + " of resource " + uri, e);
+            }
+        }
+        return fragment;
+    }
+
+    /**
+     * The timestamp, length and (computed on demand) content hash of the serialized form of a resource.
+     */
+    private static final class ResourceVersion {
+        final long timeStamp;
+        final long length;
+        byte[] hash;
+        boolean hashComputed = false;
+
+        private ResourceVersion(long timeStamp, long length) {
+            this.timeStamp = timeStamp;
+            this.length = length;
+        }
+
+        static ResourceVersion of(URIConverter converter, URI uri) throws IOException {
+            Map<String, Object> options = Collections.singletonMap(URIConverter.OPTION_REQUESTED_ATTRIBUTES,
+                    new HashSet<>(Arrays.asList(URIConverter.ATTRIBUTE_TIME_STAMP, URIConverter.ATTRIBUTE_LENGTH)));
+            Map<String, ?> attributes = converter.getAttributes(uri, options);
+            return new ResourceVersion(toLong(attributes.get(URIConverter.ATTRIBUTE_TIME_STAMP)),
+                    toLong(attributes.get(URIConverter.ATTRIBUTE_LENGTH)));
+        }
+
+        private static long toLong(Object attribute) {
+            return attribute instanceof Long && (Long) attribute >= 0 ? (Long) attribute : UNKNOWN;
+        }
+
+        /**
+         * @return true if the resource has the given timestamp and length, both of which are known, and the timestamp
+         *         is older than the given recording time by at least {@link #TIME_STAMP_SAFETY_WINDOW}
+         */
+        boolean matches(long timeStamp, long length, long recordingTime) {
+            return this.timeStamp != UNKNOWN && this.length != UNKNOWN && this.timeStamp == timeStamp
+                    && this.length == length && timeStamp <= recordingTime - TIME_STAMP_SAFETY_WINDOW;
+        }
+
+        byte[] computeHash(URIConverter converter, URI uri) throws IOException, NoSuchAlgorithmException {
+            if (!hashComputed) {
+                MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+                try (InputStream in = converter.createInputStream(uri)) {
+                    byte[] buffer = new byte[8192];
+                    int read;
+                    while ((read = in.read(buffer)) >= 0) {
+                        digest.update(buffer, 0, read);
+                    }
+                }
+                hash = digest.digest();
+                hashComputed = true;
+            }
+            return hash;
+        }
+    }
+
+    /**
+     * Replays the events of the fragment to the given visitor, skipping the features pruned by the visitor.
+     *
+     * @param contents
+     *            the proper contents of the resource the fragment belongs to
+     */
+    void replay(EMFVisitor visitor, List<EObject> contents) {
+        boolean[] pruned = new boolean[features.size()];
+        for (int i = 0; i < pruned.length; i++) {
+            pruned[i] = visitor.pruneFeature(features.get(i));
+        }
+        for (int i = 0; i < size; i++) {
+            EObject source = contents.get(arguments[3 * i]);
+            if (kinds[i] == ELEMENT) {
+                visitor.visitElement(source);
+                continue;
+            }
+            int featureIndex = arguments[3 * i + 1];
+            if (pruned[featureIndex]) {
+                continue;
+            }
+            EStructuralFeature feature = features.get(featureIndex);
+            int target = arguments[3 * i + 2];
+            switch (kinds[i]) {
+            case ATTRIBUTE:
+                visitor.visitAttribute(source, (EAttribute) feature, values.get(target));
+                break;
+            case CONTAINMENT:
+                visitor.visitInternalContainment(source, (EReference) feature, contents.get(target));
+                break;
+            case NON_CONTAINMENT:
+                visitor.visitNonContainmentReference(source, (EReference) feature, contents.get(target));
+                break;
+            default:
+                throw new IllegalStateException("Unknown visit event " + kinds[i]);
+            }
+        }
+    }
+
+    private void add(byte kind, int source, int feature, int target) {
+        if (size == kinds.length) {
+            kinds = Arrays.copyOf(kinds, size * 2);
+            arguments = Arrays.copyOf(arguments, 3 * size * 2);
+        }
+        kinds[size] = kind;
+        arguments[3 * size] = source;
+        arguments[3 * size + 1] = feature;
+        arguments[3 * size + 2] = target;
+        size++;
+    }
+
+    private static byte[] digest(byte[] bytes) throws NoSuchAlgorithmException {
+        return MessageDigest.getInstance(HASH_ALGORITHM).digest(bytes);
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(2 * bytes.length);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Signals that a resource cannot be represented by a fragment
+     */
+    private static final class NotRepresentableException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        static final NotRepresentableException INSTANCE = new NotRepresentableException();
+
+        private NotRepresentableException() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static ResourceIndexFragment record(Resource resource, List<EObject> contents,
+            EMFModelComprehension comprehension, EMFVisitor visitor) {
+        RecordingVisitor recorder = new RecordingVisitor(contents, visitor);
+        try {
+            comprehension.traverseResource(recorder, resource);
+        } catch (NotRepresentableException e) {
+            return null;
+        }
+        return recorder.fragment;
+    }
+
+    /**
+     * Records all traversable features of the resource, so that the fragment remains usable if the set of indexed
+     * features changes.
+     */
+    private static final class RecordingVisitor extends EMFVisitor {
+        final ResourceIndexFragment fragment;
+        final Map<EObject, Integer> ids = new HashMap<>();
+        final Map<EStructuralFeature, Integer> featureIndices = new HashMap<>();
+        final EMFVisitor visitor;
+
+        RecordingVisitor(List<EObject> contents, EMFVisitor visitor) {
+            super(true);
+            this.visitor = visitor;
+            this.fragment = new ResourceIndexFragment(contents.size(), new ArrayList<>());
+            for (int i = 0; i < contents.size(); i++) {
+                ids.put(contents.get(i), i);
+            }
+        }
+
+        private int idOf(EObject eObject) {
+            Integer id = ids.get(eObject);
+            if (id == null) {
+                // cross-resource reference or containment
+                throw NotRepresentableException.INSTANCE;
+            }
+            return id;
+        }
+
+        private int indexOf(EStructuralFeature feature) {
+            return featureIndices.computeIfAbsent(feature, f -> {
+                if (f.eIsProxy() || f.eResource() == null) {
+                    throw NotRepresentableException.INSTANCE;
+                }
+                fragment.features.add(f);
+                return fragment.features.size() - 1;
+            });
+        }
+
+        @Override
+        public void visitElement(EObject source) {
+            if (source.eClass().eIsProxy()) {
+                throw NotRepresentableException.INSTANCE;
+            }
+            fragment.add(ELEMENT, idOf(source), 0, 0);
+        }
+
+        @Override
+        public void visitAttribute(EObject source, EAttribute feature, Object target) {
+            if (!isRepresentable(feature.getEAttributeType(), target)) {
+                throw NotRepresentableException.INSTANCE;
+            }
+            fragment.add(ATTRIBUTE, idOf(source), indexOf(feature), fragment.values.size());
+            fragment.values.add(target);
+        }
+
+        @Override
+        public void visitInternalContainment(EObject source, EReference feature, EObject target) {
+            fragment.add(CONTAINMENT, idOf(source), indexOf(feature), idOf(target));
+        }
+
+        @Override
+        public void visitNonContainmentReference(EObject source, EReference feature, EObject target) {
+            fragment.add(NON_CONTAINMENT, idOf(source), indexOf(feature), idOf(target));
+        }
+
+        @Override
+        public void visitProxyReference(EObject source, EReference reference, EObject targetObject,
+                Integer position) {
+            throw NotRepresentableException.INSTANCE;
+        }
+
+        @Override
+        public boolean attemptProxyResolutions(EObject source, EReference feature) {
+            return false;
+        }
+
+        @Override
+        public boolean avoidTransientContainmentLink(EObject source, EReference reference, EObject targetObject) {
+            return visitor.avoidTransientContainmentLink(source, reference, targetObject);
+        }
+    }
+
+    private static byte valueKind(Object value) {
+        if (value instanceof String) {
+            return VALUE_STRING;
+        } else if (value instanceof Integer) {
+            return VALUE_INT;
+        } else if (value instanceof Long) {
+            return VALUE_LONG;
+        } else if (value instanceof Double) {
+            return VALUE_DOUBLE;
+        } else if (value instanceof Float) {
+            return VALUE_FLOAT;
+        } else if (value instanceof Boolean) {
+            return VALUE_BOOLEAN;
+        } else if (value instanceof Short) {
+            return VALUE_SHORT;
+        } else if (value instanceof Byte) {
+            return VALUE_BYTE;
+        } else if (value instanceof Character) {
+            return VALUE_CHARACTER;
+        } else {
+            return VALUE_LITERAL;
+        }
+    }
+
+    /**
+     * Values of other than primitive types are stored by their literal, so they have to be recreated from the literal
+     * as an equal value of the same class.
+     */
+    private static boolean isRepresentable(EDataType type, Object value) {
+        if (valueKind(value) != VALUE_LITERAL) {
+            return true;
+        }
+        try {
+            String literal = EcoreUtil.convertToString(type, value);
+            Object recreated = literal == null ? null : EcoreUtil.createFromString(type, literal);
+            return recreated != null && recreated.getClass() == value.getClass() && recreated.equals(value);
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, EDataType type, Object value) throws IOException {
+        byte kind = valueKind(value);
+        out.writeByte(kind);
+        switch (kind) {
+        case VALUE_STRING:
+            writeString(out, (String) value);
+            break;
+        case VALUE_INT:
+            out.writeInt((Integer) value);
+            break;
+        case VALUE_LONG:
+            out.writeLong((Long) value);
+            break;
+        case VALUE_DOUBLE:
+            out.writeDouble((Double) value);
+            break;
+        case VALUE_FLOAT:
+            out.writeFloat((Float) value);
+            break;
+        case VALUE_BOOLEAN:
+            out.writeBoolean((Boolean) value);
+            break;
+        case VALUE_SHORT:
+            out.writeShort((Short) value);
+            break;
+        case VALUE_BYTE:
+            out.writeByte((Byte) value);
+            break;
+        case VALUE_CHARACTER:
+            out.writeChar((Character) value);
+            break;
+        default:
+            writeString(out, EcoreUtil.convertToString(type, value));
+            break;
+        }
+    }
+
+    /**
+     * @return the value read, or null if it cannot be recreated
+     */
+    private static Object readValue(DataInputStream in, EDataType type) throws IOException {
+        byte kind = in.readByte();
+        switch (kind) {
+        case VALUE_STRING:
+            return readString(in);
+        case VALUE_INT:
+            return in.readInt();
+        case VALUE_LONG:
+            return in.readLong();
+        case VALUE_DOUBLE:
+            return in.readDouble();
+        case VALUE_FLOAT:
+            return in.readFloat();
+        case VALUE_BOOLEAN:
+            return in.readBoolean();
+        case VALUE_SHORT:
+            return in.readShort();
+        case VALUE_BYTE:
+            return in.readByte();
+        case VALUE_CHARACTER:
+            return in.readChar();
+        case VALUE_LITERAL:
+            return EcoreUtil.createFromString(type, readString(in));
+        default:
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the fragment to a temporary file first, so that concurrent readers never see a partially written
+     * fragment.
+     */
+    private void write(Path fragmentFile, URI uri, ResourceVersion version, Logger logger) throws IOException {
+        Files.createDirectories(fragmentFile.getParent());
+        Path temporaryFile = Files.createTempFile(fragmentFile.getParent(), fragmentFile.getFileName().toString(),
+                ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                write(out, uri, version);
+            }
+            try {
+                Files.move(temporaryFile, fragmentFile, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryFile, fragmentFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            try {
+                Files.deleteIfExists(temporaryFile);
+            } catch (IOException e) {
+                logger.debug("Cannot delete temporary file " + temporaryFile, e);
+            }
+        }
+    }
+
+    private void write(DataOutputStream out, URI uri, ResourceVersion version) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, uri.toString());
+        out.writeLong(version.timeStamp);
+        out.writeLong(version.length);
+        out.writeLong(System.currentTimeMillis());
+        out.writeInt(version.hash.length);
+        out.write(version.hash);
+        out.writeInt(objectCount);
+        out.writeInt(features.size());
+        for (EStructuralFeature feature : features) {
+            writeString(out, EcoreUtil.getURI(feature).toString());
+        }
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeByte(kinds[i]);
+            out.writeInt(arguments[3 * i]);
+            if (kinds[i] == ELEMENT) {
+                continue;
+            }
+            out.writeInt(arguments[3 * i + 1]);
+            if (kinds[i] == ATTRIBUTE) {
+                EAttribute attribute = (EAttribute) features.get(arguments[3 * i + 1]);
+                writeValue(out, attribute.getEAttributeType(), values.get(arguments[3 * i + 2]));
+            } else {
+                out.writeInt(arguments[3 * i + 2]);
+            }
+        }
+        out.writeInt(MAGIC);
+    }
+
+    /**
+     * @return the persisted fragment, or null if it does not belong to the given contents
+     */
+    private static ResourceIndexFragment read(Path fragmentFile, URI uri, ResourceVersion version,
+            URIConverter converter, ResourceSet resourceSet, List<EObject> contents)
+            throws IOException, NoSuchAlgorithmException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(fragmentFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !uri.toString().equals(readString(in))) {
+                return null;
+            }
+            long timeStamp = in.readLong();
+            long length = in.readLong();
+            long recordingTime = in.readLong();
+            byte[] persistedHash = new byte[in.readInt()];
+            in.readFully(persistedHash);
+            if (!version.matches(timeStamp, length, recordingTime)
+                    && !Arrays.equals(version.computeHash(converter, uri), persistedHash)) {
+                return null;
+            }
+            if (in.readInt() != contents.size()) {
+                return null;
+            }
+            int featureCount = in.readInt();
+            List<EStructuralFeature> features = new ArrayList<>(featureCount);
+            for (int i = 0; i < featureCount; i++) {
+                EObject feature = resourceSet.getEObject(URI.createURI(readString(in)), false);
+                if (!(feature instanceof EStructuralFeature)) {
+                    return null;
+                }
+                features.add((EStructuralFeature) feature);
+            }
+            ResourceIndexFragment fragment = new ResourceIndexFragment(contents.size(), features);
+            int eventCount = in.readInt();
+            for (int i = 0; i < eventCount; i++) {
+                byte kind = in.readByte();
+                int source = in.readInt();
+                if (source < 0 || source >= contents.size()) {
+                    return null;
+                }
+                if (kind == ELEMENT) {
+                    fragment.add(kind, source, 0, 0);
+                    continue;
+                }
+                int featureIndex = in.readInt();
+                if (featureIndex < 0 || featureIndex >= featureCount) {
+                    return null;
+                }
+                EStructuralFeature feature = features.get(featureIndex);
+                if (contents.get(source).eClass().getFeatureID(feature) < 0) {
+                    // the metamodel has changed since the fragment was recorded
+                    return null;
+                }
+                if (kind == ATTRIBUTE) {
+                    if (!(feature instanceof EAttribute)) {
+                        return null;
+                    }
+                    Object value = readValue(in, ((EAttribute) feature).getEAttributeType());
+                    if (value == null) {
+                        return null;
+                    }
+                    fragment.add(kind, source, featureIndex, fragment.values.size());
+                    fragment.values.add(value);
+                } else if (kind == CONTAINMENT || kind == NON_CONTAINMENT) {
+                    int target = in.readInt();
+                    if (!(feature instanceof EReference)
+                            || ((EReference) feature).isContainment() != (kind == CONTAINMENT) || target < 0
+                            || target >= contents.size()) {
+                        return null;
+                    }
+                    fragment.add(kind, source, featureIndex, target);
+                } else {
+                    return null;
+                }
+            }
+            if (in.readInt() != MAGIC) {
+                return null;
+            }
+            return fragment;
+        }
+    }
+}
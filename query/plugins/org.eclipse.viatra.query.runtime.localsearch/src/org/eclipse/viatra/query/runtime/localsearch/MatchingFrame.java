@@ -82,6 +82,14 @@ public class MatchingFrame extends VolatileTuple implements IModifiableTuple {
         }
     }
 
+    /**
+     * Removes all values from the frame, allowing it to be reused for another search.
+     * @since 2.9
+     */
+    public void clear() {
+        Arrays.fill(frame, null);
+    }
+
     @Override
     public String toString() {
         return Arrays.stream(frame).map(this::stringRepresentation).collect(Collectors.joining(", ", "[", "]"));
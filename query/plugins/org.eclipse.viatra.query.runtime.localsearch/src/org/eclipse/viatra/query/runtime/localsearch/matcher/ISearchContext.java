@@ -17,6 +17,7 @@ import org.eclipse.emf.ecore.EDataType;
 import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.viatra.query.runtime.base.api.IndexingLevel;
 import org.eclipse.viatra.query.runtime.base.api.NavigationHelper;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.AdaptiveCallDelegation;
 import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.IAdornmentProvider;
 import org.eclipse.viatra.query.runtime.matchers.ViatraQueryRuntimeException;
 import org.eclipse.viatra.query.runtime.matchers.backend.IQueryResultProvider;
@@ -86,13 +87,27 @@ public interface ISearchContext {
         private final ICache backendLevelCache;
         private final Logger logger;
         private final ResultProviderRequestor resultProviderRequestor;
+        private final AdaptiveCallDelegation adaptiveCallDelegation;
         
         /**
          * Initializes a search context using an arbitrary backend context
          */
         public SearchContext(IQueryBackendContext backendContext, ICache backendLevelCache, 
                 ResultProviderRequestor resultProviderRequestor) {
+            this(backendContext, backendLevelCache, resultProviderRequestor, null);
+        }
+        
+        /**
+         * Initializes a search context using an arbitrary backend context
+         * 
+         * @param adaptiveCallDelegation
+         *            if non-null, selects the result providers of pattern calls based on their measured cost
+         * @since 2.9
+         */
+        public SearchContext(IQueryBackendContext backendContext, ICache backendLevelCache, 
+                ResultProviderRequestor resultProviderRequestor, AdaptiveCallDelegation adaptiveCallDelegation) {
             this.resultProviderRequestor = resultProviderRequestor;
+            this.adaptiveCallDelegation = adaptiveCallDelegation;
             this.runtimeContext = backendContext.getRuntimeContext();
             this.logger = backendContext.getLogger();
             this.navigationHelper = null;
@@ -121,8 +136,10 @@ public interface ISearchContext {
                 }
                 return Collections.emptySet();
             };
-            return resultProviderRequestor.requestResultProvider(dependency.getCall(), 
+            IQueryResultProvider resultProvider = resultProviderRequestor.requestResultProvider(dependency.getCall(), 
                     IAdornmentProvider.toHint(adornmentProvider));
+            return adaptiveCallDelegation == null ? resultProvider
+                    : adaptiveCallDelegation.getResultProvider(dependency.getReferredQuery(), resultProvider);
         }
 
         @Override
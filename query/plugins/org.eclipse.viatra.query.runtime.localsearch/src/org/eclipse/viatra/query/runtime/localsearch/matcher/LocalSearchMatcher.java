@@ -9,16 +9,20 @@
 package org.eclipse.viatra.query.runtime.localsearch.matcher;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -43,6 +47,15 @@ public final class LocalSearchMatcher implements ILocalSearchAdaptable {
     private final List<SearchPlanExecutor> plan;
     private final IPlanDescriptor planDescriptor;
     private final List<ILocalSearchAdapter> adapters;
+    
+    private static final Consumer<ITuple> NO_ACTION = match -> {};
+    
+    /*
+     * Reused by the forEachMatch methods, indexed by the position of the plan executor
+     */
+    private final MatchingFrame[] pooledFrames;
+    private final VolatileModifiableMaskedTuple[] pooledFrameViews;
+    private final Set<ITuple> pooledMatchSet = new HashSet<>();
 
     /**
      * @since 2.0
@@ -161,22 +174,7 @@ public final class LocalSearchMatcher implements ILocalSearchAdaptable {
         protected boolean initializeMatchingFrame(SearchPlanExecutor nextPlan) {
             frame = new MatchingFrame(nextPlan.getVariableMapping().size());
             parametersOfFrameView = new VolatileModifiableMaskedTuple(frame, nextPlan.getParameterMask());
-            for (int i = 0; i < parameterValues.length; i++) {
-                Object valueToSet = parameterValues[i];
-                if (valueToSet != null) {
-                    Object oldValue = parametersOfFrameView.get(i);
-                    if (oldValue == null) {
-                        parametersOfFrameView.set(i, valueToSet);
-                    } else if (!Objects.equals(valueToSet, oldValue)) {
-                        // Initial value setting resulted in contradictory values. This can happen because two parameter
-                        // variables have been unified but the call provides different values for the parameters.
-                        return false;
-                    }
-                    // If oldValue is not null but equal to newValue, the setting can be ignored
-                }
-            }
-            
-            return true;
+            return bindParameters(parametersOfFrameView, parameterValues);
         }
     }
     private class PlanExecutionIteratorWithTupleParameters extends PlanExecutionIterator {
@@ -194,24 +192,42 @@ public final class LocalSearchMatcher implements ILocalSearchAdaptable {
         protected boolean initializeMatchingFrame(SearchPlanExecutor nextPlan) {
             frame = new MatchingFrame(nextPlan.getVariableMapping().size());
             parametersOfFrameView = new VolatileModifiableMaskedTuple(frame, nextPlan.getParameterMask());
-            for (int i = 0; i < parameterSeedMask.getSize(); i++) {
-                int index = parameterSeedMask.indices[i];
-                Object valueToSet = parameterValues.get(i);
-                if (valueToSet != null) {
-                    Object oldValue = parametersOfFrameView.get(index);
-                    if (oldValue == null) {
-                        parametersOfFrameView.set(index, valueToSet);
-                    } else if (!Objects.equals(valueToSet, oldValue)) {
-                        // Initial value setting resulted in contradictory values. This can happen because two parameter
-                        // variables have been unified but the call provides different values for the parameters.
-                        return false;
-                    }
-                    // If oldValue is not null but equal to newValue, the setting can be ignored
-                }
+            return bindParameters(parametersOfFrameView, parameterSeedMask, parameterValues);
+        }
+    }
+
+    private static boolean bindParameters(VolatileModifiableMaskedTuple parametersOfFrameView, Object[] parameterValues) {
+        for (int i = 0; i < parameterValues.length; i++) {
+            if (!bindParameter(parametersOfFrameView, i, parameterValues[i])) {
+                return false;
             }
-            
-            return true;
         }
+        return true;
+    }
+    
+    private static boolean bindParameters(VolatileModifiableMaskedTuple parametersOfFrameView,
+            TupleMask parameterSeedMask, ITuple parameterValues) {
+        for (int i = 0; i < parameterSeedMask.getSize(); i++) {
+            if (!bindParameter(parametersOfFrameView, parameterSeedMask.indices[i], parameterValues.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean bindParameter(VolatileModifiableMaskedTuple parametersOfFrameView, int index, Object valueToSet) {
+        if (valueToSet != null) {
+            Object oldValue = parametersOfFrameView.get(index);
+            if (oldValue == null) {
+                parametersOfFrameView.set(index, valueToSet);
+            } else if (!Objects.equals(valueToSet, oldValue)) {
+                // Initial value setting resulted in contradictory values. This can happen because two parameter
+                // variables have been unified but the call provides different values for the parameters.
+                return false;
+            }
+            // If oldValue is not null but equal to newValue, the setting can be ignored
+        }
+        return true;
     }
 
     /**
@@ -222,6 +238,8 @@ public final class LocalSearchMatcher implements ILocalSearchAdaptable {
         this.planDescriptor = planDescriptor;
         this.plan = plan.stream().map(p -> new SearchPlanExecutor(p, searchContext)).collect(Collectors.toList());
         this.adapters = new LinkedList<>();
+        this.pooledFrames = new MatchingFrame[this.plan.size()];
+        this.pooledFrameViews = new VolatileModifiableMaskedTuple[this.plan.size()];
     }
     
     @Override
@@ -283,6 +301,175 @@ public final class LocalSearchMatcher implements ILocalSearchAdaptable {
                 Spliterator.IMMUTABLE | Spliterator.NONNULL | Spliterator.DISTINCT), false);
     }
     
+    /**
+     * Executes the search plans, and passes each match to the given action. In contrast to the stream-based methods,
+     * the matching frames are reused between invocations, and matches are not copied, only registered for duplicate
+     * elimination.
+     * 
+     * <p>
+     * The action receives a volatile view of the match, which is only valid during the invocation of the action; it
+     * must be copied (e.g. by {@link ITuple#toImmutable()}) if it is to be kept. The action must not evaluate this
+     * matcher again.
+     * 
+     * @return the number of matches found
+     * @since 2.9
+     */
+    public int forEachMatch(final Object[] parameterValues, Consumer<? super ITuple> action) {
+        return forEachMatch(parameterValues, null, null, action, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Executes the search plans, and passes each match to the given action. In contrast to the stream-based methods,
+     * the matching frames are reused between invocations, and matches are not copied, only registered for duplicate
+     * elimination.
+     * 
+     * <p>
+     * The action receives a volatile view of the match, which is only valid during the invocation of the action; it
+     * must be copied (e.g. by {@link ITuple#toImmutable()}) if it is to be kept. The action must not evaluate this
+     * matcher again.
+     * 
+     * @return the number of matches found
+     * @since 2.9
+     */
+    public int forEachMatch(TupleMask parameterSeedMask, final ITuple parameterValues, Consumer<? super ITuple> action) {
+        return forEachMatch(null, parameterSeedMask, parameterValues, action, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Counts the matches of the search plans, but stops the search as soon as the given limit is reached. Matching
+     * frames are reused similar to {@link #forEachMatch(Object[], Consumer)}.
+     * 
+     * @param upperLimit
+     *            a non-negative number of matches after which the search can stop
+     * @return the minimum of the number of matches and the limit
+     * @since 2.9
+     */
+    public int countMatches(final Object[] parameterValues, int upperLimit) {
+        return forEachMatch(parameterValues, null, null, NO_ACTION, upperLimit);
+    }
+    
+    /**
+     * Counts the matches of the search plans, but stops the search as soon as the given limit is reached. Matching
+     * frames are reused similar to {@link #forEachMatch(TupleMask, ITuple, Consumer)}.
+     * 
+     * @param upperLimit
+     *            a non-negative number of matches after which the search can stop
+     * @return the minimum of the number of matches and the limit
+     * @since 2.9
+     */
+    public int countMatches(TupleMask parameterSeedMask, final ITuple parameterValues, int upperLimit) {
+        return forEachMatch(null, parameterSeedMask, parameterValues, NO_ACTION, upperLimit);
+    }
+    
+    /**
+     * The parameters are either given as an array of (possibly null) values, or as a seed mask and the values of the
+     * seed; the unused arguments are null. They are passed directly instead of a binder function so that no object is
+     * allocated per call.
+     */
+    private int forEachMatch(Object[] parameterValues, TupleMask parameterSeedMask, ITuple parameterSeedValues,
+            Consumer<? super ITuple> action, int upperLimit) {
+        Preconditions.checkArgument(upperLimit >= 0, "Upper limit of matches must not be negative");
+        if (upperLimit == 0) {
+            return 0;
+        }
+        matchingStarted();
+        int count = 0;
+        SearchPlanExecutor previousPlan = null;
+        // the plan executing with the adapters of this matcher, which have to be removed even if the action fails
+        SearchPlanExecutor adaptedPlan = null;
+        try {
+            for (int i = 0; i < plan.size() && count < upperLimit; i++) {
+                SearchPlanExecutor currentPlan = plan.get(i);
+                MatchingFrame frame = getPooledFrame(i);
+                VolatileModifiableMaskedTuple parametersOfFrameView = pooledFrameViews[i];
+                boolean bound = parameterValues != null ? bindParameters(parametersOfFrameView, parameterValues)
+                        : bindParameters(parametersOfFrameView, parameterSeedMask, parameterSeedValues);
+                if (!bound) {
+                    continue;
+                }
+                currentPlan.addAdapters(adapters);
+                adaptedPlan = currentPlan;
+                currentPlan.resetPlan();
+                if (!adapters.isEmpty()) {
+                    for (ILocalSearchAdapter adapter : adapters) {
+                        adapter.planChanged(Optional.ofNullable(previousPlan).map(SearchPlanExecutor::getSearchPlan),
+                                Optional.of(currentPlan.getSearchPlan()));
+                    }
+                }
+                while (count < upperLimit && currentPlan.execute(frame)) {
+                    if (pooledMatchSet.contains(parametersOfFrameView)) {
+                        if (!adapters.isEmpty()) {
+                            for (ILocalSearchAdapter adapter : adapters) {
+                                adapter.duplicateMatchFound(frame);
+                            }
+                        }
+                    } else {
+                        count++;
+                        if (count < upperLimit) {
+                            // Multiple bodies or projected variables might produce the same match repeatedly; not
+                            // needed for the last match requested
+                            pooledMatchSet.add(parametersOfFrameView.toImmutable());
+                        }
+                        action.accept(parametersOfFrameView);
+                    }
+                }
+                currentPlan.removeAdapters(adapters);
+                adaptedPlan = null;
+                previousPlan = currentPlan;
+            }
+        } finally {
+            if (adaptedPlan != null) {
+                adaptedPlan.removeAdapters(adapters);
+            }
+            pooledMatchSet.clear();
+        }
+        // The search is over even if it was stopped at the limit, as no further matches will be requested
+        for (ILocalSearchAdapter adapter : adapters) {
+            adapter.noMoreMatchesAvailable(this);
+        }
+        return count;
+    }
+    
+    private MatchingFrame getPooledFrame(int planIndex) {
+        MatchingFrame frame = pooledFrames[planIndex];
+        if (frame == null) {
+            SearchPlanExecutor executor = plan.get(planIndex);
+            frame = new MatchingFrame(executor.getVariableMapping().size());
+            pooledFrames[planIndex] = frame;
+            pooledFrameViews[planIndex] = new VolatileModifiableMaskedTuple(frame, executor.getParameterMask());
+        } else {
+            frame.clear();
+        }
+        return frame;
+    }
+    
+    /**
+     * Executes the search plans for each of the given seeds one after the other, reusing this matcher (and thus the
+     * already created plan executors) for all of them. Each seed is evaluated only once, even if it occurs multiple
+     * times in the input.
+     * 
+     * @return the matches of each distinct seed, in the iteration order of the seeds
+     * @since 2.9
+     */
+    public Map<Tuple, List<Tuple>> getMatchesBySeed(TupleMask parameterSeedMask, Collection<? extends ITuple> parameterValues) {
+        Map<Tuple, List<Tuple>> result = new LinkedHashMap<>();
+        // Matches are collected eagerly, as the plan executors are reused by the next seed; a single collector is
+        // used for all seeds
+        List<List<Tuple>> currentMatches = new ArrayList<>(1);
+        currentMatches.add(null);
+        Consumer<ITuple> collector = match -> currentMatches.get(0).add(match.toImmutable());
+        for (ITuple seed : parameterValues) {
+            Tuple key = seed.toImmutable();
+            if (!result.containsKey(key)) {
+                List<Tuple> matches = new ArrayList<>();
+                currentMatches.set(0, matches);
+                forEachMatch(null, parameterSeedMask, key, collector, Integer.MAX_VALUE);
+                result.put(key, matches);
+            }
+        }
+        return result;
+    }
+    
     /**
      * Returns the query specification this matcher used as source for the implementation
      * @return never null
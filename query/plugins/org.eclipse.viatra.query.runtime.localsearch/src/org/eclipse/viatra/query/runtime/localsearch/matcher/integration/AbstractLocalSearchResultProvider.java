@@ -9,9 +9,11 @@
 package org.eclipse.viatra.query.runtime.localsearch.matcher.integration;
 
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -23,6 +25,8 @@ import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -38,6 +42,7 @@ import org.eclipse.viatra.query.runtime.localsearch.plan.SearchPlan;
 import org.eclipse.viatra.query.runtime.localsearch.plan.SearchPlanForBody;
 import org.eclipse.viatra.query.runtime.localsearch.planner.compiler.IOperationCompiler;
 import org.eclipse.viatra.query.runtime.matchers.ViatraQueryRuntimeException;
+import org.eclipse.viatra.query.runtime.matchers.backend.ICallDelegationStrategy;
 import org.eclipse.viatra.query.runtime.matchers.backend.IMatcherCapability;
 import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackend;
 import org.eclipse.viatra.query.runtime.matchers.backend.IQueryResultProvider;
@@ -79,7 +84,24 @@ public abstract class AbstractLocalSearchResultProvider implements IQueryResultP
     protected final IPlanProvider planProvider;
     private static final String PLAN_CACHE_KEY = AbstractLocalSearchResultProvider.class.getName() + "#planCache"; 
     private final Map<MatcherReference, IPlanDescriptor> planCache;
+    /**
+     * Idle matchers that can be reused by eager evaluations; a matcher is removed while in use, so recursive calls
+     * create their own instance.
+     */
+    private final Map<MatcherReference, Deque<LocalSearchMatcher>> matcherPool = new HashMap<>();
+    /**
+     * Matcher references of the eager evaluations, so that no adornment has to be computed per call; indexed by the
+     * bit set of bound parameters for queries with at most {@link #MAX_CACHED_REFERENCE_ARITY} parameters.
+     */
+    private MatcherReference[] referencesByBoundParameters;
+    private final Map<TupleMask, MatcherReference> referencesBySeedMask = new HashMap<>();
+    private static final int MAX_CACHED_REFERENCE_ARITY = 10;
     protected final ISearchContext searchContext;
+    /**
+     * Defers the promotions and demotions of called patterns to the end of the outermost call; null if the calls are
+     * not delegated adaptively
+     */
+    private final AdaptiveCallDelegation adaptiveCallDelegation;
     /**
      * @since 2.1
      */
@@ -99,7 +121,12 @@ public abstract class AbstractLocalSearchResultProvider implements IQueryResultP
         this.userHints = userHints;
         this.runtimeContext = context.getRuntimeContext();
         this.resultProviderRequestor = backend.getResultProviderRequestor(query, userHints);
-        this.searchContext = new ISearchContext.SearchContext(backendContext, backend.getCache(), resultProviderRequestor);
+        ICallDelegationStrategy delegationStrategy = resultProviderRequestor.getDelegationStrategy();
+        this.adaptiveCallDelegation = delegationStrategy instanceof AdaptiveCallDelegationStrategy
+                ? backend.getAdaptiveCallDelegation((AdaptiveCallDelegationStrategy) delegationStrategy)
+                : null;
+        this.searchContext = new ISearchContext.SearchContext(backendContext, backend.getCache(),
+                resultProviderRequestor, adaptiveCallDelegation);
         this.planCache = backend.getCache().getValue(PLAN_CACHE_KEY, Map.class, HashMap::new);
     }
     
@@ -278,33 +305,34 @@ public abstract class AbstractLocalSearchResultProvider implements IQueryResultP
      * @throws ViatraQueryRuntimeException
      */
     public LocalSearchMatcher newLocalSearchMatcher(ITuple parameters) {
-        final Set<PParameter> adornment = new HashSet<>();
-        for (int i = 0; i < parameters.getSize(); i++) {
-            if (parameters.get(i) != null) {
-                adornment.add(query.getParameters().get(i));
-            }
-        }
-        
-        return newLocalSearchMatcher(adornment);
+        return newLocalSearchMatcher(getAdornment(parameters.getElements()));
     }
     
     /**
      * @throws ViatraQueryRuntimeException
      */
     public LocalSearchMatcher newLocalSearchMatcher(Object[] parameters) {
+        return newLocalSearchMatcher(getAdornment(parameters));
+    }
+
+    /**
+     * Returns the parameters of the query bound by the given (possibly null) parameter values.
+     */
+    private Set<PParameter> getAdornment(Object[] parameters) {
         final Set<PParameter> adornment = new HashSet<>();
         for (int i = 0; i < parameters.length; i++) {
             if (parameters[i] != null) {
                 adornment.add(query.getParameters().get(i));
             }
         }
-    
-        return newLocalSearchMatcher(adornment);
+        return adornment;
     }
 
     private LocalSearchMatcher newLocalSearchMatcher(final Set<PParameter> adornment) {
-        final MatcherReference reference = new MatcherReference(query, adornment, userHints);
-        
+        return newLocalSearchMatcher(new MatcherReference(query, adornment, userHints));
+    }
+    
+    private LocalSearchMatcher newLocalSearchMatcher(final MatcherReference reference) {
         IPlanDescriptor plan = getOrCreatePlan(reference, planProvider);
         if (overrideDefaultHints(reference.getQuery()).isUseBase()){
             try {
@@ -319,6 +347,53 @@ public abstract class AbstractLocalSearchResultProvider implements IQueryResultP
         return matcher;
     }
 
+    private MatcherReference getMatcherReference(Object[] parameters) {
+        if (parameters.length > MAX_CACHED_REFERENCE_ARITY) {
+            return new MatcherReference(query, getAdornment(parameters), userHints);
+        }
+        int boundParameters = 0;
+        for (int i = 0; i < parameters.length; i++) {
+            if (parameters[i] != null) {
+                boundParameters |= 1 << i;
+            }
+        }
+        if (referencesByBoundParameters == null) {
+            referencesByBoundParameters = new MatcherReference[1 << parameters.length];
+        }
+        MatcherReference reference = referencesByBoundParameters[boundParameters];
+        if (reference == null) {
+            reference = new MatcherReference(query, getAdornment(parameters), userHints);
+            referencesByBoundParameters[boundParameters] = reference;
+        }
+        return reference;
+    }
+    
+    private MatcherReference getMatcherReference(TupleMask parameterSeedMask) {
+        MatcherReference reference = referencesBySeedMask.get(parameterSeedMask);
+        if (reference == null) {
+            reference = new MatcherReference(query,
+                    new HashSet<>(parameterSeedMask.transformUnique(query.getParameters())), userHints);
+            referencesBySeedMask.put(parameterSeedMask, reference);
+        }
+        return reference;
+    }
+    
+    /**
+     * Returns an idle matcher for the given reference from the pool, or creates a new one if none is available. The
+     * matcher has to be returned by {@link #releaseMatcher(MatcherReference, LocalSearchMatcher)} after use.
+     */
+    private LocalSearchMatcher borrowMatcher(MatcherReference reference) {
+        Deque<LocalSearchMatcher> idleMatchers = matcherPool.get(reference);
+        if (idleMatchers != null && !idleMatchers.isEmpty()) {
+            return idleMatchers.pop();
+        }
+        return newLocalSearchMatcher(reference);
+    }
+    
+    private void releaseMatcher(MatcherReference reference, LocalSearchMatcher matcher) {
+        matcherPool.computeIfAbsent(reference, ref -> new ArrayDeque<>()).push(matcher);
+    }
+
     private void indexKeys(final Iterable<IInputKey> keys) throws InvocationTargetException {
         final IQueryRuntimeContext qrc = getRuntimeContext();
         qrc.coalesceTraversals(new Callable<Void>() {
@@ -335,42 +410,159 @@ public abstract class AbstractLocalSearchResultProvider implements IQueryResultP
         });
     }
 
+    private void enterCall() {
+        if (adaptiveCallDelegation != null) {
+            adaptiveCallDelegation.enterCall();
+        }
+    }
+
+    private void exitCall() {
+        if (adaptiveCallDelegation != null) {
+            adaptiveCallDelegation.exitCall();
+        }
+    }
+
+    /**
+     * Keeps the call of a lazily evaluated match stream open until the stream is consumed or closed.
+     */
+    private Stream<Tuple> trackStream(Supplier<Stream<Tuple>> matches) {
+        return adaptiveCallDelegation == null ? matches.get() : adaptiveCallDelegation.trackStream(matches);
+    }
+
     @Override
     public boolean hasMatch(Object[] parameters) {
-        final LocalSearchMatcher matcher = initializeMatcher(parameters);
-        return matcher.streamMatches(parameters).findAny().isPresent();
+        return countMatchesUpTo(parameters, 1) > 0;
     }
 
     @Override
     public boolean hasMatch(TupleMask parameterSeedMask, ITuple parameters) {
-        final LocalSearchMatcher matcher = initializeMatcher(parameterSeedMask);
-        return matcher.streamMatches(parameterSeedMask, parameters).findAny().isPresent();
+        return countMatchesUpTo(parameterSeedMask, parameters, 1) > 0;
     }
 
     @Override
     public Optional<Tuple> getOneArbitraryMatch(Object[] parameters) {
-        final LocalSearchMatcher matcher = initializeMatcher(parameters);
-        return matcher.streamMatches(parameters).findAny();
+        enterCall();
+        try {
+            final LocalSearchMatcher matcher = initializeMatcher(parameters);
+            return matcher.streamMatches(parameters).findAny();
+        } finally {
+            exitCall();
+        }
     }
 
     @Override
     public Optional<Tuple> getOneArbitraryMatch(TupleMask parameterSeedMask, ITuple parameters) {
-        final LocalSearchMatcher matcher = initializeMatcher(parameterSeedMask);
-        return matcher.streamMatches(parameterSeedMask, parameters).findAny();
+        enterCall();
+        try {
+            final LocalSearchMatcher matcher = initializeMatcher(parameterSeedMask);
+            return matcher.streamMatches(parameterSeedMask, parameters).findAny();
+        } finally {
+            exitCall();
+        }
     }
 
     @Override
     public int countMatches(Object[] parameters) {
-        final LocalSearchMatcher matcher = initializeMatcher(parameters);
-        // Count returns long; casting to int - in case of integer overflow casting will throw the exception
-        return (int) matcher.streamMatches(parameters).count();
+        return forEachMatch(parameters, match -> {});
     }
     
     @Override
     public int countMatches(TupleMask parameterSeedMask, ITuple parameters) {
-        final LocalSearchMatcher matcher = initializeMatcher(parameterSeedMask);
-        // Count returns long; casting to int - in case of integer overflow casting will throw the exception
-        return (int) matcher.streamMatches(parameterSeedMask, parameters).count();
+        return forEachMatch(parameterSeedMask, parameters, match -> {});
+    }
+    
+    /**
+     * The search is stopped as soon as the limit is reached.
+     * 
+     * @since 2.9
+     */
+    @Override
+    public int countMatchesUpTo(Object[] parameters, int upperLimit) {
+        final MatcherReference reference = getMatcherReference(parameters);
+        enterCall();
+        try {
+            final LocalSearchMatcher matcher = borrowMatcher(reference);
+            try {
+                return matcher.countMatches(parameters, upperLimit);
+            } finally {
+                releaseMatcher(reference, matcher);
+            }
+        } finally {
+            exitCall();
+        }
+    }
+    
+    /**
+     * The search is stopped as soon as the limit is reached.
+     * 
+     * @since 2.9
+     */
+    @Override
+    public int countMatchesUpTo(TupleMask parameterSeedMask, ITuple parameters, int upperLimit) {
+        final MatcherReference reference = getMatcherReference(parameterSeedMask);
+        enterCall();
+        try {
+            final LocalSearchMatcher matcher = borrowMatcher(reference);
+            try {
+                return matcher.countMatches(parameterSeedMask, parameters, upperLimit);
+            } finally {
+                releaseMatcher(reference, matcher);
+            }
+        } finally {
+            exitCall();
+        }
+    }
+    
+    /**
+     * Passes each match conforming to the given parameters to the given action without copying it; the matching
+     * frames of the underlying matcher are reused between calls.
+     * 
+     * @param action receives a volatile view of each match that is only valid during the invocation of the action; it
+     *            must be copied (e.g. by {@link ITuple#toImmutable()}) if it is to be kept
+     * @return the number of matches found
+     * @see LocalSearchMatcher#forEachMatch(Object[], java.util.function.Consumer)
+     * @since 2.9
+     */
+    @Override
+    public int forEachMatch(Object[] parameters, Consumer<? super ITuple> action) {
+        final MatcherReference reference = getMatcherReference(parameters);
+        enterCall();
+        try {
+            final LocalSearchMatcher matcher = borrowMatcher(reference);
+            try {
+                return matcher.forEachMatch(parameters, action);
+            } finally {
+                releaseMatcher(reference, matcher);
+            }
+        } finally {
+            exitCall();
+        }
+    }
+    
+    /**
+     * Passes each match conforming to the given parameter seed to the given action without copying it; the matching
+     * frames of the underlying matcher are reused between calls.
+     * 
+     * @param action receives a volatile view of each match that is only valid during the invocation of the action; it
+     *            must be copied (e.g. by {@link ITuple#toImmutable()}) if it is to be kept
+     * @return the number of matches found
+     * @see LocalSearchMatcher#forEachMatch(TupleMask, ITuple, java.util.function.Consumer)
+     * @since 2.9
+     */
+    @Override
+    public int forEachMatch(TupleMask parameterSeedMask, ITuple parameters, Consumer<? super ITuple> action) {
+        final MatcherReference reference = getMatcherReference(parameterSeedMask);
+        enterCall();
+        try {
+            final LocalSearchMatcher matcher = borrowMatcher(reference);
+            try {
+                return matcher.forEachMatch(parameterSeedMask, parameters, action);
+            } finally {
+                releaseMatcher(reference, matcher);
+            }
+        } finally {
+            exitCall();
+        }
     }
         
     private static final double ESTIMATE_CEILING = Long.MAX_VALUE / 16.0;
@@ -476,14 +668,34 @@ public abstract class AbstractLocalSearchResultProvider implements IQueryResultP
 
     @Override
     public Stream<Tuple> getAllMatches(Object[] parameters) {
-        final LocalSearchMatcher matcher = initializeMatcher(parameters);
-        return matcher.streamMatches(parameters);
+        return trackStream(() -> initializeMatcher(parameters).streamMatches(parameters));
     }
     
     @Override
     public Stream<Tuple> getAllMatches(TupleMask parameterSeedMask, ITuple parameters) {
-        final LocalSearchMatcher matcher = initializeMatcher(parameterSeedMask);
-        return matcher.streamMatches(parameterSeedMask, parameters);
+        return trackStream(() -> initializeMatcher(parameterSeedMask).streamMatches(parameterSeedMask, parameters));
+    }
+
+    /**
+     * The search plan is looked up and the required indexes are initialized only once for all seeds.
+     * 
+     * @since 2.9
+     */
+    @Override
+    public Map<Tuple, List<Tuple>> getAllMatchesBySeed(TupleMask parameterSeedMask,
+            Collection<? extends ITuple> projectedParameterSeeds) {
+        final MatcherReference reference = getMatcherReference(parameterSeedMask);
+        enterCall();
+        try {
+            final LocalSearchMatcher matcher = borrowMatcher(reference);
+            try {
+                return matcher.getMatchesBySeed(parameterSeedMask, projectedParameterSeeds);
+            } finally {
+                releaseMatcher(reference, matcher);
+            }
+        } finally {
+            exitCall();
+        }
     }
 
     @Override
@@ -517,6 +729,43 @@ public abstract class AbstractLocalSearchResultProvider implements IQueryResultP
      */
     public void forgetAllPlans() {
         planCache.clear();
+        forgetPooledMatchers();
+    }
+    
+    /**
+     * Forgets all idle matchers kept for reuse by this result provider, e.g. because the set of adapters of the backend
+     * has changed.
+     * 
+     * @since 2.9
+     * @noreference This method is not intended to be referenced by clients; it should only used by {@link LocalSearchBackend}.
+     */
+    public void forgetPooledMatchers() {
+        matcherPool.clear();
+    }
+    
+    /**
+     * Returns the number of idle matchers kept for reuse by this result provider.
+     * 
+     * @since 2.9
+     * @noreference This method is not intended to be referenced by clients; it should only used by {@link LocalSearchBackend}.
+     */
+    public int countPooledMatchers() {
+        int count = 0;
+        for (Deque<LocalSearchMatcher> idleMatchers : matcherPool.values()) {
+            count += idleMatchers.size();
+        }
+        return count;
+    }
+    
+    /**
+     * Returns the number of search plans stored in the plan cache, which is shared by the result providers of the
+     * backend.
+     * 
+     * @since 2.9
+     * @noreference This method is not intended to be referenced by clients; it should only used by {@link LocalSearchBackend}.
+     */
+    public int countCachedPlans() {
+        return planCache.size();
     }
     
     /**
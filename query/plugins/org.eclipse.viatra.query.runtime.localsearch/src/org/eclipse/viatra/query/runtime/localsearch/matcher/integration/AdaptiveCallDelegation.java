@@ -0,0 +1,524 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.localsearch.matcher.integration;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.eclipse.viatra.query.runtime.matchers.ViatraQueryRuntimeException;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackend;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryResultProvider;
+import org.eclipse.viatra.query.runtime.matchers.backend.IUpdateable;
+import org.eclipse.viatra.query.runtime.matchers.context.IQueryBackendContext;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.matchers.tuple.ITuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
+import org.eclipse.viatra.query.runtime.matchers.util.Accuracy;
+import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory;
+
+/**
+ * The state of an {@link AdaptiveCallDelegationStrategy} in a local search backend: the call statistics of the
+ * called patterns, and the caching backend instance evaluating the promoted ones.
+ *
+ * <p>
+ * Called patterns are handed out to search operations as result providers that measure the time spent in the search
+ * result provider of the pattern, and forward to the caching backend once the pattern is promoted. Promotions and
+ * demotions are decided when a result provider is requested, i.e. in the middle of a search, but they are only
+ * performed at the boundary of the outermost result provider call of the local search backend, when no search frame
+ * iterates over the contents of the caching backend or the base index any more. The match streams returned by the
+ * local search result providers count as calls until they are consumed or closed.
+ *
+ * @since 2.9
+ * @noreference This class is not intended to be referenced by clients.
+ */
+public class AdaptiveCallDelegation {
+
+    private static final int MEMORY_CHECK_INTERVAL = 1024;
+
+    private final AdaptiveCallDelegationStrategy strategy;
+    private final IQueryBackendContext context;
+    private final Map<PQuery, CalledPattern> calledPatterns = CollectionsFactory.createMap();
+    private final Map<IQueryResultProvider, MeasuringResultProvider> resultProviders = CollectionsFactory.createMap();
+    private IQueryBackend incrementalBackend;
+    private int requestsSinceMemoryCheck = 0;
+    private boolean promotionSuspended = false;
+    /** The number of result provider calls and unconsumed match streams in progress, including nested ones */
+    private int activeCalls = 0;
+    /** The patterns to promote at the end of the outermost call */
+    private final Set<CalledPattern> pendingPromotions = new LinkedHashSet<>();
+    /** Whether all patterns are to be demoted at the end of the outermost call */
+    private boolean demotionPending = false;
+
+    AdaptiveCallDelegation(AdaptiveCallDelegationStrategy strategy, IQueryBackendContext context) {
+        this.strategy = strategy;
+        this.context = context;
+    }
+
+    /**
+     * Returns the result provider to be used by a search operation evaluating a pattern call.
+     *
+     * @param callee the called pattern
+     * @param resultProvider the result provider selected for the callee by the call delegation strategy
+     */
+    public IQueryResultProvider getResultProvider(PQuery callee, IQueryResultProvider resultProvider) {
+        if (resultProvider.getQueryBackend().isCaching()) {
+            // explicitly incremental callees are not measured
+            return resultProvider;
+        }
+        checkMemoryPressure();
+        MeasuringResultProvider measuring = resultProviders.get(resultProvider);
+        if (measuring == null) {
+            CalledPattern pattern = calledPatterns.get(callee);
+            if (pattern == null) {
+                pattern = new CalledPattern(callee);
+                calledPatterns.put(callee, pattern);
+            }
+            measuring = new MeasuringResultProvider(pattern, resultProvider);
+            resultProviders.put(resultProvider, measuring);
+        }
+        CalledPattern pattern = measuring.pattern;
+        if (pattern.materialized == null && !pattern.unsupported && !promotionSuspended
+                && strategy.isPromotionDue(pattern.calls, pattern.cost)) {
+            pendingPromotions.add(pattern);
+            applyPendingDecisions();
+        }
+        return measuring;
+    }
+
+    private void checkMemoryPressure() {
+        if (++requestsSinceMemoryCheck < MEMORY_CHECK_INTERVAL) {
+            return;
+        }
+        requestsSinceMemoryCheck = 0;
+        double usedRatio = strategy.getHeapUsageRatio();
+        if (usedRatio > strategy.getDemotionLimit()) {
+            promotionSuspended = true;
+            demoteAll();
+        } else if (promotionSuspended && usedRatio < strategy.getPromotionLimit()) {
+            promotionSuspended = false;
+        }
+    }
+
+    /**
+     * Registers the start of a result provider call of the local search backend; promotions and demotions are
+     * deferred until the outermost call ends.
+     */
+    void enterCall() {
+        activeCalls++;
+    }
+
+    /**
+     * Registers the end of a result provider call of the local search backend, and performs the deferred promotions
+     * and demotions at the end of the outermost call.
+     */
+    void exitCall() {
+        activeCalls--;
+        applyPendingDecisions();
+    }
+
+    /**
+     * Creates a match stream of a local search result provider, and counts it as a call until it is consumed or
+     * closed. Streams created during another call are not counted, as they are consumed or abandoned within that call.
+     */
+    Stream<Tuple> trackStream(Supplier<Stream<Tuple>> streamFactory) {
+        if (activeCalls > 0) {
+            return streamFactory.get();
+        }
+        enterCall();
+        Stream<Tuple> matches;
+        try {
+            matches = streamFactory.get();
+        } catch (RuntimeException e) {
+            exitCall();
+            throw e;
+        }
+        CallTracker tracker = new CallTracker();
+        return StreamSupport.stream(new TrackingSpliterator(matches.spliterator(), tracker), false)
+                .onClose(() -> {
+                    try {
+                        matches.close();
+                    } finally {
+                        tracker.exit();
+                    }
+                });
+    }
+
+    private void applyPendingDecisions() {
+        if (activeCalls > 0) {
+            return;
+        }
+        if (demotionPending) {
+            demotionPending = false;
+            pendingPromotions.clear();
+            release();
+        }
+        if (!promotionSuspended) {
+            for (CalledPattern pattern : pendingPromotions) {
+                if (pattern.materialized == null) {
+                    promote(pattern);
+                }
+            }
+        }
+        pendingPromotions.clear();
+    }
+
+    private void promote(CalledPattern pattern) {
+        if (incrementalBackend == null) {
+            incrementalBackend = strategy.getIncrementalBackendFactory().create(context);
+        }
+        try {
+            pattern.materialized = incrementalBackend.getResultProvider(pattern.query);
+        } catch (ViatraQueryRuntimeException e) {
+            pattern.unsupported = true;
+        }
+    }
+
+    /**
+     * Demotes all promoted patterns, forgets the call statistics of all patterns, and disposes the caching backend
+     * instance evaluating the promoted patterns. If called during a result provider call of the local search backend,
+     * the demotion is performed at the end of the outermost call.
+     */
+    public void demoteAll() {
+        demotionPending = true;
+        applyPendingDecisions();
+    }
+
+    private void release() {
+        for (CalledPattern pattern : calledPatterns.values()) {
+            pattern.materialized = null;
+            pattern.calls = 0;
+            pattern.cost = 0;
+        }
+        if (incrementalBackend != null) {
+            incrementalBackend.dispose();
+            incrementalBackend = null;
+        }
+    }
+
+    /**
+     * @return the patterns that are currently evaluated by the caching backend
+     */
+    public Set<PQuery> getPromotedQueries() {
+        return calledPatterns.values().stream().filter(pattern -> pattern.materialized != null)
+                .map(pattern -> pattern.query).collect(Collectors.toSet());
+    }
+
+    /**
+     * @return whether promotions are suspended until the heap usage drops below the promotion limit
+     */
+    public boolean isPromotionSuspended() {
+        return promotionSuspended;
+    }
+
+    void flushUpdates() {
+        if (incrementalBackend != null) {
+            incrementalBackend.flushUpdates();
+        }
+    }
+
+    long getEstimatedMemoryUsage() {
+        return incrementalBackend == null ? 0 : incrementalBackend.getEstimatedMemoryUsage();
+    }
+
+    void dispose() {
+        pendingPromotions.clear();
+        demotionPending = false;
+        release();
+        calledPatterns.clear();
+        resultProviders.clear();
+    }
+
+    private static final class CalledPattern {
+        private final PQuery query;
+        private int calls = 0;
+        /** The accumulated evaluation time in nanoseconds */
+        private long cost = 0;
+        private IQueryResultProvider materialized;
+        /** Patterns not supported by the caching backend are never promoted */
+        private boolean unsupported = false;
+
+        CalledPattern(PQuery query) {
+            this.query = query;
+        }
+    }
+
+    /**
+     * Measures the evaluation time of calls answered by search, and forwards calls to the caching backend if the
+     * pattern is promoted.
+     */
+    private static final class MeasuringResultProvider implements IQueryResultProvider {
+
+        private final CalledPattern pattern;
+        private final IQueryResultProvider search;
+
+        MeasuringResultProvider(CalledPattern pattern, IQueryResultProvider search) {
+            this.pattern = pattern;
+            this.search = search;
+        }
+
+        private void record(long start) {
+            pattern.calls++;
+            pattern.cost += System.nanoTime() - start;
+        }
+
+        private Stream<Tuple> measure(Stream<Tuple> matches, long start) {
+            Spliterator<Tuple> spliterator = matches.spliterator();
+            record(start);
+            return StreamSupport.stream(new MeasuringSpliterator(spliterator, pattern), false).onClose(matches::close);
+        }
+
+        @Override
+        public boolean hasMatch(Object[] parameters) {
+            if (pattern.materialized != null) {
+                return pattern.materialized.hasMatch(parameters);
+            }
+            long start = System.nanoTime();
+            boolean result = search.hasMatch(parameters);
+            record(start);
+            return result;
+        }
+
+        @Override
+        public boolean hasMatch(TupleMask parameterSeedMask, ITuple projectedParameterSeed) {
+            if (pattern.materialized != null) {
+                return pattern.materialized.hasMatch(parameterSeedMask, projectedParameterSeed);
+            }
+            long start = System.nanoTime();
+            boolean result = search.hasMatch(parameterSeedMask, projectedParameterSeed);
+            record(start);
+            return result;
+        }
+
+        @Override
+        public int countMatches(Object[] parameters) {
+            if (pattern.materialized != null) {
+                return pattern.materialized.countMatches(parameters);
+            }
+            long start = System.nanoTime();
+            int result = search.countMatches(parameters);
+            record(start);
+            return result;
+        }
+
+        @Override
+        public int countMatches(TupleMask parameterSeedMask, ITuple projectedParameterSeed) {
+            if (pattern.materialized != null) {
+                return pattern.materialized.countMatches(parameterSeedMask, projectedParameterSeed);
+            }
+            long start = System.nanoTime();
+            int result = search.countMatches(parameterSeedMask, projectedParameterSeed);
+            record(start);
+            return result;
+        }
+
+        @Override
+        public int countMatchesUpTo(Object[] parameters, int upperLimit) {
+            if (pattern.materialized != null) {
+                return pattern.materialized.countMatchesUpTo(parameters, upperLimit);
+            }
+            long start = System.nanoTime();
+            int result = search.countMatchesUpTo(parameters, upperLimit);
+            record(start);
+            return result;
+        }
+
+        @Override
+        public int countMatchesUpTo(TupleMask parameterSeedMask, ITuple projectedParameterSeed, int upperLimit) {
+            if (pattern.materialized != null) {
+                return pattern.materialized.countMatchesUpTo(parameterSeedMask, projectedParameterSeed, upperLimit);
+            }
+            long start = System.nanoTime();
+            int result = search.countMatchesUpTo(parameterSeedMask, projectedParameterSeed, upperLimit);
+            record(start);
+            return result;
+        }
+
+        @Override
+        public int forEachMatch(Object[] parameters, Consumer<? super ITuple> action) {
+            if (pattern.materialized != null) {
+                return pattern.materialized.forEachMatch(parameters, action);
+            }
+            long start = System.nanoTime();
+            int result = search.forEachMatch(parameters, action);
+            record(start);
+            return result;
+        }
+
+        @Override
+        public int forEachMatch(TupleMask parameterSeedMask, ITuple projectedParameterSeed,
+                Consumer<? super ITuple> action) {
+            if (pattern.materialized != null) {
+                return pattern.materialized.forEachMatch(parameterSeedMask, projectedParameterSeed, action);
+            }
+            long start = System.nanoTime();
+            int result = search.forEachMatch(parameterSeedMask, projectedParameterSeed, action);
+            record(start);
+            return result;
+        }
+
+        @Override
+        public Optional<Long> estimateCardinality(TupleMask groupMask, Accuracy requiredAccuracy) {
+            // estimations are requested by query planners, so they are neither measured nor forwarded
+            return search.estimateCardinality(groupMask, requiredAccuracy);
+        }
+
+        @Override
+        public Optional<Tuple> getOneArbitraryMatch(Object[] parameters) {
+            if (pattern.materialized != null) {
+                return pattern.materialized.getOneArbitraryMatch(parameters);
+            }
+            long start = System.nanoTime();
+            Optional<Tuple> result = search.getOneArbitraryMatch(parameters);
+            record(start);
+            return result;
+        }
+
+        @Override
+        public Optional<Tuple> getOneArbitraryMatch(TupleMask parameterSeedMask, ITuple parameters) {
+            if (pattern.materialized != null) {
+                return pattern.materialized.getOneArbitraryMatch(parameterSeedMask, parameters);
+            }
+            long start = System.nanoTime();
+            Optional<Tuple> result = search.getOneArbitraryMatch(parameterSeedMask, parameters);
+            record(start);
+            return result;
+        }
+
+        @Override
+        public Stream<Tuple> getAllMatches(Object[] parameters) {
+            if (pattern.materialized != null) {
+                return pattern.materialized.getAllMatches(parameters);
+            }
+            long start = System.nanoTime();
+            return measure(search.getAllMatches(parameters), start);
+        }
+
+        @Override
+        public Stream<Tuple> getAllMatches(TupleMask parameterSeedMask, ITuple parameters) {
+            if (pattern.materialized != null) {
+                return pattern.materialized.getAllMatches(parameterSeedMask, parameters);
+            }
+            long start = System.nanoTime();
+            return measure(search.getAllMatches(parameterSeedMask, parameters), start);
+        }
+
+        @Override
+        public IQueryBackend getQueryBackend() {
+            return search.getQueryBackend();
+        }
+
+        @Override
+        public void addUpdateListener(IUpdateable listener, Object listenerTag, boolean fireNow) {
+            search.addUpdateListener(listener, listenerTag, fireNow);
+        }
+
+        @Override
+        public void removeUpdateListener(Object listenerTag) {
+            search.removeUpdateListener(listenerTag);
+        }
+    }
+
+    /**
+     * Ends the call of a tracked match stream once, when the stream is consumed or closed.
+     */
+    private final class CallTracker {
+        private boolean active = true;
+
+        void exit() {
+            if (active) {
+                active = false;
+                exitCall();
+            }
+        }
+    }
+
+    /**
+     * Ends the call of a tracked match stream when its last match has been produced.
+     */
+    private static final class TrackingSpliterator implements Spliterator<Tuple> {
+
+        private final Spliterator<Tuple> delegate;
+        private final CallTracker tracker;
+
+        TrackingSpliterator(Spliterator<Tuple> delegate, CallTracker tracker) {
+            this.delegate = delegate;
+            this.tracker = tracker;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Tuple> action) {
+            boolean result = delegate.tryAdvance(action);
+            if (!result) {
+                tracker.exit();
+            }
+            return result;
+        }
+
+        @Override
+        public Spliterator<Tuple> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return delegate.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return delegate.characteristics() & ~(SUBSIZED | CONCURRENT);
+        }
+    }
+
+    /**
+     * Adds the time spent producing the matches of a stream to the cost of a pattern.
+     */
+    private static final class MeasuringSpliterator implements Spliterator<Tuple> {
+
+        private final Spliterator<Tuple> delegate;
+        private final CalledPattern pattern;
+
+        MeasuringSpliterator(Spliterator<Tuple> delegate, CalledPattern pattern) {
+            this.delegate = delegate;
+            this.pattern = pattern;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Tuple> action) {
+            long start = System.nanoTime();
+            boolean result = delegate.tryAdvance(action);
+            pattern.cost += System.nanoTime() - start;
+            return result;
+        }
+
+        @Override
+        public Spliterator<Tuple> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return delegate.estimateSize();
+        }
+
+        @Override
+        public int characteristics() {
+            return delegate.characteristics() & ~(SUBSIZED | CONCURRENT);
+        }
+    }
+}
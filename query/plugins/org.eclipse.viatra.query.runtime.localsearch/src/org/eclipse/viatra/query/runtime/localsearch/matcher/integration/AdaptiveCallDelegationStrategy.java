@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.localsearch.matcher.integration;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.eclipse.viatra.query.runtime.matchers.backend.ICallDelegationStrategy;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackend;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackendFactory;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackendHintProvider;
+import org.eclipse.viatra.query.runtime.matchers.backend.QueryEvaluationHint;
+import org.eclipse.viatra.query.runtime.matchers.psystem.IQueryReference;
+import org.eclipse.viatra.query.runtime.matchers.util.Preconditions;
+
+/**
+ * A call delegation strategy that decides at runtime which called patterns are evaluated by an incremental backend.
+ *
+ * <p>
+ * The local search backend measures the time spent evaluating each called pattern. Once a pattern has been called at
+ * least the given number of times, and the accumulated evaluation time exceeds the promotion budget, the pattern is
+ * promoted: further calls are answered by a caching backend instance created for the promoted patterns of the local
+ * search backend. Patterns not promoted (yet) are evaluated by the backend of the caller, as in
+ * {@link ICallDelegationStrategy#FULL_BACKEND_ADHESION}.
+ *
+ * <p>
+ * If the ratio of heap used after the last garbage collection exceeds the demotion limit, all patterns are demoted
+ * and their statistics are reset; the caching backend instance is disposed, freeing the structures of the promoted
+ * patterns. Patterns are not promoted again until the heap usage drops below the promotion limit, so that patterns do
+ * not flap between the two backends.
+ *
+ * <p>
+ * Pattern calls have to be left unflattened to be delegated; see {@link LocalSearchHints#getAdaptiveHybrid(IQueryBackendFactory)}.
+ * The state of the strategy is kept separately by each local search backend, see
+ * {@link LocalSearchBackend#getAdaptiveCallDelegation(AdaptiveCallDelegationStrategy)}.
+ *
+ * @since 2.9
+ */
+public class AdaptiveCallDelegationStrategy implements ICallDelegationStrategy {
+
+    /**
+     * The default number of calls required to promote a called pattern
+     */
+    public static final int DEFAULT_PROMOTION_CALL_COUNT = 10;
+    /**
+     * The default accumulated evaluation time, in nanoseconds, required to promote a called pattern
+     */
+    public static final long DEFAULT_PROMOTION_BUDGET = TimeUnit.MILLISECONDS.toNanos(10);
+    /**
+     * The default ratio of used heap above which all promoted patterns are demoted
+     */
+    public static final double DEFAULT_DEMOTION_LIMIT = 0.9;
+    /**
+     * The default ratio of used heap below which patterns may be promoted again after a demotion
+     */
+    public static final double DEFAULT_PROMOTION_LIMIT = 0.7;
+
+    private final IQueryBackendFactory incrementalBackendFactory;
+    private final int promotionCallCount;
+    private final long promotionBudget;
+    private final double demotionLimit;
+    private final double promotionLimit;
+    private List<MemoryPoolMXBean> heapPools;
+
+    /**
+     * Creates a strategy with the default promotion thresholds and memory limits.
+     *
+     * @param incrementalBackendFactory the caching backend used to evaluate promoted patterns
+     */
+    public AdaptiveCallDelegationStrategy(IQueryBackendFactory incrementalBackendFactory) {
+        this(incrementalBackendFactory, DEFAULT_PROMOTION_CALL_COUNT, DEFAULT_PROMOTION_BUDGET, DEFAULT_DEMOTION_LIMIT,
+                DEFAULT_PROMOTION_LIMIT);
+    }
+
+    /**
+     * @param incrementalBackendFactory the caching backend used to evaluate promoted patterns
+     * @param promotionCallCount the number of calls required to promote a called pattern
+     * @param promotionBudget the accumulated evaluation time, in nanoseconds, required to promote a called pattern
+     * @param demotionLimit ratio of used heap (between 0 and 1) above which all patterns are demoted
+     * @param promotionLimit ratio of used heap (between 0 and the demotion limit) below which patterns may be promoted
+     *            again after a demotion
+     */
+    public AdaptiveCallDelegationStrategy(IQueryBackendFactory incrementalBackendFactory, int promotionCallCount,
+            long promotionBudget, double demotionLimit, double promotionLimit) {
+        Preconditions.checkArgument(incrementalBackendFactory.isCaching(),
+                "Called patterns can only be promoted to a caching backend");
+        Preconditions.checkArgument(demotionLimit > 0 && demotionLimit <= 1,
+                "Demotion limit must be in the (0, 1] interval");
+        Preconditions.checkArgument(promotionLimit > 0 && promotionLimit <= demotionLimit,
+                "Promotion limit must be in the (0, demotionLimit] interval");
+        this.incrementalBackendFactory = incrementalBackendFactory;
+        this.promotionCallCount = promotionCallCount;
+        this.promotionBudget = promotionBudget;
+        this.demotionLimit = demotionLimit;
+        this.promotionLimit = promotionLimit;
+    }
+
+    @Override
+    public QueryEvaluationHint transformHints(IQueryReference call, QueryEvaluationHint callerHint,
+            IQueryBackend callerBackend, IQueryBackendHintProvider calleeHintProvider) {
+        // promoted calls are redirected by the local search backend itself, see AdaptiveCallDelegation
+        return FULL_BACKEND_ADHESION.transformHints(call, callerHint, callerBackend, calleeHintProvider);
+    }
+
+    /**
+     * @return the caching backend used to evaluate promoted patterns
+     */
+    public IQueryBackendFactory getIncrementalBackendFactory() {
+        return incrementalBackendFactory;
+    }
+
+    /**
+     * @return whether a pattern with the given statistics shall be promoted
+     */
+    boolean isPromotionDue(int calls, long cost) {
+        return calls >= promotionCallCount && cost >= promotionBudget;
+    }
+
+    /**
+     * @return the ratio of used heap above which all patterns are demoted
+     */
+    public double getDemotionLimit() {
+        return demotionLimit;
+    }
+
+    /**
+     * @return the ratio of used heap below which patterns may be promoted again after a demotion
+     */
+    public double getPromotionLimit() {
+        return promotionLimit;
+    }
+
+    /**
+     * Returns the ratio of the heap used after the last garbage collection, as reported by the heap memory pools;
+     * unlike the currently used heap, it does not include garbage not collected yet. If the pools do not report their
+     * usage after collections, the currently used heap is returned.
+     */
+    protected double getHeapUsageRatio() {
+        if (heapPools == null) {
+            heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                    .filter(pool -> pool.getType() == MemoryType.HEAP && pool.getCollectionUsage() != null)
+                    .collect(Collectors.toList());
+        }
+        Runtime runtime = Runtime.getRuntime();
+        if (heapPools.isEmpty()) {
+            return (double) (runtime.totalMemory() - runtime.freeMemory()) / runtime.maxMemory();
+        }
+        long used = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            used += usage.getUsed();
+        }
+        return (double) used / runtime.maxMemory();
+    }
+}
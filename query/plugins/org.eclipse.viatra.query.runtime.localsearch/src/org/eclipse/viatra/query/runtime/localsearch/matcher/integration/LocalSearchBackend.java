@@ -17,6 +17,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.eclipse.viatra.query.runtime.localsearch.exceptions.LocalSearchException;
@@ -46,6 +47,12 @@ import org.eclipse.viatra.query.runtime.matchers.util.PurgableCache;
  */
 public abstract class LocalSearchBackend implements IQueryBackend {
 
+    /**
+     * The estimated memory used by a cached search plan and by a pooled matcher, respectively
+     */
+    private static final long ESTIMATED_BYTES_PER_PLAN = 2048;
+    private static final long ESTIMATED_BYTES_PER_MATCHER = 1024;
+    
     IQueryBackendContext context;
     IPlanProvider planProvider;
     private final Set<ILocalSearchAdapter> adapters = new HashSet<>();
@@ -54,6 +61,8 @@ public abstract class LocalSearchBackend implements IQueryBackend {
     
     private final Map<PQuery, List<AbstractLocalSearchResultProvider>> resultProviderCache = CollectionsFactory.createMap();
     
+    private final Map<AdaptiveCallDelegationStrategy, AdaptiveCallDelegation> adaptiveCallDelegations = CollectionsFactory.createMap();
+    
     
     /**
      * @since 1.5
@@ -67,7 +76,8 @@ public abstract class LocalSearchBackend implements IQueryBackend {
 
     @Override
     public void flushUpdates() {
-        
+        // only the caching backends evaluating adaptively promoted pattern calls have pending updates
+        adaptiveCallDelegations.values().forEach(AdaptiveCallDelegation::flushUpdates);
     }
     
     @Override
@@ -119,8 +129,20 @@ public abstract class LocalSearchBackend implements IQueryBackend {
      */
     protected abstract AbstractLocalSearchResultProvider initializeResultProvider(PQuery query, QueryEvaluationHint hints);
     
+    /**
+     * Returns the state of the given adaptive call delegation strategy in this backend.
+     * 
+     * @noreference This method is not intended to be referenced by clients.
+     * @since 2.9
+     */
+    public AdaptiveCallDelegation getAdaptiveCallDelegation(AdaptiveCallDelegationStrategy strategy) {
+        return adaptiveCallDelegations.computeIfAbsent(strategy, s -> new AdaptiveCallDelegation(s, context));
+    }
+    
     @Override
     public void dispose() {  
+        adaptiveCallDelegations.values().forEach(AdaptiveCallDelegation::dispose);
+        adaptiveCallDelegations.clear();
         resultProviderCache.clear();
         generalCache.purge();
     }
@@ -165,14 +187,59 @@ public abstract class LocalSearchBackend implements IQueryBackend {
      * @since 1.5
      */
     public void addAdapter(ILocalSearchAdapter adapter){
-        adapters.add(adapter);
+        if (adapters.add(adapter)) {
+            forgetPooledMatchers();
+        }
     }
     
     /**
      * @since 1.5
      */
     public void removeAdapter(ILocalSearchAdapter adapter){
-        adapters.remove(adapter);
+        if (adapters.remove(adapter)) {
+            forgetPooledMatchers();
+        }
+    }
+    
+    /**
+     * @since 2.9
+     */
+    @Override
+    public long getEstimatedMemoryUsage() {
+        long usage = 0;
+        for (AdaptiveCallDelegation adaptiveCallDelegation : adaptiveCallDelegations.values()) {
+            usage += adaptiveCallDelegation.getEstimatedMemoryUsage();
+        }
+        List<AbstractLocalSearchResultProvider> resultProviders = resultProviderCache.values().stream()
+                .flatMap(List::stream).collect(Collectors.toList());
+        if (resultProviders.isEmpty()) {
+            return usage;
+        }
+        // the plan cache is shared by all result providers
+        usage += resultProviders.get(0).countCachedPlans() * ESTIMATED_BYTES_PER_PLAN;
+        for (AbstractLocalSearchResultProvider resultProvider : resultProviders) {
+            usage += resultProvider.countPooledMatchers() * ESTIMATED_BYTES_PER_MATCHER;
+        }
+        return usage;
+    }
+    
+    /**
+     * Forgets the search plans and pooled matchers of all result providers, and demotes the pattern calls promoted by
+     * adaptive call delegation; plans are recomputed on demand.
+     * 
+     * @since 2.9
+     */
+    @Override
+    public void releaseCaches() {
+        adaptiveCallDelegations.values().forEach(AdaptiveCallDelegation::demoteAll);
+        resultProviderCache.values().stream().flatMap(List::stream)
+                .forEach(AbstractLocalSearchResultProvider::forgetAllPlans);
+    }
+    
+    private void forgetPooledMatchers() {
+        // Pooled matchers have been created with the previous set of adapters
+        resultProviderCache.values().stream().flatMap(List::stream)
+                .forEach(AbstractLocalSearchResultProvider::forgetPooledMatchers);
     }
     
     /**
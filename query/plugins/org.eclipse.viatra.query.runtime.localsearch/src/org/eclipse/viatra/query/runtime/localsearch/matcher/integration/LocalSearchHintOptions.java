@@ -29,6 +29,14 @@ public final class LocalSearchHintOptions {
     public static final QueryHintOption<Boolean> USE_BASE_INDEX = 
             hintOption("USE_BASE_INDEX", true);
     
+    /**
+     * If true and the base index is not used, the search operates on a snapshot of the model, taken when it is first
+     * needed. Model changes made afterwards are not visible to the search.
+     * @since 2.9
+     */
+    public static final QueryHintOption<Boolean> USE_MODEL_SNAPSHOT = 
+            hintOption("USE_MODEL_SNAPSHOT", false);
+    
     // This key can be used to influence the core planner algorithm
     public static final QueryHintOption<Integer> PLANNER_TABLE_ROW_COUNT = 
             hintOption("PLANNER_TABLE_ROW_COUNT", 4);
@@ -14,6 +14,7 @@ import static org.eclipse.viatra.query.runtime.localsearch.matcher.integration.L
 import static org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHintOptions.PLANNER_COST_FUNCTION;
 import static org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHintOptions.PLANNER_TABLE_ROW_COUNT;
 import static org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHintOptions.USE_BASE_INDEX;
+import static org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHintOptions.USE_MODEL_SNAPSHOT;
 import static org.eclipse.viatra.query.runtime.matchers.backend.CommonQueryHintOptions.normalizationTraceCollector;
 
 import java.util.HashMap;
@@ -46,6 +47,8 @@ public final class LocalSearchHints implements IMatcherCapability {
     
     private Boolean useBase = null;
     
+    private Boolean useModelSnapshot = null;
+    
     private Integer rowCount = null;
     
     private ICostFunction costFunction = null;
@@ -75,6 +78,7 @@ public final class LocalSearchHints implements IMatcherCapability {
     public static LocalSearchHints getDefault(){
         LocalSearchHints result = new LocalSearchHints();
         result.useBase = USE_BASE_INDEX.getDefaultValue();
+        result.useModelSnapshot = USE_MODEL_SNAPSHOT.getDefaultValue();
         result.rowCount = PLANNER_TABLE_ROW_COUNT.getDefaultValue();
         result.costFunction = PLANNER_COST_FUNCTION.getDefaultValue();
         result.flattenCallPredicate = FLATTEN_CALL_PREDICATE.getDefaultValue();
@@ -115,6 +119,18 @@ public final class LocalSearchHints implements IMatcherCapability {
         return result;
     }
     
+    /**
+     * Settings to be used when the base index is not available, but the model is not modified while the queries are
+     * evaluated. The search operates on an array-based snapshot of the model taken on first use, which
+     * also allows inverse navigation along references without EOpposite.
+     * @since 2.9
+     */
+    public static LocalSearchHints getDefaultSnapshot(){
+        LocalSearchHints result = getDefaultNoBase();
+        result.useModelSnapshot = true;
+        return result;
+    }
+    
     /**
      * Initializes the generic (not EMF specific) search backend with the default settings
      * @since 1.7
@@ -143,6 +159,20 @@ public final class LocalSearchHints implements IMatcherCapability {
         return result;
     }
    
+    /**
+     * Initializes the default search backend with hybrid-enabled settings, where called patterns with a high measured
+     * evaluation cost are automatically delegated to the given caching backend by an {@link AdaptiveCallDelegationStrategy}. Pattern calls
+     * are not flattened, so that each of them can be delegated.
+     * 
+     * @since 2.9
+     */
+    public static LocalSearchHints getAdaptiveHybrid(IQueryBackendFactory incrementalBackendFactory){
+        LocalSearchHints result = getDefault();
+        result.callDelegationStrategy = new AdaptiveCallDelegationStrategy(incrementalBackendFactory);
+        result.flattenCallPredicate = new NeverFlattenCallPredicate();
+        return result;
+    }
+   
     /**
      * Initializes the generic (not EMF specific) search backend with hybrid-enabled settings
      * @since 2.1
@@ -159,6 +189,7 @@ public final class LocalSearchHints implements IMatcherCapability {
         LocalSearchHints result = new LocalSearchHints();
         
         result.useBase = USE_BASE_INDEX.getValueOrNull(hint);
+        result.useModelSnapshot = USE_MODEL_SNAPSHOT.getValueOrNull(hint);
         result.rowCount = PLANNER_TABLE_ROW_COUNT.getValueOrNull(hint);
         result.flattenCallPredicate = FLATTEN_CALL_PREDICATE.getValueOrNull(hint);
         result.callDelegationStrategy = CALL_DELEGATION_STRATEGY.getValueOrNull(hint);
@@ -175,6 +206,9 @@ public final class LocalSearchHints implements IMatcherCapability {
         if (useBase != null){
             USE_BASE_INDEX.insertOverridingValue(map, useBase); 
         }
+        if (useModelSnapshot != null){
+            USE_MODEL_SNAPSHOT.insertOverridingValue(map, useModelSnapshot);
+        }
         if (rowCount != null){
             PLANNER_TABLE_ROW_COUNT.insertOverridingValue(map, rowCount);
         }
@@ -224,6 +258,13 @@ public final class LocalSearchHints implements IMatcherCapability {
         return useBase;
     }
     
+    /**
+     * @since 2.9
+     */
+    public boolean isUseModelSnapshot() {
+        return useModelSnapshot == null ? USE_MODEL_SNAPSHOT.getDefaultValue() : useModelSnapshot;
+    }
+    
     public ICostFunction getCostFunction() {
         return costFunction;
     }
@@ -262,6 +303,14 @@ public final class LocalSearchHints implements IMatcherCapability {
         return this;
     }
     
+    /**
+     * @since 2.9
+     */
+    public LocalSearchHints setUseModelSnapshot(boolean useModelSnapshot) {
+        this.useModelSnapshot = useModelSnapshot;
+        return this;
+    }
+    
     public LocalSearchHints setRowCount(int rowCount) {
         this.rowCount = rowCount;
         return this;
@@ -306,6 +355,13 @@ public final class LocalSearchHints implements IMatcherCapability {
         return new LocalSearchHints().setUseBase(useBase);
     }
     
+    /**
+     * @since 2.9
+     */
+    public static LocalSearchHints customizeUseModelSnapshot(boolean useModelSnapshot){
+        return new LocalSearchHints().setUseModelSnapshot(useModelSnapshot);
+    }
+    
     public static LocalSearchHints customizeRowCount(int rowCount){
         return new LocalSearchHints().setRowCount(rowCount);
     }
@@ -346,7 +402,8 @@ public final class LocalSearchHints implements IMatcherCapability {
             /*
              * We allow substitution of matchers if their functionally relevant settings are equal.
              */
-            return Objects.equals(other.useBase, useBase);
+            return Objects.equals(other.useBase, useBase)
+                    && other.isUseModelSnapshot() == isUseModelSnapshot();
         }
         /*
          * For any other cases (e.g. for Rete), we cannot assume
@@ -51,6 +51,6 @@ public class LocalSearchResultProvider extends AbstractLocalSearchResultProvider
     @Override
     protected IOperationCompiler getOperationCompiler(IQueryBackendContext backendContext,
             LocalSearchHints configuration) {
-        return new EMFOperationCompiler(runtimeContext, configuration.isUseBase());
+        return new EMFOperationCompiler(runtimeContext, configuration.isUseBase(), configuration.isUseModelSnapshot());
     }
 }
@@ -47,8 +47,13 @@ public class CountCheck implements ISearchOperation, IPatternMatcherOperation {
         
         @Override
         protected boolean check(MatchingFrame frame, ISearchContext context) {
-            int count = matcher.countMatches(information.getParameterMask(), maskedTuple);
-            return ((Integer)frame.getValue(position)) == count;
+            int expected = (Integer) frame.getValue(position);
+            if (expected < 0) {
+                return false;
+            }
+            // Counting can stop after the first unexpected match
+            int limit = expected == Integer.MAX_VALUE ? expected : expected + 1;
+            return matcher.countMatchesUpTo(information.getParameterMask(), maskedTuple, limit) == expected;
         }
         
         @Override
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.localsearch.operations.extend.snapshot;
+
+import java.util.Iterator;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.viatra.query.runtime.emf.EMFScope;
+import org.eclipse.viatra.query.runtime.localsearch.MatchingFrame;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.ISearchContext;
+import org.eclipse.viatra.query.runtime.localsearch.operations.extend.SingleValueExtendOperationExecutor;
+import org.eclipse.viatra.query.runtime.localsearch.operations.extend.snapshot.EMFModelSnapshot.ObjectIterator;
+
+/**
+ * Common executor for operations over an {@link EMFModelSnapshot}. The snapshot is fetched on the first
+ * initialization, and the same iterator instance is reused for all subsequent ones.
+ * 
+ * @noextend This class is not intended to be subclassed by clients.
+ */
+abstract class AbstractSnapshotExtendOperationExecutor extends SingleValueExtendOperationExecutor<EObject> {
+
+    private final EMFScope scope;
+    private ObjectIterator iterator;
+
+    public AbstractSnapshotExtendOperationExecutor(int position, EMFScope scope) {
+        super(position);
+        this.scope = scope;
+    }
+
+    @Override
+    protected final Iterator<EObject> getIterator(MatchingFrame frame, ISearchContext context) {
+        if (iterator == null) {
+            iterator = new ObjectIterator(EMFModelSnapshot.getOrCreate(context, scope));
+        }
+        resetIterator(frame, iterator.getSnapshot(), iterator);
+        return iterator;
+    }
+
+    /**
+     * Restarts the iterator over the values matching the current state of the frame.
+     */
+    protected abstract void resetIterator(MatchingFrame frame, EMFModelSnapshot snapshot, ObjectIterator iterator);
+}
@@ -0,0 +1,322 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.localsearch.operations.extend.snapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.viatra.query.runtime.emf.EMFScope;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.ISearchContext;
+
+/**
+ * A compact, columnar snapshot of the contents of an {@link EMFScope}, used by the search operations of the snapshot
+ * mode of the local search backend (see {@link org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHints#getDefaultSnapshot()}).
+ *
+ * <p>
+ * Every {@link EObject} of the scope gets a dense integer identifier. Instances are stored as sorted identifier arrays
+ * per {@link EClass}, while each {@link EReference} is stored as a pair of compressed sparse row (CSR) adjacency
+ * arrays, one for each navigation direction; thus inverse navigation is available even without an EOpposite.
+ *
+ * <p>
+ * The identifiers are assigned by a single traversal when the snapshot is created; the arrays of a given type or
+ * reference are computed on first request, so a snapshot is not thread-safe, similar to the search backend using it.
+ * Model changes after the snapshot was created are <em>not</em> reflected, so this mode is only suitable for models
+ * that are not modified while the query engine is in use.
+ *
+ * @since 2.9
+ * @noinstantiate This class is not intended to be instantiated by clients.
+ */
+public final class EMFModelSnapshot {
+
+    private static final int[] NO_IDS = new int[0];
+
+    private final EObject[] objects;
+    private final Map<EObject, Integer> ids;
+    private final Map<EClass, int[]> directInstances;
+    private final Map<EClass, int[]> transitiveInstances = new HashMap<>();
+    private final Map<EReference, Adjacency> forwardAdjacencies = new HashMap<>();
+    private final Map<EReference, Adjacency> inverseAdjacencies = new HashMap<>();
+
+    /**
+     * Adjacency lists of all objects of the snapshot in CSR format: the neighbours of the object with identifier
+     * <code>i</code> are stored in <code>targets[offsets[i]]</code> to <code>targets[offsets[i+1] - 1]</code>.
+     */
+    private static final class Adjacency {
+        final int[] offsets;
+        final int[] targets;
+
+        Adjacency(int[] offsets, int[] targets) {
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+    }
+
+    private EMFModelSnapshot(EMFScope scope) {
+        List<EObject> objectList = new ArrayList<>();
+        ids = new HashMap<>();
+        for (Notifier root : scope.getScopeRoots()) {
+            TreeIterator<? extends Notifier> it;
+            if (root instanceof ResourceSet) {
+                it = ((ResourceSet) root).getAllContents();
+            } else if (root instanceof Resource) {
+                it = ((Resource) root).getAllContents();
+            } else if (root instanceof EObject) {
+                addObject((EObject) root, objectList);
+                it = ((EObject) root).eAllContents();
+            } else {
+                continue;
+            }
+            while (it.hasNext()) {
+                Notifier next = it.next();
+                if (next instanceof EObject) {
+                    addObject((EObject) next, objectList);
+                }
+            }
+        }
+        objects = objectList.toArray(new EObject[objectList.size()]);
+
+        Map<EClass, IdBuffer> instanceBuffers = new HashMap<>();
+        for (int i = 0; i < objects.length; i++) {
+            instanceBuffers.computeIfAbsent(objects[i].eClass(), c -> new IdBuffer()).add(i);
+        }
+        directInstances = new HashMap<>();
+        instanceBuffers.forEach((eClass, buffer) -> directInstances.put(eClass, buffer.toArray()));
+    }
+
+    private void addObject(EObject object, List<EObject> objectList) {
+        // Scope roots may overlap; each object is stored only once
+        if (ids.putIfAbsent(object, objectList.size()) == null) {
+            objectList.add(object);
+        }
+    }
+
+    /**
+     * Returns the snapshot of the given scope stored in the backend-level cache of the search context, creating it if
+     * necessary.
+     */
+    public static EMFModelSnapshot getOrCreate(ISearchContext context, EMFScope scope) {
+        return context.accessBackendLevelCache(EMFModelSnapshot.class, EMFModelSnapshot.class,
+                () -> new EMFModelSnapshot(scope));
+    }
+
+    /**
+     * @return the number of objects in the snapshot
+     */
+    public int size() {
+        return objects.length;
+    }
+
+    /**
+     * @return the object with the given identifier
+     */
+    public EObject getObject(int id) {
+        return objects[id];
+    }
+
+    /**
+     * @return the identifier of the given object, or -1 if it is not part of the snapshot
+     */
+    public int getId(Object object) {
+        Integer id = ids.get(object);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return the sorted identifiers of all direct and indirect instances of the given class
+     */
+    public int[] getInstanceIds(EClass eClass) {
+        int[] result = transitiveInstances.get(eClass);
+        if (result == null) {
+            result = collectTransitiveInstances(eClass);
+            transitiveInstances.put(eClass, result);
+        }
+        return result;
+    }
+
+    private int[] collectTransitiveInstances(EClass eClass) {
+        IdBuffer buffer = new IdBuffer();
+        for (Map.Entry<EClass, int[]> entry : directInstances.entrySet()) {
+            // Same instance test as the no-base operations: unlike isSuperTypeOf, isInstance also accepts every object
+            // as an instance of EObject; all direct instances of a class give the same result
+            if (eClass.isInstance(objects[entry.getValue()[0]])) {
+                buffer.addAll(entry.getValue());
+            }
+        }
+        int[] result = buffer.toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Resets the given iterator to the objects referred by the source object along the given reference.
+     */
+    public void targetsOf(EReference reference, Object source, ObjectIterator iterator) {
+        navigate(getForwardAdjacency(reference), source, iterator);
+    }
+
+    /**
+     * Resets the given iterator to the objects that refer to the target object along the given reference.
+     */
+    public void sourcesOf(EReference reference, Object target, ObjectIterator iterator) {
+        Adjacency adjacency = inverseAdjacencies.get(reference);
+        if (adjacency == null) {
+            adjacency = buildInverseAdjacency(getForwardAdjacency(reference));
+            inverseAdjacencies.put(reference, adjacency);
+        }
+        navigate(adjacency, target, iterator);
+    }
+
+    private Adjacency getForwardAdjacency(EReference reference) {
+        // Avoids computeIfAbsent, as method references would be allocated on each navigation step
+        Adjacency adjacency = forwardAdjacencies.get(reference);
+        if (adjacency == null) {
+            adjacency = buildForwardAdjacency(reference);
+            forwardAdjacencies.put(reference, adjacency);
+        }
+        return adjacency;
+    }
+
+    private void navigate(Adjacency adjacency, Object from, ObjectIterator iterator) {
+        int id = getId(from);
+        if (id < 0) {
+            iterator.reset(NO_IDS, 0, 0);
+        } else {
+            iterator.reset(adjacency.targets, adjacency.offsets[id], adjacency.offsets[id + 1]);
+        }
+    }
+
+    private Adjacency buildForwardAdjacency(EReference reference) {
+        int[] offsets = new int[objects.length + 1];
+        IdBuffer targets = new IdBuffer();
+        for (int i = 0; i < objects.length; i++) {
+            offsets[i] = targets.size;
+            for (Object value : valuesOf(objects[i], reference)) {
+                int target = getId(value);
+                if (target >= 0) {
+                    targets.add(target);
+                }
+            }
+        }
+        offsets[objects.length] = targets.size;
+        return new Adjacency(offsets, targets.toArray());
+    }
+
+    private Adjacency buildInverseAdjacency(Adjacency forward) {
+        // Counting sort of the forward edges by their target
+        int[] offsets = new int[objects.length + 1];
+        for (int target : forward.targets) {
+            offsets[target + 1]++;
+        }
+        for (int i = 0; i < objects.length; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        int[] sources = new int[forward.targets.length];
+        int[] fill = Arrays.copyOf(offsets, objects.length);
+        for (int source = 0; source < objects.length; source++) {
+            for (int j = forward.offsets[source]; j < forward.offsets[source + 1]; j++) {
+                sources[fill[forward.targets[j]]++] = source;
+            }
+        }
+        return new Adjacency(offsets, sources);
+    }
+
+    private static Collection<?> valuesOf(EObject object, EReference reference) {
+        if (!reference.getEContainingClass().isSuperTypeOf(object.eClass())) {
+            return Collections.emptyList();
+        }
+        Object value = object.eGet(reference);
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        return reference.isMany() ? (Collection<?>) value : Collections.singletonList(value);
+    }
+
+    /**
+     * A growable array of identifiers
+     */
+    private static final class IdBuffer {
+        int[] data = new int[16];
+        int size = 0;
+
+        void add(int id) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = id;
+        }
+
+        void addAll(int[] ids) {
+            if (size + ids.length > data.length) {
+                data = Arrays.copyOf(data, Math.max(size + ids.length, size * 2));
+            }
+            System.arraycopy(ids, 0, data, size, ids.length);
+            size += ids.length;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    /**
+     * A reusable iterator over a range of an identifier array of a snapshot, returning the corresponding objects.
+     * Search operations are expected to keep a single instance per executor and reset it on each initialization to
+     * avoid allocations during the search.
+     */
+    public static final class ObjectIterator implements Iterator<EObject> {
+        private final EMFModelSnapshot snapshot;
+        private int[] ids = NO_IDS;
+        private int next;
+        private int end;
+
+        public ObjectIterator(EMFModelSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        public EMFModelSnapshot getSnapshot() {
+            return snapshot;
+        }
+
+        /**
+         * Restarts the iterator over the identifiers stored in the [from, to) range of the given array.
+         */
+        public void reset(int[] ids, int from, int to) {
+            this.ids = ids;
+            this.next = from;
+            this.end = to;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        @Override
+        public EObject next() {
+            if (next >= end) {
+                throw new NoSuchElementException();
+            }
+            return snapshot.objects[ids[next++]];
+        }
+    }
+}
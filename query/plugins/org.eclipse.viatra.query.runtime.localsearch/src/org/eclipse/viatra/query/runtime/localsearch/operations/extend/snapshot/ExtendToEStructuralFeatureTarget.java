@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.localsearch.operations.extend.snapshot;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.viatra.query.runtime.emf.EMFScope;
+import org.eclipse.viatra.query.runtime.localsearch.MatchingFrame;
+import org.eclipse.viatra.query.runtime.localsearch.operations.ISearchOperation;
+import org.eclipse.viatra.query.runtime.localsearch.operations.extend.snapshot.EMFModelSnapshot.ObjectIterator;
+
+/**
+ * Iterates over all targets of an {@link EReference} using the adjacency arrays of an {@link EMFModelSnapshot}.
+ * 
+ * @since 2.9
+ */
+public class ExtendToEStructuralFeatureTarget implements ISearchOperation {
+
+    private class Executor extends AbstractSnapshotExtendOperationExecutor {
+
+        public Executor(EMFScope scope) {
+            super(targetPosition, scope);
+        }
+
+        @Override
+        protected void resetIterator(MatchingFrame frame, EMFModelSnapshot snapshot, ObjectIterator iterator) {
+            snapshot.targetsOf(reference, frame.getValue(sourcePosition), iterator);
+        }
+
+        @Override
+        public ISearchOperation getOperation() {
+            return ExtendToEStructuralFeatureTarget.this;
+        }
+    }
+
+    private final int sourcePosition;
+    private final int targetPosition;
+    private final EReference reference;
+    private final EMFScope scope;
+
+    public ExtendToEStructuralFeatureTarget(int sourcePosition, int targetPosition, EReference reference, EMFScope scope) {
+        this.sourcePosition = sourcePosition;
+        this.targetPosition = targetPosition;
+        this.reference = reference;
+        this.scope = scope;
+    }
+
+    public EReference getFeature() {
+        return reference;
+    }
+
+    @Override
+    public ISearchOperationExecutor createExecutor() {
+        return new Executor(scope);
+    }
+
+    @Override
+    public String toString() {
+        return toString(Object::toString);
+    }
+
+    @Override
+    public String toString(Function<Integer, String> variableMapping) {
+        return "extend    "+reference.getEContainingClass().getName()+"."+reference.getName()+"(+"+variableMapping.apply(sourcePosition)+", -"+variableMapping.apply(targetPosition)+") snapshot";
+    }
+
+    @Override
+    public List<Integer> getVariablePositions() {
+        return Arrays.asList(sourcePosition, targetPosition);
+    }
+
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.localsearch.operations.extend.snapshot;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.viatra.query.runtime.emf.EMFScope;
+import org.eclipse.viatra.query.runtime.emf.types.EClassTransitiveInstancesKey;
+import org.eclipse.viatra.query.runtime.localsearch.MatchingFrame;
+import org.eclipse.viatra.query.runtime.localsearch.operations.IIteratingSearchOperation;
+import org.eclipse.viatra.query.runtime.localsearch.operations.ISearchOperation;
+import org.eclipse.viatra.query.runtime.localsearch.operations.extend.snapshot.EMFModelSnapshot.ObjectIterator;
+import org.eclipse.viatra.query.runtime.matchers.context.IInputKey;
+
+/**
+ * Iterates all available {@link EClass} instances using the instance arrays of an {@link EMFModelSnapshot}.
+ * 
+ * @since 2.9
+ */
+public class IterateOverEClassInstances implements IIteratingSearchOperation {
+
+    private class Executor extends AbstractSnapshotExtendOperationExecutor {
+
+        public Executor(int position, EMFScope scope) {
+            super(position, scope);
+        }
+
+        @Override
+        protected void resetIterator(MatchingFrame frame, EMFModelSnapshot snapshot, ObjectIterator iterator) {
+            int[] instances = snapshot.getInstanceIds(clazz);
+            iterator.reset(instances, 0, instances.length);
+        }
+
+        @Override
+        public ISearchOperation getOperation() {
+            return IterateOverEClassInstances.this;
+        }
+    }
+
+    private final int position;
+    private final EClass clazz;
+    private final EMFScope scope;
+
+    public IterateOverEClassInstances(int position, EClass clazz, EMFScope scope) {
+        this.position = position;
+        this.clazz = clazz;
+        this.scope = scope;
+    }
+
+    public EClass getClazz() {
+        return clazz;
+    }
+
+    @Override
+    public ISearchOperationExecutor createExecutor() {
+        return new Executor(position, scope);
+    }
+
+    @Override
+    public String toString() {
+        return toString(Object::toString);
+    }
+
+    @Override
+    public String toString(Function<Integer, String> variableMapping) {
+        return "extend    "+clazz.getName()+"(-"+ variableMapping.apply(position)+") snapshot";
+    }
+
+    @Override
+    public List<Integer> getVariablePositions() {
+        return Collections.singletonList(position);
+    }
+
+    @Override
+    public IInputKey getIteratedInputKey() {
+        return new EClassTransitiveInstancesKey(clazz);
+    }
+
+}
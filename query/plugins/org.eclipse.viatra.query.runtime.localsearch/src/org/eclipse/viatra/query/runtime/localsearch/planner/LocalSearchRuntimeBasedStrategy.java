@@ -87,7 +87,8 @@ public class LocalSearchRuntimeBasedStrategy {
             LocalSearchHints configuration) {
         final ICostFunction costFunction = configuration.getCostFunction();
         PConstraintInfoInferrer pConstraintInfoInferrer = new PConstraintInfoInferrer(
-                configuration.isUseBase(), context, resultProviderRequestor, costFunction::apply);
+                configuration.isUseBase(), configuration.isUseModelSnapshot(), context, resultProviderRequestor,
+                costFunction::apply);
         
         // Create mask infos
         Set<PConstraint> constraintSet = pBody.getConstraints();
@@ -56,6 +56,7 @@ class PConstraintInfoInferrer {
     private static final Predicate<PVariable> SINGLE_USE_VARIABLE = input -> input != null && input.getReferringConstraints().size() == 1;
 
     private final boolean useIndex;
+    private final boolean useModelSnapshot;
     private final Function<IConstraintEvaluationContext, Double> costFunction;
     private final EMFModelComprehension modelComprehension;
     private final IQueryBackendContext context;
@@ -66,7 +67,20 @@ class PConstraintInfoInferrer {
             IQueryBackendContext backendContext, 
             ResultProviderRequestor resultRequestor,
             Function<IConstraintEvaluationContext, Double> costFunction) {
+        this(useIndex, false, backendContext, resultRequestor, costFunction);
+    }
+    
+    /**
+     * @param useModelSnapshot if true and the index is not used, references are navigated over a model snapshot,
+     *            which allows inverse navigation along all references
+     * @since 2.9
+     */
+    public PConstraintInfoInferrer(boolean useIndex, boolean useModelSnapshot,
+            IQueryBackendContext backendContext, 
+            ResultProviderRequestor resultRequestor,
+            Function<IConstraintEvaluationContext, Double> costFunction) {
         this.useIndex = useIndex;
+        this.useModelSnapshot = useModelSnapshot && !useIndex;
         this.context = backendContext;
         this.resultRequestor = resultRequestor;
         this.costFunction = costFunction;
@@ -266,7 +280,9 @@ class PConstraintInfoInferrer {
                  (feature instanceof EReference) && ((EReference)feature).isContainment()
                  || (   // Indexing is enabled, and the feature can be indexed (not a non-well-behaving derived feature).
                         useIndex && modelComprehension.representable(feature)
-                 ));
+                 )
+                 || // The model snapshot stores the inverse adjacency of each reference
+                 useModelSnapshot && feature instanceof EReference);
     }
     
     private void createConstraintInfoTypeConstraint(List<PConstraintInfo> resultList, 
@@ -46,6 +46,8 @@ import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
 public class EMFOperationCompiler extends AbstractOperationCompiler {
 
     private boolean baseIndexAvailable;
+    
+    private boolean modelSnapshotUsed;
 
     private final EMFQueryRuntimeContext runtimeContext;
     
@@ -54,9 +56,19 @@ public class EMFOperationCompiler extends AbstractOperationCompiler {
     }
     
     public EMFOperationCompiler(IQueryRuntimeContext runtimeContext, boolean baseIndexAvailable) {
+        this(runtimeContext, baseIndexAvailable, false);
+    }
+    
+    /**
+     * @param modelSnapshotUsed if true and the base index is not available, instance enumeration and navigation along
+     *            references are executed over a snapshot of the model
+     * @since 2.9
+     */
+    public EMFOperationCompiler(IQueryRuntimeContext runtimeContext, boolean baseIndexAvailable, boolean modelSnapshotUsed) {
         super(runtimeContext);
         this.runtimeContext = (EMFQueryRuntimeContext) runtimeContext;
         this.baseIndexAvailable = baseIndexAvailable;
+        this.modelSnapshotUsed = modelSnapshotUsed && !baseIndexAvailable;
     }
 
     @Override
@@ -141,6 +153,13 @@ public class EMFOperationCompiler extends AbstractOperationCompiler {
             if(baseIndexAvailable){
                 operations.add(new IterateOverEClassInstances(variableMapping.get(typeConstraint.getVariableInTuple(0)),
                         ((EClassTransitiveInstancesKey) inputKey).getEmfKey()));
+            } else if (modelSnapshotUsed) {
+                int position = variableMapping.get(typeConstraint.getVariableInTuple(0));
+                operations
+                        .add(new org.eclipse.viatra.query.runtime.localsearch.operations.extend.snapshot.IterateOverEClassInstances(
+                                position,
+                                ((EClassTransitiveInstancesKey) inputKey).getEmfKey(), runtimeContext.getEmfScope()));
+                operations.add(new ScopeCheck(position, runtimeContext.getEmfScope()));
             } else {
                 int position = variableMapping.get(typeConstraint.getVariableInTuple(0));
                 operations
@@ -158,7 +177,11 @@ public class EMFOperationCompiler extends AbstractOperationCompiler {
             boolean fromBound = variableBindings.get(typeConstraint).contains(sourcePosition);
             boolean toBound = variableBindings.get(typeConstraint).contains(targetPosition);
 
-            if (fromBound && !toBound) {
+            if (fromBound && !toBound && modelSnapshotUsed && feature instanceof EReference) {
+                operations.add(new org.eclipse.viatra.query.runtime.localsearch.operations.extend.snapshot.ExtendToEStructuralFeatureTarget(
+                        sourcePosition, targetPosition, (EReference) feature, runtimeContext.getEmfScope()));
+                operations.add(new ScopeCheck(targetPosition, runtimeContext.getEmfScope()));
+            } else if (fromBound && !toBound) {
                 operations.add(new ExtendToEStructuralFeatureTarget(sourcePosition, targetPosition, feature));
                 operations.add(new ScopeCheck(targetPosition, runtimeContext.getEmfScope()));
             } else if(!fromBound && toBound){
@@ -169,6 +192,10 @@ public class EMFOperationCompiler extends AbstractOperationCompiler {
                 } else if(baseIndexAvailable){
                     TupleMask mask = TupleMask.fromSelectedIndices(variableMapping.size(), new int[] {targetPosition});
                     operations.add(new ExtendToEStructuralFeatureSource(sourcePosition, targetPosition, feature, mask));                  
+                } else if (modelSnapshotUsed && feature instanceof EReference) {
+                    operations.add(new org.eclipse.viatra.query.runtime.localsearch.operations.extend.snapshot.ExtendToEStructuralFeatureSource(
+                            sourcePosition, targetPosition, (EReference) feature, runtimeContext.getEmfScope()));
+                    operations.add(new ScopeCheck(sourcePosition, runtimeContext.getEmfScope()));
                 } else {
                     operations.add(new org.eclipse.viatra.query.runtime.localsearch.operations.extend.nobase.ExtendToEStructuralFeatureSource(
                                     sourcePosition, targetPosition, feature));
@@ -180,6 +207,14 @@ public class EMFOperationCompiler extends AbstractOperationCompiler {
                 if (baseIndexAvailable) {
                     operations.add(new IterateOverEClassInstances(sourcePosition, feature.getEContainingClass()));
                     operations.add(new ExtendToEStructuralFeatureTarget(sourcePosition, targetPosition, feature));
+                } else if (modelSnapshotUsed && feature instanceof EReference) {
+                    operations
+                            .add(new org.eclipse.viatra.query.runtime.localsearch.operations.extend.snapshot.IterateOverEClassInstances(
+                                    sourcePosition, feature.getEContainingClass(), runtimeContext.getEmfScope()));
+                    operations.add(new ScopeCheck(sourcePosition, runtimeContext.getEmfScope()));
+                    operations.add(new org.eclipse.viatra.query.runtime.localsearch.operations.extend.snapshot.ExtendToEStructuralFeatureTarget(
+                            sourcePosition, targetPosition, (EReference) feature, runtimeContext.getEmfScope()));
+                    operations.add(new ScopeCheck(targetPosition, runtimeContext.getEmfScope()));
                 } else {
                     operations
                             .add(new org.eclipse.viatra.query.runtime.localsearch.operations.extend.nobase.IterateOverEClassInstances(
@@ -8,6 +8,8 @@
  *******************************************************************************/
 package org.eclipse.viatra.query.runtime.matchers.backend;
 
+import java.util.Collection;
+
 import org.eclipse.viatra.query.runtime.matchers.ViatraQueryRuntimeException;
 import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
 
@@ -40,6 +42,20 @@ public interface IQueryBackend {
 	 * @since 1.4
      */
     public IQueryResultProvider getResultProvider(PQuery query, QueryEvaluationHint hints);
+
+    /**
+     * Prepares the evaluation of a group of queries whose result providers are about to be requested, e.g. by
+     * performing query-level preprocessing steps of all queries in parallel. The implementation of this method is
+     * optional; it must not construct result providers, and errors should be left for
+     * {@link #getResultProvider(PQuery, QueryEvaluationHint)} to report.
+     * 
+     * @param hints
+     *            optional hints that may override engine defaults. Can be null.
+     * @since 2.9
+     */
+    public default void prepareQueries(Collection<PQuery> queries, QueryEvaluationHint hints) {
+        // no preparation by default
+    }
 	
     /**
      * Returns an existing result provider for a given query, if it was previously constructed, returns null otherwise.
@@ -54,6 +70,29 @@ public interface IQueryBackend {
 	 */
 	public void flushUpdates();
 	
+    /**
+     * Estimates the memory retained by this backend in bytes, not including the index of the model shared by the
+     * backends of an engine. The estimate is computed from the number of stored tuples and cached objects, and is only
+     * intended for enforcing memory budgets; it may be expensive to compute. The implementation of this method is
+     * optional.
+     * 
+     * @return the estimated memory usage, or 0 if not supported by the backend
+     * @since 2.9
+     */
+    public default long getEstimatedMemoryUsage() {
+        return 0;
+    }
+
+    /**
+     * Releases caches of the backend that are recomputed on demand, e.g. search plans, to reduce its memory usage.
+     * Result providers of the backend remain usable. The implementation of this method is optional.
+     * 
+     * @since 2.9
+     */
+    public default void releaseCaches() {
+        // no caches to release by default
+    }
+	
 	/**
 	 * Disposes the query backend.
 	 */
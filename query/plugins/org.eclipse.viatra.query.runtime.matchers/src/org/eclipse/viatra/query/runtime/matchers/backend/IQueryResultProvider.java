@@ -8,7 +8,13 @@
  *******************************************************************************/
 package org.eclipse.viatra.query.runtime.matchers.backend;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.eclipse.viatra.query.runtime.matchers.planning.helpers.StatisticsHelper;
@@ -73,6 +79,89 @@ public interface IQueryResultProvider {
      */
     public int countMatches(TupleMask parameterSeedMask, ITuple projectedParameterSeed);
     
+    /**
+     * Returns the number of matches of the pattern that conform to the given fixed values of some parameters, but at
+     * most the given limit. Backends may stop the evaluation as soon as the limit is reached; e.g. checking whether a
+     * pattern has more than three matches requires a limit of four.
+     *
+     * @param parameters
+     *            array where each non-null element binds the corresponding pattern parameter to a fixed value.
+     * @param upperLimit
+     *            a non-negative number of matches after which counting can stop
+     * @pre size of input array must be equal to the number of parameters.
+     * @return the minimum of the number of pattern matches found and the limit.
+     * @since 2.9
+     */
+    public default int countMatchesUpTo(Object[] parameters, int upperLimit) {
+        return (int) getAllMatches(parameters).limit(upperLimit).count();
+    }
+    
+    /**
+     * Returns the number of matches of the pattern that conform to the given fixed values of some parameters, but at
+     * most the given limit. Backends may stop the evaluation as soon as the limit is reached; e.g. checking whether a
+     * pattern has more than three matches requires a limit of four.
+     *
+     * @param parameterSeedMask
+     *            a mask that extracts those parameters of the query (from the entire parameter list) that should be
+     *            bound to a fixed value
+     * @param projectedParameterSeed
+     *            the tuple of fixed values restricting the match set to be considered, in the same order as given in
+     *            parameterSeedMask, so that for each considered match tuple,
+     *            projectedParameterSeed.equals(parameterSeedMask.transform(match)) should hold
+     * @param upperLimit
+     *            a non-negative number of matches after which counting can stop
+     * @return the minimum of the number of pattern matches found and the limit.
+     * @since 2.9
+     */
+    public default int countMatchesUpTo(TupleMask parameterSeedMask, ITuple projectedParameterSeed, int upperLimit) {
+        return (int) getAllMatches(parameterSeedMask, projectedParameterSeed).limit(upperLimit).count();
+    }
+    
+    /**
+     * Passes each match of the pattern that conforms to the given fixed values of some parameters to the given action.
+     * Backends may pass volatile views of the matches that are only valid during the invocation of the action; they
+     * have to be copied (e.g. by {@link ITuple#toImmutable()}) if they are to be kept.
+     *
+     * @param parameters
+     *            array where each non-null element binds the corresponding pattern parameter to a fixed value.
+     * @pre size of input array must be equal to the number of parameters.
+     * @return the number of pattern matches found.
+     * @since 2.9
+     */
+    public default int forEachMatch(Object[] parameters, Consumer<? super ITuple> action) {
+        int[] count = { 0 };
+        getAllMatches(parameters).forEach(match -> {
+            count[0]++;
+            action.accept(match);
+        });
+        return count[0];
+    }
+    
+    /**
+     * Passes each match of the pattern that conforms to the given fixed values of some parameters to the given action.
+     * Backends may pass volatile views of the matches that are only valid during the invocation of the action; they
+     * have to be copied (e.g. by {@link ITuple#toImmutable()}) if they are to be kept.
+     *
+     * @param parameterSeedMask
+     *            a mask that extracts those parameters of the query (from the entire parameter list) that should be
+     *            bound to a fixed value
+     * @param projectedParameterSeed
+     *            the tuple of fixed values restricting the match set to be considered, in the same order as given in
+     *            parameterSeedMask, so that for each considered match tuple,
+     *            projectedParameterSeed.equals(parameterSeedMask.transform(match)) should hold
+     * @return the number of pattern matches found.
+     * @since 2.9
+     */
+    public default int forEachMatch(TupleMask parameterSeedMask, ITuple projectedParameterSeed,
+            Consumer<? super ITuple> action) {
+        int[] count = { 0 };
+        getAllMatches(parameterSeedMask, projectedParameterSeed).forEach(match -> {
+            count[0]++;
+            action.accept(match);
+        });
+        return count[0];
+    }
+    
     /**
      * Gives an estimate of the number of different groups the matches are projected into by the given mask
      * (e.g. for an identity mask, this means the full match set size). The estimate must meet the required accuracy.
@@ -164,6 +253,29 @@ public interface IQueryResultProvider {
      */
     public Stream<Tuple> getAllMatches(TupleMask parameterSeedMask, ITuple parameters); 
     
+    /**
+     * Returns the set of all matches of the pattern for each of the given seeds, i.e. fixed values of the same subset
+     * of parameters. This is equivalent to calling {@link #getAllMatches(TupleMask, ITuple)} for each seed, but
+     * backends may share the setup work (e.g. plan lookup and indexing) between the seeds.
+     * 
+     * @param parameterSeedMask
+     *            a mask that extracts those parameters of the query (from the entire parameter list) that should be
+     *            bound to a fixed value
+     * @param projectedParameterSeeds
+     *            the tuples of fixed values, each in the same order as given in parameterSeedMask
+     * @return the matches of each (distinct) seed, in the iteration order of the seeds
+     * @since 2.9
+     */
+    public default Map<Tuple, List<Tuple>> getAllMatchesBySeed(TupleMask parameterSeedMask,
+            Collection<? extends ITuple> projectedParameterSeeds) {
+        Map<Tuple, List<Tuple>> result = new LinkedHashMap<>();
+        for (ITuple seed : projectedParameterSeeds) {
+            result.computeIfAbsent(seed.toImmutable(),
+                    key -> getAllMatches(parameterSeedMask, key).collect(Collectors.toList()));
+        }
+        return result;
+    }
+    
     /**
      * The underlying query evaluator backend.
      */
@@ -71,4 +71,12 @@ public class ResultProviderRequestor {
         return resultProviderAccess.getResultProvider(call.getReferredQuery(), hints);
     }
 
+    /**
+     * @return the strategy that selects the hints of the called queries
+     * @since 2.9
+     */
+    public ICallDelegationStrategy getDelegationStrategy() {
+        return delegationStrategy;
+    }
+
 }
@@ -13,6 +13,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.viatra.query.runtime.matchers.context.IQueryMetaContext;
 
@@ -27,9 +28,10 @@ public abstract class BasePConstraint implements PConstraint {
     private final Set<PVariable> affectedVariables;
     
     
-    private final int sequentialID = nextID++;
+    private final int sequentialID = nextID.getAndIncrement();
 
-    private static int nextID = 0;
+    // bodies may be normalized on several threads in parallel
+    private static final AtomicInteger nextID = new AtomicInteger();
 
     public BasePConstraint(PBody pBody, Set<PVariable> affectedVariables) {
         super();
@@ -33,6 +33,7 @@ import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
  * <p> Any client can instantiate this to statically analyze queries. 
  * Query backends should share an instance obtained via {@link IQueryBackendContext} to save resources.
  * <p> Precondition: all involved queries must be initialized.
+ * <p> Since 2.9, the analyzer may be used by several threads concurrently, e.g. when planning queries in parallel.
  * @noinstantiate Considered unstable API; subject to change in future versions. 
  * Either use the analyzer provided by {@link IQueryBackendContext}, or anticipate 
  * potential future breakage when instantiating your own analyzer.
@@ -66,7 +67,7 @@ public final class QueryAnalyzer {
      *  use true if superfluous dependencies may taint the correctness of a computation, false if they would merely impact performance
      * @since 1.5
      */
-    public Map<Set<Integer>, Set<Integer>> getProjectedFunctionalDependencies(PQuery query, boolean strict) {
+    public synchronized Map<Set<Integer>, Set<Integer>> getProjectedFunctionalDependencies(PQuery query, boolean strict) {
         Map<PQuery, Map<Set<Integer>, Set<Integer>>> guaranteeStore =  strict ? strictFunctionalDependencyGuarantees : softFunctionalDependencyGuarantees;
         Map<Set<Integer>, Set<Integer>> dependencies = guaranteeStore.get(query);
         //  Why not computeIfAbsent? See Bug 532507
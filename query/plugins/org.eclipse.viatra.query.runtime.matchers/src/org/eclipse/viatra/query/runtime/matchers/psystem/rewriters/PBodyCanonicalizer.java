@@ -0,0 +1,354 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.matchers.psystem.rewriters;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.viatra.query.runtime.matchers.psystem.EnumerablePConstraint;
+import org.eclipse.viatra.query.runtime.matchers.psystem.IMultiQueryReference;
+import org.eclipse.viatra.query.runtime.matchers.psystem.IQueryReference;
+import org.eclipse.viatra.query.runtime.matchers.psystem.PBody;
+import org.eclipse.viatra.query.runtime.matchers.psystem.PConstraint;
+import org.eclipse.viatra.query.runtime.matchers.psystem.PVariable;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicdeferred.AggregatorConstraint;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicdeferred.Equality;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicdeferred.ExportedParameter;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicdeferred.ExpressionEvaluation;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicdeferred.Inequality;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicdeferred.NegativePatternCall;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicdeferred.PatternMatchCounter;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicdeferred.RelationEvaluation;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicdeferred.TypeFilterConstraint;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicenumerables.BinaryReflexiveTransitiveClosure;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicenumerables.BinaryTransitiveClosure;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicenumerables.ConstantValue;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicenumerables.PositivePatternCall;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicenumerables.TypeConstraint;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PDisjunction;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery.PQueryStatus;
+
+/**
+ * A disjunction rewriter that brings normalized bodies into a canonical form, so that bodies that only differ in the
+ * naming of their variables and the order of their constraints are planned the same way, and the query planner
+ * produces structurally equal (and thus shareable) subplans for them.
+ *
+ * <p>
+ * The canonical order is computed by iteratively refining variable colors along the constraints of the body: the
+ * color of a variable is initially determined by its position among the parameters of the body, then refined by the labels
+ * (type, input key, referred query, etc.) of the constraints it appears in, its positions in them and the colors of
+ * its neighbours. Constraints are ordered by a fingerprint computed from their labels and the colors of their
+ * arguments, variables by their first occurrence in the ordered constraints. Names are neither used nor changed. The
+ * resulting {@link #fingerprint(PBody) body fingerprint} is the same for bodies that are equal modulo variable
+ * renaming and constraint ordering; different bodies may have the same fingerprint only in case of symmetries not
+ * distinguished by the refinement, or hash collisions.
+ *
+ * <p>
+ * Disjunctions containing constraints unknown to {@link PBodyCopier} are kept as they are.
+ *
+ * @since 2.9
+ */
+public class PBodyCanonicalizer extends PDisjunctionRewriter {
+
+    private static final long HASH_SEED = 0xcbf29ce484222325L;
+    private static final long HASH_PRIME = 0x100000001b3L;
+
+    /**
+     * Returns whether the bodies of the given query shall be canonicalized. This behavior can be customized by
+     * creating a subclass with a custom implementation.
+     */
+    protected boolean shouldCanonicalize(PQuery query) {
+        return true;
+    }
+
+    @Override
+    public PDisjunction rewrite(PDisjunction disjunction) {
+        if (!shouldCanonicalize(disjunction.getQuery())) {
+            return disjunction;
+        }
+        List<CanonicalForm> forms = new ArrayList<>();
+        for (PBody body : disjunction.getBodies()) {
+            CanonicalForm form = new CanonicalForm(body);
+            if (!form.copyable) {
+                return disjunction;
+            }
+            forms.add(form);
+        }
+        Set<PBody> canonicalBodies = new LinkedHashSet<>();
+        for (CanonicalForm form : forms) {
+            canonicalBodies.add(copyInCanonicalOrder(form));
+        }
+        return new PDisjunction(disjunction.getQuery(), canonicalBodies);
+    }
+
+    /**
+     * Computes a fingerprint of a body that does not depend on the names of its variables and the order of its
+     * constraints; bodies equal modulo variable renaming and constraint ordering have the same fingerprint.
+     * Fingerprints are stable between runs as long as the input keys and referred queries have stable identifiers.
+     */
+    public static long fingerprint(PBody body) {
+        return new CanonicalForm(body).fingerprint;
+    }
+
+    private PBody copyInCanonicalOrder(CanonicalForm form) {
+        PBody body = form.body;
+        PBodyCopier copier = new PBodyCopier(body.getPattern());
+        copier.setTraceCollector(getTraceCollector());
+        for (PVariable variable : form.variables) {
+            copier.copyVariable(variable, variable.getName());
+        }
+        PBody canonicalBody = copier.getCopiedBody();
+        List<ExportedParameter> symbolicParameters = new ArrayList<>();
+        for (ExportedParameter parameter : body.getSymbolicParameters()) {
+            symbolicParameters.add(copier.copyExportedParameterConstraint(parameter));
+        }
+        canonicalBody.setSymbolicParameters(symbolicParameters);
+        for (ConstraintShape shape : form.constraints) {
+            copier.copyConstraint(shape.constraint);
+        }
+        addTrace(body, canonicalBody);
+        canonicalBody.setStatus(PQueryStatus.OK);
+        return canonicalBody;
+    }
+
+    private static long mix(long hash, long value) {
+        long result = (hash ^ value) * HASH_PRIME;
+        return result ^ (result >>> 29);
+    }
+
+    private static long mix(long hash, String value) {
+        return mix(hash, value == null ? 0 : value.hashCode());
+    }
+
+    private static long mix(long hash, long[] values) {
+        long result = mix(hash, values.length);
+        for (long value : values) {
+            result = mix(result, value);
+        }
+        return result;
+    }
+
+    /**
+     * The arguments and label of a constraint; arguments before {@link #orderedArity} are positional, the rest
+     * are considered an unordered set.
+     */
+    private static final class ConstraintShape {
+        final PConstraint constraint;
+        final int index;
+        final PVariable[] arguments;
+        final int orderedArity;
+        final long label;
+        final boolean copyable;
+        long signature;
+
+        ConstraintShape(PConstraint constraint, int index) {
+            this.constraint = constraint;
+            this.index = index;
+            long hash = mix(HASH_SEED, constraint.getClass().getName());
+            List<PVariable> ordered = new ArrayList<>();
+            boolean known = true;
+            if (constraint instanceof TypeConstraint) {
+                TypeConstraint typeConstraint = (TypeConstraint) constraint;
+                hash = mix(hash, typeConstraint.getSupplierKey().getStringID());
+                addAll(ordered, typeConstraint.getVariablesTuple().getElements());
+            } else if (constraint instanceof TypeFilterConstraint) {
+                TypeFilterConstraint typeFilter = (TypeFilterConstraint) constraint;
+                hash = mix(hash, typeFilter.getInputKey().getStringID());
+                addAll(ordered, typeFilter.getVariablesTuple().getElements());
+            } else if (constraint instanceof ConstantValue) {
+                Object value = ((ConstantValue) constraint).getSupplierKey();
+                hash = mix(hash, value == null ? null : value.getClass().getName());
+                hash = mix(hash, String.valueOf(value));
+                ordered.add(((ConstantValue) constraint).getVariable());
+            } else if (constraint instanceof PositivePatternCall || constraint instanceof BinaryTransitiveClosure) {
+                hash = mix(hash, ((IQueryReference) constraint).getReferredQuery().getFullyQualifiedName());
+                addAll(ordered, ((EnumerablePConstraint) constraint).getVariablesTuple().getElements());
+            } else if (constraint instanceof BinaryReflexiveTransitiveClosure) {
+                BinaryReflexiveTransitiveClosure closure = (BinaryReflexiveTransitiveClosure) constraint;
+                hash = mix(hash, closure.getReferredQuery().getFullyQualifiedName());
+                hash = mix(hash, closure.getUniverseType().getStringID());
+                addAll(ordered, closure.getVariablesTuple().getElements());
+            } else if (constraint instanceof RelationEvaluation) {
+                RelationEvaluation evaluation = (RelationEvaluation) constraint;
+                hash = mix(hash, evaluation.getEvaluator().getClass().getName());
+                for (PQuery query : ((IMultiQueryReference) evaluation).getReferredQueries()) {
+                    hash = mix(hash, query.getFullyQualifiedName());
+                }
+                addAll(ordered, evaluation.getVariablesTuple().getElements());
+            } else if (constraint instanceof NegativePatternCall) {
+                NegativePatternCall call = (NegativePatternCall) constraint;
+                hash = mix(hash, call.getReferredQuery().getFullyQualifiedName());
+                addAll(ordered, call.getActualParametersTuple().getElements());
+            } else if (constraint instanceof PatternMatchCounter) {
+                PatternMatchCounter counter = (PatternMatchCounter) constraint;
+                hash = mix(hash, counter.getReferredQuery().getFullyQualifiedName());
+                addAll(ordered, counter.getActualParametersTuple().getElements());
+                ordered.add(counter.getResultVariable());
+            } else if (constraint instanceof AggregatorConstraint) {
+                AggregatorConstraint aggregator = (AggregatorConstraint) constraint;
+                hash = mix(hash, aggregator.getReferredQuery().getFullyQualifiedName());
+                hash = mix(hash, aggregator.getAggregator().getOperator().getClass().getName());
+                hash = mix(hash, String.valueOf(aggregator.getAggregator().getDomainType()));
+                hash = mix(hash, aggregator.getAggregatedColumn());
+                addAll(ordered, aggregator.getActualParametersTuple().getElements());
+                ordered.add(aggregator.getResultVariable());
+            } else if (constraint instanceof ExpressionEvaluation) {
+                ExpressionEvaluation evaluation = (ExpressionEvaluation) constraint;
+                hash = mix(hash, evaluation.getEvaluator().getClass().getName());
+                hash = mix(hash, evaluation.getEvaluator().getShortDescription());
+                hash = mix(hash, evaluation.isUnwinding() ? 1 : 0);
+                if (evaluation.getOutputVariable() != null) {
+                    ordered.add(evaluation.getOutputVariable());
+                }
+            } else if (!(constraint instanceof Equality || constraint instanceof Inequality)) {
+                known = false;
+            }
+            this.copyable = known;
+            this.orderedArity = ordered.size();
+            // the remaining variables (e.g. of equalities and expression inputs) are unordered
+            Set<PVariable> all = new LinkedHashSet<>(ordered);
+            all.addAll(constraint.getAffectedVariables());
+            this.arguments = all.toArray(new PVariable[all.size()]);
+            this.label = hash;
+        }
+
+        private static void addAll(List<PVariable> variables, Object[] elements) {
+            for (Object element : elements) {
+                variables.add((PVariable) element);
+            }
+        }
+
+        long computeSignature(Map<PVariable, Long> colors) {
+            long hash = mix(label, orderedArity);
+            for (int i = 0; i < orderedArity; i++) {
+                hash = mix(hash, colors.get(arguments[i]));
+            }
+            long[] unordered = new long[arguments.length - orderedArity];
+            for (int i = orderedArity; i < arguments.length; i++) {
+                unordered[i - orderedArity] = colors.get(arguments[i]);
+            }
+            Arrays.sort(unordered);
+            return mix(hash, unordered);
+        }
+    }
+
+    /**
+     * The canonical order of the variables and constraints of a body, along with its fingerprint
+     */
+    private static final class CanonicalForm {
+        final PBody body;
+        final List<PVariable> variables = new ArrayList<>();
+        final List<ConstraintShape> constraints = new ArrayList<>();
+        final long fingerprint;
+        boolean copyable = true;
+
+        CanonicalForm(PBody body) {
+            this.body = body;
+            for (PConstraint constraint : body.getConstraints()) {
+                if (!(constraint instanceof ExportedParameter)) {
+                    ConstraintShape shape = new ConstraintShape(constraint, constraints.size());
+                    copyable &= shape.copyable;
+                    constraints.add(shape);
+                }
+            }
+            Set<PVariable> allVariables = new LinkedHashSet<>();
+            for (PVariable variable : body.getAllVariables()) {
+                if (variable.isUnique()) {
+                    allVariables.add(variable);
+                }
+            }
+            for (ConstraintShape shape : constraints) {
+                allVariables.addAll(Arrays.asList(shape.arguments));
+            }
+            List<PVariable> originalOrder = new ArrayList<>(allVariables);
+            List<PVariable> parameters = body.getSymbolicParameterVariables();
+            Map<PVariable, Long> colors = new HashMap<>();
+            for (PVariable variable : originalOrder) {
+                colors.put(variable, mix(HASH_SEED, parameters.indexOf(variable) + 1));
+            }
+            refineColors(originalOrder, colors);
+
+            for (ConstraintShape shape : constraints) {
+                shape.signature = shape.computeSignature(colors);
+            }
+            constraints.sort(Comparator.<ConstraintShape> comparingLong(shape -> shape.signature)
+                    .thenComparingInt(shape -> shape.index));
+
+            Map<PVariable, Integer> originalIndex = new HashMap<>();
+            for (PVariable variable : originalOrder) {
+                originalIndex.put(variable, originalIndex.size());
+            }
+            Comparator<PVariable> variableOrder = Comparator.<PVariable> comparingLong(colors::get)
+                    .thenComparingInt(originalIndex::get);
+            Set<PVariable> ordered = new LinkedHashSet<>();
+            for (ConstraintShape shape : constraints) {
+                ordered.addAll(Arrays.asList(shape.arguments).subList(0, shape.orderedArity));
+                List<PVariable> unordered = new ArrayList<>(
+                        Arrays.asList(shape.arguments).subList(shape.orderedArity, shape.arguments.length));
+                unordered.sort(variableOrder);
+                ordered.addAll(unordered);
+            }
+            List<PVariable> remaining = new ArrayList<>(originalOrder);
+            remaining.removeAll(ordered);
+            remaining.sort(variableOrder);
+            ordered.addAll(remaining);
+            variables.addAll(ordered);
+
+            long[] signatures = new long[constraints.size()];
+            for (int i = 0; i < signatures.length; i++) {
+                signatures[i] = constraints.get(i).signature;
+            }
+            Arrays.sort(signatures);
+            long[] parameterColors = new long[parameters.size()];
+            int i = 0;
+            for (PVariable parameter : parameters) {
+                parameterColors[i++] = colors.get(parameter);
+            }
+            this.fingerprint = mix(mix(HASH_SEED, signatures), parameterColors);
+        }
+
+        /**
+         * Refines the colors of variables until the number of distinct colors stops growing
+         */
+        private void refineColors(List<PVariable> variables, Map<PVariable, Long> colors) {
+            int distinctColors = new HashSet<>(colors.values()).size();
+            for (int round = 0; round < variables.size(); round++) {
+                Map<PVariable, List<Long>> contributions = new HashMap<>();
+                for (ConstraintShape shape : constraints) {
+                    long signature = shape.computeSignature(colors);
+                    for (int position = 0; position < shape.arguments.length; position++) {
+                        contributions.computeIfAbsent(shape.arguments[position], v -> new ArrayList<>())
+                                .add(mix(signature, position < shape.orderedArity ? position : -1));
+                    }
+                }
+                Map<PVariable, Long> refined = new HashMap<>();
+                for (PVariable variable : variables) {
+                    List<Long> received = contributions.getOrDefault(variable, new ArrayList<>());
+                    long[] sorted = received.stream().mapToLong(Long::longValue).sorted().toArray();
+                    refined.put(variable, mix(colors.get(variable), sorted));
+                }
+                colors.putAll(refined);
+                int refinedDistinctColors = new HashSet<>(colors.values()).size();
+                if (refinedDistinctColors <= distinctColors) {
+                    break;
+                }
+                distinctColors = refinedDistinctColors;
+            }
+        }
+    }
+
+}
@@ -18,6 +18,9 @@ import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PDisjunction;
 
 /**
  * A rewriter that stores the previously computed results of a rewriter or a rewriter chain.
+ * <p>
+ * Since 2.9, different disjunctions may be rewritten on different threads in parallel, provided that the rewriters
+ * of the chain support it and the trace collector is not changed in the meantime.
  * 
  * @author Zoltan Ujhelyi
  * @since 1.0
@@ -49,16 +52,22 @@ public class PDisjunctionRewriterCacher extends PDisjunctionRewriter {
     
     @Override
     public PDisjunction rewrite(PDisjunction disjunction) {
-        if (!cachedResults.containsKey(disjunction)) {
-            PDisjunction rewritten = disjunction;
-            setupTraceCollectorInChain();
-            for (PDisjunctionRewriter rewriter : rewriterChain) {
-                rewritten = rewriter.rewrite(rewritten);
+        synchronized (cachedResults) {
+            PDisjunction cached = cachedResults.get(disjunction);
+            if (cached != null) {
+                return cached;
             }
-            
-            cachedResults.put(disjunction, rewritten);
         }
-        return cachedResults.get(disjunction);
+        PDisjunction rewritten = disjunction;
+        setupTraceCollectorInChain();
+        for (PDisjunctionRewriter rewriter : rewriterChain) {
+            rewritten = rewriter.rewrite(rewritten);
+        }
+        synchronized (cachedResults) {
+            // if the same disjunction was rewritten concurrently, the first result is kept
+            PDisjunction cached = cachedResults.putIfAbsent(disjunction, rewritten);
+            return cached != null ? cached : rewritten;
+        }
     }
     
 }
@@ -22,6 +22,7 @@ import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory;
 import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory.MemoryType;
 import org.eclipse.viatra.query.runtime.matchers.util.Direction;
 import org.eclipse.viatra.query.runtime.matchers.util.IMemory;
+import org.eclipse.viatra.query.runtime.matchers.util.ProjectionSketches;
 
 /**
  * Demo default implementation.
@@ -37,6 +38,10 @@ public class DefaultIndexTable extends AbstractIndexTable implements ITableWrite
 
     protected IMemory<Tuple> rows = CollectionsFactory.createMultiset(); // TODO use SetMemory if unique
     protected Map<TupleMask, MaskedTupleMemory<?>> indexMemories = CollectionsFactory.createMap();
+    /**
+     * @since 2.9
+     */
+    protected ProjectionSketches projectionSketches = new ProjectionSketches();
     private boolean unique;
 
     /**
@@ -62,6 +67,7 @@ public class DefaultIndexTable extends AbstractIndexTable implements ITableWrite
                 for (MaskedTupleMemory<?> indexMemory : indexMemories.values()) {
                     indexMemory.add(row);
                 }
+                projectionSketches.update(row, true);
                 if (emitNotifications) {
                     deliverChangeNotifications(row, true);
                 }
@@ -78,6 +84,7 @@ public class DefaultIndexTable extends AbstractIndexTable implements ITableWrite
                 for (MaskedTupleMemory<?> indexMemory : indexMemories.values()) {
                     indexMemory.remove(row);
                 }
+                projectionSketches.update(row, false);
                 if (emitNotifications) {
                     deliverChangeNotifications(row, false);
                 }
@@ -112,11 +119,14 @@ public class DefaultIndexTable extends AbstractIndexTable implements ITableWrite
 
     @Override
     public Optional<Long> estimateProjectionSize(TupleMask groupMask, Accuracy requiredAccuracy) {
-        // always exact count
+        // exact count, unless an approximation is sufficient and the projection is not indexed
         if (groupMask.getSize() == 0) {
             return rows.size() == 0 ? Optional.of(0L) : Optional.of(1L);
         } else if (groupMask.getSize() == this.emptyTuple.getSize()) {
             return Optional.of((long) rows.size());
+        } else if (requiredAccuracy == Accuracy.APPROXIMATION && !indexMemories.containsKey(groupMask)) {
+            // estimate without building an index of the projection
+            return Optional.of(projectionSketches.estimate(groupMask, rows::distinctValues));
         } else { 
             return Optional.of((long)getIndexMemory(groupMask).getKeysetSize());
         }
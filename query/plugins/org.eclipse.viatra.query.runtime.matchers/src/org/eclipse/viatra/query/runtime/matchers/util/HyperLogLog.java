@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.matchers.util;
+
+import java.util.Arrays;
+
+/**
+ * A HyperLogLog sketch estimating the number of distinct elements added to it, using a fixed amount of memory
+ * (<code>2^precision</code> bytes) regardless of the number of elements. The relative standard error of the estimate
+ * is about <code>1.04 / sqrt(2^precision)</code>, e.g. 1.6% for precision 12.
+ *
+ * <p>
+ * Elements are identified by their {@link Object#hashCode()}, or by a 64-bit hash given by the caller; elements
+ * with equal hashes are counted once. The sketch does not support the removal of elements.
+ *
+ * @since 2.9
+ */
+public final class HyperLogLog {
+
+    private final int precision;
+    private final byte[] registers;
+    private long cachedEstimate = -1;
+
+    /**
+     * @param precision
+     *            the number of hash bits used for selecting a register, between 4 and 18
+     */
+    public HyperLogLog(int precision) {
+        Preconditions.checkArgument(precision >= 4 && precision <= 18, "Precision must be between 4 and 18");
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public void add(Object element) {
+        addHash(mix(element.hashCode() & 0xffffffffL));
+    }
+
+    /**
+     * Adds an element identified by the given hash, which must be spread over all 64 bits, e.g. by
+     * {@link #mix(long)}.
+     */
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // the bit after the used bits bounds the rank
+        long remaining = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+            cachedEstimate = -1;
+        }
+    }
+
+    /**
+     * @return the estimated number of distinct elements added since creation or the last {@link #clear()}
+     */
+    public long estimate() {
+        if (cachedEstimate < 0) {
+            int m = registers.length;
+            double sum = 0.0;
+            int zeros = 0;
+            for (byte register : registers) {
+                sum += 1.0 / (1L << register);
+                if (register == 0) {
+                    zeros++;
+                }
+            }
+            double alpha = 0.7213 / (1.0 + 1.079 / m);
+            double estimate = alpha * m * m / sum;
+            if (estimate <= 2.5 * m && zeros > 0) {
+                // linear counting is more precise for small cardinalities
+                estimate = m * Math.log((double) m / zeros);
+            }
+            cachedEstimate = Math.round(estimate);
+        }
+        return cachedEstimate;
+    }
+
+    public void clear() {
+        Arrays.fill(registers, (byte) 0);
+        cachedEstimate = -1;
+    }
+
+    /**
+     * Spreads the bits of a hash over 64 bits (finalizer of MurmurHash3)
+     */
+    public static long mix(long hash) {
+        long h = hash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,426 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.matchers.util;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable hash set that shares its structure with the sets it was derived from, implemented as a hash array
+ * mapped trie. New versions are created by a {@link Builder}; a change costs a number of node copies logarithmic in
+ * the size of the set, and producing a version by {@link Builder#build()} is constant time. Instances can be freely
+ * shared between threads.
+ *
+ * <p>
+ * Null elements are not permitted.
+ *
+ * @param <E>
+ *            the type of elements
+ * @since 2.9
+ */
+public final class PersistentHashSet<E> extends AbstractSet<E> {
+
+    private static final int BITS = 5;
+    private static final int FRAGMENT_MASK = (1 << BITS) - 1;
+    /**
+     * A 32 bit hash is consumed by 7 levels of nodes, followed by at most one level of collisions
+     */
+    private static final int MAX_DEPTH = 8;
+
+    private static final PersistentHashSet<Object> EMPTY = new PersistentHashSet<>(new Node(null, 0, new Object[0]), 0);
+
+    /**
+     * An inner node of the trie; its entries are elements, nodes or collisions, stored in the order of the hash
+     * fragments set in the bitmap. A node can only be modified by the builder owning it.
+     */
+    private static final class Node {
+        final Object owner;
+        int bitmap;
+        Object[] entries;
+
+        Node(Object owner, int bitmap, Object[] entries) {
+            this.owner = owner;
+            this.bitmap = bitmap;
+            this.entries = entries;
+        }
+    }
+
+    /**
+     * Elements with the same hash; it contains at least two elements.
+     */
+    private static final class Collision {
+        final Object owner;
+        final int hash;
+        Object[] elements;
+
+        Collision(Object owner, int hash, Object[] elements) {
+            this.owner = owner;
+            this.hash = hash;
+            this.elements = elements;
+        }
+    }
+
+    private final Node root;
+    private final int size;
+
+    private PersistentHashSet(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @return the empty set
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentHashSet<E> empty() {
+        return (PersistentHashSet<E>) EMPTY;
+    }
+
+    /**
+     * @return a builder initialized with the elements of this set; this set is not affected by its changes
+     */
+    public Builder<E> toBuilder() {
+        return new Builder<>(root, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o != null && contains(root, o, hash(o));
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new ElementIterator<>(root);
+    }
+
+    private static int hash(Object o) {
+        int h = o.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int fragment(int hash, int shift) {
+        return (hash >>> shift) & FRAGMENT_MASK;
+    }
+
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    private static boolean contains(Node root, Object o, int hash) {
+        Node node = root;
+        int shift = 0;
+        while (true) {
+            int bit = 1 << fragment(hash, shift);
+            if ((node.bitmap & bit) == 0) {
+                return false;
+            }
+            Object entry = node.entries[index(node.bitmap, bit)];
+            if (entry instanceof Node) {
+                node = (Node) entry;
+                shift += BITS;
+            } else if (entry instanceof Collision) {
+                Collision collision = (Collision) entry;
+                return collision.hash == hash && indexOf(collision.elements, o) >= 0;
+            } else {
+                return entry.equals(o);
+            }
+        }
+    }
+
+    private static int indexOf(Object[] elements, Object o) {
+        for (int i = 0; i < elements.length; i++) {
+            if (elements[i].equals(o)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Object[] insert(Object[] array, int index, Object value) {
+        Object[] result = new Object[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+
+    private static Object[] delete(Object[] array, int index) {
+        Object[] result = new Object[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    /**
+     * A mutable set that produces {@link PersistentHashSet} versions of its contents. Nodes created by the builder
+     * since the last {@link #build()} are modified in place; all other nodes are copied on write. Builders are not
+     * thread-safe.
+     *
+     * @param <E>
+     *            the type of elements
+     */
+    public static final class Builder<E> {
+        private Object owner = new Object();
+        private Node root;
+        private int size;
+        private boolean modified;
+
+        private Builder(Node root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+
+        /**
+         * @return an immutable set of the current elements of the builder
+         */
+        public PersistentHashSet<E> build() {
+            // nodes of the returned version must not be modified anymore
+            owner = new Object();
+            return size == 0 ? empty() : new PersistentHashSet<>(root, size);
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean contains(Object o) {
+            return o != null && PersistentHashSet.contains(root, o, hash(o));
+        }
+
+        /**
+         * @return true if the element was not present yet
+         */
+        public boolean add(E e) {
+            Preconditions.checkArgument(e != null, "Null elements are not permitted");
+            modified = false;
+            root = add(root, e, hash(e), 0);
+            if (modified) {
+                size++;
+            }
+            return modified;
+        }
+
+        /**
+         * @return true if the element was present
+         */
+        public boolean remove(Object o) {
+            if (o == null) {
+                return false;
+            }
+            modified = false;
+            Object newRoot = remove(root, o, hash(o), 0);
+            root = newRoot == null ? EMPTY.root : (Node) newRoot;
+            if (modified) {
+                size--;
+            }
+            return modified;
+        }
+
+        public void clear() {
+            root = EMPTY.root;
+            size = 0;
+        }
+
+        private Node editable(Node node) {
+            return node.owner == owner ? node : new Node(owner, node.bitmap, node.entries.clone());
+        }
+
+        private Node add(Node node, Object e, int hash, int shift) {
+            int bit = 1 << fragment(hash, shift);
+            int index = index(node.bitmap, bit);
+            if ((node.bitmap & bit) == 0) {
+                modified = true;
+                Object[] entries = insert(node.entries, index, e);
+                if (node.owner == owner) {
+                    node.bitmap |= bit;
+                    node.entries = entries;
+                    return node;
+                }
+                return new Node(owner, node.bitmap | bit, entries);
+            }
+            Object entry = node.entries[index];
+            Object newEntry;
+            if (entry instanceof Node) {
+                newEntry = add((Node) entry, e, hash, shift + BITS);
+            } else if (entry instanceof Collision) {
+                newEntry = add((Collision) entry, e, hash, shift + BITS);
+            } else if (entry.equals(e)) {
+                return node;
+            } else {
+                modified = true;
+                newEntry = merge(entry, hash(entry), e, hash, shift + BITS);
+            }
+            if (newEntry == entry) {
+                return node;
+            }
+            Node result = editable(node);
+            result.entries[index] = newEntry;
+            return result;
+        }
+
+        private Object add(Collision collision, Object e, int hash, int shift) {
+            if (collision.hash != hash) {
+                modified = true;
+                return merge(collision, collision.hash, e, hash, shift);
+            }
+            if (indexOf(collision.elements, e) >= 0) {
+                return collision;
+            }
+            modified = true;
+            Object[] elements = insert(collision.elements, collision.elements.length, e);
+            if (collision.owner == owner) {
+                collision.elements = elements;
+                return collision;
+            }
+            return new Collision(owner, hash, elements);
+        }
+
+        /**
+         * Creates the subtree containing two entries with different hashes, or two elements with the same hash.
+         */
+        private Object merge(Object entry1, int hash1, Object entry2, int hash2, int shift) {
+            if (hash1 == hash2) {
+                return new Collision(owner, hash1, new Object[] { entry1, entry2 });
+            }
+            int fragment1 = fragment(hash1, shift);
+            int fragment2 = fragment(hash2, shift);
+            if (fragment1 == fragment2) {
+                return new Node(owner, 1 << fragment1,
+                        new Object[] { merge(entry1, hash1, entry2, hash2, shift + BITS) });
+            }
+            Object[] entries = fragment1 < fragment2 ? new Object[] { entry1, entry2 }
+                    : new Object[] { entry2, entry1 };
+            return new Node(owner, (1 << fragment1) | (1 << fragment2), entries);
+        }
+
+        /**
+         * @return the entry replacing the node: the node itself or its copy, a single remaining element or collision
+         *         lifted from a non-root node, or null if the node became empty
+         */
+        private Object remove(Node node, Object o, int hash, int shift) {
+            int bit = 1 << fragment(hash, shift);
+            if ((node.bitmap & bit) == 0) {
+                return node;
+            }
+            int index = index(node.bitmap, bit);
+            Object entry = node.entries[index];
+            Object newEntry;
+            if (entry instanceof Node) {
+                newEntry = remove((Node) entry, o, hash, shift + BITS);
+            } else if (entry instanceof Collision) {
+                newEntry = remove((Collision) entry, o, hash);
+            } else if (entry.equals(o)) {
+                modified = true;
+                newEntry = null;
+            } else {
+                return node;
+            }
+            if (newEntry == entry) {
+                return node;
+            }
+            if (newEntry == null) {
+                if (node.entries.length == 1) {
+                    return null;
+                }
+                if (node.entries.length == 2 && shift > 0 && !(node.entries[1 - index] instanceof Node)) {
+                    return node.entries[1 - index];
+                }
+                Object[] entries = delete(node.entries, index);
+                if (node.owner == owner) {
+                    node.bitmap &= ~bit;
+                    node.entries = entries;
+                    return node;
+                }
+                return new Node(owner, node.bitmap & ~bit, entries);
+            }
+            if (node.entries.length == 1 && shift > 0 && !(newEntry instanceof Node)) {
+                return newEntry;
+            }
+            Node result = editable(node);
+            result.entries[index] = newEntry;
+            return result;
+        }
+
+        private Object remove(Collision collision, Object o, int hash) {
+            int index = collision.hash == hash ? indexOf(collision.elements, o) : -1;
+            if (index < 0) {
+                return collision;
+            }
+            modified = true;
+            if (collision.elements.length == 2) {
+                return collision.elements[1 - index];
+            }
+            Object[] elements = delete(collision.elements, index);
+            if (collision.owner == owner) {
+                collision.elements = elements;
+                return collision;
+            }
+            return new Collision(owner, hash, elements);
+        }
+    }
+
+    private static final class ElementIterator<E> implements Iterator<E> {
+        private final Object[][] entries = new Object[MAX_DEPTH][];
+        private final int[] positions = new int[MAX_DEPTH];
+        private int depth = 0;
+        private Object next;
+
+        ElementIterator(Node root) {
+            entries[0] = root.entries;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                if (positions[depth] < entries[depth].length) {
+                    Object entry = entries[depth][positions[depth]++];
+                    if (entry instanceof Node) {
+                        push(((Node) entry).entries);
+                    } else if (entry instanceof Collision) {
+                        push(((Collision) entry).elements);
+                    } else {
+                        next = entry;
+                        return;
+                    }
+                } else {
+                    depth--;
+                }
+            }
+        }
+
+        private void push(Object[] array) {
+            depth++;
+            entries[depth] = array;
+            positions[depth] = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            E result = (E) next;
+            advance();
+            return result;
+        }
+    }
+}
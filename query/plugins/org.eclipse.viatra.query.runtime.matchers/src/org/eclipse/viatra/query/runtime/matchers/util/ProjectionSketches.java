@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.matchers.util;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
+
+/**
+ * Incrementally maintained {@link HyperLogLog} sketches that approximate the number of distinct projections of a
+ * changing set of tuples, for the masks requested so far. Used to answer {@link Accuracy#APPROXIMATION} projection
+ * size estimates without building an index of the projection.
+ *
+ * <p>
+ * As sketches cannot forget removed tuples, a sketch is rebuilt from the current contents on the next request after
+ * a significant part of its tuples have been removed; rebuilding is amortized over the removals.
+ *
+ * @since 2.9
+ */
+public final class ProjectionSketches {
+
+    /**
+     * 4096 registers, about 1.6% relative standard error
+     */
+    public static final int DEFAULT_PRECISION = 12;
+
+    private final int precision;
+    private final Map<TupleMask, Sketch> sketches = CollectionsFactory.createMap();
+
+    private final class Sketch {
+        final HyperLogLog distinctProjections = new HyperLogLog(precision);
+        /**
+         * The number of tuples since the sketch was built
+         */
+        long size = 0;
+        long insertions = 0;
+        long removals = 0;
+    }
+
+    public ProjectionSketches() {
+        this(DEFAULT_PRECISION);
+    }
+
+    public ProjectionSketches(int precision) {
+        this.precision = precision;
+    }
+
+    /**
+     * Records the insertion or removal of a distinct tuple.
+     */
+    public void update(Tuple tuple, boolean isInsertion) {
+        for (Map.Entry<TupleMask, Sketch> entry : sketches.entrySet()) {
+            Sketch sketch = entry.getValue();
+            if (isInsertion) {
+                sketch.distinctProjections.addHash(hashProjection(entry.getKey(), tuple));
+                sketch.insertions++;
+                sketch.size++;
+            } else {
+                sketch.removals++;
+                sketch.size--;
+            }
+        }
+    }
+
+    /**
+     * Estimates the number of distinct projections of the current tuples along the given mask. If the mask was not
+     * requested before, or too many tuples were removed since the sketch was built, the sketch is built from the
+     * given contents, which must be the current tuples.
+     */
+    public long estimate(TupleMask mask, Supplier<? extends Iterable<? extends Tuple>> contents) {
+        Sketch sketch = sketches.get(mask);
+        if (sketch == null || 2 * sketch.removals > sketch.insertions) {
+            sketch = new Sketch();
+            sketch.size = fill(sketch.distinctProjections, mask, contents.get());
+            sketch.insertions = sketch.size;
+            sketches.put(mask, sketch);
+        }
+        // a projection has at most as many distinct tuples as the projected set
+        return Math.min(sketch.distinctProjections.estimate(), sketch.size);
+    }
+
+    /**
+     * Estimates the number of distinct projections of the given tuples along the given mask with a sketch that is
+     * not maintained afterwards, e.g. for tuple sets whose changes are not tracked.
+     */
+    public static long estimateOnce(TupleMask mask, Iterable<? extends Tuple> contents) {
+        HyperLogLog distinctProjections = new HyperLogLog(DEFAULT_PRECISION);
+        long size = fill(distinctProjections, mask, contents);
+        return Math.min(distinctProjections.estimate(), size);
+    }
+
+    private static long fill(HyperLogLog distinctProjections, TupleMask mask, Iterable<? extends Tuple> contents) {
+        long count = 0;
+        for (Tuple tuple : contents) {
+            distinctProjections.addHash(hashProjection(mask, tuple));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Hashes the projection of the tuple without creating it; mixing after each element spreads the hash codes of
+     * objects that only have an identity hash code.
+     */
+    private static long hashProjection(TupleMask mask, Tuple tuple) {
+        long hash = mask.indices.length;
+        for (int index : mask.indices) {
+            hash = HyperLogLog.mix(31 * hash + Objects.hashCode(tuple.get(index)));
+        }
+        return hash;
+    }
+
+    /**
+     * Forgets all sketches, e.g. when the contents of the tuple set are no longer tracked.
+     */
+    public void clear() {
+        sketches.clear();
+    }
+}
@@ -8,12 +8,14 @@
  *******************************************************************************/
 package org.eclipse.viatra.query.runtime.matchers.util;
 
+import java.util.AbstractSet;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.stream.Stream;
 
 import org.eclipse.viatra.query.runtime.matchers.tuple.ITuple;
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
@@ -27,12 +29,23 @@ import org.eclipse.viatra.query.runtime.matchers.util.timeline.Timelines;
  * A timely memory implementation that incrementally maintains the {@link Timeline}s of tuples. The memory is capable of
  * lazy folding (see {@link Resumable}).
  * 
+ * <p>
+ * As most tuples are only ever inserted at a single timestamp, the counters of such tuples are stored as plain counts
+ * with the timestamp; tuples are switched to a sorted map of counters when they need more than one timestamp, and
+ * switched back when all but one of their counters are garbage collected.
+ * 
  * @author Tamas Szabo
  * @since 2.3
  */
 public class TimelyMemory<Timestamp extends Comparable<Timestamp>> implements Clearable, UnmaskedResumable<Timestamp> {
 
     protected final Map<Tuple, TreeMap<Timestamp, CumulativeCounter>> counters;
+    /**
+     * Counters of tuples that have a counter at a single timestamp only; disjoint from {@link #counters}
+     * 
+     * @since 2.9
+     */
+    protected final Map<Tuple, TimestampedCounter<Timestamp>> plainCounters;
     protected final Map<Tuple, Timeline<Timestamp>> timelines;
     public final TreeMap<Timestamp, Map<Tuple, FoldingState>> foldingState;
     protected final Set<Tuple> presentAtInfinity;
@@ -45,6 +58,7 @@ public class TimelyMemory<Timestamp extends Comparable<Timestamp>> implements Cl
 
     public TimelyMemory(final boolean isLazy) {
         this.counters = CollectionsFactory.createMap();
+        this.plainCounters = CollectionsFactory.createMap();
         this.timelines = CollectionsFactory.createMap();
         this.presentAtInfinity = CollectionsFactory.createSet();
         this.isLazy = isLazy;
@@ -138,7 +152,8 @@ public class TimelyMemory<Timestamp extends Comparable<Timestamp>> implements Cl
             return EMPTY_DIFF;
         } else {
             final Diff<Timestamp> resultDiff = new Diff<>();
-            final Timestamp nextTimestamp = this.counters.get(tuple).higherKey(timestamp);
+            final TreeMap<Timestamp, CumulativeCounter> counterTimeline = this.counters.get(tuple);
+            final Timestamp nextTimestamp = counterTimeline == null ? null : counterTimeline.higherKey(timestamp);
 
             final int oldCumulative = counter.cumulative;
 
@@ -164,11 +179,27 @@ public class TimelyMemory<Timestamp extends Comparable<Timestamp>> implements Cl
      * On-demand initializes and returns the counter for the given tuple and timestamp.
      */
     protected CumulativeCounter getCounter(final Tuple tuple, final Timestamp timestamp) {
-        final TreeMap<Timestamp, CumulativeCounter> counterTimeline = this.counters.computeIfAbsent(tuple,
-                k -> CollectionsFactory.createTreeMap());
+        TreeMap<Timestamp, CumulativeCounter> counterTimeline = this.counters.get(tuple);
+        if (counterTimeline == null) {
+            final TimestampedCounter<Timestamp> plainCounter = this.plainCounters.get(tuple);
+            if (plainCounter == null) {
+                final TimestampedCounter<Timestamp> counter = new TimestampedCounter<>(timestamp, 0, 0);
+                this.plainCounters.put(tuple, counter);
+                return counter;
+            } else if (plainCounter.timestamp.compareTo(timestamp) == 0) {
+                return plainCounter;
+            } else {
+                // the tuple needs a second timestamp, switch to the sorted representation
+                this.plainCounters.remove(tuple);
+                counterTimeline = CollectionsFactory.createTreeMap();
+                counterTimeline.put(plainCounter.timestamp, plainCounter);
+                this.counters.put(tuple, counterTimeline);
+            }
+        }
+        final TreeMap<Timestamp, CumulativeCounter> counters = counterTimeline;
 
-        final CumulativeCounter counter = counterTimeline.computeIfAbsent(timestamp, k -> {
-            final Entry<Timestamp, CumulativeCounter> previousCounter = counterTimeline.lowerEntry(k);
+        final CumulativeCounter counter = counters.computeIfAbsent(timestamp, k -> {
+            final Entry<Timestamp, CumulativeCounter> previousCounter = counters.lowerEntry(k);
             final int previousCumulative = previousCounter == null ? 0 : previousCounter.getValue().cumulative;
             return new CumulativeCounter(0, previousCumulative);
         });
@@ -182,13 +213,36 @@ public class TimelyMemory<Timestamp extends Comparable<Timestamp>> implements Cl
     protected void gcCounters(final CumulativeCounter counter, final Tuple tuple, final Timestamp timestamp) {
         if (counter.diff == 0) {
             final TreeMap<Timestamp, CumulativeCounter> counterMap = this.counters.get(tuple);
-            counterMap.remove(timestamp);
-            if (counterMap.isEmpty()) {
-                this.counters.remove(tuple);
+            if (counterMap == null) {
+                this.plainCounters.remove(tuple);
+            } else {
+                counterMap.remove(timestamp);
+                if (counterMap.isEmpty()) {
+                    this.counters.remove(tuple);
+                } else if (counterMap.size() == 1) {
+                    // switch back to the plain representation
+                    this.counters.remove(tuple);
+                    final Entry<Timestamp, CumulativeCounter> remaining = counterMap.firstEntry();
+                    this.plainCounters.put(tuple, TimestampedCounter.of(remaining.getKey(), remaining.getValue()));
+                }
             }
         }
     }
 
+    /**
+     * Returns the counters of the given tuple starting from the given timestamp (inclusive), in increasing order of
+     * timestamps. The tuple must have a counter at the given timestamp.
+     */
+    private Map<Timestamp, CumulativeCounter> getCountersFrom(final Tuple tuple, final Timestamp timestamp) {
+        final TreeMap<Timestamp, CumulativeCounter> counterMap = this.counters.get(tuple);
+        if (counterMap == null) {
+            final TimestampedCounter<Timestamp> plainCounter = this.plainCounters.get(tuple);
+            return Collections.singletonMap(plainCounter.timestamp, plainCounter);
+        } else {
+            return counterMap.tailMap(timestamp, true);
+        }
+    }
+
     /**
      * Utility method that computes the timeline diffs in case of lazy memories. The diffs will be inserted into the
      * input parameter. This method computes diffs for entire plateaus that spans from timestamp to nextTimestamp.
@@ -328,8 +382,7 @@ public class TimelyMemory<Timestamp extends Comparable<Timestamp>> implements Cl
         // it cannot happen that those became positive in this round
         SignChange signChangeAtPrevious = SignChange.IRRELEVANT;
 
-        final NavigableMap<Timestamp, CumulativeCounter> nextCounters = this.counters.get(tuple).tailMap(timestamp,
-                true);
+        final Map<Timestamp, CumulativeCounter> nextCounters = getCountersFrom(tuple, timestamp);
         for (final Entry<Timestamp, CumulativeCounter> currentEntry : nextCounters.entrySet()) {
             final Timestamp currentTimestamp = currentEntry.getKey();
             final CumulativeCounter currentCounter = currentEntry.getValue();
@@ -362,8 +415,7 @@ public class TimelyMemory<Timestamp extends Comparable<Timestamp>> implements Cl
         // it cannot happen that those became zero in this round
         SignChange signChangeAtPrevious = SignChange.IRRELEVANT;
 
-        final NavigableMap<Timestamp, CumulativeCounter> nextCounters = this.counters.get(tuple).tailMap(timestamp,
-                true);
+        final Map<Timestamp, CumulativeCounter> nextCounters = getCountersFrom(tuple, timestamp);
         for (final Entry<Timestamp, CumulativeCounter> currentEntry : nextCounters.entrySet()) {
             final Timestamp currentTimestamp = currentEntry.getKey();
             final CumulativeCounter currentCounter = currentEntry.getValue();
@@ -435,15 +487,32 @@ public class TimelyMemory<Timestamp extends Comparable<Timestamp>> implements Cl
     }
 
     public boolean isEmpty() {
-        return this.counters.isEmpty();
+        return this.counters.isEmpty() && this.plainCounters.isEmpty();
     }
 
     public int size() {
-        return this.counters.size();
+        return this.counters.size() + this.plainCounters.size();
     }
 
     public Set<Tuple> keySet() {
-        return this.counters.keySet();
+        return new AbstractSet<Tuple>() {
+
+            @Override
+            public Iterator<Tuple> iterator() {
+                return Stream.concat(counters.keySet().stream(), plainCounters.keySet().stream()).iterator();
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                return counters.containsKey(o) || plainCounters.containsKey(o);
+            }
+
+            @Override
+            public int size() {
+                return TimelyMemory.this.size();
+            }
+
+        };
     }
 
     public Map<Tuple, Timeline<Timestamp>> asMap() {
@@ -457,6 +526,7 @@ public class TimelyMemory<Timestamp extends Comparable<Timestamp>> implements Cl
     @Override
     public void clear() {
         this.counters.clear();
+        this.plainCounters.clear();
         this.timelines.clear();
         if (this.foldingState != null) {
             this.foldingState.clear();
@@ -464,15 +534,15 @@ public class TimelyMemory<Timestamp extends Comparable<Timestamp>> implements Cl
     }
 
     public boolean containsKey(final ITuple tuple) {
-        return this.counters.containsKey(tuple);
+        return this.counters.containsKey(tuple) || this.plainCounters.containsKey(tuple);
     }
 
     @Override
     public String toString() {
-        return this.counters + "\n" + this.timelines + "\n" + this.foldingState + "\n";
+        return this.counters + "\n" + this.plainCounters + "\n" + this.timelines + "\n" + this.foldingState + "\n";
     }
 
-    protected static final class CumulativeCounter {
+    protected static class CumulativeCounter {
         protected int diff;
         protected int cumulative;
 
@@ -488,6 +558,36 @@ public class TimelyMemory<Timestamp extends Comparable<Timestamp>> implements Cl
 
     }
 
+    /**
+     * A counter that also knows its timestamp, used for tuples with a single counter
+     * 
+     * @since 2.9
+     */
+    protected static final class TimestampedCounter<Timestamp> extends CumulativeCounter {
+        protected final Timestamp timestamp;
+
+        protected TimestampedCounter(final Timestamp timestamp, final int diff, final int cumulative) {
+            super(diff, cumulative);
+            this.timestamp = timestamp;
+        }
+
+        @SuppressWarnings("unchecked")
+        protected static <Timestamp> TimestampedCounter<Timestamp> of(final Timestamp timestamp,
+                final CumulativeCounter counter) {
+            if (counter instanceof TimestampedCounter) {
+                return (TimestampedCounter<Timestamp>) counter;
+            } else {
+                return new TimestampedCounter<>(timestamp, counter.diff, counter.cumulative);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "{timestamp=" + this.timestamp + ", diff=" + this.diff + ", cumulative=" + this.cumulative + "}";
+        }
+
+    }
+
     protected static final class FoldingState {
         protected final int diff;
 
@@ -12,6 +12,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -19,8 +20,10 @@ import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.ecore.EAttribute;
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
 import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.FeatureMapUtil;
 import org.eclipse.viatra.query.runtime.matchers.context.IQueryRuntimeContext;
 import org.eclipse.viatra.query.runtime.rete.recipes.RecipesPackage;
 import org.eclipse.viatra.query.runtime.rete.recipes.ReteNodeRecipe;
@@ -28,6 +31,9 @@ import org.eclipse.viatra.query.runtime.rete.recipes.ReteNodeRecipe;
 /**
  * Stores a set of known <em>canonical</em> recipes, each representing a disjoint equivalence class of recipes, modulo
  * {@link #isEquivalentRecipe(ReteNodeRecipe, ReteNodeRecipe)}.
+ * <p>
+ * Canonical recipes are grouped by a structural hash compatible with the equivalence, so that a recipe only has to be
+ * compared to the canonical recipes with the same hash instead of all canonical recipes of the same class.
  * 
  * @author Gabor Bergmann
  * @since 1.3
@@ -36,10 +42,15 @@ import org.eclipse.viatra.query.runtime.rete.recipes.ReteNodeRecipe;
 public class RecipeRecognizer {
     private static long nextRecipeEquivalenceClassID = 0;
 
+    private static final EAttribute RETE_NODE_RECIPE_EQUIVALENCE_CLASS_IDS = 
+            RecipesPackage.eINSTANCE.getReteNodeRecipe_EquivalenceClassIDs();
+    private static final EAttribute DISCRIMINATOR_BUCKET_RECIPE_BUCKET_KEY = 
+            RecipesPackage.eINSTANCE.getDiscriminatorBucketRecipe_BucketKey();
+
     /**
-     * if EcoreUtil.equals(recipe1, recipe2), only one of them will be included here
+     * if EcoreUtil.equals(recipe1, recipe2), only one of them will be included here; grouped by structural hash
      */
-    Map<EClass, Set<ReteNodeRecipe>> canonicalRecipesByClass = new HashMap<>();
+    Map<Integer, Set<ReteNodeRecipe>> canonicalRecipesByHash = new HashMap<>();
     Map<Long, ReteNodeRecipe> canonicalRecipeByEquivalenceClassID = new HashMap<>();
 
     private IQueryRuntimeContext runtimeContext;
@@ -70,8 +81,8 @@ public class RecipeRecognizer {
 
         // equivalence class not known, but maybe equivalent recipe still
         // available
-        Collection<ReteNodeRecipe> sameClassRecipes = getSameClassCanonicalRecipes(recipe);
-        for (ReteNodeRecipe knownRecipe : sameClassRecipes) {
+        Collection<ReteNodeRecipe> sameHashRecipes = getSameHashCanonicalRecipes(recipe);
+        for (ReteNodeRecipe knownRecipe : sameHashRecipes) {
             if (isEquivalentRecipe(recipe, knownRecipe)) {
                 // FOUND EQUIVALENT RECIPE
                 recipe.getEquivalenceClassIDs().add(knownRecipe.getEquivalenceClassIDs().get(0));
@@ -96,7 +107,7 @@ public class RecipeRecognizer {
         for (Long classID : recipe.getEquivalenceClassIDs()) {
             canonicalRecipeByEquivalenceClassID.put(classID, recipe);
         }
-        getSameClassCanonicalRecipes(recipe).add(recipe);
+        getSameHashCanonicalRecipes(recipe).add(recipe);
     }
 
     /**
@@ -126,13 +137,58 @@ public class RecipeRecognizer {
         return recipe == knownRecipe;
     }
 
-    private Set<ReteNodeRecipe> getSameClassCanonicalRecipes(final ReteNodeRecipe recipe) {
-        Set<ReteNodeRecipe> sameClassRecipes = canonicalRecipesByClass.get(recipe.eClass());
-        if (sameClassRecipes == null) {
-            sameClassRecipes = new HashSet<>();
-            canonicalRecipesByClass.put(recipe.eClass(), sameClassRecipes);
+    private Set<ReteNodeRecipe> getSameHashCanonicalRecipes(final ReteNodeRecipe recipe) {
+        return canonicalRecipesByHash.computeIfAbsent(structuralHash(recipe), hash -> new HashSet<>());
+    }
+
+    /**
+     * Calculates a hash code that is equal for equivalent recipes (see {@link EqualityHelper}), considering the
+     * attributes and contained objects only.
+     * <p>
+     * Non-containment references (e.g. parent recipes) are ignored, as they may be changed after the recipe has been
+     * made canonical: the parents of the production recipe of a recursive query are only connected when its
+     * compilation is finished (see RecursionCutoffPoint#mend). The hash of a canonical recipe therefore stays valid
+     * as long as the recipe is known.
+     */
+    private int structuralHash(final EObject eObject) {
+        if (eObject == null) {
+            return 0;
+        }
+        final EClass eClass = eObject.eClass();
+        int hash = eClass.hashCode();
+        for (int i = 0, size = eClass.getFeatureCount(); i < size; ++i) {
+            final EStructuralFeature feature = eClass.getEStructuralFeature(i);
+            if (!feature.isDerived() && !RETE_NODE_RECIPE_EQUIVALENCE_CLASS_IDS.equals(feature)
+                    && !isNonContainmentReference(feature) && eObject.eIsSet(feature)) {
+                hash = 31 * hash + structuralHash(eObject, feature);
+            }
+        }
+        return hash;
+    }
+
+    private static boolean isNonContainmentReference(final EStructuralFeature feature) {
+        return feature instanceof EReference && !((EReference) feature).isContainment();
+    }
+
+    private int structuralHash(final EObject eObject, final EStructuralFeature feature) {
+        final Object value = eObject.eGet(feature);
+        if (feature instanceof EReference) {
+            if (feature.isMany()) {
+                int hash = 1;
+                for (Object element : (List<?>) value) {
+                    hash = 31 * hash + structuralHash((EObject) element);
+                }
+                return hash;
+            } else {
+                return structuralHash((EObject) value);
+            }
+        } else if (value == null || FeatureMapUtil.isFeatureMap(feature) || value.getClass().isArray()) {
+            return 0;
+        } else if (runtimeContext != null && DISCRIMINATOR_BUCKET_RECIPE_BUCKET_KEY.equals(feature)) {
+            return runtimeContext.wrapElement(value).hashCode();
+        } else {
+            return value.hashCode();
         }
-        return sameClassRecipes;
     }
 
     private boolean isEquivalentRecipe(ReteNodeRecipe recipe, ReteNodeRecipe knownRecipe) {
@@ -147,12 +203,8 @@ public class RecipeRecognizer {
 
         private static final long serialVersionUID = -8841971394686015188L;
         
-        private static final EAttribute RETE_NODE_RECIPE_EQUIVALENCE_CLASS_IDS = 
-                RecipesPackage.eINSTANCE.getReteNodeRecipe_EquivalenceClassIDs();
         private static final EAttribute CONSTANT_RECIPE_CONSTANT_VALUES = 
                 RecipesPackage.eINSTANCE.getConstantRecipe_ConstantValues();
-        private static final EAttribute DISCRIMINATOR_BUCKET_RECIPE_BUCKET_KEY = 
-                RecipesPackage.eINSTANCE.getDiscriminatorBucketRecipe_BucketKey();
 
         private IQueryRuntimeContext runtimeContext;
 
@@ -68,6 +68,15 @@ public class ColumnAggregatorNode<Domain, Accumulator, AggregateResult>
      */
     protected CommunicationGroup currentGroup;
 
+    /**
+     * @since 2.9
+     */
+    protected long overDeletionCount;
+    /**
+     * @since 2.9
+     */
+    protected long rederivationCount;
+
     /**
      * Creates a new column aggregator node.
      * 
@@ -122,6 +131,22 @@ public class ColumnAggregatorNode<Domain, Accumulator, AggregateResult>
         return this.deleteRederiveEvaluation;
     }
 
+    /**
+     * @since 2.9
+     */
+    @Override
+    public long getOverDeletionCount() {
+        return overDeletionCount;
+    }
+
+    /**
+     * @since 2.9
+     */
+    @Override
+    public long getRederivationCount() {
+        return rederivationCount;
+    }
+
     @Override
     protected Mailbox instantiateMailbox() {
         if (groupMask != null && columnMask != null && posetComparator != null) {
@@ -153,6 +178,7 @@ public class ColumnAggregatorNode<Domain, Accumulator, AggregateResult>
         final Accumulator accumulator = entry.getValue();
         rederivableMemory.remove(group);
         memory.put(group, accumulator);
+        rederivationCount++;
         // unregister the node if there is nothing left to be re-derived
         if (this.rederivableMemory.isEmpty()) {
             ((RecursiveCommunicationGroup) currentGroup).removeRederivable(this);
@@ -274,8 +300,11 @@ public class ColumnAggregatorNode<Domain, Accumulator, AggregateResult>
                     propagateAggregateResultUpdate(group, oldValue, newValue, Timestamp.ZERO);
                 } else {
                     final boolean wasEmpty = rederivableMemory.isEmpty();
-                    if (storeIfNotNeutral(group, newMainAccumulator, rederivableMemory) && wasEmpty) {
-                        ((RecursiveCommunicationGroup) currentGroup).addRederivable(this);
+                    if (storeIfNotNeutral(group, newMainAccumulator, rederivableMemory)) {
+                        overDeletionCount++;
+                        if (wasEmpty) {
+                            ((RecursiveCommunicationGroup) currentGroup).addRederivable(this);
+                        }
                     }
                     memory.remove(group);
                     propagateAggregateResultUpdate(group, oldValue, NEUTRAL, Timestamp.ZERO);
@@ -14,10 +14,17 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -62,8 +69,11 @@ import org.eclipse.viatra.query.runtime.matchers.psystem.basicenumerables.Positi
 import org.eclipse.viatra.query.runtime.matchers.psystem.basicenumerables.TypeConstraint;
 import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PParameter;
 import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery.PQueryStatus;
 import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PVisibility;
 import org.eclipse.viatra.query.runtime.matchers.psystem.rewriters.IRewriterTraceCollector;
+import org.eclipse.viatra.query.runtime.matchers.psystem.rewriters.NopTraceCollector;
+import org.eclipse.viatra.query.runtime.matchers.psystem.rewriters.PBodyCanonicalizer;
 import org.eclipse.viatra.query.runtime.matchers.psystem.rewriters.PBodyNormalizer;
 import org.eclipse.viatra.query.runtime.matchers.psystem.rewriters.PDisjunctionRewriter;
 import org.eclipse.viatra.query.runtime.matchers.psystem.rewriters.PDisjunctionRewriterCacher;
@@ -76,6 +86,7 @@ import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory.MemoryT
 import org.eclipse.viatra.query.runtime.matchers.util.IMultiLookup;
 import org.eclipse.viatra.query.runtime.rete.construction.plancompiler.CompilerHelper.JoinHelper;
 import org.eclipse.viatra.query.runtime.rete.construction.plancompiler.CompilerHelper.PosetTriplet;
+import org.eclipse.viatra.query.runtime.rete.construction.quasitree.QuasiTreeLayout;
 import org.eclipse.viatra.query.runtime.rete.matcher.TimelyConfiguration;
 import org.eclipse.viatra.query.runtime.rete.recipes.AntiJoinRecipe;
 import org.eclipse.viatra.query.runtime.rete.recipes.ConstantRecipe;
@@ -165,6 +176,14 @@ public class ReteRecipeCompiler {
                         return expandWeakenedAlternativeConstraints;
                     }
 
+                }, new PBodyCanonicalizer() {
+
+                    @Override
+                    protected boolean shouldCanonicalize(PQuery query) {
+                        QueryEvaluationHint hint = ReteRecipeCompiler.this.hintProvider.getQueryEvaluationHint(query);
+                        return ReteHintOptions.canonicalizeBodies.getValueOrDefault(hint);
+                    }
+
                 });
         this.hintProvider = hintProvider;
     }
@@ -273,6 +292,109 @@ public class ReteRecipeCompiler {
         return plan;
     }
 
+    /**
+     * The worker threads shared by all compilers; idle threads are terminated after a minute
+     */
+    private static final class Workers {
+        private static final AtomicInteger THREAD_INDEX = new AtomicInteger();
+        static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "VIATRA Rete query preparation " + THREAD_INDEX.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Normalizes the given queries and the queries they refer to, and plans their bodies on at most the given number
+     * of worker threads, so that their subsequent compilation finds the plans in the cache. Recipe compilation is left
+     * to {@link #getCompiledForm(PQuery)}.
+     * <p>
+     * Normalization is done on the calling thread, as the normalizer is not thread-safe; only planning is parallel.
+     * Queries that are already compiled, erroneous, or request a normalization trace collector are skipped. The planner
+     * strategy must support planning different bodies in parallel, as {@link QuasiTreeLayout} does; metamodels used by
+     * the queries must not be changed meanwhile.
+     * 
+     * @throws ViatraQueryRuntimeException
+     *             if the normalization or planning of a query fails; the failure of a worker is rethrown on the
+     *             calling thread
+     * @since 2.9
+     */
+    public void preparePlans(Collection<PQuery> queries, int parallelism) {
+        // the referred queries are initialized on the calling thread, as lazy initialization is not thread-safe
+        Set<PQuery> queriesToPrepare = new LinkedHashSet<>();
+        for (PQuery query : queries) {
+            queriesToPrepare.add(query);
+            queriesToPrepare.addAll(query.getAllReferredQueries());
+        }
+        queriesToPrepare.removeIf(query -> queryCompilerCache.containsKey(query)
+                || query.getStatus() == PQueryStatus.ERROR
+                || CommonQueryHintOptions.normalizationTraceCollector.getValueOrDefault(
+                        hintProvider.getQueryEvaluationHint(query)) != NopTraceCollector.INSTANCE);
+        if (parallelism <= 1 || queriesToPrepare.size() <= 1) {
+            return;
+        }
+        
+        normalizer.setTraceCollector(NopTraceCollector.INSTANCE);
+        List<PBody> bodiesToPlan = new ArrayList<>();
+        for (PQuery query : queriesToPrepare) {
+            for (PBody pBody : normalizer.rewrite(query).getBodies()) {
+                if (!plannerCache.containsKey(pBody)) {
+                    bodiesToPlan.add(pBody);
+                }
+            }
+        }
+        
+        // each worker takes the next unplanned body until all are taken
+        Map<PBody, SubPlan> plans = new ConcurrentHashMap<>();
+        AtomicInteger nextBody = new AtomicInteger();
+        List<Future<?>> workers = new ArrayList<>();
+        try {
+            for (int i = 0; i < Math.min(parallelism, bodiesToPlan.size()); i++) {
+                workers.add(Workers.EXECUTOR.submit(() -> {
+                    for (int index = nextBody.getAndIncrement(); index < bodiesToPlan.size(); 
+                            index = nextBody.getAndIncrement()) {
+                        PBody pBody = bodiesToPlan.get(index);
+                        plans.put(pBody, plannerStrategy.plan(pBody, logger, metaContext));
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                if (!awaitWorker(worker)) {
+                    break;
+                }
+            }
+        } finally {
+            // stops the remaining workers if one of them has failed
+            nextBody.set(bodiesToPlan.size());
+            for (Future<?> worker : workers) {
+                worker.cancel(false);
+            }
+        }
+        // if interrupted, the bodies not planned yet are planned during compilation
+        plans.forEach(plannerCache::putIfAbsent);
+    }
+
+    /**
+     * @return false if the calling thread was interrupted while waiting
+     */
+    private static boolean awaitWorker(Future<?> worker) {
+        try {
+            worker.get();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
     private CompiledQuery compileProduction(PQuery query) {
         Collection<SubPlan> bodyPlans = new ArrayList<SubPlan>();
         normalizer.setTraceCollector(CommonQueryHintOptions.normalizationTraceCollector
@@ -32,6 +32,7 @@ import org.eclipse.viatra.query.runtime.matchers.planning.operations.PStart;
 import org.eclipse.viatra.query.runtime.matchers.psystem.DeferredPConstraint;
 import org.eclipse.viatra.query.runtime.matchers.psystem.EnumerablePConstraint;
 import org.eclipse.viatra.query.runtime.matchers.psystem.PBody;
+import org.eclipse.viatra.query.runtime.matchers.psystem.PConstraint;
 import org.eclipse.viatra.query.runtime.matchers.psystem.analysis.QueryAnalyzer;
 import org.eclipse.viatra.query.runtime.matchers.psystem.basicenumerables.ConstantValue;
 import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
@@ -92,6 +93,24 @@ public class QuasiTreeLayout implements IQueryPlannerStrategy {
             hints = hintProvider.getQueryEvaluationHint(query);
         }
 
+        /**
+         * Canonicalized bodies are planned in the order of their constraints (see
+         * {@link ReteHintOptions#canonicalizeBodies}), so that equivalent bodies get the same join order; otherwise,
+         * the order of the constraints is left unspecified.
+         */
+        private <ConstraintType> Set<ConstraintType> getConstraintsOfType(Class<ConstraintType> constraintClass) {
+            if (!ReteHintOptions.canonicalizeBodies.getValueOrDefault(hints)) {
+                return pSystem.getConstraintsOfType(constraintClass);
+            }
+            Set<ConstraintType> result = new LinkedHashSet<>();
+            for (PConstraint constraint : pSystem.getConstraints()) {
+                if (constraintClass.isInstance(constraint)) {
+                    result.add(constraintClass.cast(constraint));
+                }
+            }
+            return result;
+        }
+
         /**
          * @throws ViatraQueryRuntimeException
          */
@@ -103,9 +122,9 @@ public class QuasiTreeLayout implements IQueryPlannerStrategy {
                         query.getFullyQualifiedName()));
 
                 // PROCESS CONSTRAINTS
-                deferredConstraints = pSystem.getConstraintsOfType(DeferredPConstraint.class);
-                enumerableConstraints = pSystem.getConstraintsOfType(EnumerablePConstraint.class);
-                constantConstraints = pSystem.getConstraintsOfType(ConstantValue.class);
+                deferredConstraints = getConstraintsOfType(DeferredPConstraint.class);
+                enumerableConstraints = getConstraintsOfType(EnumerablePConstraint.class);
+                constantConstraints = getConstraintsOfType(ConstantValue.class);
                 
                 for (EnumerablePConstraint enumerable : enumerableConstraints) {
                     SubPlan plan = planFactory.createSubPlan(new PEnumerate(enumerable));
@@ -20,16 +20,46 @@ import org.eclipse.viatra.query.runtime.matchers.context.IQueryBackendContext;
  */
 public class DRedReteBackendFactory extends ReteBackendFactory {
 
-    public static final DRedReteBackendFactory INSTANCE = new DRedReteBackendFactory();
+    public static final DRedReteBackendFactory INSTANCE = new DRedReteBackendFactory(false);
+
+    /**
+     * A factory of engines that bound the effort of DRed evaluation: a tuple of a recursive pattern is only
+     * over-deleted, and later re-derived, if it has lost all of its derivations that do not depend on the recursion.
+     * Derivations coming from outside of the recursion are counted for this purpose, similarly to non-recursive
+     * evaluation.
+     * 
+     * @since 2.9
+     */
+    public static final DRedReteBackendFactory SUPPORT_COUNTING_INSTANCE = new DRedReteBackendFactory(true);
+
+    private final boolean supportCounting;
+
+    public DRedReteBackendFactory() {
+        this(false);
+    }
+
+    /**
+     * @since 2.9
+     */
+    protected DRedReteBackendFactory(final boolean supportCounting) {
+        this.supportCounting = supportCounting;
+    }
 
     @Override
     public IQueryBackend create(IQueryBackendContext context) {
-        return create(context, true, null);
+        return create(context, true, supportCounting, null);
+    }
+
+    /**
+     * @since 2.9
+     */
+    public boolean isSupportCounting() {
+        return supportCounting;
     }
 
     @Override
     public int hashCode() {
-        return DRedReteBackendFactory.class.hashCode();
+        return 31 * DRedReteBackendFactory.class.hashCode() + Boolean.hashCode(supportCounting);
     }
 
     @Override
@@ -43,7 +73,7 @@ public class DRedReteBackendFactory extends ReteBackendFactory {
         if (!(obj instanceof DRedReteBackendFactory)) {
             return false;
         }
-        return true;
+        return supportCounting == ((DRedReteBackendFactory) obj).supportCounting;
     }
 
 }
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.rete.matcher;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.viatra.query.runtime.matchers.psystem.PBody;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.matchers.psystem.rewriters.PBodyCanonicalizer;
+import org.eclipse.viatra.query.runtime.rete.construction.plancompiler.ReteRecipeCompiler;
+import org.eclipse.viatra.query.runtime.rete.index.IndexerWithMemory;
+import org.eclipse.viatra.query.runtime.rete.network.Network;
+import org.eclipse.viatra.query.runtime.rete.network.Node;
+import org.eclipse.viatra.query.runtime.rete.recipes.ReteNodeRecipe;
+import org.eclipse.viatra.query.runtime.rete.remote.Address;
+import org.eclipse.viatra.query.runtime.rete.single.AbstractUniquenessEnforcerNode;
+import org.eclipse.viatra.query.runtime.rete.traceability.CompiledQuery;
+import org.eclipse.viatra.query.runtime.rete.traceability.RecipeTraceInfo;
+
+/**
+ * A snapshot of how much the Rete network of an engine benefits from sharing nodes between queries, see
+ * {@link ReteEngine#getNodeSharingReport()}.
+ *
+ * <p>
+ * Each node is attributed to the queries whose own network (i.e. the nodes derived from the bodies of the query, not
+ * including the networks of called queries) contains it; a node is shared if it is attributed to more than one query.
+ * The savings are computed by comparing the network to one where each query had its own copy of its nodes. Stored
+ * tuples are counted in the memories of uniqueness enforcers (including production nodes) and indexers.
+ *
+ * @since 2.9
+ */
+public final class NodeSharingReport {
+
+    private final int queryCount;
+    private final int bodyCount;
+    private final int distinctBodyCount;
+    private final int nodeCount;
+    private final int sharedNodeCount;
+    private final long unsharedNodeCount;
+    private final long storedTupleCount;
+    private final long unsharedStoredTupleCount;
+    private final long bytesPerTuple;
+
+    NodeSharingReport(Network network, ReteRecipeCompiler compiler, long bytesPerTuple) {
+        this.bytesPerTuple = bytesPerTuple;
+        Map<Node, Integer> queriesOfNode = new HashMap<>();
+        Map<PQuery, CompiledQuery> compiledQueries = compiler.getCachedCompiledQueries();
+        Set<ReteNodeRecipe> productions = new HashSet<>();
+        for (CompiledQuery compiledQuery : compiledQueries.values()) {
+            productions.add(compiledQuery.getRecipe());
+        }
+        for (CompiledQuery compiledQuery : compiledQueries.values()) {
+            for (Node node : collectOwnNodes(network, compiledQuery, productions)) {
+                queriesOfNode.merge(node, 1, Integer::sum);
+            }
+        }
+        int shared = 0;
+        long unsharedNodes = 0;
+        long tuples = 0;
+        long unsharedTuples = 0;
+        for (Map.Entry<Node, Integer> entry : queriesOfNode.entrySet()) {
+            int queries = entry.getValue();
+            long nodeTuples = countStoredTuples(entry.getKey());
+            if (queries > 1) {
+                shared++;
+            }
+            unsharedNodes += queries;
+            tuples += nodeTuples;
+            unsharedTuples += nodeTuples * queries;
+        }
+        Set<Long> fingerprints = new HashSet<>();
+        Set<PBody> bodies = compiler.getCachedQueryPlans().keySet();
+        for (PBody body : bodies) {
+            fingerprints.add(PBodyCanonicalizer.fingerprint(body));
+        }
+        this.queryCount = compiledQueries.size();
+        this.bodyCount = bodies.size();
+        this.distinctBodyCount = fingerprints.size();
+        this.nodeCount = queriesOfNode.size();
+        this.sharedNodeCount = shared;
+        this.unsharedNodeCount = unsharedNodes;
+        this.storedTupleCount = tuples;
+        this.unsharedStoredTupleCount = unsharedTuples;
+    }
+
+    private static Set<Node> collectOwnNodes(Network network, CompiledQuery compiledQuery,
+            Set<ReteNodeRecipe> productions) {
+        Set<Node> nodes = new HashSet<>();
+        Set<RecipeTraceInfo> visited = new HashSet<>();
+        Deque<RecipeTraceInfo> toVisit = new ArrayDeque<>();
+        toVisit.add(compiledQuery);
+        while (!toVisit.isEmpty()) {
+            RecipeTraceInfo trace = toVisit.pop();
+            if (!visited.add(trace)) {
+                continue;
+            }
+            Address<? extends Node> address = network.getNodeByRecipeIfExists(trace.getRecipe());
+            if (address != null) {
+                nodes.add(address.getContainer().resolveLocal(address));
+            }
+            for (RecipeTraceInfo parent : trace.getParentRecipeTraces()) {
+                // the networks of called (or recursively calling) queries are attributed to those queries; calls
+                // refer to them through planning traces of their production recipes
+                if (!(parent instanceof CompiledQuery) && !productions.contains(parent.getRecipe())) {
+                    toVisit.push(parent);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    private static long countStoredTuples(Node node) {
+        if (node instanceof AbstractUniquenessEnforcerNode) {
+            return ((AbstractUniquenessEnforcerNode) node).getTuples().size();
+        } else if (node instanceof IndexerWithMemory) {
+            return ((IndexerWithMemory) node).getMemory().getTotalSize();
+        }
+        return 0;
+    }
+
+    /**
+     * @return the number of compiled queries
+     */
+    public int getQueryCount() {
+        return queryCount;
+    }
+
+    /**
+     * @return the number of planned (normalized) bodies
+     */
+    public int getBodyCount() {
+        return bodyCount;
+    }
+
+    /**
+     * @return the number of planned bodies that are distinct modulo variable renaming and constraint ordering, see
+     *         {@link PBodyCanonicalizer#fingerprint(PBody)}
+     */
+    public int getDistinctBodyCount() {
+        return distinctBodyCount;
+    }
+
+    /**
+     * @return the number of nodes in the networks of the compiled queries
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return the number of nodes attributed to more than one query
+     */
+    public int getSharedNodeCount() {
+        return sharedNodeCount;
+    }
+
+    /**
+     * @return the number of nodes that would be required if no nodes were shared between queries
+     */
+    public long getUnsharedNodeCount() {
+        return unsharedNodeCount;
+    }
+
+    /**
+     * @return the number of tuples stored by the nodes of the compiled queries
+     */
+    public long getStoredTupleCount() {
+        return storedTupleCount;
+    }
+
+    /**
+     * @return the number of tuples that would be stored if no nodes were shared between queries
+     */
+    public long getUnsharedStoredTupleCount() {
+        return unsharedStoredTupleCount;
+    }
+
+    /**
+     * @return the number of nodes saved by sharing nodes between queries
+     */
+    public long getSavedNodeCount() {
+        return unsharedNodeCount - nodeCount;
+    }
+
+    /**
+     * @return the number of stored tuples saved by sharing nodes between queries
+     */
+    public long getSavedTupleCount() {
+        return unsharedStoredTupleCount - storedTupleCount;
+    }
+
+    /**
+     * @return the estimated memory saved by sharing nodes between queries, in bytes; estimated the same way as
+     *         {@link ReteEngine#getEstimatedMemoryUsage()}
+     */
+    public long getEstimatedSavedMemory() {
+        return getSavedTupleCount() * bytesPerTuple;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "NodeSharingReport[queries=%d, bodies=%d (%d distinct), nodes=%d (%d shared, %d without sharing), "
+                        + "tuples=%d (%d without sharing), savedMemory=%d bytes]",
+                queryCount, bodyCount, distinctBodyCount, nodeCount, sharedNodeCount, unsharedNodeCount,
+                storedTupleCount, unsharedStoredTupleCount, getEstimatedSavedMemory());
+    }
+
+}
@@ -49,8 +49,20 @@ public class ReteBackendFactory implements IQueryBackendFactory {
      */
     public IQueryBackend create(IQueryBackendContext context, boolean deleteAndRederiveEvaluation,
             TimelyConfiguration timelyConfiguration) {
+        return create(context, deleteAndRederiveEvaluation, false, timelyConfiguration);
+    }
+
+    /**
+     * @param supportCounting
+     *            if true, DRed evaluation avoids over-deleting tuples that still have non-recursive derivations, see
+     *            {@link ReteEngine#isSupportCounting()}
+     * @since 2.9
+     */
+    public IQueryBackend create(IQueryBackendContext context, boolean deleteAndRederiveEvaluation,
+            boolean supportCounting, TimelyConfiguration timelyConfiguration) {
         ReteEngine engine;
-        engine = new ReteEngine(context, reteThreads, deleteAndRederiveEvaluation, timelyConfiguration);
+        engine = new ReteEngine(context, reteThreads, deleteAndRederiveEvaluation, supportCounting,
+                timelyConfiguration);
         IQueryBackendHintProvider hintConfiguration = engine.getHintConfiguration();
         ReteRecipeCompiler compiler = new ReteRecipeCompiler(
                 Options.builderMethod.layoutStrategy(context, hintConfiguration), context.getLogger(),
@@ -36,6 +36,7 @@ import org.eclipse.viatra.query.runtime.rete.network.Network;
 import org.eclipse.viatra.query.runtime.rete.network.NodeProvisioner;
 import org.eclipse.viatra.query.runtime.rete.network.ReteContainer;
 import org.eclipse.viatra.query.runtime.rete.traceability.RecipeTraceInfo;
+import org.eclipse.viatra.query.runtime.rete.util.ReteHintOptions;
 
 /**
  * @author Gabor Bergmann
@@ -43,6 +44,11 @@ import org.eclipse.viatra.query.runtime.rete.traceability.RecipeTraceInfo;
  */
 public class ReteEngine implements IQueryBackend {
 
+    /**
+     * The estimated memory used by a tuple stored in a memory of the network, i.e. by the tuple and its hash entry
+     */
+    private static final long ESTIMATED_BYTES_PER_TUPLE = 96;
+
     protected Network reteNet;
     protected final int reteThreads;
     protected ReteBoundary boundary;
@@ -51,6 +57,10 @@ public class ReteEngine implements IQueryBackend {
      * @since 2.2
      */
     protected final boolean deleteAndRederiveEvaluation;
+    /**
+     * @since 2.9
+     */
+    protected final boolean supportCounting;
     /**
      * @since 2.4
      */
@@ -87,6 +97,17 @@ public class ReteEngine implements IQueryBackend {
      * @since 2.4
      */
     public ReteEngine(IQueryBackendContext context, int reteThreads, boolean deleteAndRederiveEvaluation, TimelyConfiguration timelyConfiguration) {
+        this(context, reteThreads, deleteAndRederiveEvaluation, false, timelyConfiguration);
+    }
+
+    /**
+     * @param supportCounting
+     *            if true, recursive uniqueness enforcer nodes in DRed mode count the derivations received from outside
+     *            of their recursive group, and only over-delete tuples that lost all of them
+     * @since 2.9
+     */
+    public ReteEngine(IQueryBackendContext context, int reteThreads, boolean deleteAndRederiveEvaluation,
+            boolean supportCounting, TimelyConfiguration timelyConfiguration) {
         super();
         this.context = context;
         this.logger = context.getLogger();
@@ -94,6 +115,7 @@ public class ReteEngine implements IQueryBackend {
         this.reteThreads = reteThreads;
         this.parallelExecutionEnabled = reteThreads > 0;
         this.deleteAndRederiveEvaluation = deleteAndRederiveEvaluation;
+        this.supportCounting = supportCounting;
         this.timelyConfiguration = timelyConfiguration;
         initEngine();
         this.compiler = null;
@@ -113,6 +135,14 @@ public class ReteEngine implements IQueryBackend {
         return this.deleteAndRederiveEvaluation;
     }
     
+    /**
+     * @return true if DRed evaluation is bounded by counting the non-recursive derivations of tuples
+     * @since 2.9
+     */
+    public boolean isSupportCounting() {
+        return this.supportCounting;
+    }
+
     /**
      * @since 2.4
      */
@@ -547,12 +577,56 @@ public class ReteEngine implements IQueryBackend {
         return accessMatcher(query);
     }
 
+    /**
+     * Normalizes and plans the given queries in parallel if requested by
+     * {@link ReteHintOptions#preparationParallelism}, see {@link ReteRecipeCompiler#preparePlans(Collection, int)}.
+     * 
+     * @since 2.9
+     */
+    @Override
+    public synchronized void prepareQueries(Collection<PQuery> queries, QueryEvaluationHint hints) {
+        ensureInitialized();
+        int parallelism = 1;
+        for (PQuery query : queries) {
+            hintConfigurator.storeHint(query, hints);
+            parallelism = Math.max(parallelism, ReteHintOptions.preparationParallelism
+                    .getValueOrDefault(hintConfigurator.getQueryEvaluationHint(query)));
+        }
+        compiler.preparePlans(queries, parallelism);
+    }
+
     @Override
     public IQueryResultProvider peekExistingResultProvider(PQuery query) {
         ensureInitialized();
         return matchers.get(query);
     }
 
+    /**
+     * @since 2.9
+     */
+    @Override
+    public long getEstimatedMemoryUsage() {
+        if (reteNet == null) {
+            return 0;
+        }
+        long tupleCount = 0;
+        for (ReteContainer container : reteNet.getContainers()) {
+            tupleCount += container.countStoredTuples();
+        }
+        return tupleCount * ESTIMATED_BYTES_PER_TUPLE;
+    }
+
+    /**
+     * Reports the number of nodes and stored tuples saved by sharing Rete nodes between the compiled queries; see
+     * also {@link ReteHintOptions#canonicalizeBodies}.
+     * 
+     * @since 2.9
+     */
+    public synchronized NodeSharingReport getNodeSharingReport() {
+        ensureInitialized();
+        return new NodeSharingReport(reteNet, compiler, ESTIMATED_BYTES_PER_TUPLE);
+    }
+
     @Override
     public void dispose() {
         killEngine();
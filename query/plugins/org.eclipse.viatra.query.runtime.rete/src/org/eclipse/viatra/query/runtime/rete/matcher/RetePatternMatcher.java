@@ -26,11 +26,14 @@ import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
 import org.eclipse.viatra.query.runtime.matchers.util.Accuracy;
 import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory;
+import org.eclipse.viatra.query.runtime.matchers.util.Direction;
+import org.eclipse.viatra.query.runtime.matchers.util.ProjectionSketches;
 import org.eclipse.viatra.query.runtime.rete.index.Indexer;
 import org.eclipse.viatra.query.runtime.rete.index.IterableIndexer;
 import org.eclipse.viatra.query.runtime.rete.network.Node;
 import org.eclipse.viatra.query.runtime.rete.network.ProductionNode;
 import org.eclipse.viatra.query.runtime.rete.network.Receiver;
+import org.eclipse.viatra.query.runtime.rete.network.communication.Timestamp;
 import org.eclipse.viatra.query.runtime.rete.remote.Address;
 import org.eclipse.viatra.query.runtime.rete.single.CallbackNode;
 import org.eclipse.viatra.query.runtime.rete.single.TransformerNode;
@@ -50,6 +53,8 @@ public class RetePatternMatcher extends TransformerNode implements IQueryResultP
     protected Map<Object, Receiver> taggedChildren = CollectionsFactory.createMap();
     protected boolean connected = false; // is rete-wise connected to the
                                          // production node?
+    // approximate projection sizes of the match set; created on first use if connected, as updates maintain it
+    private ProjectionSketches projectionSketches;
 
     /**
      * @param productionNode
@@ -406,9 +411,66 @@ public class RetePatternMatcher extends TransformerNode implements IQueryResultP
         return count(parameterSeedMask, parameters);
     }
 
+    /**
+     * The size of the match set bucket is available from the production node memory without enumerating the matches.
+     * 
+     * @since 2.9
+     */
+    @Override
+    public int countMatchesUpTo(Object[] parameters, int upperLimit) {
+        return Math.min(countMatches(parameters), upperLimit);
+    }
+
+    /**
+     * The size of the match set bucket is available from the production node memory without enumerating the matches.
+     * 
+     * @since 2.9
+     */
+    @Override
+    public int countMatchesUpTo(TupleMask parameterSeedMask, ITuple parameters, int upperLimit) {
+        return Math.min(count(parameterSeedMask, parameters), upperLimit);
+    }
+
+
+    /**
+     * Estimates the number of distinct tuples attainable from the match set by projecting match tuples according to
+     * the given mask. Unlike {@link #projectionSize(TupleMask)}, does not build a projection indexer. If the matcher
+     * is already connected to its production node, the estimate is based on a sketch of the match set, maintained
+     * incrementally after its first use; otherwise, the match set is scanned for each estimate, so that a request
+     * does not make every later update pay for a sketch.
+     * 
+     * @return the approximate size of the projection
+     * @since 2.9
+     */
+    public long estimateProjectionSize(TupleMask groupMask) {
+        long[] estimate = new long[1];
+        engine.reteNet.waitForReteTermination(() -> {
+            if (!connected) {
+                estimate[0] = ProjectionSketches.estimateOnce(groupMask, productionNode);
+                return;
+            }
+            if (projectionSketches == null) {
+                projectionSketches = new ProjectionSketches();
+            }
+            estimate[0] = projectionSketches.estimate(groupMask, () -> productionNode);
+        });
+        return estimate[0];
+    }
+
+    @Override
+    public void update(Direction direction, Tuple updateElement, Timestamp timestamp) {
+        if (projectionSketches != null) {
+            projectionSketches.update(updateElement, direction == Direction.INSERT);
+        }
+        super.update(direction, updateElement, timestamp);
+    }
 
     @Override
     public Optional<Long> estimateCardinality(TupleMask groupMask, Accuracy requiredAccuracy) {
+        if (requiredAccuracy == Accuracy.APPROXIMATION && groupMask.getSize() > 0 && !groupMask.isIdentity()
+                && reteContainer.getProvisioner().peekProjectionIndexer(productionNodeTrace, groupMask) == null) {
+            return Optional.of(estimateProjectionSize(groupMask));
+        }
         return Optional.of((long)projectionSize(groupMask)); // always accurate
     }
 
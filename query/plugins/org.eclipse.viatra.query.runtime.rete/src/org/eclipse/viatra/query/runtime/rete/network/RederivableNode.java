@@ -30,5 +30,35 @@ public interface RederivableNode extends Node, IGroupable {
      * @since 2.0
      */
     public boolean isInDRedMode();
-    
+
+    /**
+     * Returns the number of times this node over-deleted an entry, i.e. deleted it while it still had derivations,
+     * some of which may not depend on the deletion, and queued it for re-derivation.
+     * 
+     * @since 2.9
+     */
+    public default long getOverDeletionCount() {
+        return 0;
+    }
+
+    /**
+     * Returns the number of over-deleted entries that this node re-derived.
+     * 
+     * @since 2.9
+     */
+    public default long getRederivationCount() {
+        return 0;
+    }
+
+    /**
+     * Returns the ratio of re-derived and over-deleted entries. A ratio close to 1 means that most over-deletions were
+     * unnecessary work, while 0 means that no over-deletion has happened yet or none of them was re-derived.
+     * 
+     * @since 2.9
+     */
+    public default double getRederivationRatio() {
+        final long overDeletions = getOverDeletionCount();
+        return overDeletions == 0 ? 0.0 : (double) getRederivationCount() / overDeletions;
+    }
+
 }
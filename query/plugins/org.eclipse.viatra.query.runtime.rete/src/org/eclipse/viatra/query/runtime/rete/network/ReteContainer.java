@@ -22,10 +22,13 @@ import java.util.function.Function;
 
 import org.apache.log4j.Logger;
 import org.eclipse.viatra.query.runtime.matchers.context.IQueryBackendContext;
+import org.eclipse.viatra.query.runtime.matchers.memories.MaskedTupleMemory;
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 import org.eclipse.viatra.query.runtime.matchers.util.Clearable;
 import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory;
 import org.eclipse.viatra.query.runtime.matchers.util.Direction;
+import org.eclipse.viatra.query.runtime.matchers.util.IMemoryView;
+import org.eclipse.viatra.query.runtime.matchers.util.TimelyMemory;
 import org.eclipse.viatra.query.runtime.matchers.util.timeline.Timeline;
 import org.eclipse.viatra.query.runtime.rete.boundary.InputConnector;
 import org.eclipse.viatra.query.runtime.rete.matcher.TimelyConfiguration;
@@ -96,7 +99,7 @@ public final class ReteContainer {
         if (this.isTimelyEvaluation()) {
             this.tracker = new TimelyCommunicationTracker(this.getTimelyConfiguration());
         } else {
-            this.tracker = new TimelessCommunicationTracker();
+            this.tracker = new TimelessCommunicationTracker(network.getEngine().isSupportCounting());
         }
 
         this.nodesById = CollectionsFactory.createMap();
@@ -674,6 +677,26 @@ public final class ReteContainer {
         clearables.remove(c);
     }
 
+    /**
+     * Counts the tuples stored in the registered memories of this container, i.e. the memories of uniqueness
+     * enforcers and indexers; the internal state of other nodes (e.g. aggregators) is not included.
+     * 
+     * @since 2.9
+     */
+    public long countStoredTuples() {
+        long count = 0;
+        for (Clearable c : clearables) {
+            if (c instanceof IMemoryView<?>) {
+                count += ((IMemoryView<?>) c).size();
+            } else if (c instanceof MaskedTupleMemory<?>) {
+                count += ((MaskedTupleMemory<?>) c).getTotalSize();
+            } else if (c instanceof TimelyMemory<?>) {
+                count += ((TimelyMemory<?>) c).size();
+            }
+        }
+        return count;
+    }
+
     /**
      * Clears all memory contents in the network. Reverts to initial state.
      */
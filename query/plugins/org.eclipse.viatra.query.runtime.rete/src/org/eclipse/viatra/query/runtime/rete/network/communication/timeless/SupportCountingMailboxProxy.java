@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.rete.network.communication.timeless;
+
+import java.util.Collection;
+
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.util.Direction;
+import org.eclipse.viatra.query.runtime.rete.network.Node;
+import org.eclipse.viatra.query.runtime.rete.network.Receiver;
+import org.eclipse.viatra.query.runtime.rete.network.communication.CommunicationGroup;
+import org.eclipse.viatra.query.runtime.rete.network.communication.MessageSelector;
+import org.eclipse.viatra.query.runtime.rete.network.communication.Timestamp;
+import org.eclipse.viatra.query.runtime.rete.network.mailbox.Mailbox;
+import org.eclipse.viatra.query.runtime.rete.single.UniquenessEnforcerNode;
+
+/**
+ * A proxy for the mailbox of a {@link UniquenessEnforcerNode} in DRed mode, which registers the messages of a source
+ * node as support of the receiver, see {@link UniquenessEnforcerNode#updateExternalSupport(Node, Direction, Tuple)}.
+ * <p>
+ * All messages are counted, whether or not the source is in the recursive group of the receiver; the receiver only
+ * checks the groups when a tuple is deleted, as the groups may be merged or split in the meantime.
+ *
+ * @since 2.9
+ */
+public class SupportCountingMailboxProxy implements Mailbox {
+
+    protected final Node source;
+    protected final UniquenessEnforcerNode target;
+    protected final Mailbox wrapped;
+
+    public SupportCountingMailboxProxy(final Node source, final UniquenessEnforcerNode target,
+            final Mailbox wrapped) {
+        this.source = source;
+        this.target = target;
+        this.wrapped = wrapped;
+    }
+
+    public Mailbox getWrappedMailbox() {
+        return wrapped;
+    }
+
+    @Override
+    public void postMessage(final Direction direction, final Tuple update, final Timestamp timestamp) {
+        this.target.updateExternalSupport(this.source, direction, update);
+        this.wrapped.postMessage(direction, update, timestamp);
+    }
+
+    @Override
+    public void postMessages(final Direction direction, final Collection<Tuple> updates, final Timestamp timestamp) {
+        for (final Tuple update : updates) {
+            this.target.updateExternalSupport(this.source, direction, update);
+        }
+        this.wrapped.postMessages(direction, updates, timestamp);
+    }
+
+    @Override
+    public String toString() {
+        return "COUNTING_PROXY -> " + this.wrapped.toString();
+    }
+
+    @Override
+    public void clear() {
+        this.wrapped.clear();
+    }
+
+    @Override
+    public void deliverAll(final MessageSelector selector) {
+        this.wrapped.deliverAll(selector);
+    }
+
+    @Override
+    public CommunicationGroup getCurrentGroup() {
+        return this.wrapped.getCurrentGroup();
+    }
+
+    @Override
+    public void setCurrentGroup(final CommunicationGroup group) {
+        this.wrapped.setCurrentGroup(group);
+    }
+
+    @Override
+    public Receiver getReceiver() {
+        return this.wrapped.getReceiver();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.wrapped.isEmpty();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (obj == null || obj.getClass() != this.getClass()) {
+            return false;
+        } else if (obj == this) {
+            return true;
+        } else {
+            final SupportCountingMailboxProxy that = (SupportCountingMailboxProxy) obj;
+            return this.wrapped.equals(that.wrapped) && this.source == that.source;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        hash = hash * 17 + this.wrapped.hashCode();
+        hash = hash * 31 + this.source.hashCode();
+        return hash;
+    }
+
+}
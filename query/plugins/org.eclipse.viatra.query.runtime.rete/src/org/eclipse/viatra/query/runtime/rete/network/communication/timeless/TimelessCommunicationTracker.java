@@ -25,6 +25,7 @@ import org.eclipse.viatra.query.runtime.rete.network.communication.Communication
 import org.eclipse.viatra.query.runtime.rete.network.communication.MessageSelector;
 import org.eclipse.viatra.query.runtime.rete.network.mailbox.Mailbox;
 import org.eclipse.viatra.query.runtime.rete.network.mailbox.timeless.BehaviorChangingMailbox;
+import org.eclipse.viatra.query.runtime.rete.single.UniquenessEnforcerNode;
 
 /**
  * Timeless implementation of the communication tracker.
@@ -34,6 +35,25 @@ import org.eclipse.viatra.query.runtime.rete.network.mailbox.timeless.BehaviorCh
  */
 public class TimelessCommunicationTracker extends CommunicationTracker {
 
+    /**
+     * @since 2.9
+     */
+    protected final boolean supportCounting;
+
+    public TimelessCommunicationTracker() {
+        this(false);
+    }
+
+    /**
+     * @param supportCounting
+     *            if true, the messages sent to {@link UniquenessEnforcerNode}s in DRed mode are counted by source, to
+     *            identify the support from outside of their recursive group, see {@link SupportCountingMailboxProxy}
+     * @since 2.9
+     */
+    public TimelessCommunicationTracker(final boolean supportCounting) {
+        this.supportCounting = supportCounting;
+    }
+
     @Override
     protected CommunicationGroup createGroup(Node representative, int index) {
         final boolean isSingleton = this.sccInformationProvider.sccs.getPartition(representative).size() == 1;
@@ -81,7 +101,13 @@ public class TimelessCommunicationTracker extends CommunicationTracker {
 
     @Override
     public Mailbox proxifyMailbox(final Node requester, final Mailbox original) {
-        return original;
+        final Receiver receiver = original.getReceiver();
+        if (this.supportCounting && receiver instanceof UniquenessEnforcerNode
+                && ((UniquenessEnforcerNode) receiver).isInDRedMode()) {
+            return new SupportCountingMailboxProxy(requester, (UniquenessEnforcerNode) receiver, original);
+        } else {
+            return original;
+        }
     }
 
     @Override
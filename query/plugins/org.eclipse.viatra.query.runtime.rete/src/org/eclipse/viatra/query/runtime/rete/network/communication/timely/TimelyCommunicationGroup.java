@@ -39,7 +39,7 @@ public class TimelyCommunicationGroup extends CommunicationGroup {
 
     private final boolean isSingleton;
     private final TreeMap<Timestamp, Set<Mailbox>> mailboxQueue;
-    // may be null - only used in the scattered case where we need to take care of mailboxes and resumables too
+    // may be null - only used in recursive groups, where mailboxes are delivered in topological order per timestamp
     private Comparator<Node> nodeComparator;
     private boolean currentlyDelivering;
     private Timestamp currentlyDeliveredTimestamp;
@@ -70,6 +70,15 @@ public class TimelyCommunicationGroup extends CommunicationGroup {
         }
     }
 
+    /**
+     * @return the {@link Comparator} used to order the {@link Mailbox}es at a given {@link Timestamp}, or null if no
+     *         ordering is enforced
+     * @since 2.9
+     */
+    public Comparator<Node> getComparator() {
+        return this.nodeComparator;
+    }
+
     @Override
     public void deliverMessages() {
         this.currentlyDelivering = true;
@@ -23,7 +23,6 @@ import org.eclipse.viatra.query.runtime.rete.index.SpecializedProjectionIndexer;
 import org.eclipse.viatra.query.runtime.rete.index.SpecializedProjectionIndexer.ListenerSubscription;
 import org.eclipse.viatra.query.runtime.rete.index.StandardIndexer;
 import org.eclipse.viatra.query.runtime.rete.matcher.TimelyConfiguration;
-import org.eclipse.viatra.query.runtime.rete.matcher.TimelyConfiguration.TimelineRepresentation;
 import org.eclipse.viatra.query.runtime.rete.network.NetworkStructureChangeSensitiveNode;
 import org.eclipse.viatra.query.runtime.rete.network.Node;
 import org.eclipse.viatra.query.runtime.rete.network.ProductionNode;
@@ -126,37 +125,41 @@ public class TimelyCommunicationTracker extends CommunicationTracker {
         }
     }
 
+    /**
+     * Orders the mailboxes of recursive groups topologically (disregarding the recursion cut points), regardless of
+     * the timeline representation. This way, at each timestamp, every node of the group receives the whole delta of
+     * the timestamp in a single batch, after all its in-group parents have been processed, like a round of semi-naive
+     * evaluation; derivations fed back through the cut points only take effect at the next timestamp.
+     */
     @Override
     protected void postProcessGroup(final CommunicationGroup group) {
-        if (this.configuration.getTimelineRepresentation() == TimelineRepresentation.FAITHFUL) {
-            final Node representative = group.getRepresentative();
-            final Set<Node> groupMembers = this.sccInformationProvider.sccs.getPartition(representative);
-            if (groupMembers.size() > 1) {
-                final Graph<Node> graph = new Graph<Node>();
-
-                for (final Node node : groupMembers) {
-                    graph.insertNode(node);
-                }
+        final Node representative = group.getRepresentative();
+        final Set<Node> groupMembers = this.sccInformationProvider.sccs.getPartition(representative);
+        if (groupMembers.size() > 1) {
+            final Graph<Node> graph = new Graph<Node>();
 
-                for (final Node source : groupMembers) {
-                    for (final Node target : this.dependencyGraph.getTargetNodes(source)) {
-                        // (1) the edge is not a recursion cut point
-                        // (2) the edge is within this group
-                        if (!this.isRecursionCutPoint(source, target) && groupMembers.contains(target)) {
-                            graph.insertEdge(source, target);
-                        }
-                    }
-                }
+            for (final Node node : groupMembers) {
+                graph.insertNode(node);
+            }
 
-                final List<Node> orderedNodes = TopologicalSorting.compute(graph);
-                final Map<Node, Integer> nodeMap = CollectionsFactory.createMap();
-                int identifier = 0;
-                for (final Node orderedNode : orderedNodes) {
-                    nodeMap.put(orderedNode, identifier++);
+            for (final Node source : groupMembers) {
+                for (final Node target : this.dependencyGraph.getTargetNodes(source)) {
+                    // (1) the edge is not a recursion cut point
+                    // (2) the edge is within this group
+                    if (!this.isRecursionCutPoint(source, target) && groupMembers.contains(target)) {
+                        graph.insertEdge(source, target);
+                    }
                 }
+            }
 
-                ((TimelyCommunicationGroup) group).setComparatorAndReorderMailboxes(new NodeComparator(nodeMap));
+            final List<Node> orderedNodes = TopologicalSorting.compute(graph);
+            final Map<Node, Integer> nodeMap = CollectionsFactory.createMap();
+            int identifier = 0;
+            for (final Node orderedNode : orderedNodes) {
+                nodeMap.put(orderedNode, identifier++);
             }
+
+            ((TimelyCommunicationGroup) group).setComparatorAndReorderMailboxes(new NodeComparator(nodeMap));
         }
     }
 
@@ -65,9 +65,7 @@ public abstract class DelayedCommand implements Runnable {
             }
         } else {
             final Collection<Tuple> contents = this.container.pullContents(this.supplier, false);
-            for (final Tuple tuple : contents) {
-                mailbox.postMessage(this.direction, tuple, Timestamp.ZERO);
-            }
+            mailbox.postMessages(this.direction, contents, Timestamp.ZERO);
         }
     }
 
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.rete.network.mailbox;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.rete.network.Receiver;
+import org.eclipse.viatra.query.runtime.rete.network.communication.Timestamp;
+
+/**
+ * A view of a collection of inserted tuples as (tuple, 1) pairs, in the form expected by
+ * {@link Receiver#batchUpdate(Collection, Timestamp)}. Mailboxes use it to deliver bulk insertions without counting
+ * them one by one.
+ *
+ * @since 2.9
+ */
+public final class InsertedTuplesView extends AbstractCollection<Map.Entry<Tuple, Integer>> {
+
+    private static final Integer ONE = 1;
+
+    private final Collection<Tuple> tuples;
+
+    public InsertedTuplesView(final Collection<Tuple> tuples) {
+        this.tuples = tuples;
+    }
+
+    @Override
+    public Iterator<Map.Entry<Tuple, Integer>> iterator() {
+        final Iterator<Tuple> wrapped = this.tuples.iterator();
+        return new Iterator<Map.Entry<Tuple, Integer>>() {
+
+            @Override
+            public boolean hasNext() {
+                return wrapped.hasNext();
+            }
+
+            @Override
+            public Map.Entry<Tuple, Integer> next() {
+                return new AbstractMap.SimpleImmutableEntry<>(wrapped.next(), ONE);
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return this.tuples.size();
+    }
+
+}
@@ -8,6 +8,8 @@
  *******************************************************************************/
 package org.eclipse.viatra.query.runtime.rete.network.mailbox;
 
+import java.util.Collection;
+
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 import org.eclipse.viatra.query.runtime.matchers.util.Clearable;
 import org.eclipse.viatra.query.runtime.matchers.util.Direction;
@@ -38,6 +40,27 @@ public interface Mailbox extends Clearable, IGroupable {
      */
     public void postMessage(final Direction direction, final Tuple update, final Timestamp timestamp);
 
+    /**
+     * Posts a message for each of the given updates, with the same direction and timestamp. This is used for bulk
+     * transfers, e.g. the initial synchronization of a receiver with the contents of its supplier. Implementations
+     * may store the collection as it is instead of processing the updates one by one, so the caller must not modify it
+     * afterwards.
+     * <p>
+     * The default implementation simply calls {@link #postMessage(Direction, Tuple, Timestamp)} for all updates.
+     * 
+     * @param direction
+     *            the direction of the updates
+     * @param updates
+     *            the update elements, possibly with repetitions
+     * @since 2.9
+     */
+    public default void postMessages(final Direction direction, final Collection<Tuple> updates,
+            final Timestamp timestamp) {
+        for (final Tuple update : updates) {
+            postMessage(direction, update, timestamp);
+        }
+    }
+
     /**
      * Delivers all messages according to the given selector from this mailbox. The selector can also be null. In this case, no
      * special separation is expected between the messages.
@@ -8,6 +8,8 @@
  *******************************************************************************/
 package org.eclipse.viatra.query.runtime.rete.network.mailbox.timeless;
 
+import java.util.Collection;
+
 import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
 import org.eclipse.viatra.query.runtime.matchers.util.Direction;
 import org.eclipse.viatra.query.runtime.rete.network.Node;
@@ -56,6 +58,18 @@ public class BehaviorChangingMailbox implements FallThroughCapableMailbox {
         }
     }
 
+    /**
+     * @since 2.9
+     */
+    @Override
+    public void postMessages(final Direction direction, final Collection<Tuple> updates, final Timestamp timestamp) {
+        if (this.fallThrough && !this.container.isExecutingDelayedCommands()) {
+            FallThroughCapableMailbox.super.postMessages(direction, updates, timestamp);
+        } else {
+            this.wrapped.postMessages(direction, updates, timestamp);
+        }
+    }
+
     @Override
     public void deliverAll(final MessageSelector kind) {
         this.wrapped.deliverAll(kind);
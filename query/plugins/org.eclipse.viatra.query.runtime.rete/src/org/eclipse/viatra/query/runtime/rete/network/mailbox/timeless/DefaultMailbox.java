@@ -8,6 +8,9 @@
  *******************************************************************************/
 package org.eclipse.viatra.query.runtime.rete.network.mailbox.timeless;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -21,6 +24,7 @@ import org.eclipse.viatra.query.runtime.rete.network.communication.MessageSelect
 import org.eclipse.viatra.query.runtime.rete.network.communication.PhasedSelector;
 import org.eclipse.viatra.query.runtime.rete.network.communication.Timestamp;
 import org.eclipse.viatra.query.runtime.rete.network.mailbox.AdaptableMailbox;
+import org.eclipse.viatra.query.runtime.rete.network.mailbox.InsertedTuplesView;
 import org.eclipse.viatra.query.runtime.rete.network.mailbox.Mailbox;
 
 /**
@@ -28,6 +32,11 @@ import org.eclipse.viatra.query.runtime.rete.network.mailbox.Mailbox;
  * <p>
  * Usually, the mailbox performs counting of messages so that they can cancel each other out. However, if marked as a
  * fall-through mailbox, than update messages are delivered directly to the receiver node to reduce overhead.
+ * <p>
+ * Bulk insertions posted via {@link #postMessages(Direction, Collection, Timestamp)} to a receiver outside of recursive
+ * groups are not counted, unless counted messages are already pending; they are stored as they are and delivered
+ * before the counted messages. This makes the initial synchronization of receivers with large suppliers cheaper. If
+ * the receiver is merged into a recursive group before delivery, the stored insertions are counted after all.
  * 
  * @author Tamas Szabo
  * @since 2.0
@@ -38,6 +47,10 @@ public class DefaultMailbox implements AdaptableMailbox {
 
     protected Map<Tuple, Integer> queue;
     protected Map<Tuple, Integer> buffer;
+    /**
+     * @since 2.9
+     */
+    protected List<Collection<Tuple>> bulkInsertions;
     protected final Receiver receiver;
     protected final ReteContainer container;
     protected boolean delivering;
@@ -49,6 +62,7 @@ public class DefaultMailbox implements AdaptableMailbox {
         this.container = container;
         this.queue = CollectionsFactory.createMap();
         this.buffer = CollectionsFactory.createMap();
+        this.bulkInsertions = new ArrayList<>();
         this.adapter = this;
     }
 
@@ -72,13 +86,14 @@ public class DefaultMailbox implements AdaptableMailbox {
 
     @Override
     public boolean isEmpty() {
-        return getActiveQueue().isEmpty();
+        return getActiveQueue().isEmpty() && this.bulkInsertions.isEmpty();
     }
 
     @Override
     public void postMessage(final Direction direction, final Tuple update, final Timestamp timestamp) {
+        countBulkInsertionsIfRecursive();
         final Map<Tuple, Integer> activeQueue = getActiveQueue();
-        final boolean wasEmpty = activeQueue.isEmpty();
+        final boolean wasEmpty = isEmpty();
 
         boolean significantChange = false;
         Integer count = activeQueue.get(update);
@@ -106,18 +121,70 @@ public class DefaultMailbox implements AdaptableMailbox {
 
             if (wasEmpty) {
                 targetGroup.notifyHasMessage(targetMailbox, PhasedSelector.DEFAULT);
-            } else if (activeQueue.isEmpty()) {
+            } else if (isEmpty()) {
                 targetGroup.notifyLostAllMessages(targetMailbox, PhasedSelector.DEFAULT);
             }
         }
     }
 
+    /**
+     * @since 2.9
+     */
+    @Override
+    public void postMessages(final Direction direction, final Collection<Tuple> updates, final Timestamp timestamp) {
+        final CommunicationGroup targetGroup = this.adapter.getCurrentGroup();
+        // bulk insertions do not cancel out with deletions, which is only safe outside of recursive groups;
+        // they may not overtake counted messages either, as set memories reject duplicate insertions
+        if (direction == Direction.INSERT && !this.delivering && targetGroup != null && !targetGroup.isRecursive()
+                && this.queue.isEmpty()) {
+            if (!updates.isEmpty()) {
+                final boolean wasEmpty = isEmpty();
+                this.bulkInsertions.add(updates);
+                if (wasEmpty) {
+                    targetGroup.notifyHasMessage(this.adapter, PhasedSelector.DEFAULT);
+                }
+            }
+        } else {
+            AdaptableMailbox.super.postMessages(direction, updates, timestamp);
+        }
+    }
+
+    /**
+     * The receiver may have been merged into a recursive group since the bulk insertions were posted; from then on,
+     * they are counted like the other messages, so that they can cancel out with later deletions.
+     */
+    private void countBulkInsertionsIfRecursive() {
+        if (this.bulkInsertions.isEmpty() || this.delivering) {
+            return;
+        }
+        final CommunicationGroup targetGroup = this.adapter.getCurrentGroup();
+        if (targetGroup != null && targetGroup.isRecursive()) {
+            for (final Collection<Tuple> updates : this.bulkInsertions) {
+                for (final Tuple update : updates) {
+                    this.queue.merge(update, 1, (count, one) -> count + one == 0 ? null : count + one);
+                }
+            }
+            this.bulkInsertions.clear();
+            if (this.queue.isEmpty()) {
+                targetGroup.notifyLostAllMessages(this.adapter, PhasedSelector.DEFAULT);
+            }
+        }
+    }
+
     @Override
     public void deliverAll(final MessageSelector kind) {
         if (kind == PhasedSelector.DEFAULT) {
+            countBulkInsertionsIfRecursive();
             // use the buffer during delivering so that there is a clear
             // separation between the stages
             this.delivering = true;
+            if (!this.bulkInsertions.isEmpty()) {
+                final List<Collection<Tuple>> bulk = this.bulkInsertions;
+                this.bulkInsertions = new ArrayList<>();
+                for (final Collection<Tuple> updates : bulk) {
+                    this.receiver.batchUpdate(new InsertedTuplesView(updates), Timestamp.ZERO);
+                }
+            }
             this.receiver.batchUpdate(this.queue.entrySet(), Timestamp.ZERO);
             this.delivering = false;
 
@@ -149,6 +216,7 @@ public class DefaultMailbox implements AdaptableMailbox {
     public void clear() {
         this.queue.clear();
         this.buffer.clear();
+        this.bulkInsertions.clear();
     }
 
     @Override
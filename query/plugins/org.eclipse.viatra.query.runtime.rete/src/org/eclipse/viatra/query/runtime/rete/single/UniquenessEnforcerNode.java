@@ -11,6 +11,7 @@ package org.eclipse.viatra.query.runtime.rete.single;
 
 import java.util.Collection;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import org.eclipse.viatra.query.runtime.matchers.context.IPosetComparator;
@@ -23,10 +24,13 @@ import org.eclipse.viatra.query.runtime.matchers.util.timeline.Timeline;
 import org.eclipse.viatra.query.runtime.rete.index.MemoryIdentityIndexer;
 import org.eclipse.viatra.query.runtime.rete.index.MemoryNullIndexer;
 import org.eclipse.viatra.query.runtime.rete.index.ProjectionIndexer;
+import org.eclipse.viatra.query.runtime.rete.network.Node;
 import org.eclipse.viatra.query.runtime.rete.network.PosetAwareReceiver;
 import org.eclipse.viatra.query.runtime.rete.network.RederivableNode;
 import org.eclipse.viatra.query.runtime.rete.network.ReteContainer;
+import org.eclipse.viatra.query.runtime.rete.network.Supplier;
 import org.eclipse.viatra.query.runtime.rete.network.communication.CommunicationGroup;
+import org.eclipse.viatra.query.runtime.rete.network.communication.CommunicationTracker;
 import org.eclipse.viatra.query.runtime.rete.network.communication.Timestamp;
 import org.eclipse.viatra.query.runtime.rete.network.communication.timeless.RecursiveCommunicationGroup;
 import org.eclipse.viatra.query.runtime.rete.network.mailbox.Mailbox;
@@ -39,6 +43,11 @@ import org.eclipse.viatra.query.runtime.rete.network.mailbox.timeless.PosetAware
  * The node is capable of operating in the delete and re-derive mode. In this mode, it is also possible to equip the
  * node with an {@link IPosetComparator} to identify monotone changes; thus, ensuring that a fix-point can be reached
  * during the evaluation.
+ * <p>
+ * In delete and re-derive mode, the node may also count the derivations of its tuples by parent, see
+ * {@link #updateExternalSupport(Node, Direction, Tuple)}. A tuple that still has a derivation from a parent outside of
+ * the recursive group of the node after a deletion is not over-deleted, as it cannot disappear; this bounds the effort
+ * of the evaluation to the tuples whose remaining support is (possibly) cyclic.
  * 
  * @author Gabor Bergmann
  * @author Tamas Szabo
@@ -57,6 +66,27 @@ public class UniquenessEnforcerNode extends AbstractUniquenessEnforcerNode
      * @since 1.6
      */
     protected boolean deleteRederiveEvaluation;
+    /**
+     * The number of derivations of each tuple by the parent they come from, as registered via
+     * {@link #updateExternalSupport(Node, Direction, Tuple)}; may underestimate but never overestimate the actual
+     * number. Derivations are counted regardless of the groups, which are only checked when a tuple is deleted, so
+     * that the counts remain valid when recursive groups are merged or split.
+     * 
+     * @since 2.9
+     */
+    protected Map<Node, IMultiset<Tuple>> supportByParent;
+    /**
+     * @since 2.9
+     */
+    protected long overDeletionCount;
+    /**
+     * @since 2.9
+     */
+    protected long rederivationCount;
+    /**
+     * @since 2.9
+     */
+    protected long countedDeletionCount;
 
     /**
      * @since 1.7
@@ -105,6 +135,8 @@ public class UniquenessEnforcerNode extends AbstractUniquenessEnforcerNode
         this.rederivableMemory = CollectionsFactory.createMultiset();
         reteContainer.registerClearable(this.memory);
         reteContainer.registerClearable(this.rederivableMemory);
+        this.supportByParent = CollectionsFactory.createMap();
+        reteContainer.registerClearable(this.supportByParent::clear);
         this.deleteRederiveEvaluation = deleteRederiveEvaluation;
         this.coreMask = coreMask;
         this.posetMask = posetMask;
@@ -232,6 +264,13 @@ public class UniquenessEnforcerNode extends AbstractUniquenessEnforcerNode
                 // the tuple is in the main memory
                 if (monotone) {
                     propagate = memory.removeOne(update);
+                } else if (hasExternalSupport(update)) {
+                    // the tuple is derived from outside of the recursion, so there is no need to over-delete it;
+                    // the count may still drop to zero if that derivation has not been delivered yet
+                    propagate = memory.removeOne(update);
+                    if (!propagate) {
+                        countedDeletionCount++;
+                    }
                 } else {
                     final int count = memoryCount - 1;
                     if (count > 0) {
@@ -240,6 +279,7 @@ public class UniquenessEnforcerNode extends AbstractUniquenessEnforcerNode
                             ((RecursiveCommunicationGroup) currentGroup).addRederivable(this);
                         }
                         rederivableMemory.addPositive(update, count);
+                        overDeletionCount++;
                     }
                     memory.clearAllOf(update);
                     propagate = true;
@@ -281,6 +321,7 @@ public class UniquenessEnforcerNode extends AbstractUniquenessEnforcerNode
         final int count = rederivableMemory.getCount(update);
         rederivableMemory.clearAllOf(update);
         memory.addPositive(update, count);
+        rederivationCount++;
         // if there is no other re-derivable tuple, then unregister the node itself
         if (this.rederivableMemory.isEmpty()) {
             ((RecursiveCommunicationGroup) currentGroup).removeRederivable(this);
@@ -288,6 +329,85 @@ public class UniquenessEnforcerNode extends AbstractUniquenessEnforcerNode
         propagate(Direction.INSERT, update, Timestamp.ZERO);
     }
 
+    /**
+     * Registers a derivation of the given tuple by the given parent, or the loss of one. The communication tracker
+     * calls this when a message is posted to the node, i.e. before it is delivered; as groups are processed in
+     * topological order, the counts of the parents outside of the recursive group of this node are final by the time
+     * the group processes its messages.
+     * 
+     * @since 2.9
+     */
+    public void updateExternalSupport(final Node parent, final Direction direction, final Tuple update) {
+        if (direction == Direction.INSERT) {
+            supportByParent.computeIfAbsent(parent, key -> CollectionsFactory.createMultiset()).addOne(update);
+        } else {
+            final IMultiset<Tuple> support = supportByParent.get(parent);
+            // underestimating is safe, it only causes an unnecessary over-deletion
+            if (support != null) {
+                support.removeOneOrNop(update);
+                if (support.isEmpty()) {
+                    supportByParent.remove(parent);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns true if the given tuple has a derivation from a parent that is currently outside of the recursive group
+     * of this node.
+     * 
+     * @since 2.9
+     */
+    protected boolean hasExternalSupport(final Tuple update) {
+        final CommunicationTracker tracker = reteContainer.getCommunicationTracker();
+        final CommunicationGroup ownGroup = tracker.getGroup(this);
+        for (final Entry<Node, IMultiset<Tuple>> entry : supportByParent.entrySet()) {
+            final CommunicationGroup parentGroup = tracker.getGroup(entry.getKey());
+            // during RETE construction, the groups may be still null
+            if (ownGroup != null && parentGroup != null && parentGroup != ownGroup
+                    && entry.getValue().containsNonZero(update)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @since 2.9
+     */
+    @Override
+    public void removeParent(final Supplier supplier) {
+        super.removeParent(supplier);
+        // the derivations of a disconnected parent are not accounted for anymore
+        supportByParent.remove(supplier);
+    }
+
+    /**
+     * Returns the number of deletions that did not cause an over-deletion, because the tuple still had derivations
+     * from outside of the recursion.
+     * 
+     * @since 2.9
+     */
+    public long getCountedDeletionCount() {
+        return countedDeletionCount;
+    }
+
+    /**
+     * @since 2.9
+     */
+    @Override
+    public long getOverDeletionCount() {
+        return overDeletionCount;
+    }
+
+    /**
+     * @since 2.9
+     */
+    @Override
+    public long getRederivationCount() {
+        return rederivationCount;
+    }
+
     @Override
     public ProjectionIndexer getNullIndexer() {
         if (this.memoryNullIndexer == null) {
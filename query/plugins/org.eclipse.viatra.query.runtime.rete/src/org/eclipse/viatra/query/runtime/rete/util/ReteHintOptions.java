@@ -53,6 +53,28 @@ public final class ReteHintOptions {
     public static final QueryHintOption<Boolean> expandWeakenedAlternativeConstraints =
             hintOption("expandWeakenedAlternativeConstraints", true);
    
+    /**
+     * The number of threads used to normalize and plan the queries of a query group in parallel when the group is
+     * prepared; Rete network construction itself is sequential. With the default value of 1, queries are prepared
+     * one by one.
+     * 
+     * @since 2.9
+     */
+    public static final QueryHintOption<Integer> preparationParallelism =
+            hintOption("preparationParallelism", 1);
+
+    /**
+     * If true, normalized pattern bodies are brought into a canonical form before planning, so that bodies (or parts
+     * of bodies) that only differ in the naming of their variables and the order of their constraints are compiled
+     * into the same Rete nodes, and thus shared between queries.
+     * <p>
+     * Disabled by default, as the canonical order of constraints also changes the join order of the planned bodies.
+     * 
+     * @since 2.9
+     */
+    public static final QueryHintOption<Boolean> canonicalizeBodies =
+            hintOption("canonicalizeBodies", false);
+
     // internal helper for conciseness
     private static <T> QueryHintOption<T> hintOption(String hintKeyLocalName, T defaultValue) {
         return new QueryHintOption<>(ReteHintOptions.class, hintKeyLocalName, defaultValue);
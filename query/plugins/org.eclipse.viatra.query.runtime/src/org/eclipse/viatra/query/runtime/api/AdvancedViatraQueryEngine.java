@@ -10,6 +10,7 @@ package org.eclipse.viatra.query.runtime.api;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 
 import org.eclipse.viatra.query.runtime.api.scope.QueryScope;
 import org.eclipse.viatra.query.runtime.emf.EMFScope;
@@ -189,6 +190,48 @@ public abstract class AdvancedViatraQueryEngine extends ViatraQueryEngine {
     public abstract <Match extends IPatternMatch> void removeMatchUpdateListener(ViatraQueryMatcher<Match> matcher,
             IMatchUpdateListener<? super Match> listener);
 
+    /**
+     * Registers callbacks for match appearance and disappearance on this pattern matcher that are delivered
+     * asynchronously, so that a slow listener does not stall update propagation. See
+     * {@link AsyncMatchUpdateListener} for the details of delivery, and
+     * {@link #addMatchUpdateListener(ViatraQueryMatcher, IMatchUpdateListener, boolean)} for the semantics of the
+     * callbacks.
+     * 
+     * <p>
+     * The callback can be unregistered by passing the returned listener to
+     * {@link #removeMatchUpdateListener(ViatraQueryMatcher, IMatchUpdateListener)}; it should be
+     * {@link AsyncMatchUpdateListener#close() closed} afterwards.
+     * 
+     * @param matcher
+     *            the {@link ViatraQueryMatcher} for which this listener should be active
+     * @param listener
+     *            the listener that will be notified of each new match that appears or disappears, starting from now.
+     * @param fireNow
+     *            if true, appearCallback will be immediately queued for all current matches as a one-time effect.
+     * @param executor
+     *            the executor delivering the notifications; if null, a dedicated thread is used
+     * @param capacity
+     *            the maximal number of notifications that are queued but not delivered yet
+     * @param policy
+     *            determines the behaviour when the queue is full
+     * @return the registered asynchronous listener wrapping the given one
+     * @since 2.9
+     */
+    public <Match extends IPatternMatch> AsyncMatchUpdateListener<Match> addAsyncMatchUpdateListener(
+            ViatraQueryMatcher<Match> matcher, IMatchUpdateListener<? super Match> listener, boolean fireNow,
+            Executor executor, int capacity, AsyncMatchUpdateListener.OverflowPolicy policy) {
+        AsyncMatchUpdateListener<Match> asyncListener = executor == null
+                ? new AsyncMatchUpdateListener<>(listener, capacity, policy)
+                : new AsyncMatchUpdateListener<>(listener, executor, capacity, policy);
+        try {
+            addMatchUpdateListener(matcher, asyncListener, fireNow);
+        } catch (RuntimeException e) {
+            asyncListener.close();
+            throw e;
+        }
+        return asyncListener;
+    }
+
     
     /**
      * Access a pattern matcher based on a {@link IQuerySpecification}, overriding some of the default query evaluation hints. 
@@ -308,6 +351,16 @@ public abstract class AdvancedViatraQueryEngine extends ViatraQueryEngine {
      */
     public abstract IQueryBackend getQueryBackend(IQueryBackendFactory iQueryBackendFactory);
 
+    /**
+     * Provides access to the query backend component that evaluates the queries of the selected query backend factory.
+     * Unlike {@link #getQueryBackend(IQueryBackendFactory)}, it skips the backends wrapping it, e.g. to answer queries
+     * from a {@link QueryResultCache} or to materialize results lazily; the wrapped backend is created if necessary.
+     * @noreference for internal use only
+     * @throws ViatraQueryRuntimeException
+     * @since 2.9
+     */
+    public abstract IQueryBackend getUnwrappedQueryBackend(IQueryBackendFactory iQueryBackendFactory);
+
     /**
      * Access an existing pattern matcher based on a {@link IQuerySpecification}, and optional hints override.
      * @param querySpecification a {@link IQuerySpecification} that describes a VIATRA query specification
@@ -365,4 +418,26 @@ public abstract class AdvancedViatraQueryEngine extends ViatraQueryEngine {
      * @since 2.0
      */
     public abstract boolean isDisposed();
+
+    /**
+     * Estimates the memory used by the query backends and the base index of this engine, in bytes. The estimate is
+     * computed from the number of stored tuples and index entries by traversing the memories of the engine, so it
+     * should not be called frequently; with a memory budget or lazy materialization, the entries of the base index are
+     * only recounted after the index has changed.
+     * 
+     * @see MemoryBudget
+     * @since 2.9
+     */
+    public abstract long getEstimatedMemoryUsage();
+
+    /**
+     * Performs the eviction actions of the {@link ViatraQueryEngineOptions#getMemoryBudget() memory budget} of the
+     * engine if its estimated memory usage exceeds the budget, e.g. after the model has grown. The budget is also
+     * checked automatically whenever query results are materialized, see {@link MemoryBudget}. Has no effect if the
+     * engine has no memory budget.
+     * 
+     * @see MemoryBudget
+     * @since 2.9
+     */
+    public abstract void checkMemoryBudget();
 }
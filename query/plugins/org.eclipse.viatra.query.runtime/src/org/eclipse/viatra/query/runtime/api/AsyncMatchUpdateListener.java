@@ -0,0 +1,367 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.api;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.log4j.Logger;
+import org.eclipse.viatra.query.runtime.matchers.util.Preconditions;
+import org.eclipse.viatra.query.runtime.util.ViatraQueryLoggingUtil;
+
+/**
+ * An {@link IMatchUpdateListener} that decouples the notification of a delegate listener from update propagation: match
+ * appearances and disappearances are queued on a bounded ring buffer, and delivered to the delegate, in the order of
+ * their occurrence, by tasks of an executor. This way a slow delegate does not stall the propagation of model changes
+ * as long as the buffer is not full.
+ *
+ * <p>
+ * When the buffer is full, the behaviour depends on the {@link OverflowPolicy}:
+ * <ul>
+ * <li>{@link OverflowPolicy#BLOCK} blocks update propagation until the delegate catches up (backpressure);</li>
+ * <li>{@link OverflowPolicy#COALESCE} keeps only the net effect of the queued notifications: an appearance and a
+ * disappearance of the same match that were not delivered yet cancel each other out. Propagation blocks only if the
+ * buffer is still full after coalescing, i.e. if it holds the net changes of as many distinct matches as its
+ * capacity.</li>
+ * </ul>
+ *
+ * <p>
+ * Register instances with {@link AdvancedViatraQueryEngine#addMatchUpdateListener(ViatraQueryMatcher, IMatchUpdateListener, boolean)}
+ * or {@link AdvancedViatraQueryEngine#addAsyncMatchUpdateListener(ViatraQueryMatcher, IMatchUpdateListener, boolean, Executor, int, OverflowPolicy)},
+ * and unregister them the same way as synchronous listeners, then {@link #close()} them.
+ *
+ * <p>
+ * <b>Caution: </b> the delegate is invoked on the threads of the executor, concurrently with later model changes. It
+ * must not access the query engine or the model, as they are not thread-safe; notifications about the same listener
+ * are never delivered concurrently though.
+ *
+ * @since 2.9
+ */
+public class AsyncMatchUpdateListener<Match extends IPatternMatch> implements IMatchUpdateListener<Match> {
+
+    /**
+     * Determines what happens if a notification is received while the buffer of the listener is full.
+     *
+     * @since 2.9
+     */
+    public enum OverflowPolicy {
+        /**
+         * Block update propagation until there is free space in the buffer
+         */
+        BLOCK,
+        /**
+         * Cancel out pending appearances and disappearances of the same match, and block only if this does not free
+         * up space
+         */
+        COALESCE
+    }
+
+    /**
+     * The default capacity of the buffer of pending notifications
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The maximal number of notifications delivered by a drain task between two acquisitions of the buffer lock
+     */
+    private static final int DELIVERY_BATCH_SIZE = 64;
+
+    private final IMatchUpdateListener<? super Match> delegate;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final OverflowPolicy policy;
+    private final Logger logger = ViatraQueryLoggingUtil.getLogger(getClass());
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition idle = lock.newCondition();
+
+    /*
+     * Ring buffer addressed by ever-increasing sequence numbers; cancelled notifications leave a null match behind
+     */
+    private final Object[] matches;
+    private final boolean[] appearances;
+    private long head = 0;
+    private long tail = 0;
+    private int live = 0;
+    /**
+     * Sequence numbers of pending notifications by match; only maintained for {@link OverflowPolicy#COALESCE}
+     */
+    private final Map<Object, Long> pendingSequences;
+    private boolean draining = false;
+    private boolean closed = false;
+
+    private final Runnable drainTask = this::drain;
+
+    /**
+     * Creates a listener that delivers notifications on a dedicated daemon thread, which is stopped on
+     * {@link #close()}.
+     */
+    public AsyncMatchUpdateListener(IMatchUpdateListener<? super Match> delegate, int capacity,
+            OverflowPolicy policy) {
+        this(delegate, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "VIATRA match update delivery");
+            thread.setDaemon(true);
+            return thread;
+        }), capacity, policy, true);
+    }
+
+    /**
+     * Creates a listener that delivers notifications using the given executor. The executor is not shut down on
+     * {@link #close()}.
+     */
+    public AsyncMatchUpdateListener(IMatchUpdateListener<? super Match> delegate, Executor executor, int capacity,
+            OverflowPolicy policy) {
+        this(delegate, executor, capacity, policy, false);
+    }
+
+    private AsyncMatchUpdateListener(IMatchUpdateListener<? super Match> delegate, Executor executor, int capacity,
+            OverflowPolicy policy, boolean ownsExecutor) {
+        Preconditions.checkArgument(delegate != null, "Delegate listener must not be null");
+        Preconditions.checkArgument(executor != null, "Executor must not be null");
+        Preconditions.checkArgument(capacity > 0, "Capacity must be positive");
+        Preconditions.checkArgument(policy != null, "Overflow policy must not be null");
+        this.delegate = delegate;
+        this.executor = executor;
+        this.ownedExecutor = ownsExecutor ? (ExecutorService) executor : null;
+        this.policy = policy;
+        this.matches = new Object[capacity];
+        this.appearances = new boolean[capacity];
+        this.pendingSequences = policy == OverflowPolicy.COALESCE ? new HashMap<>() : null;
+    }
+
+    public IMatchUpdateListener<? super Match> getDelegate() {
+        return delegate;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return policy;
+    }
+
+    @Override
+    public void notifyAppearance(Match match) {
+        enqueue(match, true);
+    }
+
+    @Override
+    public void notifyDisappearance(Match match) {
+        enqueue(match, false);
+    }
+
+    /**
+     * @return the number of notifications that are queued but not delivered yet
+     */
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return live;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until all queued notifications are delivered to the delegate.
+     *
+     * @return true if all notifications were delivered, false if the timeout elapsed before
+     * @throws InterruptedException
+     *             if the current thread is interrupted while waiting
+     */
+    public boolean awaitDelivery(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (draining) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = idle.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting notifications; the ones already queued are still delivered. Propagation blocked on a full buffer
+     * is released, dropping the notification it was blocked on. If the listener created its own delivery thread, the
+     * thread terminates after the remaining notifications are delivered.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    private void enqueue(Match match, boolean isAppearance) {
+        boolean schedule = false;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            if (pendingSequences != null) {
+                Long sequence = pendingSequences.remove(match);
+                if (sequence != null && appearances[slot(sequence)] != isAppearance) {
+                    matches[slot(sequence)] = null;
+                    live--;
+                    return;
+                }
+            }
+            while (tail - head == matches.length) {
+                if (live < matches.length) {
+                    compact();
+                } else {
+                    notFull.awaitUninterruptibly();
+                    if (closed) {
+                        return;
+                    }
+                }
+            }
+            int slot = slot(tail);
+            matches[slot] = match;
+            appearances[slot] = isAppearance;
+            if (pendingSequences != null) {
+                pendingSequences.put(match, tail);
+            }
+            tail++;
+            live++;
+            if (!draining) {
+                draining = true;
+                schedule = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (schedule) {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        try {
+            executor.execute(drainTask);
+        } catch (RejectedExecutionException e) {
+            lock.lock();
+            try {
+                logger.error("Match update notifications of listener " + delegate + " were rejected by the executor",
+                        e);
+                discardPending();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Moves the pending notifications to the beginning of the buffer, removing the gaps left by cancelled ones.
+     */
+    private void compact() {
+        long target = head;
+        for (long sequence = head; sequence < tail; sequence++) {
+            Object match = matches[slot(sequence)];
+            if (match != null) {
+                if (target != sequence) {
+                    matches[slot(target)] = match;
+                    appearances[slot(target)] = appearances[slot(sequence)];
+                    matches[slot(sequence)] = null;
+                    pendingSequences.put(match, target);
+                }
+                target++;
+            }
+        }
+        tail = target;
+    }
+
+    private void discardPending() {
+        for (long sequence = head; sequence < tail; sequence++) {
+            matches[slot(sequence)] = null;
+        }
+        head = tail;
+        live = 0;
+        if (pendingSequences != null) {
+            pendingSequences.clear();
+        }
+        draining = false;
+        notFull.signalAll();
+        idle.signalAll();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void drain() {
+        Object[] batch = new Object[Math.min(DELIVERY_BATCH_SIZE, matches.length)];
+        boolean[] batchAppearances = new boolean[batch.length];
+        while (true) {
+            int size = 0;
+            lock.lock();
+            try {
+                while (head < tail && size < batch.length) {
+                    int slot = slot(head);
+                    Object match = matches[slot];
+                    if (match != null) {
+                        batch[size] = match;
+                        batchAppearances[size] = appearances[slot];
+                        size++;
+                        matches[slot] = null;
+                        if (pendingSequences != null) {
+                            pendingSequences.remove(match, head);
+                        }
+                    }
+                    head++;
+                }
+                if (size == 0) {
+                    draining = false;
+                    idle.signalAll();
+                    return;
+                }
+                live -= size;
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            for (int i = 0; i < size; i++) {
+                deliver((Match) batch[i], batchAppearances[i]);
+                batch[i] = null;
+            }
+        }
+    }
+
+    private void deliver(Match match, boolean isAppearance) {
+        try {
+            if (isAppearance) {
+                delegate.notifyAppearance(match);
+            } else {
+                delegate.notifyDisappearance(match);
+            }
+        } catch (Exception e) {
+            logger.warn(String.format("Error while delivering the %s of match %s to listener %s: %s",
+                    isAppearance ? "appearance" : "disappearance", match.prettyPrint(), delegate, e.getMessage()), e);
+        }
+    }
+
+    private int slot(long sequence) {
+        return (int) (sequence % matches.length);
+    }
+
+}
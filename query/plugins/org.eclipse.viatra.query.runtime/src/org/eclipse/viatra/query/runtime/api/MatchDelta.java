@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.api;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * An immutable batch of changes of the match set of a matcher, as published by a {@link MatchDeltaPublisher}. A
+ * match is contained in at most one of the appeared and disappeared sets: only the net effect of the changes is
+ * represented.
+ *
+ * <p>
+ * A snapshot delta represents the whole match set at the time of its creation as appeared matches, and has no
+ * disappeared matches.
+ *
+ * @since 2.9
+ */
+public final class MatchDelta<Match extends IPatternMatch> {
+
+    private final Set<Match> appeared;
+    private final Set<Match> disappeared;
+    private final boolean snapshot;
+
+    MatchDelta(Set<Match> appeared, Set<Match> disappeared, boolean snapshot) {
+        this.appeared = Collections.unmodifiableSet(appeared);
+        this.disappeared = Collections.unmodifiableSet(disappeared);
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * @return the matches that have appeared, or all matches in case of a snapshot
+     */
+    public Set<Match> getAppeared() {
+        return appeared;
+    }
+
+    /**
+     * @return the matches that have disappeared; always empty in case of a snapshot
+     */
+    public Set<Match> getDisappeared() {
+        return disappeared;
+    }
+
+    /**
+     * @return true if this delta represents the whole match set instead of changes
+     */
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    public boolean isEmpty() {
+        return appeared.isEmpty() && disappeared.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MatchDelta[%s+%d, -%d]", snapshot ? "snapshot, " : "", appeared.size(),
+                disappeared.size());
+    }
+}
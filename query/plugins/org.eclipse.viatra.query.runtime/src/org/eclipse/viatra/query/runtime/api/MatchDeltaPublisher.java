@@ -0,0 +1,470 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.api;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.log4j.Logger;
+import org.eclipse.viatra.query.runtime.matchers.util.Preconditions;
+import org.eclipse.viatra.query.runtime.util.ViatraQueryLoggingUtil;
+
+/**
+ * Publishes the changes of the match set of an incremental matcher as a stream of {@link MatchDelta}s, following the
+ * protocol of reactive streams: subscribers receive deltas only as far as they have requested them, and are notified
+ * asynchronously, using an executor.
+ *
+ * <p>
+ * Changes are collected per subscriber until the end of each propagation, i.e. after each model change processed by
+ * the engine, unless update propagation is delayed by
+ * {@link AdvancedViatraQueryEngine#delayUpdatePropagation(Callable)}; changes made during delayed propagation are
+ * published when the delay ends if the delayed block is executed by {@link #delayUpdatePropagation(Callable)} of this
+ * publisher, or by an explicit call to {@link #flush()}. If a subscriber has no outstanding demand, the changes of
+ * further propagations are merged into its undelivered delta instead of being queued, so the memory used for a slow
+ * subscriber is bounded by the size of the net change since its last delta.
+ *
+ * <p>
+ * Subscribers may start with a snapshot of the match set at the time of subscription; if the snapshot is not
+ * delivered before the next propagation, the changes are merged into it.
+ *
+ * <p>
+ * The stream of each subscriber is completed when the publisher is {@link #close() closed}, or the engine is wiped or
+ * disposed; it fails if the engine becomes tainted. All methods of the publisher must be called by the thread
+ * modifying the model; the methods of {@link Subscription}s can be called from any thread.
+ *
+ * @since 2.9
+ */
+public class MatchDeltaPublisher<Match extends IPatternMatch> {
+
+    /**
+     * Receives the deltas published by a {@link MatchDeltaPublisher}. Mirrors
+     * <code>java.util.concurrent.Flow.Subscriber</code>, which is not available on all supported Java versions; the
+     * methods are never invoked concurrently for the same subscription.
+     *
+     * @since 2.9
+     */
+    public interface Subscriber<T> {
+
+        /**
+         * Invoked on subscription, before any other method.
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Invoked with the next item, at most as many times as requested from the subscription.
+         */
+        void onNext(T item);
+
+        /**
+         * Invoked when the stream failed; no other methods are invoked afterwards.
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Invoked when the stream ended; no other methods are invoked afterwards.
+         */
+        void onComplete();
+    }
+
+    /**
+     * Controls the delivery of deltas to a {@link Subscriber}. Mirrors
+     * <code>java.util.concurrent.Flow.Subscription</code>.
+     *
+     * @since 2.9
+     */
+    public interface Subscription {
+
+        /**
+         * Adds the given number of items to the outstanding demand of the subscriber. A non-positive number fails the
+         * stream with an {@link IllegalArgumentException}.
+         */
+        void request(long n);
+
+        /**
+         * Stops the delivery of further items; items being delivered may still arrive.
+         */
+        void cancel();
+    }
+
+    private final AdvancedViatraQueryEngine engine;
+    private final ViatraQueryMatcher<Match> matcher;
+    private final Executor executor;
+    private final Logger logger = ViatraQueryLoggingUtil.getLogger(getClass());
+    private final List<DeltaSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private boolean closed = false;
+
+    private final class DeltaSubscription implements Subscription {
+        final Subscriber<? super MatchDelta<Match>> subscriber;
+        /**
+         * Changes of the current propagation; only accessed by the thread modifying the model
+         */
+        Map<Match, Boolean> propagationChanges = new LinkedHashMap<>();
+
+        /*
+         * The following fields are guarded by this subscription
+         */
+        Set<Match> undeliveredSnapshot;
+        Map<Match, Boolean> undeliveredChanges = new LinkedHashMap<>();
+        long demand = 0;
+        boolean draining = false;
+        boolean terminated = false;
+        boolean completionPending = false;
+        Throwable pendingError;
+
+        final Runnable drainTask = this::drain;
+
+        DeltaSubscription(Subscriber<? super MatchDelta<Match>> subscriber, Set<Match> snapshot) {
+            this.subscriber = subscriber;
+            this.undeliveredSnapshot = snapshot;
+        }
+
+        void record(Match match, boolean isAppearance) {
+            merge(propagationChanges, match, isAppearance);
+        }
+
+        /**
+         * Ends the current propagation for this subscriber
+         */
+        void endPropagation() {
+            if (propagationChanges.isEmpty()) {
+                return;
+            }
+            Map<Match, Boolean> changes = propagationChanges;
+            propagationChanges = new LinkedHashMap<>();
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                for (Map.Entry<Match, Boolean> change : changes.entrySet()) {
+                    if (undeliveredSnapshot == null) {
+                        merge(undeliveredChanges, change.getKey(), change.getValue());
+                    } else if (change.getValue()) {
+                        undeliveredSnapshot.add(change.getKey());
+                    } else {
+                        undeliveredSnapshot.remove(change.getKey());
+                    }
+                }
+            }
+            scheduleDelivery();
+        }
+
+        void terminate(Throwable error) {
+            synchronized (this) {
+                if (terminated || completionPending || pendingError != null) {
+                    return;
+                }
+                if (error == null) {
+                    completionPending = true;
+                } else {
+                    pendingError = error;
+                }
+            }
+            scheduleDelivery();
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (terminated) {
+                    return;
+                }
+                if (n <= 0) {
+                    pendingError = new IllegalArgumentException("Requested number of items must be positive: " + n);
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            scheduleDelivery();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                terminated = true;
+                undeliveredSnapshot = null;
+                undeliveredChanges.clear();
+            }
+            subscriptions.remove(this);
+        }
+
+        private void scheduleDelivery() {
+            synchronized (this) {
+                if (draining || terminated) {
+                    return;
+                }
+                draining = true;
+            }
+            try {
+                executor.execute(drainTask);
+            } catch (RejectedExecutionException e) {
+                logger.error("Match deltas of subscriber " + subscriber + " were rejected by the executor", e);
+                cancel();
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                MatchDelta<Match> delta = null;
+                Throwable error = null;
+                boolean complete = false;
+                synchronized (this) {
+                    if (terminated) {
+                        draining = false;
+                        return;
+                    }
+                    if (pendingError != null) {
+                        // errors are signalled immediately, dropping undelivered changes
+                        error = pendingError;
+                        terminated = true;
+                    } else if (demand > 0 && undeliveredSnapshot != null) {
+                        delta = new MatchDelta<>(undeliveredSnapshot, new HashSet<>(), true);
+                        undeliveredSnapshot = null;
+                        demand--;
+                    } else if (demand > 0 && !undeliveredChanges.isEmpty()) {
+                        Set<Match> appeared = new HashSet<>();
+                        Set<Match> disappeared = new HashSet<>();
+                        for (Map.Entry<Match, Boolean> change : undeliveredChanges.entrySet()) {
+                            (change.getValue() ? appeared : disappeared).add(change.getKey());
+                        }
+                        undeliveredChanges = new LinkedHashMap<>();
+                        delta = new MatchDelta<>(appeared, disappeared, false);
+                        demand--;
+                    } else if (completionPending && undeliveredSnapshot == null && undeliveredChanges.isEmpty()) {
+                        complete = true;
+                        terminated = true;
+                    } else {
+                        draining = false;
+                        return;
+                    }
+                }
+                deliver(delta, error, complete);
+            }
+        }
+
+        private void deliver(MatchDelta<Match> delta, Throwable error, boolean complete) {
+            try {
+                if (delta != null) {
+                    subscriber.onNext(delta);
+                } else if (error != null) {
+                    subscriber.onError(error);
+                } else if (complete) {
+                    subscriber.onComplete();
+                }
+            } catch (Exception e) {
+                logger.error("Subscriber " + subscriber + " of the match deltas of pattern " + matcher.getPatternName()
+                        + " failed, cancelling its subscription", e);
+                cancel();
+            }
+            if (error != null || complete) {
+                subscriptions.remove(this);
+            }
+        }
+    }
+
+    private final IMatchUpdateListener<Match> matchUpdateListener = new IMatchUpdateListener<Match>() {
+
+        @Override
+        public void notifyAppearance(Match match) {
+            for (DeltaSubscription subscription : subscriptions) {
+                subscription.record(match, true);
+            }
+        }
+
+        @Override
+        public void notifyDisappearance(Match match) {
+            for (DeltaSubscription subscription : subscriptions) {
+                subscription.record(match, false);
+            }
+        }
+    };
+
+    private final ViatraQueryModelUpdateListener modelUpdateListener = new ViatraQueryModelUpdateListener() {
+
+        @Override
+        public void notifyChanged(ChangeLevel changeLevel) {
+            if (!engine.isUpdatePropagationDelayed()) {
+                flush();
+            }
+        }
+
+        @Override
+        public ChangeLevel getLevel() {
+            return ChangeLevel.MODEL;
+        }
+    };
+
+    private final ViatraQueryEngineLifecycleListener lifecycleListener = new ViatraQueryEngineLifecycleListener() {
+
+        @Override
+        public void matcherInstantiated(ViatraQueryMatcher<? extends IPatternMatch> matcher) {
+            // Only a single matcher is published
+        }
+
+        @Override
+        public void engineBecameTainted(String message, Throwable t) {
+            for (DeltaSubscription subscription : subscriptions) {
+                subscription.terminate(new IllegalStateException(message, t));
+            }
+        }
+
+        @Override
+        public void engineWiped() {
+            // The matcher is not updated anymore
+            close(false);
+        }
+
+        @Override
+        public void engineDisposed() {
+            close(false);
+        }
+    };
+
+    /**
+     * Creates a publisher for the given matcher that notifies subscribers using the common fork-join pool.
+     *
+     * @param matcher
+     *            a matcher of an incremental backend
+     */
+    public MatchDeltaPublisher(ViatraQueryMatcher<Match> matcher) {
+        this(matcher, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a publisher for the given matcher that notifies subscribers using the given executor.
+     *
+     * @param matcher
+     *            a matcher of an incremental backend
+     */
+    public MatchDeltaPublisher(ViatraQueryMatcher<Match> matcher, Executor executor) {
+        Preconditions.checkArgument(executor != null, "Executor must not be null");
+        this.engine = AdvancedViatraQueryEngine.from(matcher.getEngine());
+        Preconditions.checkArgument(!engine.isDisposed(), "Cannot publish match deltas of a disposed engine");
+        Preconditions.checkArgument(engine.getResultProviderOfMatcher(matcher).getQueryBackend().isCaching(),
+                "Match deltas can only be published for matchers of incremental backends");
+        this.matcher = matcher;
+        this.executor = executor;
+        engine.addMatchUpdateListener(matcher, matchUpdateListener, false);
+        engine.addModelUpdateListener(modelUpdateListener);
+        engine.addLifecycleListener(lifecycleListener);
+    }
+
+    public ViatraQueryMatcher<Match> getMatcher() {
+        return matcher;
+    }
+
+    /**
+     * Subscribes to the deltas of the match set, starting with a snapshot of the current matches.
+     */
+    public void subscribe(Subscriber<? super MatchDelta<Match>> subscriber) {
+        subscribe(subscriber, true);
+    }
+
+    /**
+     * Subscribes to the deltas of the match set. The subscriber is notified of the subscription before this method
+     * returns.
+     *
+     * @param initialSnapshot
+     *            if true, the first delta is a snapshot of the current matches; otherwise only changes after the
+     *            subscription are published
+     */
+    public void subscribe(Subscriber<? super MatchDelta<Match>> subscriber, boolean initialSnapshot) {
+        Preconditions.checkArgument(subscriber != null, "Subscriber must not be null");
+        Set<Match> snapshot = initialSnapshot && !closed ? new HashSet<>(matcher.getAllMatches()) : null;
+        DeltaSubscription subscription = new DeltaSubscription(subscriber, snapshot);
+        if (closed) {
+            subscription.completionPending = true;
+        } else {
+            subscriptions.add(subscription);
+        }
+        try {
+            subscriber.onSubscribe(subscription);
+        } catch (Exception e) {
+            logger.error("Subscriber " + subscriber + " of the match deltas of pattern " + matcher.getPatternName()
+                    + " failed on subscription", e);
+            subscription.cancel();
+            return;
+        }
+        if (closed) {
+            subscription.scheduleDelivery();
+        }
+    }
+
+    /**
+     * @return the number of subscribers whose streams are not terminated yet
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Ends the current propagation, and publishes the changes collected since the previous one. Can be used to publish
+     * changes while update propagation is delayed.
+     */
+    public void flush() {
+        for (DeltaSubscription subscription : subscriptions) {
+            subscription.endPropagation();
+        }
+    }
+
+    /**
+     * Executes the given callable with delayed update propagation (see
+     * {@link AdvancedViatraQueryEngine#delayUpdatePropagation(Callable)}), then publishes all changes of the callable
+     * as a single delta.
+     */
+    public <V> V delayUpdatePropagation(Callable<V> callable) throws InvocationTargetException {
+        V result = engine.delayUpdatePropagation(callable);
+        if (!engine.isUpdatePropagationDelayed()) {
+            flush();
+        }
+        return result;
+    }
+
+    /**
+     * Publishes the pending changes, then completes the streams of all subscribers after their undelivered deltas.
+     */
+    public void close() {
+        close(true);
+    }
+
+    private void close(boolean matcherAlive) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        flush();
+        for (DeltaSubscription subscription : subscriptions) {
+            subscription.terminate(null);
+        }
+        if (!engine.isDisposed()) {
+            if (matcherAlive) {
+                engine.removeMatchUpdateListener(matcher, matchUpdateListener);
+            }
+            engine.removeModelUpdateListener(modelUpdateListener);
+            engine.removeLifecycleListener(lifecycleListener);
+        }
+    }
+
+    private static <Match> void merge(Map<Match, Boolean> changes, Match match, boolean isAppearance) {
+        Boolean previous = changes.get(match);
+        if (previous == null) {
+            changes.put(match, isAppearance);
+        } else if (previous != isAppearance) {
+            changes.remove(match);
+        }
+    }
+}
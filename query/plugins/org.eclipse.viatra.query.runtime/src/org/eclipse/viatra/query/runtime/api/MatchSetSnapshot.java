@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
+import org.eclipse.viatra.query.runtime.matchers.util.PersistentHashSet;
+
+/**
+ * An immutable version of the match set of a single matcher, as published by a {@link QueryResultSnapshotManager} at
+ * the end of an epoch; it shares its structure with the other versions of the same match set. Instances can be freely
+ * shared between threads.
+ *
+ * <p>
+ * The first filtered read with a given set of bound parameters builds an index of the snapshot by these parameters,
+ * which is reused by later reads of the same snapshot.
+ *
+ * @param <Match>
+ *            the type of matches stored
+ * @since 2.9
+ */
+public final class MatchSetSnapshot<Match extends IPatternMatch> {
+
+    /**
+     * Filtered reads are only indexed for patterns with fewer parameters than this limit
+     */
+    private static final int MAX_INDEXED_ARITY = Integer.SIZE - 1;
+
+    private final long epoch;
+    private final PersistentHashSet<Match> matches;
+    /**
+     * Matches grouped by the values of the bound parameters, indexed by the bit set of bound parameters
+     */
+    private final Map<Integer, Map<Tuple, List<Match>>> indexes = new ConcurrentHashMap<>();
+
+    MatchSetSnapshot(long epoch, PersistentHashSet<Match> matches) {
+        this.epoch = epoch;
+        this.matches = matches;
+    }
+
+    /**
+     * @return the epoch when the match set was last changed
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * @return an unmodifiable set of all matches
+     */
+    public Set<Match> getAllMatches() {
+        return matches;
+    }
+
+    /**
+     * @param partialMatch
+     *            a partial match used for filtering; null values are considered unbound, and a null partial match
+     *            matches everything
+     * @return the matches compatible with the partial match
+     */
+    public Set<Match> getAllMatches(Match partialMatch) {
+        return streamAllMatches(partialMatch).collect(Collectors.toSet());
+    }
+
+    /**
+     * @param partialMatch
+     *            a partial match used for filtering; null values are considered unbound, and a null partial match
+     *            matches everything
+     * @return the matches compatible with the partial match
+     */
+    public Stream<Match> streamAllMatches(Match partialMatch) {
+        if (partialMatch == null) {
+            return matches.stream();
+        }
+        int arity = partialMatch.parameterNames().size();
+        if (arity > MAX_INDEXED_ARITY) {
+            return matches.stream().filter(match -> match.isCompatibleWith(partialMatch));
+        }
+        int boundParameters = 0;
+        for (int i = 0; i < arity; i++) {
+            if (partialMatch.get(i) != null) {
+                boundParameters |= 1 << i;
+            }
+        }
+        if (boundParameters == 0) {
+            return matches.stream().filter(match -> match.isCompatibleWith(partialMatch));
+        }
+        Map<Tuple, List<Match>> index = indexes.computeIfAbsent(boundParameters, this::createIndex);
+        // the index is only used to find the candidates, the pattern of the partial match is checked as well
+        return index.getOrDefault(getBoundValues(partialMatch, boundParameters), Collections.emptyList()).stream()
+                .filter(match -> match.isCompatibleWith(partialMatch));
+    }
+
+    private Map<Tuple, List<Match>> createIndex(int boundParameters) {
+        Map<Tuple, List<Match>> index = new HashMap<>();
+        for (Match match : matches) {
+            index.computeIfAbsent(getBoundValues(match, boundParameters), key -> new ArrayList<>(1)).add(match);
+        }
+        return index;
+    }
+
+    private static Tuple getBoundValues(IPatternMatch match, int boundParameters) {
+        Object[] values = new Object[Integer.bitCount(boundParameters)];
+        int position = 0;
+        for (int i = 0; i < match.parameterNames().size(); i++) {
+            if ((boundParameters & (1 << i)) != 0) {
+                values[position++] = match.get(i);
+            }
+        }
+        return Tuples.flatTupleOf(values);
+    }
+
+    /**
+     * @return the number of all matches
+     */
+    public int countMatches() {
+        return matches.size();
+    }
+
+    /**
+     * @return the number of matches compatible with the partial match
+     */
+    public int countMatches(Match partialMatch) {
+        return (int) streamAllMatches(partialMatch).count();
+    }
+
+    /**
+     * @return true if the match set contains at least one match compatible with the partial match
+     */
+    public boolean hasMatch(Match partialMatch) {
+        if (partialMatch != null && isFullyBound(partialMatch)) {
+            return matches.contains(partialMatch);
+        }
+        return streamAllMatches(partialMatch).findAny().isPresent();
+    }
+
+    private static boolean isFullyBound(IPatternMatch match) {
+        for (int i = 0; i < match.parameterNames().size(); i++) {
+            if (match.get(i) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.api;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.matchers.util.Preconditions;
+
+/**
+ * A limit on the estimated memory usage of a query engine, along with the eviction actions performed when the limit
+ * is exceeded, see {@link ViatraQueryEngineOptions.Builder#withMemoryBudget(MemoryBudget)}.
+ *
+ * <p>
+ * The memory usage of an engine is estimated from the number of tuples stored by its query backends and the number of
+ * entries stored by its base index (see {@link AdvancedViatraQueryEngine#getEstimatedMemoryUsage()}); the estimate is
+ * not an exact measurement of the retained heap. The budget is checked whenever query results are materialized for a
+ * new matcher, and on demand by {@link AdvancedViatraQueryEngine#checkMemoryBudget()}; if queries are materialized
+ * during the evaluation of other queries, the check is deferred until the engine has propagated the next model
+ * change, as evictions may rebuild the structures being evaluated. If the estimate exceeds the limit, the eviction
+ * actions are performed in the given order until the estimate fits the limit again; the base index itself is never
+ * evicted, as all backends rely on it.
+ *
+ * @since 2.9
+ */
+public final class MemoryBudget {
+
+    /**
+     * Actions performed to reduce the memory usage of an engine exceeding its budget.
+     */
+    public enum EvictionAction {
+        /**
+         * Releases the caches of the query backends that are recomputed on demand, e.g. the search plans and pooled
+         * matchers of local search.
+         */
+        RELEASE_CACHES,
+        /**
+         * Releases the materialized results of the least recently used queries of caching backends; afterwards they
+         * are evaluated by the default search backend until they are used again, see
+         * {@link ViatraQueryEngineOptions.Builder#withLazyMaterialization(int, long)}. Queries are demoted in a batch
+         * estimated to cover the excess, so that the structures of the remaining queries are rebuilt at most once per
+         * check. Queries with match update listeners and queries that cannot be evaluated by search are never
+         * evicted. As search caches are
+         * created for the demoted queries, this action is usually followed by {@link #RELEASE_CACHES}.
+         */
+        DEMOTE_LEAST_RECENTLY_USED
+    }
+
+    /**
+     * A listener notified of the eviction actions performed by an engine to keep its memory budget.
+     */
+    @FunctionalInterface
+    public interface EvictionListener {
+
+        /**
+         * Called after an eviction action has been performed.
+         *
+         * @param engine
+         *            the engine exceeding its budget
+         * @param action
+         *            the action performed
+         * @param evictedQueries
+         *            the queries whose results have been released by the action; empty for actions not specific
+         *            to queries
+         * @param usageBefore
+         *            the estimated memory usage of the engine before the action, in bytes
+         * @param usageAfter
+         *            the estimated memory usage of the engine after the action, in bytes
+         */
+        void evicted(ViatraQueryEngine engine, EvictionAction action, Set<PQuery> evictedQueries, long usageBefore,
+                long usageAfter);
+    }
+
+    private final long limit;
+    private final List<EvictionAction> evictionActions;
+    private final EvictionListener listener;
+
+    /**
+     * @param limit
+     *            the limit of the estimated memory usage in bytes; must be positive
+     * @param listener
+     *            notified of the eviction actions performed; can be null
+     * @param evictionActions
+     *            the actions to perform in the given order when the limit is exceeded; at least one is required
+     */
+    public MemoryBudget(long limit, EvictionListener listener, EvictionAction... evictionActions) {
+        Preconditions.checkArgument(limit > 0, "Memory limit must be positive");
+        Preconditions.checkArgument(evictionActions.length > 0, "At least one eviction action is required");
+        this.limit = limit;
+        this.listener = listener;
+        this.evictionActions = Collections.unmodifiableList(Arrays.asList(evictionActions.clone()));
+    }
+
+    /**
+     * @return the limit of the estimated memory usage in bytes
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * @return the actions to perform in the given order when the limit is exceeded
+     */
+    public List<EvictionAction> getEvictionActions() {
+        return evictionActions;
+    }
+
+    /**
+     * @return the listener notified of the eviction actions performed, or null
+     */
+    public EvictionListener getListener() {
+        return listener;
+    }
+
+    @Override
+    public String toString() {
+        return "MemoryBudget[limit=" + limit + ", evictionActions=" + evictionActions + "]";
+    }
+
+}
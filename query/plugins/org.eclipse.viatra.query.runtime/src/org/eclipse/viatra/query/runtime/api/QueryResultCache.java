@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.api;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import org.eclipse.viatra.query.runtime.api.scope.QueryScope;
+import org.eclipse.viatra.query.runtime.internal.apiimpl.CachedMatchSet;
+import org.eclipse.viatra.query.runtime.matchers.backend.QueryEvaluationHint;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.matchers.util.Preconditions;
+
+/**
+ * A memory-bounded cache of match sets that outlives query engines, so that engines created (or wiped and reused)
+ * over the same version of an immutable model do not have to compute the same match sets again.
+ *
+ * <p>
+ * Match sets are identified by the query, its evaluation hints, the scope of the engine and a version of the model,
+ * the latter provided by the client via
+ * {@link ViatraQueryEngineOptions.Builder#withResultCache(QueryResultCache, Supplier)}. The version is an arbitrary
+ * object with value semantics (e.g. a revision number or content hash of the model) that must change whenever the
+ * model changes; if the model version is unknown (<code>null</code>), the cache is not used. Queries are identified by
+ * their {@link PQuery} instance, i.e. the query specifications have to be shared between the engines.
+ *
+ * <p>
+ * Matchers of an engine with a result cache answer from the cached match set as long as the model version does not
+ * change; the cached match sets are immutable and shared between engines. If the version changes, or a match update
+ * listener is registered on the matcher, the matcher is copied on write: it is initialized by the caching query
+ * backend of the engine, and behaves as usual afterwards. Match sets computed by an engine are stored in the cache
+ * when all matches of the query are enumerated (e.g. by {@link ViatraQueryMatcher#getAllMatches()}), so match sets
+ * that are never read in full are not copied.
+ *
+ * <p>
+ * The capacity of the cache is given as the total number of cached matches; least recently used match sets are
+ * evicted when it is exceeded. Besides its matches, each cached match set keeps at most
+ * {@link CachedMatchSet#MAX_PROJECTIONS} indices of its matches by bound parameters, built on demand, so the memory
+ * used by the cache is bounded by a fixed multiple of its capacity. Instances are thread-safe.
+ *
+ * @since 2.9
+ */
+public final class QueryResultCache {
+
+    /**
+     * The capacity of the {@link #getDefault() default cache} in matches, unless overridden by the system property
+     * <code>org.eclipse.viatra.query.runtime.resultCacheCapacity</code>
+     */
+    public static final long DEFAULT_CAPACITY = 1_000_000;
+
+    private static QueryResultCache defaultCache;
+
+    /**
+     * @return the process-wide default result cache
+     */
+    public static synchronized QueryResultCache getDefault() {
+        if (defaultCache == null) {
+            defaultCache = new QueryResultCache(
+                    Long.getLong("org.eclipse.viatra.query.runtime.resultCacheCapacity", DEFAULT_CAPACITY));
+        }
+        return defaultCache;
+    }
+
+    private static final class Key {
+        final PQuery query;
+        final QueryEvaluationHint hints;
+        final QueryScope scope;
+        final Object modelVersion;
+
+        Key(PQuery query, QueryEvaluationHint hints, QueryScope scope, Object modelVersion) {
+            this.query = query;
+            this.hints = hints;
+            this.scope = scope;
+            this.modelVersion = modelVersion;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(query), hints, scope, modelVersion);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            } else if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return query == other.query && Objects.equals(hints, other.hints) && Objects.equals(scope, other.scope)
+                    && Objects.equals(modelVersion, other.modelVersion);
+        }
+    }
+
+    private final long capacity;
+    private final LinkedHashMap<Key, CachedMatchSet> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    /**
+     * @param capacity
+     *            the maximum total number of matches stored in the cache
+     */
+    public QueryResultCache(long capacity) {
+        Preconditions.checkArgument(capacity >= 0, "Capacity must not be negative");
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return the maximum total number of matches stored in the cache
+     */
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the total number of matches currently stored in the cache
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of lookups answered from the cache
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of lookups not answered from the cache
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns the cached match set of the given query, or null if it is not cached.
+     *
+     * @noreference This method is not intended to be referenced by clients.
+     */
+    public synchronized CachedMatchSet lookup(PQuery query, QueryEvaluationHint hints, QueryScope scope,
+            Object modelVersion) {
+        CachedMatchSet matchSet = entries.get(new Key(query, hints, scope, modelVersion));
+        if (matchSet == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return matchSet;
+    }
+
+    /**
+     * Returns whether the match set of the given query is cached, without counting it as a lookup.
+     *
+     * @noreference This method is not intended to be referenced by clients.
+     */
+    public synchronized boolean contains(PQuery query, QueryEvaluationHint hints, QueryScope scope,
+            Object modelVersion) {
+        return entries.containsKey(new Key(query, hints, scope, modelVersion));
+    }
+
+    /**
+     * Stores a match set in the cache, evicting the least recently used match sets if required. Match sets larger
+     * than the capacity are not stored.
+     *
+     * @noreference This method is not intended to be referenced by clients.
+     */
+    public synchronized void store(PQuery query, QueryEvaluationHint hints, QueryScope scope, Object modelVersion,
+            CachedMatchSet matchSet) {
+        if (matchSet.size() > capacity) {
+            return;
+        }
+        CachedMatchSet previous = entries.put(new Key(query, hints, scope, modelVersion), matchSet);
+        if (previous != null) {
+            size -= previous.size();
+        }
+        size += matchSet.size();
+        Iterator<Map.Entry<Key, CachedMatchSet>> it = entries.entrySet().iterator();
+        while (size > capacity && it.hasNext()) {
+            size -= it.next().getValue().size();
+            it.remove();
+        }
+    }
+
+    /**
+     * Removes all match sets computed in the given scope, e.g. if the model has been changed without changing its
+     * version.
+     */
+    public synchronized void invalidate(QueryScope scope) {
+        Iterator<Map.Entry<Key, CachedMatchSet>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, CachedMatchSet> entry = it.next();
+            if (Objects.equals(entry.getKey().scope, scope)) {
+                size -= entry.getValue().size();
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all match sets from the cache.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+}
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.api;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.viatra.query.runtime.matchers.util.Preconditions;
+
+/**
+ * The match sets of all matchers registered to a {@link QueryResultSnapshotManager}, as of the end of a single
+ * epoch. As all match sets belong to the same epoch, they are consistent with each other. Instances are immutable and
+ * can be freely shared between threads.
+ *
+ * @since 2.9
+ */
+public final class QueryResultSnapshot {
+
+    private final long epoch;
+    private final Map<ViatraQueryMatcher<?>, MatchSetSnapshot<?>> matchSets;
+
+    QueryResultSnapshot(long epoch, Map<ViatraQueryMatcher<?>, MatchSetSnapshot<?>> matchSets) {
+        this.epoch = epoch;
+        this.matchSets = Collections.unmodifiableMap(matchSets);
+    }
+
+    /**
+     * @return the sequence number of the snapshot; it is increased each time a new snapshot is published
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * @return the matchers whose match sets are available in this snapshot
+     */
+    public Set<ViatraQueryMatcher<?>> getMatchers() {
+        return matchSets.keySet();
+    }
+
+    /**
+     * Returns the match set of the given matcher as of the end of the epoch of this snapshot.
+     *
+     * @throws IllegalArgumentException
+     *             if the matcher was not registered when this snapshot was published
+     */
+    @SuppressWarnings("unchecked")
+    public <Match extends IPatternMatch> MatchSetSnapshot<Match> getMatchSet(ViatraQueryMatcher<Match> matcher) {
+        MatchSetSnapshot<?> matchSet = matchSets.get(matcher);
+        Preconditions.checkArgument(matchSet != null, "Matcher %s is not registered for snapshots", matcher);
+        return (MatchSetSnapshot<Match>) matchSet;
+    }
+
+}
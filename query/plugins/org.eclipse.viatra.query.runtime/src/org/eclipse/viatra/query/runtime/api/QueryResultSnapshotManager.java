@@ -0,0 +1,255 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.api;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.eclipse.viatra.query.runtime.matchers.util.PersistentHashSet;
+import org.eclipse.viatra.query.runtime.matchers.util.Preconditions;
+
+/**
+ * Provides multi-version read access to the match sets of a query engine for threads other than the one modifying the
+ * model.
+ *
+ * <p>
+ * A query engine, its matchers and the underlying base index are not thread-safe: they must only be accessed by the
+ * thread that modifies the model (the writer). The writer registers the matchers that should be readable by other
+ * threads; the manager then maintains a persistent version of their match sets, and publishes an immutable
+ * {@link QueryResultSnapshot} of them at the end of each epoch. Match set versions share their structure, so publishing
+ * costs time proportional to the number of match changes during the epoch, not to the size of the match sets. Reader
+ * threads access the last published snapshot via {@link #getCurrentSnapshot()} without any locking, and are never
+ * blocked by the writer; the snapshot they hold stays consistent regardless of later updates.
+ *
+ * <p>
+ * An epoch ends after each model change processed by the engine, unless update propagation is delayed by
+ * {@link AdvancedViatraQueryEngine#delayUpdatePropagation(Callable)}; changes made during delayed propagation are
+ * published when the delay ends if the delayed block is executed by {@link #delayUpdatePropagation(Callable)} of this
+ * manager, or by an explicit call to {@link #publish()}.
+ *
+ * <p>
+ * For matchers of incremental backends the match sets are maintained using match update listeners; matchers of
+ * non-incremental backends (e.g. local search) are re-evaluated at the end of each epoch where the model has changed.
+ * As re-evaluating them after each model change would make bulk changes quadratic, epochs do not end automatically
+ * while a non-incremental matcher is registered; changes are only published by {@link #publish()} or
+ * {@link #delayUpdatePropagation(Callable)} of this manager. If the engine is wiped, all matchers have to be registered
+ * again.
+ *
+ * <p>
+ * All methods except {@link #getCurrentSnapshot()} must be called by the writer thread.
+ *
+ * @since 2.9
+ */
+public class QueryResultSnapshotManager {
+
+    private final AdvancedViatraQueryEngine engine;
+    private final Map<ViatraQueryMatcher<?>, VersionedMatchSet<?>> matchSets = new LinkedHashMap<>();
+    private volatile QueryResultSnapshot currentSnapshot = new QueryResultSnapshot(0, Collections.emptyMap());
+    private boolean modelChanged = false;
+    private int nonIncrementalCount = 0;
+    private boolean disposed = false;
+
+    /**
+     * The writer-side state of the match set of a single matcher
+     */
+    private final class VersionedMatchSet<Match extends IPatternMatch> implements IMatchUpdateListener<Match> {
+        final ViatraQueryMatcher<Match> matcher;
+        final boolean incremental;
+        final PersistentHashSet.Builder<Match> workingSet = PersistentHashSet.<Match>empty().toBuilder();
+        MatchSetSnapshot<Match> published;
+        boolean dirty;
+
+        VersionedMatchSet(ViatraQueryMatcher<Match> matcher) {
+            this.matcher = matcher;
+            this.incremental = engine.getResultProviderOfMatcher(matcher).getQueryBackend().isCaching();
+            if (incremental) {
+                engine.addMatchUpdateListener(matcher, this, true);
+            } else {
+                matcher.forEachMatch(workingSet::add);
+            }
+            dirty = true;
+        }
+
+        @Override
+        public void notifyAppearance(Match match) {
+            dirty |= workingSet.add(match);
+        }
+
+        @Override
+        public void notifyDisappearance(Match match) {
+            dirty |= workingSet.remove(match);
+        }
+
+        MatchSetSnapshot<Match> publish(long epoch) {
+            if (!incremental && modelChanged) {
+                workingSet.clear();
+                matcher.forEachMatch(workingSet::add);
+                dirty = true;
+            }
+            if (dirty || published == null) {
+                published = new MatchSetSnapshot<>(epoch, workingSet.build());
+                dirty = false;
+            }
+            return published;
+        }
+
+        void unregister() {
+            if (incremental && !engine.isDisposed()) {
+                engine.removeMatchUpdateListener(matcher, this);
+            }
+        }
+    }
+
+    private final ViatraQueryModelUpdateListener modelUpdateListener = new ViatraQueryModelUpdateListener() {
+
+        @Override
+        public void notifyChanged(ChangeLevel changeLevel) {
+            modelChanged = true;
+            if (!engine.isUpdatePropagationDelayed() && nonIncrementalCount == 0) {
+                publish();
+            }
+        }
+
+        @Override
+        public ChangeLevel getLevel() {
+            return ChangeLevel.MODEL;
+        }
+    };
+
+    private final ViatraQueryEngineLifecycleListener lifecycleListener = new ViatraQueryEngineLifecycleListener() {
+
+        @Override
+        public void matcherInstantiated(ViatraQueryMatcher<? extends IPatternMatch> matcher) {
+            // Matchers are registered explicitly
+        }
+
+        @Override
+        public void engineBecameTainted(String message, Throwable t) {
+            // The last consistent snapshot remains available
+        }
+
+        @Override
+        public void engineWiped() {
+            // Existing matchers are not updated anymore
+            matchSets.clear();
+            nonIncrementalCount = 0;
+            publish();
+        }
+
+        @Override
+        public void engineDisposed() {
+            matchSets.clear();
+            nonIncrementalCount = 0;
+            disposed = true;
+        }
+    };
+
+    /**
+     * Creates a snapshot manager for the given engine; initially, no matchers are registered.
+     */
+    public QueryResultSnapshotManager(AdvancedViatraQueryEngine engine) {
+        Preconditions.checkArgument(!engine.isDisposed(), "Cannot create snapshot manager for a disposed engine");
+        this.engine = engine;
+        engine.addModelUpdateListener(modelUpdateListener);
+        engine.addLifecycleListener(lifecycleListener);
+    }
+
+    /**
+     * Starts maintaining the match set of the given matcher, and publishes a new snapshot including it.
+     *
+     * @param matcher
+     *            a matcher of the engine of this manager
+     */
+    public <Match extends IPatternMatch> void register(ViatraQueryMatcher<Match> matcher) {
+        Preconditions.checkState(!disposed, "Snapshot manager is already disposed");
+        Preconditions.checkArgument(matcher.getEngine() == engine, "Matcher belongs to a different engine");
+        if (!matchSets.containsKey(matcher)) {
+            VersionedMatchSet<Match> matchSet = new VersionedMatchSet<>(matcher);
+            matchSets.put(matcher, matchSet);
+            if (!matchSet.incremental) {
+                nonIncrementalCount++;
+            }
+            publish();
+        }
+    }
+
+    /**
+     * Stops maintaining the match set of the given matcher; subsequent snapshots will not include it.
+     */
+    public void unregister(ViatraQueryMatcher<?> matcher) {
+        VersionedMatchSet<?> matchSet = matchSets.remove(matcher);
+        if (matchSet != null) {
+            matchSet.unregister();
+            if (!matchSet.incremental) {
+                nonIncrementalCount--;
+            }
+            publish();
+        }
+    }
+
+    /**
+     * Ends the current epoch, and publishes a new snapshot with the current state of all registered match sets. Can
+     * be used to make changes visible to readers while update propagation is delayed.
+     */
+    public void publish() {
+        if (disposed) {
+            return;
+        }
+        long epoch = currentSnapshot.getEpoch() + 1;
+        Map<ViatraQueryMatcher<?>, MatchSetSnapshot<?>> snapshots = new HashMap<>();
+        for (VersionedMatchSet<?> matchSet : matchSets.values()) {
+            snapshots.put(matchSet.matcher, matchSet.publish(epoch));
+        }
+        modelChanged = false;
+        currentSnapshot = new QueryResultSnapshot(epoch, snapshots);
+    }
+
+    /**
+     * Executes the given callable with delayed update propagation (see
+     * {@link AdvancedViatraQueryEngine#delayUpdatePropagation(Callable)}), then publishes a new snapshot, making all
+     * changes of the callable visible to readers at once.
+     */
+    public <V> V delayUpdatePropagation(Callable<V> callable) throws InvocationTargetException {
+        V result = engine.delayUpdatePropagation(callable);
+        if (!engine.isUpdatePropagationDelayed()) {
+            publish();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the last published snapshot. This method can be called from any thread.
+     */
+    public QueryResultSnapshot getCurrentSnapshot() {
+        return currentSnapshot;
+    }
+
+    /**
+     * Stops maintaining all match sets; the last published snapshot remains available.
+     */
+    public void dispose() {
+        if (disposed) {
+            return;
+        }
+        for (VersionedMatchSet<?> matchSet : matchSets.values()) {
+            matchSet.unregister();
+        }
+        matchSets.clear();
+        nonIncrementalCount = 0;
+        if (!engine.isDisposed()) {
+            engine.removeModelUpdateListener(modelUpdateListener);
+            engine.removeLifecycleListener(lifecycleListener);
+        }
+        disposed = true;
+    }
+}
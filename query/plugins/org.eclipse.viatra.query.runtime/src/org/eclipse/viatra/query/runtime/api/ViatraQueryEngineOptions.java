@@ -11,6 +11,7 @@ package org.eclipse.viatra.query.runtime.api;
 
 import java.util.Objects;
 import java.util.ServiceLoader;
+import java.util.function.Supplier;
 
 import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackendFactory;
 import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackendFactoryProvider;
@@ -91,6 +92,11 @@ public final class ViatraQueryEngineOptions {
 
     private final IQueryBackendFactory defaultCachingBackendFactory;
     private final IQueryBackendFactory defaultSearchBackendFactory;
+    private final QueryResultCache resultCache;
+    private final Supplier<?> modelVersionSupplier;
+    private final int lazyMaterializationThreshold;
+    private final long lazyMaterializationIdleTime;
+    private final MemoryBudget memoryBudget;
 
     /** The default engine options; if options are not defined, this version will be used. */
     private static ViatraQueryEngineOptions DEFAULT;
@@ -111,6 +117,11 @@ public final class ViatraQueryEngineOptions {
         private IQueryBackendFactory defaultBackendFactory;
         private IQueryBackendFactory defaultCachingBackendFactory;
         private IQueryBackendFactory defaultSearchBackendFactory;
+        private QueryResultCache resultCache;
+        private Supplier<?> modelVersionSupplier;
+        private int lazyMaterializationThreshold = 0;
+        private long lazyMaterializationIdleTime = 0;
+        private MemoryBudget memoryBudget;
 
         public Builder() {
 
@@ -121,6 +132,11 @@ public final class ViatraQueryEngineOptions {
             this.defaultBackendFactory = engineDefaultHints.getQueryBackendFactory();
             this.defaultCachingBackendFactory = from.defaultCachingBackendFactory;
             this.defaultSearchBackendFactory = from.defaultSearchBackendFactory;
+            this.resultCache = from.resultCache;
+            this.modelVersionSupplier = from.modelVersionSupplier;
+            this.lazyMaterializationThreshold = from.lazyMaterializationThreshold;
+            this.lazyMaterializationIdleTime = from.lazyMaterializationIdleTime;
+            this.memoryBudget = from.memoryBudget;
         }
 
         /**
@@ -156,10 +172,66 @@ public final class ViatraQueryEngineOptions {
             return this;
         }
 
+        /**
+         * Lets the engine reuse match sets of caching backends computed by other engines (or before a wipe) for the
+         * same scope and model version, and share its own match sets with them. See {@link QueryResultCache} for
+         * details.
+         * 
+         * @param resultCache
+         *            the cache to use, e.g. {@link QueryResultCache#getDefault()}
+         * @param modelVersionSupplier
+         *            returns the current version of the model, which must change whenever the model changes; the
+         *            cache is not used while it returns null
+         * @since 2.9
+         */
+        public Builder withResultCache(QueryResultCache resultCache, Supplier<?> modelVersionSupplier) {
+            this.resultCache = Objects.requireNonNull(resultCache);
+            this.modelVersionSupplier = Objects.requireNonNull(modelVersionSupplier);
+            return this;
+        }
+
+        /**
+         * Lets matchers of caching backends answer through the default search backend until they are used frequently,
+         * so that only the results of frequently used queries are kept in memory. A query is promoted to its caching
+         * backend after it has been called the given number of times without idling for the given time, or when an
+         * update listener is registered; a promoted query without update listeners is demoted again after idling for
+         * the given time. Idle queries are demoted after the engine has propagated a model change, never while the
+         * results of queries are being evaluated or iterated.
+         * 
+         * @param promotionThreshold
+         *            the number of calls after which a query is promoted; must be positive
+         * @param idleTime
+         *            the idle time in milliseconds that resets the call count of a query and demotes promoted queries
+         * @since 2.9
+         */
+        public Builder withLazyMaterialization(int promotionThreshold, long idleTime) {
+            Preconditions.checkArgument(promotionThreshold > 0, "Promotion threshold must be positive");
+            Preconditions.checkArgument(idleTime > 0, "Idle time must be positive");
+            this.lazyMaterializationThreshold = promotionThreshold;
+            this.lazyMaterializationIdleTime = idleTime;
+            return this;
+        }
+
+        /**
+         * Limits the estimated memory usage of the engine, see {@link MemoryBudget} for details. If the budget
+         * demotes least recently used queries, the results of caching backends are materialized lazily: with the
+         * settings of {@link #withLazyMaterialization(int, long)} if given, otherwise on their first use.
+         * 
+         * @param memoryBudget
+         *            the budget to keep, or null to remove a previously set budget
+         * @since 2.9
+         */
+        public Builder withMemoryBudget(MemoryBudget memoryBudget) {
+            this.memoryBudget = memoryBudget;
+            return this;
+        }
+
         public ViatraQueryEngineOptions build() {
             IQueryBackendFactory defaultFactory = getDefaultBackend();
             QueryEvaluationHint hint = getEngineDefaultHints(defaultFactory);
-            return new ViatraQueryEngineOptions(hint, getDefaultCachingBackend(), getDefaultSearchBackend());
+            return new ViatraQueryEngineOptions(hint, getDefaultCachingBackend(), getDefaultSearchBackend(),
+                    resultCache, modelVersionSupplier, lazyMaterializationThreshold, lazyMaterializationIdleTime,
+                    memoryBudget);
         }
 
         private IQueryBackendFactory getDefaultBackend() {
@@ -216,10 +288,17 @@ public final class ViatraQueryEngineOptions {
     }
 
     private ViatraQueryEngineOptions(QueryEvaluationHint engineDefaultHints,
-            IQueryBackendFactory defaultCachingBackendFactory, IQueryBackendFactory defaultSearchBackendFactory) {
+            IQueryBackendFactory defaultCachingBackendFactory, IQueryBackendFactory defaultSearchBackendFactory,
+            QueryResultCache resultCache, Supplier<?> modelVersionSupplier, int lazyMaterializationThreshold,
+            long lazyMaterializationIdleTime, MemoryBudget memoryBudget) {
         this.engineDefaultHints = engineDefaultHints;
         this.defaultCachingBackendFactory = defaultCachingBackendFactory;
         this.defaultSearchBackendFactory = defaultSearchBackendFactory;
+        this.resultCache = resultCache;
+        this.modelVersionSupplier = modelVersionSupplier;
+        this.lazyMaterializationThreshold = lazyMaterializationThreshold;
+        this.lazyMaterializationIdleTime = lazyMaterializationIdleTime;
+        this.memoryBudget = memoryBudget;
     }
 
     public QueryEvaluationHint getEngineDefaultHints() {
@@ -262,6 +341,49 @@ public final class ViatraQueryEngineOptions {
         return defaultSearchBackendFactory;
     }
 
+    /**
+     * Returns the cache of match sets shared with other engines, or null if no such cache is used.
+     * @since 2.9
+     */
+    public QueryResultCache getResultCache() {
+        return resultCache;
+    }
+
+    /**
+     * Returns the supplier of the model version used to identify match sets in the {@link #getResultCache() result
+     * cache}, or null if no such cache is used.
+     * @since 2.9
+     */
+    public Supplier<?> getModelVersionSupplier() {
+        return modelVersionSupplier;
+    }
+
+    /**
+     * Returns the number of calls after which a query is promoted to its caching backend, or 0 if the results of
+     * caching backends are materialized eagerly, see {@link Builder#withLazyMaterialization(int, long)}.
+     * @since 2.9
+     */
+    public int getLazyMaterializationThreshold() {
+        return lazyMaterializationThreshold;
+    }
+
+    /**
+     * Returns the idle time in milliseconds after which promoted queries are demoted, see
+     * {@link Builder#withLazyMaterialization(int, long)}.
+     * @since 2.9
+     */
+    public long getLazyMaterializationIdleTime() {
+        return lazyMaterializationIdleTime;
+    }
+
+    /**
+     * Returns the limit of the estimated memory usage of the engine, or null if the memory usage is not limited.
+     * @since 2.9
+     */
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
     @Override
     public String toString() {
         // TODO defaultCachingBackendFactory is ignored
@@ -29,6 +29,27 @@ public interface IBaseIndex {
      * @param callable
      */
     public <V> V coalesceTraversals(Callable<V> callable) throws InvocationTargetException;
+
+    /**
+     * The given callback will be executed, and the feature instance changes caused by model modifications within it
+     * are buffered until it returns; only the net changes are applied to the index and propagated to the query
+     * backends afterwards. Instances of classes and data types are updated immediately, so within the callback the
+     * index may be inconsistent; see the documentation of the index implementation for details.
+     * 
+     * <p>
+     * The default implementation executes the callable without any buffering.
+     * 
+     * @param callable
+     * @throws InvocationTargetException if the callable throws an exception
+     * @since 2.9
+     */
+    public default <V> V batchFeatureUpdates(Callable<V> callable) throws InvocationTargetException {
+        try {
+            return callable.call();
+        } catch (Exception e) {
+            throw new InvocationTargetException(e);
+        }
+    }
     
     /**
      * Adds a coarse-grained listener that will be invoked after the NavigationHelper index or the underlying model is changed. Can be used
@@ -88,4 +109,15 @@ public interface IBaseIndex {
      */
     public boolean removeInstanceObserver(IInstanceObserver observer, Object observedObject);
 
+    /**
+     * Estimates the memory used by the index in bytes. The estimate is computed from the number of entries stored by
+     * the index, and is only intended for enforcing memory budgets; it may be expensive to compute.
+     * 
+     * @return the estimated memory usage, or 0 if not supported by the index
+     * @since 2.9
+     */
+    public default long getEstimatedMemoryUsage() {
+        return 0;
+    }
+
 }
@@ -32,6 +32,12 @@ import org.eclipse.viatra.query.runtime.base.api.NavigationHelper;
  */
 public class EMFBaseIndexWrapper implements IBaseIndex {
 
+    /**
+     * The estimated memory used by an entry of the index, i.e. by a hash entry with a reference to the indexed object
+     * and its multiplicity
+     */
+    private static final long ESTIMATED_BYTES_PER_ENTRY = 48;
+
     private final NavigationHelper navigationHelper;
     /**
      * @return the underlying index object
@@ -58,6 +64,15 @@ public class EMFBaseIndexWrapper implements IBaseIndex {
         return navigationHelper.coalesceTraversals(callable);
     }
 
+    /**
+     * @see NavigationHelper#batchFeatureUpdates(Callable)
+     * @since 2.9
+     */
+    @Override
+    public <V> V batchFeatureUpdates(Callable<V> callable) throws InvocationTargetException {
+        return navigationHelper.batchFeatureUpdates(callable);
+    }
+
     Map<IIndexingErrorListener, IEMFIndexingErrorListener> indexErrorListeners =
             new HashMap<IIndexingErrorListener, IEMFIndexingErrorListener>();
     @Override
@@ -136,6 +151,15 @@ public class EMFBaseIndexWrapper implements IBaseIndex {
             return success;
         } else return false;
     }
+
+    /**
+     * @since 2.9
+     */
+    @Override
+    public long getEstimatedMemoryUsage() {
+        return navigationHelper.countIndexEntries() * ESTIMATED_BYTES_PER_ENTRY;
+    }
+
     private static class EObjectObserver implements LightweightEObjectObserver {
         /**
          * 
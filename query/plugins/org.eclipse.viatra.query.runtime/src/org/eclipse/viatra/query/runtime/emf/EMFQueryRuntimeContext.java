@@ -28,6 +28,7 @@ import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EStructuralFeature;
 import org.eclipse.viatra.query.runtime.base.api.DataTypeListener;
 import org.eclipse.viatra.query.runtime.base.api.FeatureListener;
+import org.eclipse.viatra.query.runtime.base.api.FeatureStatistics;
 import org.eclipse.viatra.query.runtime.base.api.IndexingLevel;
 import org.eclipse.viatra.query.runtime.base.api.InstanceListener;
 import org.eclipse.viatra.query.runtime.base.api.NavigationHelper;
@@ -451,6 +452,10 @@ public class EMFQueryRuntimeContext extends AbstractQueryRuntimeContext {
                 }
             }
             
+            // exact holder and value counts, if maintained by the index
+            FeatureStatistics statistics = isIndexed(key, IndexingService.STATISTICS) 
+                    ? baseIndex.getFeatureStatistics(feature) : null;
+
             Optional<Long> sourceTypeUpperEstimate = 
                     estimateCardinality(metaContext.getSourceTypeKey(featureKey), 
                             TupleMask.identity(1), Accuracy.BEST_UPPER_BOUND);
@@ -472,7 +477,9 @@ public class EMFQueryRuntimeContext extends AbstractQueryRuntimeContext {
                 }
                 
             } else if (isSourceSelected && !isTargetSelected) { // count sources
-                if (isIndexed(key, IndexingService.INSTANCES)) { // we have instances, therefore feature end counts
+                if (statistics != null) {
+                    return Optional.of(statistics.getSourceCount());
+                } else if (isIndexed(key, IndexingService.INSTANCES)) { // we have instances, therefore feature end counts
                     return Optional.of((long)(baseIndex.getHoldersOfFeature(feature).size()));
                 } else if (metaContext.isFeatureMultiplicityToOne(feature) && 
                         isIndexed(key, IndexingService.STATISTICS)) { // count of edges = count of sources due to func. dep.
@@ -490,7 +497,9 @@ public class EMFQueryRuntimeContext extends AbstractQueryRuntimeContext {
                 } else return Optional.empty();
                 
             } else if (!isSourceSelected /*&& isTargetSelected*/) { // count targets
-                if (isIndexed(key, IndexingService.INSTANCES)) { // we have instances, therefore feature end counts
+                if (statistics != null) {
+                    return Optional.of(statistics.getTargetCount());
+                } else if (isIndexed(key, IndexingService.INSTANCES)) { // we have instances, therefore feature end counts
                     return Optional.of((long)(baseIndex.getValuesOfFeature(feature).size()));
                 } else if (metaContext.isFeatureMultiplicityOneTo(feature) && 
                         isIndexed(key, IndexingService.STATISTICS)) { // count of edges = count of targets due to func. dep.
@@ -556,6 +565,12 @@ public class EMFQueryRuntimeContext extends AbstractQueryRuntimeContext {
                 } else if (1 == groupMask.indices[0] && metaContext.isFeatureMultiplicityOneTo(feature)) { // count sources per target
                     return Optional.of(1.0);
                 }
+                FeatureStatistics statistics = isIndexed(key, IndexingService.STATISTICS) 
+                        ? baseIndex.getFeatureStatistics(feature) : null;
+                if (statistics != null) { // exact average degrees
+                    return Optional.of(0 == groupMask.indices[0] 
+                            ? statistics.getAverageOutDegree() : statistics.getAverageInDegree());
+                }
             }
         }
         
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.internal.apiimpl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.viatra.query.runtime.api.QueryResultCache;
+import org.eclipse.viatra.query.runtime.matchers.tuple.ITuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
+
+/**
+ * An immutable copy of the match set of a query, as stored in a {@link QueryResultCache}. As instances may be shared
+ * by several engines, possibly running on different threads, projection indices are built lazily in a thread-safe
+ * way, but the matches themselves are never modified.
+ *
+ * <p>
+ * As each projection index refers to all matches, at most {@link #MAX_PROJECTIONS} of them are kept per match set, so
+ * that a cached match set occupies a bounded multiple of its size; lookups by other masks scan the matches instead.
+ *
+ * @since 2.9
+ * @noreference This class is not intended to be referenced by clients.
+ */
+public final class CachedMatchSet {
+
+    /**
+     * The maximum number of projection indices built for a match set
+     */
+    public static final int MAX_PROJECTIONS = 4;
+
+    private final List<Tuple> matches;
+    private final Map<TupleMask, Map<Tuple, List<Tuple>>> projections = new ConcurrentHashMap<>();
+
+    public CachedMatchSet(List<Tuple> matches) {
+        this.matches = Collections.unmodifiableList(new ArrayList<>(matches));
+    }
+
+    public int size() {
+        return matches.size();
+    }
+
+    public List<Tuple> getMatches() {
+        return matches;
+    }
+
+    /**
+     * @return the matches conforming to the given seed; an empty mask selects all matches
+     */
+    public List<Tuple> getMatches(TupleMask seedMask, ITuple seed) {
+        if (seedMask.getSize() == 0) {
+            return matches;
+        }
+        Tuple immutableSeed = seed.toImmutable();
+        Map<Tuple, List<Tuple>> projection = getProjection(seedMask);
+        if (projection != null) {
+            return projection.getOrDefault(immutableSeed, Collections.emptyList());
+        }
+        List<Tuple> result = new ArrayList<>();
+        for (Tuple match : matches) {
+            if (immutableSeed.equals(seedMask.transform(match))) {
+                result.add(match);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of distinct projections of the matches by the given mask
+     */
+    public int countProjections(TupleMask groupMask) {
+        if (groupMask.getSize() == 0) {
+            return matches.isEmpty() ? 0 : 1;
+        }
+        Map<Tuple, List<Tuple>> projection = getProjection(groupMask);
+        if (projection != null) {
+            return projection.size();
+        }
+        HashSet<Tuple> projectedMatches = new HashSet<>();
+        for (Tuple match : matches) {
+            projectedMatches.add(groupMask.transform(match));
+        }
+        return projectedMatches.size();
+    }
+
+    /**
+     * @return the projection index of the given mask, or null if it is not built as the limit of projection indices
+     *         has been reached
+     */
+    private Map<Tuple, List<Tuple>> getProjection(TupleMask mask) {
+        Map<Tuple, List<Tuple>> projection = projections.get(mask);
+        if (projection != null || projections.size() >= MAX_PROJECTIONS) {
+            return projection;
+        }
+        projection = new HashMap<>();
+        for (Tuple match : matches) {
+            projection.computeIfAbsent(mask.transform(match), k -> new ArrayList<>()).add(match);
+        }
+        synchronized (projections) {
+            Map<Tuple, List<Tuple>> existing = projections.get(mask);
+            if (existing != null) {
+                return existing;
+            } else if (projections.size() < MAX_PROJECTIONS) {
+                projections.put(mask, projection);
+            }
+            return projection;
+        }
+    }
+
+}
@@ -0,0 +1,486 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.internal.apiimpl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.viatra.query.runtime.api.MemoryBudget;
+import org.eclipse.viatra.query.runtime.api.ViatraQueryEngineOptions;
+import org.eclipse.viatra.query.runtime.matchers.ViatraQueryRuntimeException;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackend;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackendFactory;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryResultProvider;
+import org.eclipse.viatra.query.runtime.matchers.backend.IUpdateable;
+import org.eclipse.viatra.query.runtime.matchers.backend.QueryEvaluationHint;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.matchers.tuple.ITuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
+import org.eclipse.viatra.query.runtime.matchers.util.Accuracy;
+import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory;
+
+/**
+ * A caching query backend that only materializes the results of frequently used queries, see
+ * {@link ViatraQueryEngineOptions.Builder#withLazyMaterialization(int, long)}.
+ * <p>
+ * Result providers answer through a search backend until their query is called a given number of times without
+ * idling; then they are promoted to result providers of the wrapped caching backend. Promoted queries that idle (and
+ * have no update listeners) are demoted again by {@link #sweep() sweeps}, which are performed outside of result
+ * provider calls. As the wrapped backend cannot release the structures of a single query, it is disposed when it has
+ * no promoted queries left, and rebuilt for the promoted queries if most of the queries it has materialized are
+ * demoted. Queries may also be demoted explicitly in least recently used order, e.g. to keep a {@link MemoryBudget}.
+ *
+ * @since 2.9
+ */
+public class LazyMaterializingQueryBackend implements IQueryBackend {
+
+    private final IQueryBackendFactory factory;
+    private final Supplier<IQueryBackend> delegateFactory;
+    private final Supplier<IQueryBackend> searchBackend;
+    private final int promotionThreshold;
+    private final long idleTime;
+    private final Supplier<Boolean> updatesDelayed;
+    private final Consumer<PQuery> promotionListener;
+    private final Map<PQuery, LazyResultProvider> providers = CollectionsFactory.createMap();
+    private IQueryBackend delegate;
+    /** The number of queries materialized by the current delegate, including the demoted ones */
+    private int materializedCount = 0;
+    private int promotedCount = 0;
+    private long lastSweep = System.nanoTime();
+    /** The number of result provider calls in progress, including nested ones */
+    private int activeCalls = 0;
+
+    /**
+     * @param idleTime
+     *            the idle time in milliseconds after which call counts are reset and promoted queries are demoted
+     * @param promotionListener
+     *            notified after a query has been promoted, possibly during a result provider call
+     */
+    public LazyMaterializingQueryBackend(IQueryBackendFactory factory, Supplier<IQueryBackend> delegateFactory,
+            Supplier<IQueryBackend> searchBackend, int promotionThreshold, long idleTime,
+            Supplier<Boolean> updatesDelayed, Consumer<PQuery> promotionListener) {
+        this.factory = factory;
+        this.delegateFactory = delegateFactory;
+        this.searchBackend = searchBackend;
+        this.promotionThreshold = promotionThreshold;
+        this.idleTime = TimeUnit.MILLISECONDS.toNanos(idleTime);
+        this.updatesDelayed = updatesDelayed;
+        this.promotionListener = promotionListener;
+    }
+
+    /**
+     * @return the wrapped backend materializing the results of promoted queries; created on demand
+     */
+    public IQueryBackend getDelegate() {
+        if (delegate == null) {
+            delegate = delegateFactory.get();
+        }
+        return delegate;
+    }
+
+    /**
+     * @return whether the results of the given query are currently materialized by the wrapped backend
+     */
+    public boolean isPromoted(PQuery query) {
+        LazyResultProvider provider = providers.get(query);
+        return provider != null && provider.materialized != null;
+    }
+
+    @Override
+    public boolean isCaching() {
+        return factory.isCaching();
+    }
+
+    @Override
+    public IQueryResultProvider getResultProvider(PQuery query) {
+        return getResultProvider(query, null);
+    }
+
+    @Override
+    public IQueryResultProvider getResultProvider(PQuery query, QueryEvaluationHint hints) {
+        LazyResultProvider provider = providers.get(query);
+        if (provider == null) {
+            provider = new LazyResultProvider(query, hints);
+            // registered before promotion, so that a rebuilt delegate materializes it as well
+            providers.put(query, provider);
+            activeCalls++;
+            try {
+                // with a threshold of one call, the query is materialized eagerly and only searched after a demotion
+                if (promotionThreshold == 1 || !ensureSearchProvider(provider)) {
+                    promote(provider);
+                }
+            } finally {
+                activeCalls--;
+            }
+        }
+        return provider;
+    }
+
+    /**
+     * Prepares the new queries in the backend that evaluates them first: the wrapped backend if they are materialized
+     * on their first use, the search backend otherwise.
+     */
+    @Override
+    public void prepareQueries(Collection<PQuery> queries, QueryEvaluationHint hints) {
+        List<PQuery> newQueries = queries.stream().filter(query -> !providers.containsKey(query))
+                .collect(Collectors.toList());
+        if (newQueries.isEmpty()) {
+            return;
+        }
+        if (promotionThreshold == 1) {
+            getDelegate().prepareQueries(newQueries, hints);
+        } else {
+            searchBackend.get().prepareQueries(newQueries, hints);
+        }
+    }
+
+    @Override
+    public IQueryResultProvider peekExistingResultProvider(PQuery query) {
+        return providers.get(query);
+    }
+
+    /**
+     * Creates the search result provider of a query if necessary; queries that cannot be evaluated by search are
+     * pinned, i.e. kept materialized.
+     * 
+     * @return true if the query can be evaluated by search
+     */
+    private boolean ensureSearchProvider(LazyResultProvider provider) {
+        if (provider.search == null && !provider.pinned) {
+            try {
+                provider.search = searchBackend.get().getResultProvider(provider.query, provider.hints);
+            } catch (ViatraQueryRuntimeException e) {
+                provider.pinned = true;
+            }
+        }
+        return !provider.pinned;
+    }
+
+    /**
+     * @return whether a result provider call is in progress, during which the wrapped backend must not be released
+     */
+    public boolean hasActiveCalls() {
+        return activeCalls > 0;
+    }
+
+    /**
+     * Demotes promoted queries that have no update listeners and can be evaluated by search in least recently used
+     * order, until their estimated share of the memory used by the wrapped backend covers the given excess, then
+     * releases or rebuilds the wrapped backend once to free the memory. Each materialized query is assumed to use an
+     * equal share, as the memory used by a single query is not known. Has no effect during a result provider call.
+     * 
+     * @param retained
+     *            a query that must not be demoted, or null
+     * @param excess
+     *            the estimated memory to free, in bytes
+     * @return the demoted queries, in least recently used order
+     */
+    public List<PQuery> demoteLeastRecentlyUsed(PQuery retained, long excess) {
+        List<PQuery> demoted = new ArrayList<>();
+        if (delegate == null || materializedCount == 0 || hasActiveCalls()) {
+            return demoted;
+        }
+        List<LazyResultProvider> candidates = new ArrayList<>();
+        for (LazyResultProvider provider : providers.values()) {
+            if (provider.materialized != null && !provider.pinned && provider.listeners.isEmpty()
+                    && provider.query != retained) {
+                candidates.add(provider);
+            }
+        }
+        candidates.sort((first, second) -> Long.signum(first.lastCall - second.lastCall));
+        long share = delegate.getEstimatedMemoryUsage() / materializedCount;
+        long freed = 0;
+        for (LazyResultProvider candidate : candidates) {
+            if (freed >= excess) {
+                break;
+            }
+            if (ensureSearchProvider(candidate)) {
+                demote(candidate);
+                demoted.add(candidate.query);
+                freed += share;
+            }
+        }
+        if (!demoted.isEmpty()) {
+            if (promotedCount == 0) {
+                releaseDelegate();
+            } else {
+                rebuildDelegate();
+            }
+        }
+        return demoted;
+    }
+
+    @Override
+    public long getEstimatedMemoryUsage() {
+        return delegate == null ? 0 : delegate.getEstimatedMemoryUsage();
+    }
+
+    @Override
+    public void releaseCaches() {
+        if (delegate != null) {
+            delegate.releaseCaches();
+        }
+    }
+
+    @Override
+    public void flushUpdates() {
+        if (delegate != null) {
+            delegate.flushUpdates();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        providers.clear();
+        releaseDelegate();
+    }
+
+    @Override
+    public IQueryBackendFactory getFactory() {
+        return factory;
+    }
+
+    private void promote(LazyResultProvider provider) {
+        provider.materialized = getDelegate().getResultProvider(provider.query, provider.hints);
+        materializedCount++;
+        promotedCount++;
+        promotionListener.accept(provider.query);
+    }
+
+    private void demote(LazyResultProvider provider) {
+        provider.materialized = null;
+        provider.callCount = 0;
+        promotedCount--;
+    }
+
+    /**
+     * Releases the wrapped backend if it has no promoted queries left, or rebuilds it if most of the queries it has
+     * materialized are demoted.
+     */
+    private void releaseDemoted() {
+        if (promotedCount == 0) {
+            releaseDelegate();
+        } else if (materializedCount > 2 * promotedCount) {
+            rebuildDelegate();
+        }
+    }
+
+    private void releaseDelegate() {
+        if (delegate != null) {
+            delegate.dispose();
+            delegate = null;
+        }
+        materializedCount = 0;
+    }
+
+    /**
+     * Replaces the wrapped backend with one that only materializes the promoted queries.
+     */
+    private void rebuildDelegate() {
+        releaseDelegate();
+        for (LazyResultProvider provider : providers.values()) {
+            if (provider.materialized != null) {
+                provider.materialized = getDelegate().getResultProvider(provider.query, provider.hints);
+                materializedCount++;
+                for (Map.Entry<Object, IUpdateable> listener : provider.listeners.entrySet()) {
+                    provider.materialized.addUpdateListener(listener.getValue(), listener.getKey(), false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Demotes the promoted queries that have been idle for the idle time, and releases the memory used by their
+     * results; has no effect if called again within the idle time, or during a result provider call (e.g. when the
+     * base index is traversed for a new query). As the wrapped backend may be disposed or rebuilt, this must not be
+     * called while the matches of promoted queries are iterated; the engine sweeps after propagating model changes.
+     */
+    public void sweep() {
+        long now = System.nanoTime();
+        if (activeCalls > 0 || now - lastSweep < idleTime || updatesDelayed.get()) {
+            return;
+        }
+        lastSweep = now;
+        boolean demoted = false;
+        for (LazyResultProvider provider : new ArrayList<>(providers.values())) {
+            if (provider.materialized != null && !provider.pinned && provider.listeners.isEmpty()
+                    && now - provider.lastCall >= idleTime && ensureSearchProvider(provider)) {
+                demote(provider);
+                demoted = true;
+            }
+        }
+        if (demoted) {
+            releaseDemoted();
+        }
+    }
+
+    /**
+     * A result provider that answers through the search backend until its query is promoted, and forwards to the
+     * wrapped backend afterwards.
+     */
+    private class LazyResultProvider implements IQueryResultProvider {
+
+        private final PQuery query;
+        private final QueryEvaluationHint hints;
+        private IQueryResultProvider search;
+        private IQueryResultProvider materialized;
+        private final Map<Object, IUpdateable> listeners = new LinkedHashMap<>();
+        /** Queries that cannot be evaluated by search are never demoted */
+        private boolean pinned = false;
+        private int callCount = 0;
+        private long lastCall;
+
+        LazyResultProvider(PQuery query, QueryEvaluationHint hints) {
+            this.query = query;
+            this.hints = hints;
+            this.lastCall = System.nanoTime();
+        }
+
+        /**
+         * Registers a call of the provider, promoting its query if required.
+         *
+         * @return the provider to answer the call
+         */
+        private IQueryResultProvider access() {
+            long now = System.nanoTime();
+            if (now - lastCall >= idleTime) {
+                callCount = 0;
+            }
+            lastCall = now;
+            if (materialized == null && ++callCount >= promotionThreshold) {
+                promote(this);
+            }
+            return current();
+        }
+
+        /**
+         * Answers a call of the provider; sweeps are suppressed while the call is in progress.
+         */
+        private <T> T call(Function<IQueryResultProvider, T> call) {
+            activeCalls++;
+            try {
+                return call.apply(access());
+            } finally {
+                activeCalls--;
+            }
+        }
+
+        private IQueryResultProvider current() {
+            return materialized != null ? materialized : search;
+        }
+
+        @Override
+        public boolean hasMatch(Object[] parameters) {
+            return call(provider -> provider.hasMatch(parameters));
+        }
+
+        @Override
+        public boolean hasMatch(TupleMask parameterSeedMask, ITuple projectedParameterSeed) {
+            return call(provider -> provider.hasMatch(parameterSeedMask, projectedParameterSeed));
+        }
+
+        @Override
+        public int countMatches(Object[] parameters) {
+            return call(provider -> provider.countMatches(parameters));
+        }
+
+        @Override
+        public int countMatches(TupleMask parameterSeedMask, ITuple projectedParameterSeed) {
+            return call(provider -> provider.countMatches(parameterSeedMask, projectedParameterSeed));
+        }
+
+        @Override
+        public int countMatchesUpTo(Object[] parameters, int upperLimit) {
+            return call(provider -> provider.countMatchesUpTo(parameters, upperLimit));
+        }
+
+        @Override
+        public int countMatchesUpTo(TupleMask parameterSeedMask, ITuple projectedParameterSeed, int upperLimit) {
+            return call(provider -> provider.countMatchesUpTo(parameterSeedMask, projectedParameterSeed, upperLimit));
+        }
+
+        @Override
+        public int forEachMatch(Object[] parameters, Consumer<? super ITuple> action) {
+            return call(provider -> provider.forEachMatch(parameters, action));
+        }
+
+        @Override
+        public int forEachMatch(TupleMask parameterSeedMask, ITuple projectedParameterSeed,
+                Consumer<? super ITuple> action) {
+            return call(provider -> provider.forEachMatch(parameterSeedMask, projectedParameterSeed, action));
+        }
+
+        @Override
+        public Optional<Long> estimateCardinality(TupleMask groupMask, Accuracy requiredAccuracy) {
+            // estimations are requested by query planners, not by clients, so they do not count as calls
+            return current().estimateCardinality(groupMask, requiredAccuracy);
+        }
+
+        @Override
+        public Optional<Tuple> getOneArbitraryMatch(Object[] parameters) {
+            return call(provider -> provider.getOneArbitraryMatch(parameters));
+        }
+
+        @Override
+        public Optional<Tuple> getOneArbitraryMatch(TupleMask parameterSeedMask, ITuple parameters) {
+            return call(provider -> provider.getOneArbitraryMatch(parameterSeedMask, parameters));
+        }
+
+        @Override
+        public Stream<Tuple> getAllMatches(Object[] parameters) {
+            return call(provider -> provider.getAllMatches(parameters));
+        }
+
+        @Override
+        public Stream<Tuple> getAllMatches(TupleMask parameterSeedMask, ITuple parameters) {
+            return call(provider -> provider.getAllMatches(parameterSeedMask, parameters));
+        }
+
+        @Override
+        public IQueryBackend getQueryBackend() {
+            return LazyMaterializingQueryBackend.this;
+        }
+
+        @Override
+        public void addUpdateListener(IUpdateable listener, Object listenerTag, boolean fireNow) {
+            // update notifications require materialized results, which are kept while there are listeners
+            lastCall = System.nanoTime();
+            activeCalls++;
+            try {
+                if (materialized == null) {
+                    promote(this);
+                }
+                listeners.put(listenerTag, listener);
+                materialized.addUpdateListener(listener, listenerTag, fireNow);
+            } finally {
+                activeCalls--;
+            }
+        }
+
+        @Override
+        public void removeUpdateListener(Object listenerTag) {
+            if (listeners.remove(listenerTag) != null) {
+                materialized.removeUpdateListener(listenerTag);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,512 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.internal.apiimpl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.eclipse.viatra.query.runtime.api.QueryResultCache;
+import org.eclipse.viatra.query.runtime.api.scope.QueryScope;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackend;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackendFactory;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryResultProvider;
+import org.eclipse.viatra.query.runtime.matchers.backend.IUpdateable;
+import org.eclipse.viatra.query.runtime.matchers.backend.QueryEvaluationHint;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.matchers.tuple.ITuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
+import org.eclipse.viatra.query.runtime.matchers.util.Accuracy;
+import org.eclipse.viatra.query.runtime.matchers.util.CollectionsFactory;
+
+/**
+ * A caching query backend that answers queries from the match sets of a {@link QueryResultCache} computed for the
+ * same hints, scope and model version, and stores the match sets computed by the wrapped backend there. See
+ * {@link QueryResultCache} for details.
+ * <p>
+ * Computed match sets are only stored when all of their matches are enumerated by a client, as they are copied while
+ * being enumerated; this way, the match sets of queries that are never read in full do not cost extra time or memory.
+ * <p>
+ * The wrapped backend is only created when a match set has to be computed, so the model is not indexed at all if all
+ * match sets are available from the cache.
+ *
+ * @since 2.9
+ */
+public class ResultCachingQueryBackend implements IQueryBackend {
+
+    private final IQueryBackendFactory factory;
+    private final Supplier<IQueryBackend> delegateFactory;
+    private IQueryBackend delegate;
+    private final QueryResultCache cache;
+    private final QueryScope scope;
+    private final Supplier<?> modelVersionSupplier;
+    private final Supplier<Boolean> updatesDelayed;
+    private final Map<PQuery, IQueryResultProvider> providers = CollectionsFactory.createMap();
+
+    public ResultCachingQueryBackend(IQueryBackendFactory factory, Supplier<IQueryBackend> delegateFactory,
+            QueryResultCache cache, QueryScope scope, Supplier<?> modelVersionSupplier,
+            Supplier<Boolean> updatesDelayed) {
+        this.factory = factory;
+        this.delegateFactory = delegateFactory;
+        this.cache = cache;
+        this.scope = scope;
+        this.modelVersionSupplier = modelVersionSupplier;
+        this.updatesDelayed = updatesDelayed;
+    }
+
+    /**
+     * @return the wrapped backend that computes match sets not available from the cache; created on demand
+     */
+    public IQueryBackend getDelegate() {
+        if (delegate == null) {
+            delegate = delegateFactory.get();
+        }
+        return delegate;
+    }
+
+    @Override
+    public boolean isCaching() {
+        return factory.isCaching();
+    }
+
+    @Override
+    public IQueryResultProvider getResultProvider(PQuery query) {
+        return getResultProvider(query, null);
+    }
+
+    @Override
+    public IQueryResultProvider getResultProvider(PQuery query, QueryEvaluationHint hints) {
+        IQueryResultProvider existing = peekExistingResultProvider(query);
+        if (existing != null) {
+            return existing;
+        }
+        Object modelVersion = modelVersionSupplier.get();
+        if (modelVersion != null) {
+            CachedMatchSet matchSet = cache.lookup(query, hints, scope, modelVersion);
+            if (matchSet != null) {
+                CachedResultProvider provider = new CachedResultProvider(query, hints, modelVersion, matchSet);
+                providers.put(query, provider);
+                return provider;
+            }
+        }
+        IQueryResultProvider provider = computeResultProvider(query, hints);
+        providers.put(query, provider);
+        return provider;
+    }
+
+    /**
+     * Prepares the queries that are not answered from the cache in the wrapped backend, which is only created if
+     * there are such queries.
+     */
+    @Override
+    public void prepareQueries(Collection<PQuery> queries, QueryEvaluationHint hints) {
+        Object modelVersion = modelVersionSupplier.get();
+        List<PQuery> computedQueries = queries.stream()
+                .filter(query -> peekExistingResultProvider(query) == null
+                        && (modelVersion == null || !cache.contains(query, hints, scope, modelVersion)))
+                .collect(Collectors.toList());
+        if (!computedQueries.isEmpty()) {
+            getDelegate().prepareQueries(computedQueries, hints);
+        }
+    }
+
+    private IQueryResultProvider computeResultProvider(PQuery query, QueryEvaluationHint hints) {
+        return new StoringResultProvider(query, hints, getDelegate().getResultProvider(query, hints));
+    }
+
+    @Override
+    public IQueryResultProvider peekExistingResultProvider(PQuery query) {
+        IQueryResultProvider provider = providers.get(query);
+        if (provider == null && delegate != null) {
+            return delegate.peekExistingResultProvider(query);
+        }
+        return provider;
+    }
+
+    @Override
+    public long getEstimatedMemoryUsage() {
+        return delegate == null ? 0 : delegate.getEstimatedMemoryUsage();
+    }
+
+    @Override
+    public void releaseCaches() {
+        if (delegate != null) {
+            delegate.releaseCaches();
+        }
+    }
+
+    @Override
+    public void flushUpdates() {
+        if (delegate != null) {
+            delegate.flushUpdates();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        providers.clear();
+        if (delegate != null) {
+            delegate.dispose();
+            delegate = null;
+        }
+    }
+
+    @Override
+    public IQueryBackendFactory getFactory() {
+        return factory;
+    }
+
+    /**
+     * A result provider that answers from a cached match set until the model version changes or an update listener
+     * is registered; afterwards it forwards to a result provider of the wrapped backend.
+     */
+    private class CachedResultProvider implements IQueryResultProvider {
+
+        private final PQuery query;
+        private final QueryEvaluationHint hints;
+        private final Object modelVersion;
+        private final CachedMatchSet matchSet;
+        private IQueryResultProvider computed;
+
+        CachedResultProvider(PQuery query, QueryEvaluationHint hints, Object modelVersion, CachedMatchSet matchSet) {
+            this.query = query;
+            this.hints = hints;
+            this.modelVersion = modelVersion;
+            this.matchSet = matchSet;
+        }
+
+        /**
+         * @return the result provider of the wrapped backend if the cached match set cannot be used anymore, or null
+         */
+        private IQueryResultProvider getComputedProvider(boolean force) {
+            if (computed == null) {
+                Object currentVersion = modelVersionSupplier.get();
+                if (!modelVersion.equals(currentVersion)) {
+                    computed = computeResultProvider(query, hints);
+                } else if (force) {
+                    // no need to store the same match set again
+                    computed = getDelegate().getResultProvider(query, hints);
+                }
+            }
+            return computed;
+        }
+
+        private List<Tuple> getMatches(TupleMask seedMask, ITuple seed) {
+            return matchSet.getMatches(seedMask, seed);
+        }
+
+        private List<Tuple> getMatches(Object[] parameters) {
+            boolean[] fixed = new boolean[parameters.length];
+            for (int i = 0; i < parameters.length; ++i) {
+                fixed[i] = parameters[i] != null;
+            }
+            TupleMask mask = TupleMask.fromKeepIndicators(fixed);
+            return getMatches(mask, mask.transform(Tuples.flatTupleOf(parameters)));
+        }
+
+        @Override
+        public boolean hasMatch(Object[] parameters) {
+            IQueryResultProvider provider = getComputedProvider(false);
+            return provider != null ? provider.hasMatch(parameters) : !getMatches(parameters).isEmpty();
+        }
+
+        @Override
+        public boolean hasMatch(TupleMask parameterSeedMask, ITuple projectedParameterSeed) {
+            IQueryResultProvider provider = getComputedProvider(false);
+            return provider != null ? provider.hasMatch(parameterSeedMask, projectedParameterSeed)
+                    : !getMatches(parameterSeedMask, projectedParameterSeed).isEmpty();
+        }
+
+        @Override
+        public int countMatches(Object[] parameters) {
+            IQueryResultProvider provider = getComputedProvider(false);
+            return provider != null ? provider.countMatches(parameters) : getMatches(parameters).size();
+        }
+
+        @Override
+        public int countMatches(TupleMask parameterSeedMask, ITuple projectedParameterSeed) {
+            IQueryResultProvider provider = getComputedProvider(false);
+            return provider != null ? provider.countMatches(parameterSeedMask, projectedParameterSeed)
+                    : getMatches(parameterSeedMask, projectedParameterSeed).size();
+        }
+
+        @Override
+        public int countMatchesUpTo(Object[] parameters, int upperLimit) {
+            IQueryResultProvider provider = getComputedProvider(false);
+            return provider != null ? provider.countMatchesUpTo(parameters, upperLimit)
+                    : Math.min(getMatches(parameters).size(), upperLimit);
+        }
+
+        @Override
+        public int countMatchesUpTo(TupleMask parameterSeedMask, ITuple projectedParameterSeed, int upperLimit) {
+            IQueryResultProvider provider = getComputedProvider(false);
+            return provider != null
+                    ? provider.countMatchesUpTo(parameterSeedMask, projectedParameterSeed, upperLimit)
+                    : Math.min(getMatches(parameterSeedMask, projectedParameterSeed).size(), upperLimit);
+        }
+
+        @Override
+        public int forEachMatch(Object[] parameters, Consumer<? super ITuple> action) {
+            IQueryResultProvider provider = getComputedProvider(false);
+            if (provider != null) {
+                return provider.forEachMatch(parameters, action);
+            }
+            List<Tuple> matches = getMatches(parameters);
+            matches.forEach(action);
+            return matches.size();
+        }
+
+        @Override
+        public int forEachMatch(TupleMask parameterSeedMask, ITuple projectedParameterSeed,
+                Consumer<? super ITuple> action) {
+            IQueryResultProvider provider = getComputedProvider(false);
+            if (provider != null) {
+                return provider.forEachMatch(parameterSeedMask, projectedParameterSeed, action);
+            }
+            List<Tuple> matches = getMatches(parameterSeedMask, projectedParameterSeed);
+            matches.forEach(action);
+            return matches.size();
+        }
+
+        @Override
+        public Optional<Long> estimateCardinality(TupleMask groupMask, Accuracy requiredAccuracy) {
+            IQueryResultProvider provider = getComputedProvider(false);
+            return provider != null ? provider.estimateCardinality(groupMask, requiredAccuracy)
+                    : Optional.of((long) matchSet.countProjections(groupMask));
+        }
+
+        @Override
+        public Optional<Tuple> getOneArbitraryMatch(Object[] parameters) {
+            IQueryResultProvider provider = getComputedProvider(false);
+            return provider != null ? provider.getOneArbitraryMatch(parameters)
+                    : getMatches(parameters).stream().findAny();
+        }
+
+        @Override
+        public Optional<Tuple> getOneArbitraryMatch(TupleMask parameterSeedMask, ITuple parameters) {
+            IQueryResultProvider provider = getComputedProvider(false);
+            return provider != null ? provider.getOneArbitraryMatch(parameterSeedMask, parameters)
+                    : getMatches(parameterSeedMask, parameters).stream().findAny();
+        }
+
+        @Override
+        public Stream<Tuple> getAllMatches(Object[] parameters) {
+            IQueryResultProvider provider = getComputedProvider(false);
+            return provider != null ? provider.getAllMatches(parameters) : getMatches(parameters).stream();
+        }
+
+        @Override
+        public Stream<Tuple> getAllMatches(TupleMask parameterSeedMask, ITuple parameters) {
+            IQueryResultProvider provider = getComputedProvider(false);
+            return provider != null ? provider.getAllMatches(parameterSeedMask, parameters)
+                    : getMatches(parameterSeedMask, parameters).stream();
+        }
+
+        @Override
+        public IQueryBackend getQueryBackend() {
+            return ResultCachingQueryBackend.this;
+        }
+
+        @Override
+        public void addUpdateListener(IUpdateable listener, Object listenerTag, boolean fireNow) {
+            // the cached match set is never updated, so the listener needs a computed match set
+            getComputedProvider(true).addUpdateListener(listener, listenerTag, fireNow);
+        }
+
+        @Override
+        public void removeUpdateListener(Object listenerTag) {
+            if (computed != null) {
+                computed.removeUpdateListener(listenerTag);
+            }
+        }
+
+    }
+
+    /**
+     * A result provider that forwards to a result provider of the wrapped backend, and stores the match set in the
+     * cache when all matches are enumerated through it, unless the model version changes in the meantime.
+     */
+    private class StoringResultProvider implements IQueryResultProvider {
+
+        private final PQuery query;
+        private final QueryEvaluationHint hints;
+        private final IQueryResultProvider computed;
+        /** The model version the match set has been stored for, or null */
+        private Object storedVersion;
+
+        StoringResultProvider(PQuery query, QueryEvaluationHint hints, IQueryResultProvider computed) {
+            this.query = query;
+            this.hints = hints;
+            this.computed = computed;
+        }
+
+        /**
+         * @return the current model version if the match set should be stored for it, or null
+         */
+        private Object getVersionToStore(boolean allMatches) {
+            if (!allMatches || updatesDelayed.get()) {
+                return null;
+            }
+            Object modelVersion = modelVersionSupplier.get();
+            return modelVersion == null || modelVersion.equals(storedVersion) ? null : modelVersion;
+        }
+
+        private void store(Object modelVersion, List<Tuple> matches) {
+            if (modelVersion.equals(modelVersionSupplier.get()) && !updatesDelayed.get()) {
+                cache.store(query, hints, scope, modelVersion, new CachedMatchSet(matches));
+                storedVersion = modelVersion;
+            }
+        }
+
+        private int forEachMatch(Object modelVersion, Function<Consumer<? super ITuple>, Integer> enumeration,
+                Consumer<? super ITuple> action) {
+            if (modelVersion == null) {
+                return enumeration.apply(action);
+            }
+            List<Tuple> matches = new ArrayList<>();
+            int count = enumeration.apply(match -> {
+                matches.add(match.toImmutable());
+                action.accept(match);
+            });
+            store(modelVersion, matches);
+            return count;
+        }
+
+        private Stream<Tuple> getAllMatches(Object modelVersion, Stream<Tuple> stream) {
+            if (modelVersion == null) {
+                return stream;
+            }
+            Spliterator<Tuple> source = stream.spliterator();
+            List<Tuple> matches = new ArrayList<>();
+            // the matches are stored only if the stream is consumed completely
+            Spliterator<Tuple> storing = new Spliterators.AbstractSpliterator<Tuple>(source.estimateSize(),
+                    source.characteristics() & ~(Spliterator.SIZED | Spliterator.SUBSIZED)) {
+                @Override
+                public boolean tryAdvance(Consumer<? super Tuple> action) {
+                    boolean advanced = source.tryAdvance(match -> {
+                        matches.add(match);
+                        action.accept(match);
+                    });
+                    if (!advanced) {
+                        store(modelVersion, matches);
+                    }
+                    return advanced;
+                }
+            };
+            return StreamSupport.stream(storing, false).onClose(stream::close);
+        }
+
+        @Override
+        public boolean hasMatch(Object[] parameters) {
+            return computed.hasMatch(parameters);
+        }
+
+        @Override
+        public boolean hasMatch(TupleMask parameterSeedMask, ITuple projectedParameterSeed) {
+            return computed.hasMatch(parameterSeedMask, projectedParameterSeed);
+        }
+
+        @Override
+        public int countMatches(Object[] parameters) {
+            return computed.countMatches(parameters);
+        }
+
+        @Override
+        public int countMatches(TupleMask parameterSeedMask, ITuple projectedParameterSeed) {
+            return computed.countMatches(parameterSeedMask, projectedParameterSeed);
+        }
+
+        @Override
+        public int countMatchesUpTo(Object[] parameters, int upperLimit) {
+            return computed.countMatchesUpTo(parameters, upperLimit);
+        }
+
+        @Override
+        public int countMatchesUpTo(TupleMask parameterSeedMask, ITuple projectedParameterSeed, int upperLimit) {
+            return computed.countMatchesUpTo(parameterSeedMask, projectedParameterSeed, upperLimit);
+        }
+
+        @Override
+        public int forEachMatch(Object[] parameters, Consumer<? super ITuple> action) {
+            return forEachMatch(getVersionToStore(isUnbound(parameters)),
+                    consumer -> computed.forEachMatch(parameters, consumer), action);
+        }
+
+        @Override
+        public int forEachMatch(TupleMask parameterSeedMask, ITuple projectedParameterSeed,
+                Consumer<? super ITuple> action) {
+            return forEachMatch(getVersionToStore(parameterSeedMask.getSize() == 0),
+                    consumer -> computed.forEachMatch(parameterSeedMask, projectedParameterSeed, consumer), action);
+        }
+
+        @Override
+        public Optional<Long> estimateCardinality(TupleMask groupMask, Accuracy requiredAccuracy) {
+            return computed.estimateCardinality(groupMask, requiredAccuracy);
+        }
+
+        @Override
+        public Optional<Tuple> getOneArbitraryMatch(Object[] parameters) {
+            return computed.getOneArbitraryMatch(parameters);
+        }
+
+        @Override
+        public Optional<Tuple> getOneArbitraryMatch(TupleMask parameterSeedMask, ITuple parameters) {
+            return computed.getOneArbitraryMatch(parameterSeedMask, parameters);
+        }
+
+        @Override
+        public Stream<Tuple> getAllMatches(Object[] parameters) {
+            return getAllMatches(getVersionToStore(isUnbound(parameters)), computed.getAllMatches(parameters));
+        }
+
+        @Override
+        public Stream<Tuple> getAllMatches(TupleMask parameterSeedMask, ITuple parameters) {
+            return getAllMatches(getVersionToStore(parameterSeedMask.getSize() == 0),
+                    computed.getAllMatches(parameterSeedMask, parameters));
+        }
+
+        @Override
+        public IQueryBackend getQueryBackend() {
+            return ResultCachingQueryBackend.this;
+        }
+
+        @Override
+        public void addUpdateListener(IUpdateable listener, Object listenerTag, boolean fireNow) {
+            computed.addUpdateListener(listener, listenerTag, fireNow);
+        }
+
+        @Override
+        public void removeUpdateListener(Object listenerTag) {
+            computed.removeUpdateListener(listenerTag);
+        }
+
+    }
+
+    private static boolean isUnbound(Object[] parameters) {
+        for (Object parameter : parameters) {
+            if (parameter != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
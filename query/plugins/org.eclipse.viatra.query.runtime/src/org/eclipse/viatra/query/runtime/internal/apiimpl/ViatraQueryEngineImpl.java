@@ -13,9 +13,13 @@ import static org.eclipse.viatra.query.runtime.matchers.util.Preconditions.check
 
 import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
@@ -27,6 +31,8 @@ import org.eclipse.viatra.query.runtime.api.IMatchUpdateListener;
 import org.eclipse.viatra.query.runtime.api.IPatternMatch;
 import org.eclipse.viatra.query.runtime.api.IQueryGroup;
 import org.eclipse.viatra.query.runtime.api.IQuerySpecification;
+import org.eclipse.viatra.query.runtime.api.MemoryBudget;
+import org.eclipse.viatra.query.runtime.api.MemoryBudget.EvictionAction;
 import org.eclipse.viatra.query.runtime.api.ViatraQueryEngine;
 import org.eclipse.viatra.query.runtime.api.ViatraQueryEngineLifecycleListener;
 import org.eclipse.viatra.query.runtime.api.ViatraQueryEngineManager;
@@ -38,6 +44,7 @@ import org.eclipse.viatra.query.runtime.api.scope.IBaseIndex;
 import org.eclipse.viatra.query.runtime.api.scope.IEngineContext;
 import org.eclipse.viatra.query.runtime.api.scope.IIndexingErrorListener;
 import org.eclipse.viatra.query.runtime.api.scope.QueryScope;
+import org.eclipse.viatra.query.runtime.api.scope.ViatraBaseIndexChangeListener;
 import org.eclipse.viatra.query.runtime.exception.ViatraQueryException;
 import org.eclipse.viatra.query.runtime.internal.engine.LifecycleProvider;
 import org.eclipse.viatra.query.runtime.internal.engine.ModelUpdateProvider;
@@ -108,6 +115,39 @@ public final class ViatraQueryEngineImpl extends AdvancedViatraQueryEngine
      */
     private volatile Map<IQueryBackendFactory, IQueryBackend> queryBackends = new HashMap<>();
 
+    /**
+     * The backends materializing the results of caching backends lazily, which are able to demote queries
+     */
+    private final List<LazyMaterializingQueryBackend> lazyBackends = new ArrayList<>();
+
+    /**
+     * Invalidates the estimated memory usage of the base index after index changes, and sweeps the lazily
+     * materializing backends for idle queries and performs deferred memory budget checks after model changes are
+     * handled, i.e. outside of result provider calls, as both may dispose the backends the result providers forward to
+     */
+    private final ViatraBaseIndexChangeListener maintenanceListener = new ViatraBaseIndexChangeListener() {
+
+        @Override
+        public boolean onlyOnIndexChange() {
+            return false;
+        }
+
+        @Override
+        public void notifyChanged(boolean indexChanged) {
+            if (indexChanged) {
+                baseIndexMemoryUsage = -1;
+            }
+            performDeferredMaintenance();
+        }
+    };
+
+    private boolean maintenanceListenerRegistered = false;
+
+    /**
+     * The estimated memory usage of the base index, or -1 if it has to be recounted
+     */
+    private long baseIndexMemoryUsage = -1;
+
     /**
      * The current engine default hints
      */
@@ -128,6 +168,21 @@ public final class ViatraQueryEngineImpl extends AdvancedViatraQueryEngine
     private Logger logger;
     private boolean disposed = false;
 
+    /**
+     * true if a query backend has been created (and the base index has been initialized for it), false otherwise
+     */
+    private boolean backendCreated = false;
+
+    /**
+     * true if the memory budget is being enforced or its enforcement is deferred, false otherwise
+     */
+    private boolean memoryBudgetCheckSuspended = false;
+
+    /**
+     * true if queries have been materialized during result provider calls since the last memory budget check
+     */
+    private boolean memoryBudgetCheckPending = false;
+
     /**
      * @param manager
      *            null if unmanaged
@@ -189,6 +244,7 @@ public final class ViatraQueryEngineImpl extends AdvancedViatraQueryEngine
             for (IQueryBackend backend : this.queryBackends.values()) {
                 backend.flushUpdates();
             }
+            performDeferredMaintenance();
         }
         return result;
     }
@@ -281,13 +337,37 @@ public final class ViatraQueryEngineImpl extends AdvancedViatraQueryEngine
         lifecycleProvider.matcherInstantiated(matcher);
     }
 
+    @Override
+    public IQueryBackend getUnwrappedQueryBackend(IQueryBackendFactory iQueryBackendFactory) {
+        IQueryBackend iQueryBackend = getQueryBackend(iQueryBackendFactory);
+        if (iQueryBackend instanceof ResultCachingQueryBackend) {
+            iQueryBackend = ((ResultCachingQueryBackend) iQueryBackend).getDelegate();
+        }
+        if (iQueryBackend instanceof LazyMaterializingQueryBackend) {
+            iQueryBackend = ((LazyMaterializingQueryBackend) iQueryBackend).getDelegate();
+        }
+        return iQueryBackend;
+    }
+
     /**
      * Provides access to the selected query backend component of the VIATRA Query Engine.
      */
     @Override
     public IQueryBackend getQueryBackend(IQueryBackendFactory iQueryBackendFactory) {
         IQueryBackend iQueryBackend = queryBackends.get(iQueryBackendFactory);
-        if (iQueryBackend == null) {
+        if (iQueryBackend == null && engineOptions.getResultCache() != null && iQueryBackendFactory.isCaching()) {
+            // the wrapped backend (and the base index) is only initialized when a match set is not cached
+            iQueryBackend = new ResultCachingQueryBackend(iQueryBackendFactory,
+                    () -> isLazyMaterializationEnabled()
+                            ? createLazyMaterializingQueryBackend(iQueryBackendFactory)
+                            : createQueryBackend(iQueryBackendFactory, engineContext.getQueryRuntimeContext()),
+                    engineOptions.getResultCache(), scope, engineOptions.getModelVersionSupplier(),
+                    this::isUpdatePropagationDelayed);
+            queryBackends.put(iQueryBackendFactory, iQueryBackend);
+        } else if (iQueryBackend == null && isLazyMaterializationEnabled() && iQueryBackendFactory.isCaching()) {
+            iQueryBackend = createLazyMaterializingQueryBackend(iQueryBackendFactory);
+            queryBackends.put(iQueryBackendFactory, iQueryBackend);
+        } else if (iQueryBackend == null) {
             // do this first, to make sure the runtime context exists
             final IQueryRuntimeContext queryRuntimeContext = engineContext.getQueryRuntimeContext();
 
@@ -296,60 +376,111 @@ public final class ViatraQueryEngineImpl extends AdvancedViatraQueryEngine
             // no need to instantiate a new backend in that case
             iQueryBackend = queryBackends.get(iQueryBackendFactory);
             if (iQueryBackend == null) {
+                iQueryBackend = createQueryBackend(iQueryBackendFactory, queryRuntimeContext);
+                queryBackends.put(iQueryBackendFactory, iQueryBackend);
+            }
+        }
+        return iQueryBackend;
+    }
 
-                // need to instantiate the backend
-                iQueryBackend = iQueryBackendFactory.create(new IQueryBackendContext() {
+    private boolean isLazyMaterializationEnabled() {
+        MemoryBudget budget = engineOptions.getMemoryBudget();
+        return engineOptions.getLazyMaterializationThreshold() > 0 || (budget != null
+                && budget.getEvictionActions().contains(EvictionAction.DEMOTE_LEAST_RECENTLY_USED));
+    }
 
-                    @Override
-                    public IQueryRuntimeContext getRuntimeContext() {
-                        return queryRuntimeContext;
-                    }
+    private IQueryBackend createLazyMaterializingQueryBackend(IQueryBackendFactory iQueryBackendFactory) {
+        // without lazy materialization settings, queries are promoted on their first use and only demoted by the budget
+        final boolean configured = engineOptions.getLazyMaterializationThreshold() > 0;
+        LazyMaterializingQueryBackend backend = new LazyMaterializingQueryBackend(iQueryBackendFactory,
+                () -> createQueryBackend(iQueryBackendFactory, engineContext.getQueryRuntimeContext()),
+                () -> getQueryBackend(engineOptions.getDefaultSearchBackendFactory()),
+                configured ? engineOptions.getLazyMaterializationThreshold() : 1,
+                configured ? engineOptions.getLazyMaterializationIdleTime() : Long.MAX_VALUE,
+                this::isUpdatePropagationDelayed, query -> memoryBudgetCheckPending = true);
+        lazyBackends.add(backend);
+        return backend;
+    }
 
-                    @Override
-                    public IQueryCacheContext getQueryCacheContext() {
-                        return ViatraQueryEngineImpl.this;
-                    }
+    /**
+     * Demotes idle queries and performs the memory budget check deferred by promotions; must not be called during
+     * result provider calls
+     */
+    private void performDeferredMaintenance() {
+        for (LazyMaterializingQueryBackend backend : new ArrayList<>(lazyBackends)) {
+            backend.sweep();
+        }
+        if (memoryBudgetCheckPending) {
+            enforceMemoryBudget(null);
+        }
+    }
 
-                    @Override
-                    public Logger getLogger() {
-                        return logger;
-                    }
+    private boolean hasActiveResultProviderCalls() {
+        for (LazyMaterializingQueryBackend backend : lazyBackends) {
+            if (backend.hasActiveCalls()) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-                    @Override
-                    public IQueryBackendHintProvider getHintProvider() {
-                        return ViatraQueryEngineImpl.this;
-                    }
+    private IQueryBackend createQueryBackend(IQueryBackendFactory iQueryBackendFactory,
+            final IQueryRuntimeContext queryRuntimeContext) {
+        backendCreated = true;
+        if (!maintenanceListenerRegistered
+                && (engineOptions.getMemoryBudget() != null || isLazyMaterializationEnabled())) {
+            engineContext.getBaseIndex().addBaseIndexChangeListener(maintenanceListener);
+            maintenanceListenerRegistered = true;
+        }
+        // need to instantiate the backend
+        return iQueryBackendFactory.create(new IQueryBackendContext() {
 
-                    @Override
-                    public IQueryResultProviderAccess getResultProviderAccess() {
-                        return ViatraQueryEngineImpl.this;
-                    }
+            @Override
+            public IQueryRuntimeContext getRuntimeContext() {
+                return queryRuntimeContext;
+            }
 
-                    @Override
-                    public QueryAnalyzer getQueryAnalyzer() {
-                        if (queryAnalyzer == null)
-                            queryAnalyzer = new QueryAnalyzer(queryRuntimeContext.getMetaContext());
-                        return queryAnalyzer;
-                    }
+            @Override
+            public IQueryCacheContext getQueryCacheContext() {
+                return ViatraQueryEngineImpl.this;
+            }
 
-                    @Override
-                    public boolean areUpdatesDelayed() {
-                        return ViatraQueryEngineImpl.this.delayMessageDelivery;
-                    }
+            @Override
+            public Logger getLogger() {
+                return logger;
+            }
 
-                    @Override
-                    public IMatcherCapability getRequiredMatcherCapability(PQuery query,
-                            QueryEvaluationHint hint) {
-                        return engineOptions.getQueryBackendFactory(hint).calculateRequiredCapability(query, hint);
-                    }
+            @Override
+            public IQueryBackendHintProvider getHintProvider() {
+                return ViatraQueryEngineImpl.this;
+            }
 
-                    
+            @Override
+            public IQueryResultProviderAccess getResultProviderAccess() {
+                return ViatraQueryEngineImpl.this;
+            }
 
-                });
-                queryBackends.put(iQueryBackendFactory, iQueryBackend);
+            @Override
+            public QueryAnalyzer getQueryAnalyzer() {
+                if (queryAnalyzer == null)
+                    queryAnalyzer = new QueryAnalyzer(queryRuntimeContext.getMetaContext());
+                return queryAnalyzer;
             }
-        }
-        return iQueryBackend;
+
+            @Override
+            public boolean areUpdatesDelayed() {
+                return ViatraQueryEngineImpl.this.delayMessageDelivery;
+            }
+
+            @Override
+            public IMatcherCapability getRequiredMatcherCapability(PQuery query,
+                    QueryEvaluationHint hint) {
+                return engineOptions.getQueryBackendFactory(hint).calculateRequiredCapability(query, hint);
+            }
+
+            
+
+        });
     }
 
     ///////////////// advanced stuff /////////////
@@ -387,6 +518,7 @@ public final class ViatraQueryEngineImpl extends AdvancedViatraQueryEngine
             }
             queryBackends.clear();
         }
+        lazyBackends.clear();
         matchers.clear();
         queryAnalyzer = null;
         lifecycleProvider.engineWiped();
@@ -536,7 +668,7 @@ public final class ViatraQueryEngineImpl extends AdvancedViatraQueryEngine
     public IQueryResultProvider getResultProvider(IQuerySpecification<?> query) {
         Preconditions.checkState(!disposed, QUERY_ON_DISPOSED_ENGINE_MESSAGE);
 
-        return getResultProviderInternal(query, null);
+        return getResultProviderWithinBudget(query, null);
     }
 
     /**
@@ -550,7 +682,7 @@ public final class ViatraQueryEngineImpl extends AdvancedViatraQueryEngine
     public IQueryResultProvider getResultProvider(IQuerySpecification<?> query, QueryEvaluationHint hint) {
         Preconditions.checkState(!disposed, QUERY_ON_DISPOSED_ENGINE_MESSAGE);
 
-        return getResultProviderInternal(query, hint);
+        return getResultProviderWithinBudget(query, hint);
     }
 
     /**
@@ -578,6 +710,125 @@ public final class ViatraQueryEngineImpl extends AdvancedViatraQueryEngine
         return backend.getResultProvider(query, hint);
     }
 
+    /**
+     * Returns the result provider of a query for a client, enforcing the memory budget if the provider is new. Result
+     * providers requested by backends are not checked, as eviction may rebuild the requesting backend.
+     */
+    private IQueryResultProvider getResultProviderWithinBudget(IQuerySpecification<?> query, QueryEvaluationHint hint) {
+        if (engineOptions.getMemoryBudget() == null) {
+            return getResultProviderInternal(query, hint);
+        }
+        PQuery pQuery = query.getInternalQueryRepresentation();
+        IQueryResultProvider existing = getQueryBackend(
+                engineOptions.getQueryBackendFactory(getQueryEvaluationHint(pQuery, hint)))
+                        .peekExistingResultProvider(pQuery);
+        IQueryResultProvider resultProvider = getResultProviderInternal(query, hint);
+        if (existing == null) {
+            enforceMemoryBudget(pQuery);
+        }
+        return resultProvider;
+    }
+
+    @Override
+    public long getEstimatedMemoryUsage() {
+        long usage = 0;
+        for (IQueryBackend backend : new ArrayList<>(queryBackends.values())) {
+            usage += backend.getEstimatedMemoryUsage();
+        }
+        if (backendCreated) {
+            usage += getEstimatedBaseIndexMemoryUsage();
+        }
+        return usage;
+    }
+
+    /**
+     * Returns the estimated memory usage of the base index, which is only recounted after the index has changed if the
+     * changes are tracked
+     */
+    private long getEstimatedBaseIndexMemoryUsage() {
+        if (baseIndexMemoryUsage < 0 || !maintenanceListenerRegistered) {
+            baseIndexMemoryUsage = engineContext.getBaseIndex().getEstimatedMemoryUsage();
+        }
+        return baseIndexMemoryUsage;
+    }
+
+    @Override
+    public void checkMemoryBudget() {
+        Preconditions.checkState(!disposed, QUERY_ON_DISPOSED_ENGINE_MESSAGE);
+        enforceMemoryBudget(null);
+    }
+
+    /**
+     * Performs the eviction actions of the memory budget while the estimated memory usage exceeds it. During result
+     * provider calls, the check is deferred until the model changes are propagated, as evictions may dispose the
+     * backends the result providers forward to.
+     * 
+     * @param retained
+     *            the query whose results have just been materialized, which is not demoted; can be null
+     */
+    private void enforceMemoryBudget(PQuery retained) {
+        final MemoryBudget budget = engineOptions.getMemoryBudget();
+        if (budget == null || memoryBudgetCheckSuspended || disposed) {
+            return;
+        }
+        if (hasActiveResultProviderCalls()) {
+            memoryBudgetCheckPending = true;
+            return;
+        }
+        memoryBudgetCheckPending = false;
+        memoryBudgetCheckSuspended = true;
+        try {
+            long usage = getEstimatedMemoryUsage();
+            for (EvictionAction action : budget.getEvictionActions()) {
+                if (usage <= budget.getLimit()) {
+                    return;
+                }
+                final long usageBefore = usage;
+                final Set<PQuery> evictedQueries = new LinkedHashSet<>();
+                switch (action) {
+                case RELEASE_CACHES:
+                    for (IQueryBackend backend : new ArrayList<>(queryBackends.values())) {
+                        backend.releaseCaches();
+                    }
+                    usage = getEstimatedMemoryUsage();
+                    if (usage == usageBefore) {
+                        continue;
+                    }
+                    break;
+                case DEMOTE_LEAST_RECENTLY_USED:
+                    // each backend demotes a batch of queries and rebuilds its network at most once per check; the
+                    // search caches created for demoted queries are left to a subsequent action
+                    long excess = usage - budget.getLimit();
+                    for (LazyMaterializingQueryBackend backend : lazyBackends) {
+                        if (excess <= 0) {
+                            break;
+                        }
+                        long backendUsage = backend.getEstimatedMemoryUsage();
+                        List<PQuery> demoted = backend.demoteLeastRecentlyUsed(retained, excess);
+                        if (!demoted.isEmpty()) {
+                            evictedQueries.addAll(demoted);
+                            excess -= backendUsage - backend.getEstimatedMemoryUsage();
+                        }
+                    }
+                    if (evictedQueries.isEmpty()) {
+                        continue;
+                    }
+                    usage = getEstimatedMemoryUsage();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown eviction action " + action);
+                }
+                getLogger().debug(String.format("Memory budget of %d bytes exceeded, %s reduced usage from %d to %d bytes",
+                        budget.getLimit(), action, usageBefore, usage));
+                if (budget.getListener() != null) {
+                    budget.getListener().evicted(this, action, evictedQueries, usageBefore, usage);
+                }
+            }
+        } finally {
+            memoryBudgetCheckSuspended = false;
+        }
+    }
+
     /**
      * Returns the query backend (influenced by the hint system), even if it is a non-caching backend.
      * 
@@ -665,7 +916,16 @@ public final class ViatraQueryEngineImpl extends AdvancedViatraQueryEngine
             Preconditions.checkState(erroneousPatterns.isEmpty(), "Erroneous query(s) found: %s",
                     erroneousPatterns.stream().collect(Collectors.joining(", ")));
 
-            // TODO maybe do some smarter preparation per backend?
+            // query-level preparation (e.g. parallel planning) is done by each backend for all of its queries at once
+            final Map<IQueryBackend, List<PQuery>> patternsByBackend = new LinkedHashMap<>();
+            for (PQuery pattern : patterns) {
+                final IQueryBackend backend = getQueryBackend(engineOptions.getQueryBackendFactory(
+                        getQueryEvaluationHint(pattern, optionalEvaluationHints)));
+                patternsByBackend.computeIfAbsent(backend, key -> new ArrayList<>()).add(pattern);
+            }
+            patternsByBackend.forEach((backend, backendPatterns) -> backend.prepareQueries(backendPatterns,
+                    optionalEvaluationHints));
+
             try {
                 engineContext.getBaseIndex().coalesceTraversals(new Callable<Void>() {
                     @Override
@@ -676,6 +936,8 @@ public final class ViatraQueryEngineImpl extends AdvancedViatraQueryEngine
                         return null;
                     }
                 });
+                // checked once for the group, as the queries are usually used together
+                enforceMemoryBudget(null);
             } catch (InvocationTargetException ex) {
                 final Throwable cause = ex.getCause();
                 if (cause instanceof QueryProcessingException)
@@ -102,7 +102,7 @@ public class ReteVisualizationViewSupport extends ViatraViewersZestViewSupport {
             if (matcher == null)
                 continue;
             final ReteEngine reteEngine = (ReteEngine) ((AdvancedViatraQueryEngine) matcher.getEngine())
-                    .getQueryBackend(ReteBackendFactory.INSTANCE);
+                    .getUnwrappedQueryBackend(ReteBackendFactory.INSTANCE);
 
             // compute RecipeNode to ReteNode map once
             if (recipeToReteMap.isEmpty()) {
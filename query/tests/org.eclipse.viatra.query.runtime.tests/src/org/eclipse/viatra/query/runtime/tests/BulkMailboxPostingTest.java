@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
+import org.eclipse.viatra.query.runtime.matchers.util.Direction;
+import org.eclipse.viatra.query.runtime.rete.network.Receiver;
+import org.eclipse.viatra.query.runtime.rete.network.ReteContainer;
+import org.eclipse.viatra.query.runtime.rete.network.Supplier;
+import org.eclipse.viatra.query.runtime.rete.network.communication.CommunicationGroup;
+import org.eclipse.viatra.query.runtime.rete.network.communication.Timestamp;
+import org.eclipse.viatra.query.runtime.rete.network.communication.timeless.TimelessCommunicationTracker;
+import org.eclipse.viatra.query.runtime.rete.network.mailbox.Mailbox;
+import org.eclipse.viatra.query.runtime.rete.network.mailbox.timeless.BehaviorChangingMailbox;
+import org.eclipse.viatra.query.runtime.rete.traceability.TraceInfo;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the delivery of insertions posted in bulk to the mailboxes of receivers, compared to posting them one by one.
+ */
+public class BulkMailboxPostingTest {
+
+    private static final Tuple T1 = Tuples.staticArityFlatTupleOf("t1");
+    private static final Tuple T2 = Tuples.staticArityFlatTupleOf("t2");
+
+    /**
+     * A mailbox that does not fall through, as during the execution of delayed commands
+     */
+    private static final class StoringMailbox extends BehaviorChangingMailbox {
+        StoringMailbox(Receiver receiver) {
+            super(receiver, null);
+        }
+
+        @Override
+        public void setFallThrough(boolean fallThrough) {
+            // messages are always stored
+        }
+    }
+
+    /**
+     * A receiver with a set memory, which records the non-empty batches delivered to it
+     */
+    private static final class RecordingReceiver implements Receiver {
+        final Mailbox mailbox = new StoringMailbox(this);
+        final Set<Tuple> memory = new HashSet<>();
+        final List<Map<Tuple, Integer>> batches = new ArrayList<>();
+
+        @Override
+        public void batchUpdate(Collection<Map.Entry<Tuple, Integer>> updates, Timestamp timestamp) {
+            Map<Tuple, Integer> batch = new LinkedHashMap<>();
+            for (Map.Entry<Tuple, Integer> update : updates) {
+                batch.merge(update.getKey(), update.getValue(), Integer::sum);
+            }
+            if (!batch.isEmpty()) {
+                batches.add(batch);
+            }
+            Receiver.super.batchUpdate(updates, timestamp);
+        }
+
+        @Override
+        public void update(Direction direction, Tuple updateElement, Timestamp timestamp) {
+            if (direction == Direction.INSERT) {
+                memory.add(updateElement);
+            } else {
+                memory.remove(updateElement);
+            }
+        }
+
+        @Override
+        public Mailbox getMailbox() {
+            return mailbox;
+        }
+
+        @Override
+        public void appendParent(Supplier supplier) {
+            // not needed
+        }
+
+        @Override
+        public void removeParent(Supplier supplier) {
+            // not needed
+        }
+
+        @Override
+        public Collection<Supplier> getParents() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public ReteContainer getContainer() {
+            return null;
+        }
+
+        @Override
+        public long getNodeId() {
+            return 0;
+        }
+
+        @Override
+        public void setTag(Object tag) {
+            // not needed
+        }
+
+        @Override
+        public Object getTag() {
+            return null;
+        }
+
+        @Override
+        public Set<TraceInfo> getTraceInfos() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public void assignTraceInfo(TraceInfo traceInfo) {
+            // not needed
+        }
+
+        @Override
+        public void acceptPropagatedTraceInfo(TraceInfo traceInfo) {
+            // not needed
+        }
+    }
+
+    private TimelessCommunicationTracker tracker;
+    private RecordingReceiver receiver;
+    private RecordingReceiver other;
+
+    @Before
+    public void setUp() {
+        tracker = new TimelessCommunicationTracker();
+        receiver = new RecordingReceiver();
+        other = new RecordingReceiver();
+        tracker.registerDependency(other, receiver);
+    }
+
+    private void post(Direction direction, boolean bulk, Tuple... tuples) {
+        if (bulk) {
+            receiver.mailbox.postMessages(direction, Arrays.asList(tuples), Timestamp.ZERO);
+        } else {
+            for (Tuple tuple : tuples) {
+                receiver.mailbox.postMessage(direction, tuple, Timestamp.ZERO);
+            }
+        }
+    }
+
+    private void deliverAll() {
+        while (!tracker.isEmpty()) {
+            CommunicationGroup group = tracker.getAndRemoveFirstGroup();
+            group.deliverMessages();
+        }
+    }
+
+    @Test
+    public void bulkInsertionsNotCounted() {
+        post(Direction.INSERT, true, T1, T2);
+        assertFalse(receiver.mailbox.isEmpty());
+        assertFalse(tracker.isEmpty());
+        deliverAll();
+        assertEquals(Arrays.asList(map(T1, 1, T2, 1)), receiver.batches);
+        assertEquals(new HashSet<>(Arrays.asList(T1, T2)), receiver.memory);
+        assertTrue(receiver.mailbox.isEmpty());
+    }
+
+    @Test
+    public void deletionAfterBulkInsertion() {
+        post(Direction.INSERT, true, T1, T2);
+        // counted messages that cancel out must not unregister the mailbox while bulk insertions are pending
+        post(Direction.INSERT, false, T2);
+        post(Direction.DELETE, false, T2);
+        assertFalse(tracker.isEmpty());
+        post(Direction.DELETE, false, T1);
+        deliverAll();
+        // the bulk insertions are delivered before the deletion
+        assertEquals(Arrays.asList(map(T1, 1, T2, 1), map(T1, -1)), receiver.batches);
+        assertEquals(Collections.singleton(T2), receiver.memory);
+        assertTrue(receiver.mailbox.isEmpty());
+    }
+
+    @Test
+    public void countedMessagesPendingFallsBackToCounting() {
+        receiver.memory.add(T1);
+        post(Direction.DELETE, false, T1);
+        post(Direction.INSERT, true, T1, T2);
+        deliverAll();
+        // the insertion of T1 cancels out with the pending deletion instead of overtaking it
+        assertEquals(Arrays.asList(map(T2, 1)), receiver.batches);
+        assertEquals(new HashSet<>(Arrays.asList(T1, T2)), receiver.memory);
+    }
+
+    @Test
+    public void groupMergeBeforeDelivery() {
+        for (boolean bulk : new boolean[] { true, false }) {
+            setUp();
+            post(Direction.INSERT, bulk, T1, T2);
+            // the receiver and its parent form a recursive group from now on
+            tracker.registerDependency(receiver, other);
+            assertTrue(tracker.getGroup(receiver).isRecursive());
+            assertFalse(tracker.isEmpty());
+            post(Direction.DELETE, false, T1);
+            deliverAll();
+            // the bulk insertions are counted after the merge, so they cancel out like counted insertions
+            assertEquals("bulk: " + bulk, Arrays.asList(map(T2, 1)), receiver.batches);
+            assertEquals(Collections.singleton(T2), receiver.memory);
+        }
+    }
+
+    @Test
+    public void groupMergeBeforeDeliveryCancellingAll() {
+        post(Direction.INSERT, true, T1);
+        tracker.registerDependency(receiver, other);
+        post(Direction.DELETE, false, T1);
+        assertTrue(receiver.mailbox.isEmpty());
+        assertTrue(tracker.getGroup(receiver).isEmpty());
+        deliverAll();
+        assertEquals(Collections.emptyList(), receiver.batches);
+    }
+
+    private static Map<Tuple, Integer> map(Object... tuplesAndCounts) {
+        Map<Tuple, Integer> result = new LinkedHashMap<>();
+        for (int i = 0; i < tuplesAndCounts.length; i += 2) {
+            result.put((Tuple) tuplesAndCounts[i], (Integer) tuplesAndCounts[i + 1]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
+import org.eclipse.viatra.query.runtime.matchers.util.ProjectionSketches;
+import org.junit.Test;
+
+/**
+ * Compares the projection sizes estimated by {@link ProjectionSketches} to the exact ones, for tuples of objects that
+ * only have an identity hash code.
+ */
+public class ProjectionSketchesTest {
+
+    private static final TupleMask FIRST = TupleMask.selectSingle(0, 2);
+    private static final TupleMask SECOND = TupleMask.selectSingle(1, 2);
+
+    /**
+     * Creates tuples of <code>holderCount</code> holders, each with <code>degree</code> distinct values
+     */
+    private static List<Tuple> createTuples(int holderCount, int degree) {
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < holderCount; i++) {
+            Object holder = new Object();
+            for (int j = 0; j < degree; j++) {
+                tuples.add(Tuples.staticArityFlatTupleOf(holder, new Object()));
+            }
+        }
+        return tuples;
+    }
+
+    private static long countProjections(TupleMask mask, List<Tuple> tuples) {
+        Set<Tuple> projections = new HashSet<>();
+        for (Tuple tuple : tuples) {
+            projections.add(mask.transform(tuple));
+        }
+        return projections.size();
+    }
+
+    private static void assertClose(long expected, long estimate) {
+        // more than four times the relative standard error of the default precision
+        assertTrue("Expected about " + expected + " but was " + estimate,
+                Math.abs(estimate - expected) <= 0.07 * expected);
+    }
+
+    @Test
+    public void estimateOnceCloseToExactSize() {
+        List<Tuple> tuples = createTuples(5000, 4);
+        assertClose(5000, ProjectionSketches.estimateOnce(FIRST, tuples));
+        assertClose(20000, ProjectionSketches.estimateOnce(SECOND, tuples));
+    }
+
+    @Test
+    public void maintainedSketchesFollowUpdates() {
+        List<Tuple> tuples = new ArrayList<>(createTuples(3000, 3));
+        ProjectionSketches sketches = new ProjectionSketches();
+        assertClose(3000, sketches.estimate(FIRST, () -> tuples));
+        for (Tuple tuple : createTuples(2000, 1)) {
+            tuples.add(tuple);
+            sketches.update(tuple, true);
+        }
+        assertClose(5000, sketches.estimate(FIRST, () -> tuples));
+        // the second sketch is built from the current contents, the first one keeps following the updates
+        assertClose(11000, sketches.estimate(SECOND, () -> tuples));
+        assertClose(5000, sketches.estimate(FIRST, () -> tuples));
+    }
+
+    @Test
+    public void sketchRebuiltAfterRemovals() {
+        List<Tuple> tuples = new ArrayList<>(createTuples(4000, 2));
+        ProjectionSketches sketches = new ProjectionSketches();
+        assertClose(4000, sketches.estimate(FIRST, () -> tuples));
+        assertClose(8000, sketches.estimate(SECOND, () -> tuples));
+        while (tuples.size() > 1000) {
+            sketches.update(tuples.remove(tuples.size() - 1), false);
+        }
+        // the sketches cannot forget removed tuples, so they are rebuilt
+        assertClose(countProjections(FIRST, tuples), sketches.estimate(FIRST, () -> tuples));
+        assertClose(1000, sketches.estimate(SECOND, () -> tuples));
+    }
+
+    @Test
+    public void estimateBoundedBySize() {
+        List<Tuple> tuples = createTuples(3, 1);
+        ProjectionSketches sketches = new ProjectionSketches();
+        assertEquals(3, sketches.estimate(SECOND, () -> tuples));
+        sketches.update(tuples.get(0), false);
+        assertTrue(sketches.estimate(SECOND, () -> tuples.subList(1, 3)) <= 2);
+    }
+
+}
@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
+import org.eclipse.viatra.query.runtime.matchers.util.Direction;
+import org.eclipse.viatra.query.runtime.matchers.util.Signed;
+import org.eclipse.viatra.query.runtime.matchers.util.TimelyMemory;
+import org.eclipse.viatra.query.runtime.matchers.util.timeline.Timeline;
+import org.junit.Test;
+
+/**
+ * Compares the timelines maintained by {@link TimelyMemory} to the ones computed from the net diffs of each timestamp,
+ * while tuples switch between the single-timestamp and the sorted representation of their counters.
+ */
+public class TimelyMemoryCounterTest {
+
+    /**
+     * Exposes the representation of the counters of a tuple
+     */
+    private static final class InspectableMemory extends TimelyMemory<Integer> {
+        InspectableMemory(boolean isLazy) {
+            super(isLazy);
+        }
+
+        boolean hasPlainCounter(Tuple tuple) {
+            return plainCounters.containsKey(tuple);
+        }
+
+        boolean hasSortedCounters(Tuple tuple) {
+            return counters.containsKey(tuple);
+        }
+
+        void foldAll() {
+            for (Integer timestamp = getResumableTimestamp(); timestamp != null; timestamp = getResumableTimestamp()) {
+                resumeAt(timestamp);
+            }
+        }
+    }
+
+    private static final Tuple T = Tuples.staticArityFlatTupleOf("test");
+
+    /**
+     * The net diffs of tuples by timestamp, zero diffs omitted
+     */
+    private final Map<Tuple, TreeMap<Integer, Integer>> expectedDiffs = new HashMap<>();
+
+    private static List<Signed<Integer>> toChanges(TreeMap<Integer, Integer> diffs) {
+        List<Signed<Integer>> changes = new ArrayList<>();
+        int cumulative = 0;
+        for (Map.Entry<Integer, Integer> diff : diffs.entrySet()) {
+            int previous = cumulative;
+            cumulative += diff.getValue();
+            if (previous == 0 && cumulative > 0) {
+                changes.add(new Signed<>(Direction.INSERT, diff.getKey()));
+            } else if (previous > 0 && cumulative == 0) {
+                changes.add(new Signed<>(Direction.DELETE, diff.getKey()));
+            }
+        }
+        return changes;
+    }
+
+    private static List<Signed<Integer>> toChanges(Timeline<Integer> timeline) {
+        List<Signed<Integer>> changes = new ArrayList<>();
+        if (timeline != null) {
+            timeline.asChangeSequence().forEach(changes::add);
+        }
+        return changes;
+    }
+
+    /**
+     * @return true if removing the tuple at the timestamp keeps all its cumulative counts non-negative
+     */
+    private boolean canRemove(Tuple tuple, int timestamp) {
+        TreeMap<Integer, Integer> diffs = expectedDiffs.getOrDefault(tuple, new TreeMap<>());
+        int cumulative = diffs.headMap(timestamp, true).values().stream().mapToInt(Integer::intValue).sum();
+        if (cumulative < 1) {
+            return false;
+        }
+        for (int diff : diffs.tailMap(timestamp, false).values()) {
+            cumulative += diff;
+            if (cumulative < 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void update(InspectableMemory memory, Tuple tuple, int timestamp, int diff) {
+        if (diff > 0) {
+            memory.put(tuple, timestamp);
+        } else {
+            memory.remove(tuple, timestamp);
+        }
+        TreeMap<Integer, Integer> diffs = expectedDiffs.computeIfAbsent(tuple, key -> new TreeMap<>());
+        if (diffs.merge(timestamp, diff, Integer::sum) == 0) {
+            diffs.remove(timestamp);
+        }
+        if (diffs.isEmpty()) {
+            expectedDiffs.remove(tuple);
+        }
+    }
+
+    private void assertConsistent(InspectableMemory memory, List<Tuple> tuples) {
+        for (Tuple tuple : tuples) {
+            TreeMap<Integer, Integer> diffs = expectedDiffs.getOrDefault(tuple, new TreeMap<>());
+            assertEquals(toChanges(diffs), toChanges(memory.get(tuple)));
+            assertEquals(!diffs.isEmpty(), memory.containsKey(tuple));
+            // tuples with a single counter do not need a sorted map
+            assertEquals(diffs.size() == 1, memory.hasPlainCounter(tuple));
+            assertEquals(diffs.size() > 1, memory.hasSortedCounters(tuple));
+        }
+        assertEquals(expectedDiffs.size(), memory.size());
+        assertEquals(expectedDiffs.keySet(), new HashSet<>(memory.keySet()));
+    }
+
+    private void checkRandomUpdates(boolean isLazy) {
+        InspectableMemory memory = new InspectableMemory(isLazy);
+        List<Tuple> tuples = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            tuples.add(Tuples.staticArityFlatTupleOf(i));
+        }
+        Random random = new Random(isLazy ? 7 : 3);
+        for (int i = 0; i < 2000; i++) {
+            Tuple tuple = tuples.get(random.nextInt(tuples.size()));
+            // few timestamps, so that tuples often switch representation
+            int timestamp = random.nextInt(4);
+            if (random.nextBoolean() && canRemove(tuple, timestamp)) {
+                update(memory, tuple, timestamp, -1);
+            } else {
+                update(memory, tuple, timestamp, +1);
+            }
+            if (isLazy) {
+                memory.foldAll();
+            }
+            assertConsistent(memory, tuples);
+        }
+    }
+
+    @Test
+    public void eagerMemoryMatchesNetDiffs() {
+        checkRandomUpdates(false);
+    }
+
+    @Test
+    public void lazyMemoryMatchesNetDiffs() {
+        checkRandomUpdates(true);
+    }
+
+    @Test
+    public void representationSwitchesBackAndForth() {
+        InspectableMemory memory = new InspectableMemory(false);
+        memory.put(T, 1);
+        assertTrue(memory.hasPlainCounter(T));
+        memory.put(T, 5);
+        assertTrue(memory.hasSortedCounters(T));
+        assertFalse(memory.hasPlainCounter(T));
+        memory.remove(T, 5);
+        // the remaining counter keeps its cumulative count after switching back
+        assertTrue(memory.hasPlainCounter(T));
+        assertFalse(memory.hasSortedCounters(T));
+        memory.put(T, 3);
+        memory.remove(T, 3);
+        assertTrue(memory.isPresentAtInfinity(T));
+        memory.remove(T, 1);
+        assertFalse(memory.containsKey(T));
+        assertNull(memory.get(T));
+        assertTrue(memory.isEmpty());
+    }
+
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.AdaptiveCallDelegation;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.AdaptiveCallDelegationStrategy;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchBackend;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchEMFBackendFactory;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHints;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryResultProvider;
+import org.eclipse.viatra.query.runtime.matchers.psystem.PVariable;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteBackendFactory;
+import org.eclipse.viatra.query.runtime.tests.util.TestQueries;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the promotion and demotion of called patterns by {@link AdaptiveCallDelegationStrategy}.
+ */
+public class AdaptiveCallDelegationTest {
+
+    private static final PQuery SUPER_TYPE = TestQueries.query("test.superType", Arrays.asList("c", "s"),
+            (body, p) -> TestQueries.feature(body, p[0], p[1], EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+    private static final PQuery GRAND_SUPER_TYPE = TestQueries.query("test.grandSuperType", Arrays.asList("c", "g"),
+            (body, p) -> {
+                PVariable s = body.getOrCreateVariableByName("s");
+                TestQueries.call(body, SUPER_TYPE, p[0], s);
+                TestQueries.call(body, SUPER_TYPE, s, p[1]);
+            });
+
+    /**
+     * Promotes patterns after their first call, and reports a heap usage set by the test.
+     */
+    private static class TestStrategy extends AdaptiveCallDelegationStrategy {
+        private double heapUsageRatio = 0;
+
+        TestStrategy() {
+            super(ReteBackendFactory.INSTANCE, 1, 0, 0.9, 0.7);
+        }
+
+        @Override
+        protected double getHeapUsageRatio() {
+            return heapUsageRatio;
+        }
+    }
+
+    private ResourceSet model;
+    private AdvancedViatraQueryEngine engine;
+    private TestStrategy strategy;
+    private IQueryResultProvider provider;
+    private AdaptiveCallDelegation delegation;
+
+    @Before
+    public void setUp() {
+        model = TestQueries.createClassChainModel(5);
+        engine = TestQueries.createEngine(model);
+        strategy = new TestStrategy();
+        LocalSearchBackend backend = (LocalSearchBackend) engine.getQueryBackend(LocalSearchEMFBackendFactory.INSTANCE);
+        provider = backend.getResultProvider(GRAND_SUPER_TYPE,
+                LocalSearchHints.getAdaptiveHybrid(ReteBackendFactory.INSTANCE).setCallDelegationStrategy(strategy).build());
+        delegation = backend.getAdaptiveCallDelegation(strategy);
+    }
+
+    @After
+    public void tearDown() {
+        engine.dispose();
+    }
+
+    private EClass eClass(int index) {
+        return (EClass) TestQueries.getPackage(model).getEClassifier("C" + index);
+    }
+
+    private Set<Tuple> getMatches() {
+        return provider.getAllMatches(new Object[2]).collect(Collectors.toSet());
+    }
+
+    private Set<Tuple> expectedMatches(int classCount) {
+        return IntStream.range(2, classCount)
+                .mapToObj(i -> Tuples.staticArityFlatTupleOf(eClass(i), eClass(i - 2))).collect(Collectors.toSet());
+    }
+
+    /**
+     * Evaluates the caller pattern until the memory pressure is checked.
+     */
+    private void evaluateUntilMemoryCheck(int classCount) {
+        for (int i = 0; i < 1024; i++) {
+            assertEquals(expectedMatches(classCount), getMatches());
+        }
+    }
+
+    @Test
+    public void calledPatternPromotedAndMaintained() {
+        assertEquals(expectedMatches(5), getMatches());
+        assertEquals(expectedMatches(5), getMatches());
+        assertEquals(Collections.singleton(SUPER_TYPE), delegation.getPromotedQueries());
+
+        EPackage ePackage = TestQueries.getPackage(model);
+        EClass newClass = EcoreFactory.eINSTANCE.createEClass();
+        newClass.setName("C5");
+        newClass.getESuperTypes().add(eClass(4));
+        ePackage.getEClassifiers().add(newClass);
+
+        assertEquals(expectedMatches(6), getMatches());
+    }
+
+    @Test
+    public void demotionSuspendsPromotionUntilPressureDrops() {
+        getMatches();
+        getMatches();
+        assertFalse(delegation.getPromotedQueries().isEmpty());
+
+        strategy.heapUsageRatio = 0.95;
+        evaluateUntilMemoryCheck(5);
+        assertTrue(delegation.isPromotionSuspended());
+        assertTrue(delegation.getPromotedQueries().isEmpty());
+
+        // within the hysteresis band, patterns are not promoted again
+        strategy.heapUsageRatio = 0.8;
+        evaluateUntilMemoryCheck(5);
+        assertTrue(delegation.isPromotionSuspended());
+        assertTrue(delegation.getPromotedQueries().isEmpty());
+
+        strategy.heapUsageRatio = 0.5;
+        evaluateUntilMemoryCheck(5);
+        assertFalse(delegation.isPromotionSuspended());
+        assertEquals(Collections.singleton(SUPER_TYPE), delegation.getPromotedQueries());
+    }
+
+    @Test
+    public void promotionDeferredUntilStreamClosed() {
+        try (Stream<Tuple> matches = provider.getAllMatches(new Object[2])) {
+            Iterator<Tuple> iterator = matches.iterator();
+            Set<Tuple> result = new HashSet<>();
+            while (result.size() < expectedMatches(5).size()) {
+                result.add(iterator.next());
+            }
+            // the called pattern is due, but the search of the caller has not ended
+            assertTrue(delegation.getPromotedQueries().isEmpty());
+        }
+        assertEquals(Collections.singleton(SUPER_TYPE), delegation.getPromotedQueries());
+        assertEquals(expectedMatches(5), getMatches());
+    }
+
+    @Test
+    public void demotionDeferredUntilStreamConsumed() {
+        getMatches();
+        assertFalse(delegation.getPromotedQueries().isEmpty());
+
+        Iterator<Tuple> matches = provider.getAllMatches(new Object[2]).iterator();
+        Set<Tuple> result = new HashSet<>();
+        result.add(matches.next());
+        strategy.heapUsageRatio = 0.95;
+        evaluateUntilMemoryCheck(5);
+        assertTrue(delegation.isPromotionSuspended());
+        // the open stream still reads the caching backend
+        assertFalse(delegation.getPromotedQueries().isEmpty());
+
+        matches.forEachRemaining(result::add);
+        assertEquals(expectedMatches(5), result);
+        assertTrue(delegation.getPromotedQueries().isEmpty());
+    }
+
+}
@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.AsyncMatchUpdateListener;
+import org.eclipse.viatra.query.runtime.api.AsyncMatchUpdateListener.OverflowPolicy;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatch;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.api.IMatchUpdateListener;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.tests.util.TestQueries;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the delivery of match updates by {@link AsyncMatchUpdateListener}.
+ */
+public class AsyncMatchUpdateListenerTest {
+
+    private static final PQuery SUPER_TYPE = TestQueries.query("test.superType", Arrays.asList("c", "s"),
+            (body, p) -> TestQueries.feature(body, p[0], p[1], EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+
+    /**
+     * Records the notifications it receives as strings, e.g. <code>+C1</code> for the appearance of the match of
+     * <code>C1</code>.
+     */
+    private static final class RecordingListener implements IMatchUpdateListener<GenericPatternMatch> {
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void notifyAppearance(GenericPatternMatch match) {
+            events.add("+" + ((EClass) match.get(0)).getName());
+        }
+
+        @Override
+        public void notifyDisappearance(GenericPatternMatch match) {
+            events.add("-" + ((EClass) match.get(0)).getName());
+        }
+    }
+
+    /**
+     * Executes tasks only when requested
+     */
+    private static final class ManualExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+
+    private ResourceSet model;
+    private AdvancedViatraQueryEngine engine;
+    private GenericPatternMatcher matcher;
+
+    @Before
+    public void setUp() {
+        model = TestQueries.createClassChainModel(5);
+        engine = TestQueries.createEngine(model);
+        matcher = engine.getMatcher(TestQueries.specification(SUPER_TYPE));
+    }
+
+    @After
+    public void tearDown() {
+        engine.dispose();
+    }
+
+    private EClass eClass(int index) {
+        return (EClass) TestQueries.getPackage(model).getEClassifier("C" + index);
+    }
+
+    private GenericPatternMatch match(int index) {
+        return matcher.newMatch(eClass(index), eClass(index - 1));
+    }
+
+    @Test
+    public void notificationsDeliveredInOrder() throws InterruptedException {
+        RecordingListener expected = new RecordingListener();
+        RecordingListener delegate = new RecordingListener();
+        engine.addMatchUpdateListener(matcher, expected, true);
+        AsyncMatchUpdateListener<GenericPatternMatch> listener = engine.addAsyncMatchUpdateListener(matcher,
+                delegate, true, null, 4, OverflowPolicy.BLOCK);
+        try {
+            for (int i = 0; i < 20; i++) {
+                EClass newClass = EcoreFactory.eINSTANCE.createEClass();
+                newClass.setName("N" + i);
+                newClass.getESuperTypes().add(eClass(i % 5));
+                TestQueries.getPackage(model).getEClassifiers().add(newClass);
+                if (i % 3 == 0) {
+                    newClass.getESuperTypes().clear();
+                }
+            }
+            assertTrue(listener.awaitDelivery(10, TimeUnit.SECONDS));
+            assertEquals(0, listener.getPendingCount());
+            assertEquals(expected.events, delegate.events);
+        } finally {
+            engine.removeMatchUpdateListener(matcher, expected);
+            engine.removeMatchUpdateListener(matcher, listener);
+            listener.close();
+        }
+    }
+
+    @Test
+    public void coalescedNotificationsCancelOut() {
+        RecordingListener delegate = new RecordingListener();
+        ManualExecutor executor = new ManualExecutor();
+        AsyncMatchUpdateListener<GenericPatternMatch> listener = new AsyncMatchUpdateListener<>(delegate, executor,
+                2, OverflowPolicy.COALESCE);
+        listener.notifyAppearance(match(1));
+        listener.notifyAppearance(match(2));
+        listener.notifyDisappearance(match(1));
+        assertEquals(1, listener.getPendingCount());
+        // the buffer is compacted instead of blocking
+        listener.notifyAppearance(match(3));
+        assertEquals(2, listener.getPendingCount());
+        executor.runAll();
+        listener.notifyDisappearance(match(3));
+        executor.runAll();
+        assertEquals(Arrays.asList("+C2", "+C3", "-C3"), delegate.events);
+        listener.close();
+    }
+
+    @Test
+    public void fullBufferBlocksPropagation() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingListener recorder = new RecordingListener();
+        IMatchUpdateListener<GenericPatternMatch> delegate = new IMatchUpdateListener<GenericPatternMatch>() {
+            @Override
+            public void notifyAppearance(GenericPatternMatch match) {
+                awaitUninterruptibly(release);
+                recorder.notifyAppearance(match);
+            }
+
+            @Override
+            public void notifyDisappearance(GenericPatternMatch match) {
+                recorder.notifyDisappearance(match);
+            }
+        };
+        AsyncMatchUpdateListener<GenericPatternMatch> listener = new AsyncMatchUpdateListener<>(delegate, 1,
+                OverflowPolicy.BLOCK);
+        CountDownLatch produced = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            for (int i = 1; i < 5; i++) {
+                listener.notifyAppearance(match(i));
+            }
+            produced.countDown();
+        });
+        producer.start();
+        // the delivery thread holds one notification and the buffer another one
+        assertFalse(produced.await(200, TimeUnit.MILLISECONDS));
+        assertTrue(listener.getPendingCount() <= 1);
+        release.countDown();
+        assertTrue(produced.await(10, TimeUnit.SECONDS));
+        assertTrue(listener.awaitDelivery(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("+C1", "+C2", "+C3", "+C4"), recorder.events);
+        listener.close();
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void failingDelegateDoesNotStopDelivery() {
+        RecordingListener recorder = new RecordingListener();
+        IMatchUpdateListener<GenericPatternMatch> delegate = new IMatchUpdateListener<GenericPatternMatch>() {
+            @Override
+            public void notifyAppearance(GenericPatternMatch match) {
+                recorder.notifyAppearance(match);
+                throw new IllegalStateException("Expected failure");
+            }
+
+            @Override
+            public void notifyDisappearance(GenericPatternMatch match) {
+                recorder.notifyDisappearance(match);
+            }
+        };
+        ManualExecutor executor = new ManualExecutor();
+        AsyncMatchUpdateListener<GenericPatternMatch> listener = new AsyncMatchUpdateListener<>(delegate, executor,
+                8, OverflowPolicy.BLOCK);
+        listener.notifyAppearance(match(1));
+        listener.notifyDisappearance(match(1));
+        executor.runAll();
+        assertEquals(Arrays.asList("+C1", "-C1"), recorder.events);
+        listener.close();
+    }
+
+    @Test
+    public void closedListenerDeliversQueuedNotificationsOnly() {
+        RecordingListener delegate = new RecordingListener();
+        ManualExecutor executor = new ManualExecutor();
+        AsyncMatchUpdateListener<GenericPatternMatch> listener = new AsyncMatchUpdateListener<>(delegate, executor,
+                8, OverflowPolicy.BLOCK);
+        listener.notifyAppearance(match(1));
+        listener.close();
+        listener.notifyAppearance(match(2));
+        executor.runAll();
+        assertEquals(Collections.singletonList("+C1"), delegate.events);
+    }
+
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature.Setting;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.viatra.query.runtime.base.api.BaseIndexOptions;
+import org.eclipse.viatra.query.runtime.base.api.IndexingLevel;
+import org.eclipse.viatra.query.runtime.base.api.NavigationHelper;
+import org.eclipse.viatra.query.runtime.base.api.ViatraBaseFactory;
+import org.eclipse.viatra.query.runtime.tests.util.TestQueries;
+import org.junit.Test;
+
+/**
+ * Compares the base index results of the compact feature storage mode to the default mode while the model changes.
+ */
+public class CompactFeatureStorageTest {
+
+    private static final EReference SUPER_TYPES = EcorePackage.Literals.ECLASS__ESUPER_TYPES;
+
+    private static NavigationHelper createIndex(ResourceSet model, boolean compact) {
+        BaseIndexOptions options = new BaseIndexOptions().withWildcardLevel(IndexingLevel.FULL)
+                .withCompactFeatureStorage(compact);
+        return ViatraBaseFactory.getInstance().createNavigationHelper(model, options,
+                Logger.getLogger(CompactFeatureStorageTest.class));
+    }
+
+    private static void assertSameResults(NavigationHelper expected, NavigationHelper actual, List<EClass> classes) {
+        assertEquals(expected.getHoldersOfFeature(SUPER_TYPES), actual.getHoldersOfFeature(SUPER_TYPES));
+        assertEquals(expected.getValuesOfFeature(SUPER_TYPES), actual.getValuesOfFeature(SUPER_TYPES));
+        assertEquals(expected.getValuesOfFeature(EcorePackage.Literals.ENAMED_ELEMENT__NAME),
+                actual.getValuesOfFeature(EcorePackage.Literals.ENAMED_ELEMENT__NAME));
+        for (EClass eClass : classes) {
+            assertEquals(new HashSet<>(expected.getInverseReferences(eClass, SUPER_TYPES)),
+                    new HashSet<>(actual.getInverseReferences(eClass, SUPER_TYPES)));
+            assertEquals(new HashSet<>(expected.getFeatureTargets(eClass, SUPER_TYPES)),
+                    new HashSet<>(actual.getFeatureTargets(eClass, SUPER_TYPES)));
+        }
+        assertEquals(holders(expected.findByAttributeValue("C3")), holders(actual.findByAttributeValue("C3")));
+    }
+
+    private static Set<EObject> holders(Set<Setting> settings) {
+        return settings.stream().map(Setting::getEObject).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void compactStorageReturnsSameResults() {
+        ResourceSet model = TestQueries.createClassChainModel(20);
+        EPackage ePackage = TestQueries.getPackage(model);
+        List<EClass> classes = new ArrayList<>();
+        ePackage.getEClassifiers().forEach(classifier -> classes.add((EClass) classifier));
+        NavigationHelper expected = createIndex(model, false);
+        NavigationHelper actual = createIndex(model, true);
+        try {
+            assertSameResults(expected, actual, classes);
+            // a value with many holders is stored in a hash bucket instead of an array in compact mode
+            for (int i = 2; i < 20; i++) {
+                classes.get(i).getESuperTypes().add(classes.get(0));
+            }
+            Random random = new Random(42);
+            for (int i = 0; i < 500; i++) {
+                EClass eClass = classes.get(random.nextInt(classes.size()));
+                switch (random.nextInt(4)) {
+                case 0:
+                    eClass.setName("C" + random.nextInt(10));
+                    break;
+                case 1:
+                    if (!eClass.getESuperTypes().isEmpty()) {
+                        eClass.getESuperTypes().remove(0);
+                    }
+                    break;
+                case 2:
+                    EClass newClass = EcoreFactory.eINSTANCE.createEClass();
+                    newClass.getESuperTypes().add(eClass);
+                    ePackage.getEClassifiers().add(newClass);
+                    classes.add(newClass);
+                    break;
+                default:
+                    eClass.getESuperTypes().add(classes.get(random.nextInt(classes.size())));
+                    break;
+                }
+            }
+            assertSameResults(expected, actual, classes);
+        } finally {
+            expected.dispose();
+            actual.dispose();
+        }
+    }
+
+}
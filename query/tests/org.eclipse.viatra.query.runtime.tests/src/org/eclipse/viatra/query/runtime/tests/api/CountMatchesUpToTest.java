@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.ILocalSearchAdaptable;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.ILocalSearchAdapter;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.LocalSearchMatcher;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchBackend;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchEMFBackendFactory;
+import org.eclipse.viatra.query.runtime.localsearch.plan.SearchPlanExecutor;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryResultProvider;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.tests.util.TestQueries;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link IQueryResultProvider#countMatchesUpTo(Object[], int)} of the local search backend, including the
+ * notifications of search adapters when the search is stopped at the limit.
+ */
+public class CountMatchesUpToTest {
+
+    private static final PQuery SUPER_TYPE = TestQueries.query("test.superType", Arrays.asList("c", "s"),
+            (body, p) -> TestQueries.feature(body, p[0], p[1], EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+
+    /**
+     * Counts the started and finished searches, and the plans the adapter is registered to.
+     */
+    private static class CountingAdapter implements ILocalSearchAdapter {
+        int started;
+        int finished;
+        int planRegistrations;
+
+        @Override
+        public void adapterRegistered(ILocalSearchAdaptable adaptable) {
+            if (adaptable instanceof SearchPlanExecutor) {
+                planRegistrations++;
+            }
+        }
+
+        @Override
+        public void adapterUnregistered(ILocalSearchAdaptable adaptable) {
+            if (adaptable instanceof SearchPlanExecutor) {
+                planRegistrations--;
+            }
+        }
+
+        @Override
+        public void patternMatchingStarted(LocalSearchMatcher lsMatcher) {
+            started++;
+        }
+
+        @Override
+        public void noMoreMatchesAvailable(LocalSearchMatcher lsMatcher) {
+            finished++;
+        }
+    }
+
+    private ResourceSet model;
+    private AdvancedViatraQueryEngine engine;
+    private IQueryResultProvider provider;
+    private CountingAdapter adapter;
+
+    @Before
+    public void setUp() {
+        model = TestQueries.createClassChainModel(5);
+        engine = TestQueries.createEngine(model);
+        LocalSearchBackend backend = (LocalSearchBackend) engine.getQueryBackend(LocalSearchEMFBackendFactory.INSTANCE);
+        provider = backend.getResultProvider(SUPER_TYPE);
+        adapter = new CountingAdapter();
+        backend.addAdapter(adapter);
+    }
+
+    @After
+    public void tearDown() {
+        engine.dispose();
+    }
+
+    @Test
+    public void countStopsAtLimit() {
+        assertEquals(0, provider.countMatchesUpTo(new Object[2], 0));
+        assertEquals(2, provider.countMatchesUpTo(new Object[2], 2));
+        assertEquals(4, provider.countMatchesUpTo(new Object[2], 10));
+        assertTrue(provider.hasMatch(new Object[2]));
+        assertFalse(provider.hasMatch(new Object[] { null, TestQueries.getPackage(model).getEClassifier("C4") }));
+    }
+
+    @Test
+    public void adaptersNotifiedOnEarlyExit() {
+        provider.countMatchesUpTo(new Object[2], 2);
+        assertEquals(1, adapter.started);
+        assertEquals(1, adapter.finished);
+
+        provider.countMatchesUpTo(new Object[2], 10);
+        assertEquals(2, adapter.started);
+        assertEquals(2, adapter.finished);
+    }
+
+    @Test
+    public void adaptersUnregisteredWhenActionFails() {
+        try {
+            provider.forEachMatch(new Object[2], match -> {
+                throw new IllegalStateException();
+            });
+            fail("The exception of the action is not propagated");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        // the pooled plan is not left with the adapter registered
+        assertEquals(0, adapter.planRegistrations);
+        assertEquals(4, provider.countMatches(new Object[2]));
+        assertEquals(0, adapter.planRegistrations);
+    }
+
+}
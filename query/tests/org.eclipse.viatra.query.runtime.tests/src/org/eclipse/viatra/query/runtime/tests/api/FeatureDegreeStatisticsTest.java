@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.viatra.query.runtime.base.api.BaseIndexOptions;
+import org.eclipse.viatra.query.runtime.base.api.FeatureStatistics;
+import org.eclipse.viatra.query.runtime.base.api.IndexingLevel;
+import org.eclipse.viatra.query.runtime.base.api.NavigationHelper;
+import org.eclipse.viatra.query.runtime.base.api.ViatraBaseFactory;
+import org.eclipse.viatra.query.runtime.tests.util.TestQueries;
+import org.junit.Test;
+
+/**
+ * Compares the degree statistics maintained by the base index to the degrees computed from the model.
+ */
+public class FeatureDegreeStatisticsTest {
+
+    private static final EReference SUPER_TYPES = EcorePackage.Literals.ECLASS__ESUPER_TYPES;
+
+    private static NavigationHelper createIndex(ResourceSet model, boolean featureDegreeStatistics) {
+        BaseIndexOptions options = new BaseIndexOptions().withFeatureDegreeStatistics(featureDegreeStatistics);
+        NavigationHelper index = ViatraBaseFactory.getInstance().createNavigationHelper(model, options,
+                Logger.getLogger(FeatureDegreeStatisticsTest.class));
+        index.registerEStructuralFeatures(Collections.singleton(SUPER_TYPES), IndexingLevel.STATISTICS);
+        return index;
+    }
+
+    private static List<EClass> getClasses(ResourceSet model) {
+        List<EClass> classes = new ArrayList<>();
+        for (EClassifier classifier : TestQueries.getPackage(model).getEClassifiers()) {
+            classes.add((EClass) classifier);
+        }
+        return classes;
+    }
+
+    private static int[] logarithmicHistogram(Map<EClass, Integer> degrees) {
+        int maxDegree = degrees.values().stream().mapToInt(Integer::intValue).max().orElse(0);
+        int[] histogram = new int[32 - Integer.numberOfLeadingZeros(maxDegree)];
+        for (int degree : degrees.values()) {
+            histogram[31 - Integer.numberOfLeadingZeros(degree)]++;
+        }
+        return histogram;
+    }
+
+    private static void assertStatistics(List<EClass> classes, FeatureStatistics statistics) {
+        Map<EClass, Integer> outDegrees = new HashMap<>();
+        Map<EClass, Integer> inDegrees = new HashMap<>();
+        int instanceCount = 0;
+        for (EClass eClass : classes) {
+            for (EClass superType : eClass.getESuperTypes()) {
+                outDegrees.merge(eClass, 1, Integer::sum);
+                inDegrees.merge(superType, 1, Integer::sum);
+                instanceCount++;
+            }
+        }
+        assertEquals(instanceCount, statistics.getInstanceCount());
+        assertEquals(outDegrees.size(), statistics.getSourceCount());
+        assertEquals(inDegrees.size(), statistics.getTargetCount());
+        assertEquals(outDegrees.values().stream().mapToInt(Integer::intValue).max().orElse(0),
+                statistics.getMaxOutDegree());
+        assertEquals(inDegrees.values().stream().mapToInt(Integer::intValue).max().orElse(0),
+                statistics.getMaxInDegree());
+        assertEquals(outDegrees.isEmpty() ? 0.0 : ((double) instanceCount) / outDegrees.size(),
+                statistics.getAverageOutDegree(), 1e-9);
+        assertEquals(inDegrees.isEmpty() ? 0.0 : ((double) instanceCount) / inDegrees.size(),
+                statistics.getAverageInDegree(), 1e-9);
+        assertArrayEquals(logarithmicHistogram(outDegrees), statistics.getOutDegreeHistogram());
+        assertArrayEquals(logarithmicHistogram(inDegrees), statistics.getInDegreeHistogram());
+    }
+
+    @Test
+    public void initialStatisticsMatchModel() {
+        ResourceSet model = TestQueries.createClassChainModel(10);
+        NavigationHelper index = createIndex(model, true);
+        try {
+            FeatureStatistics statistics = index.getFeatureStatistics(SUPER_TYPES);
+            assertEquals(9, statistics.getSourceCount());
+            assertEquals(1, statistics.getMaxInDegree());
+            assertStatistics(getClasses(model), statistics);
+        } finally {
+            index.dispose();
+        }
+    }
+
+    @Test
+    public void statisticsFollowModelChanges() {
+        ResourceSet model = TestQueries.createClassChainModel(12);
+        NavigationHelper index = createIndex(model, true);
+        try {
+            List<EClass> classes = getClasses(model);
+            Random random = new Random(11);
+            for (int i = 0; i < 500; i++) {
+                EClass eClass = classes.get(random.nextInt(classes.size()));
+                EClass superType = classes.get(random.nextInt(classes.size()));
+                // mostly removals when the class already has a few super types, so degrees go down as well as up
+                if (eClass.getESuperTypes().size() > random.nextInt(4)) {
+                    eClass.getESuperTypes().remove(random.nextInt(eClass.getESuperTypes().size()));
+                } else if (eClass != superType && !eClass.getESuperTypes().contains(superType)) {
+                    eClass.getESuperTypes().add(superType);
+                }
+                assertStatistics(classes, index.getFeatureStatistics(SUPER_TYPES));
+            }
+        } finally {
+            index.dispose();
+        }
+    }
+
+    @Test
+    public void removedHubLowersMaxDegree() {
+        ResourceSet model = TestQueries.createClassChainModel(6);
+        NavigationHelper index = createIndex(model, true);
+        try {
+            List<EClass> classes = getClasses(model);
+            EClass hub = classes.get(0);
+            for (EClass eClass : classes.subList(2, classes.size())) {
+                eClass.getESuperTypes().add(hub);
+            }
+            assertEquals(5, index.getFeatureStatistics(SUPER_TYPES).getMaxInDegree());
+            EPackage ePackage = TestQueries.getPackage(model);
+            for (EClass eClass : classes.subList(2, classes.size())) {
+                ePackage.getEClassifiers().remove(eClass);
+            }
+            FeatureStatistics statistics = index.getFeatureStatistics(SUPER_TYPES);
+            assertEquals(1, statistics.getMaxInDegree());
+            assertStatistics(classes.subList(0, 2), statistics);
+        } finally {
+            index.dispose();
+        }
+    }
+
+    @Test
+    public void disabledStatisticsNotAvailable() {
+        NavigationHelper index = createIndex(TestQueries.createClassChainModel(3), false);
+        try {
+            assertNull(index.getFeatureStatistics(SUPER_TYPES));
+        } finally {
+            index.dispose();
+        }
+    }
+
+}
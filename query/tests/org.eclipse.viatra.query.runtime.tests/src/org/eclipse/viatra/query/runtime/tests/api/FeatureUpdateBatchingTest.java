@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.ENamedElement;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.api.GenericQuerySpecification;
+import org.eclipse.viatra.query.runtime.base.api.BaseIndexOptions;
+import org.eclipse.viatra.query.runtime.base.api.FeatureListener;
+import org.eclipse.viatra.query.runtime.base.api.IndexingLevel;
+import org.eclipse.viatra.query.runtime.base.api.NavigationHelper;
+import org.eclipse.viatra.query.runtime.base.api.ViatraBaseFactory;
+import org.eclipse.viatra.query.runtime.matchers.backend.QueryEvaluationHint;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteBackendFactory;
+import org.eclipse.viatra.query.runtime.tests.util.TestQueries;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the batching of feature instance updates in the base index, directly and through a query engine.
+ */
+public class FeatureUpdateBatchingTest {
+
+    private static final Set<EStructuralFeature> FEATURES = new HashSet<>(Arrays.asList(
+            EcorePackage.Literals.ECLASS__ESUPER_TYPES, EcorePackage.Literals.ENAMED_ELEMENT__NAME,
+            EcorePackage.Literals.EPACKAGE__ECLASSIFIERS));
+
+    private ResourceSet model;
+    private EPackage subPackage;
+    private NavigationHelper index;
+    private final List<String> notifications = new ArrayList<>();
+
+    private final FeatureListener listener = new FeatureListener() {
+        @Override
+        public void featureInserted(EObject host, EStructuralFeature feature, Object value) {
+            notifications.add("+" + describe(host, feature, value));
+        }
+
+        @Override
+        public void featureDeleted(EObject host, EStructuralFeature feature, Object value) {
+            notifications.add("-" + describe(host, feature, value));
+        }
+    };
+
+    private static String describe(EObject host, EStructuralFeature feature, Object value) {
+        Object valueName = value instanceof ENamedElement ? ((ENamedElement) value).getName() : value;
+        return ((ENamedElement) host).getName() + "." + feature.getName() + "=" + valueName;
+    }
+
+    @Before
+    public void setUp() {
+        model = TestQueries.createClassChainModel(5);
+        subPackage = EcoreFactory.eINSTANCE.createEPackage();
+        subPackage.setName("sub");
+        TestQueries.getPackage(model).getESubpackages().add(subPackage);
+        index = ViatraBaseFactory.getInstance().createNavigationHelper(model, new BaseIndexOptions(),
+                Logger.getLogger(getClass()));
+        index.registerEStructuralFeatures(FEATURES, IndexingLevel.FULL);
+        index.addFeatureListener(FEATURES, listener);
+    }
+
+    @After
+    public void tearDown() {
+        index.removeFeatureListener(FEATURES, listener);
+        index.dispose();
+    }
+
+    private EClass eClass(int i) {
+        return (EClass) TestQueries.getPackage(model).getEClassifier("C" + i);
+    }
+
+    private boolean isNameIndexed(EObject holder, String name) {
+        return index.isFeatureInstance(holder, name, EcorePackage.Literals.ENAMED_ELEMENT__NAME);
+    }
+
+    @Test
+    public void cancellingChangesNotDelivered() throws InvocationTargetException {
+        EClass c1 = eClass(1);
+        EClass c2 = eClass(2);
+        index.batchFeatureUpdates(() -> {
+            c1.setName("X");
+            c1.setName("C1");
+            c2.getESuperTypes().remove(c1);
+            c2.getESuperTypes().add(c1);
+            return null;
+        });
+        assertEquals(Collections.emptyList(), notifications);
+        assertTrue(isNameIndexed(c1, "C1"));
+        assertFalse(isNameIndexed(c1, "X"));
+        assertEquals(Collections.singleton(c2),
+                index.getInverseReferences(c1, EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+    }
+
+    @Test
+    public void netChangesDeliveredAfterBatch() throws InvocationTargetException {
+        EClass c1 = eClass(1);
+        index.batchFeatureUpdates(() -> {
+            c1.setName("X");
+            c1.setName("Y");
+            // the buffered changes are not visible yet
+            assertTrue(isNameIndexed(c1, "C1"));
+            assertFalse(isNameIndexed(c1, "Y"));
+            assertEquals(Collections.emptyList(), notifications);
+            return null;
+        });
+        assertEquals(Arrays.asList("-Y.name=C1", "+Y.name=Y"), notifications);
+        assertFalse(isNameIndexed(c1, "C1"));
+        assertTrue(isNameIndexed(c1, "Y"));
+    }
+
+    @Test
+    public void subtreeMoveDeliversOnlyContainmentChange() throws InvocationTargetException {
+        EClass moved = eClass(2);
+        index.batchFeatureUpdates(() -> {
+            subPackage.getEClassifiers().add(moved);
+            return null;
+        });
+        // the features of the moved class are removed and re-inserted by the move, which cancel each other out
+        assertEquals(Arrays.asList("-test.eClassifiers=C2", "+sub.eClassifiers=C2"), notifications);
+        assertTrue(isNameIndexed(moved, "C2"));
+        assertEquals(Collections.singleton(eClass(1)),
+                index.getFeatureTargets(moved, EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+        assertEquals(Collections.singleton(subPackage),
+                index.getInverseReferences(moved, EcorePackage.Literals.EPACKAGE__ECLASSIFIERS));
+
+        // the same move without batching delivers the changes of the subtree as well
+        notifications.clear();
+        TestQueries.getPackage(model).getEClassifiers().add(moved);
+        assertTrue(notifications.contains("-C2.name=C2"));
+        assertTrue(notifications.contains("+C2.name=C2"));
+    }
+
+    @Test
+    public void nestedBatchesAppliedByOutermost() throws InvocationTargetException {
+        EClass c1 = eClass(1);
+        EClass c2 = eClass(2);
+        index.batchFeatureUpdates(() -> {
+            c1.setName("X");
+            index.batchFeatureUpdates(() -> {
+                c2.setName("Y");
+                return null;
+            });
+            // the inner batch does not apply the changes
+            assertTrue(isNameIndexed(c2, "C2"));
+            assertFalse(isNameIndexed(c2, "Y"));
+            assertEquals(Collections.emptyList(), notifications);
+            c2.setName("C2");
+            return null;
+        });
+        assertEquals(Arrays.asList("-X.name=C1", "+X.name=X"), notifications);
+        assertTrue(isNameIndexed(c1, "X"));
+        assertTrue(isNameIndexed(c2, "C2"));
+    }
+
+    @Test
+    public void failedBatchStillApplied() {
+        EClass c1 = eClass(1);
+        IllegalStateException failure = new IllegalStateException();
+        try {
+            index.batchFeatureUpdates(() -> {
+                c1.setName("X");
+                throw failure;
+            });
+            fail("The exception of the callable was not propagated");
+        } catch (InvocationTargetException e) {
+            assertSame(failure, e.getCause());
+        }
+        // the model has been modified, so the buffered changes are applied
+        assertEquals(Arrays.asList("-X.name=C1", "+X.name=X"), notifications);
+        assertTrue(isNameIndexed(c1, "X"));
+
+        // batching has ended, later changes are applied immediately
+        notifications.clear();
+        c1.setName("C1");
+        assertEquals(Arrays.asList("-C1.name=X", "+C1.name=C1"), notifications);
+        assertTrue(isNameIndexed(c1, "C1"));
+    }
+
+    @Test
+    public void batchedThroughQueryEngine() throws InvocationTargetException {
+        GenericQuerySpecification<GenericPatternMatcher> subTypes = TestQueries.specification(TestQueries.query(
+                "test.subTypes", Arrays.asList("s", "c"),
+                (body, p) -> TestQueries.feature(body, p[1], p[0], EcorePackage.Literals.ECLASS__ESUPER_TYPES)));
+        EClass moved = eClass(3);
+        AdvancedViatraQueryEngine engine = TestQueries.createEngine(model);
+        try {
+            GenericPatternMatcher matcher = engine.getMatcher(subTypes,
+                    new QueryEvaluationHint(null, ReteBackendFactory.INSTANCE));
+            assertEquals(4, matcher.countMatches());
+            engine.getBaseIndex().batchFeatureUpdates(() -> {
+                eClass(2).getESuperTypes().clear();
+                eClass(2).getESuperTypes().add(eClass(0));
+                subPackage.getEClassifiers().add(moved);
+                return null;
+            });
+            assertEquals(4, matcher.countMatches());
+            assertEquals(1, matcher.countMatches(matcher.newMatch(moved, null)));
+            assertEquals(2, matcher.countMatches(matcher.newMatch(eClass(0), null)));
+        } finally {
+            engine.dispose();
+        }
+    }
+}
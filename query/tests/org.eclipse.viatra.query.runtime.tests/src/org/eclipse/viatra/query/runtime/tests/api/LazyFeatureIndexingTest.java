@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.api.GenericQuerySpecification;
+import org.eclipse.viatra.query.runtime.base.api.BaseIndexOptions;
+import org.eclipse.viatra.query.runtime.base.api.FeatureListener;
+import org.eclipse.viatra.query.runtime.base.api.IndexingLevel;
+import org.eclipse.viatra.query.runtime.base.api.NavigationHelper;
+import org.eclipse.viatra.query.runtime.base.api.ViatraBaseFactory;
+import org.eclipse.viatra.query.runtime.emf.EMFScope;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHints;
+import org.eclipse.viatra.query.runtime.matchers.backend.QueryEvaluationHint;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteBackendFactory;
+import org.eclipse.viatra.query.runtime.tests.util.TestQueries;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the base index in lazy feature indexing mode, directly and through a query engine.
+ */
+public class LazyFeatureIndexingTest {
+
+    private static final Set<EStructuralFeature> FEATURES = new HashSet<>(Arrays.asList(
+            EcorePackage.Literals.ECLASS__ESUPER_TYPES, EcorePackage.Literals.ENAMED_ELEMENT__NAME));
+
+    private ResourceSet model;
+    private NavigationHelper index;
+
+    @Before
+    public void setUp() {
+        model = TestQueries.createClassChainModel(5);
+        index = ViatraBaseFactory.getInstance().createNavigationHelper(model,
+                new BaseIndexOptions().withLazyFeatureIndexing(true), Logger.getLogger(getClass()));
+        index.registerEStructuralFeatures(FEATURES, IndexingLevel.FULL);
+    }
+
+    @After
+    public void tearDown() {
+        index.dispose();
+    }
+
+    private EClass eClass(int i) {
+        return (EClass) TestQueries.getPackage(model).getEClassifier("C" + i);
+    }
+
+    @Test
+    public void forwardNavigationReadsModel() {
+        assertEquals(0, index.countIndexEntries());
+        assertEquals(Collections.singleton(eClass(0)),
+                index.getFeatureTargets(eClass(1), EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+        assertTrue(index.isFeatureInstance(eClass(1), "C1", EcorePackage.Literals.ENAMED_ELEMENT__NAME));
+        // objects outside the scope of the index have no indexed values
+        EClass detached = EcoreFactory.eINSTANCE.createEClass();
+        detached.getESuperTypes().add(eClass(0));
+        assertEquals(0, index.countFeatureTargets(detached, EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+        assertEquals(0, index.countIndexEntries());
+    }
+
+    @Test
+    public void firstInverseNavigationIndexesAllLazyFeatures() {
+        assertEquals(Collections.singleton(eClass(1)),
+                index.getInverseReferences(eClass(0), EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+        long entries = index.countIndexEntries();
+        // the name feature was indexed by the same traversal
+        assertEquals(Collections.singleton(eClass(2)), index.findByAttributeValue("C2",
+                EcorePackage.Literals.ENAMED_ELEMENT__NAME));
+        assertEquals(entries, index.countIndexEntries());
+        assertTrue(index.getValuesOfFeature(EcorePackage.Literals.ENAMED_ELEMENT__NAME).contains("C4"));
+    }
+
+    @Test
+    public void inverseNavigationDuringCoalescingIndexesFeatures() throws InvocationTargetException {
+        Set<EObject> subTypes = index.coalesceTraversals(
+                () -> index.getInverseReferences(eClass(0), EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+        assertEquals(Collections.singleton(eClass(1)), subTypes);
+        long entries = index.countIndexEntries();
+        assertEquals(Collections.singleton(eClass(2)), index.findByAttributeValue("C2",
+                EcorePackage.Literals.ENAMED_ELEMENT__NAME));
+        assertEquals(entries, index.countIndexEntries());
+    }
+
+    @Test
+    public void deferredFeatureReadableDuringCoalescing() throws InvocationTargetException {
+        Set<Object> inserted = new HashSet<>();
+        FeatureListener listener = new FeatureListener() {
+            @Override
+            public void featureInserted(EObject host, EStructuralFeature feature, Object value) {
+                inserted.add(value);
+            }
+
+            @Override
+            public void featureDeleted(EObject host, EStructuralFeature feature, Object value) {
+                // not checked
+            }
+        };
+        // the listener defers the indexing of the features to the end of the period, the read indexes them earlier
+        Set<Object> values = index.coalesceTraversals(() -> {
+            index.addFeatureListener(FEATURES, listener);
+            return new HashSet<>(index.getValuesOfFeature(EcorePackage.Literals.ENAMED_ELEMENT__NAME));
+        });
+        assertTrue(values.containsAll(Arrays.asList("C0", "C1", "C2", "C3", "C4")));
+        assertTrue(inserted.contains(eClass(0)));
+        assertTrue(inserted.contains("C4"));
+        assertEquals(Collections.singleton(eClass(1)),
+                index.getInverseReferences(eClass(0), EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+        index.removeFeatureListener(FEATURES, listener);
+    }
+
+    @Test
+    public void queryEvaluatedDuringCoalescing() throws InvocationTargetException {
+        GenericQuerySpecification<GenericPatternMatcher> subTypes = TestQueries.specification(TestQueries.query(
+                "test.subTypes", Arrays.asList("s", "c"),
+                (body, p) -> TestQueries.feature(body, p[1], p[0], EcorePackage.Literals.ECLASS__ESUPER_TYPES)));
+        AdvancedViatraQueryEngine engine = AdvancedViatraQueryEngine.createUnmanagedEngine(
+                new EMFScope(model, new BaseIndexOptions().withLazyFeatureIndexing(true)),
+                TestQueries.options().build());
+        try {
+            // the search is planned and executed before the end of the coalescing period
+            int count = engine.getBaseIndex().coalesceTraversals(() -> {
+                GenericPatternMatcher searched = engine.getMatcher(subTypes, LocalSearchHints.getDefault().build());
+                return searched.countMatches(searched.newMatch(eClass(0), null));
+            });
+            assertEquals(1, count);
+            GenericPatternMatcher incremental = engine.getMatcher(subTypes,
+                    new QueryEvaluationHint(null, ReteBackendFactory.INSTANCE));
+            assertEquals(1, incremental.countMatches(incremental.newMatch(eClass(0), null)));
+        } finally {
+            engine.dispose();
+        }
+    }
+
+    @Test
+    public void featureListenerDuringCoalescingIndexedAtEnd() throws InvocationTargetException {
+        Set<Object> inserted = new HashSet<>();
+        FeatureListener listener = new FeatureListener() {
+            @Override
+            public void featureInserted(EObject host, EStructuralFeature feature, Object value) {
+                inserted.add(value);
+            }
+
+            @Override
+            public void featureDeleted(EObject host, EStructuralFeature feature, Object value) {
+                // not checked
+            }
+        };
+        index.coalesceTraversals(() -> {
+            index.addFeatureListener(FEATURES, listener);
+            return null;
+        });
+        assertTrue(inserted.contains(eClass(0)));
+        assertTrue(inserted.contains("C4"));
+        assertEquals(Collections.singleton(eClass(1)),
+                index.getInverseReferences(eClass(0), EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+        index.removeFeatureListener(FEATURES, listener);
+    }
+
+}
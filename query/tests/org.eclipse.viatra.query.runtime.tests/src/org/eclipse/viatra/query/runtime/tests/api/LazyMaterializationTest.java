@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatch;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.api.GenericQuerySpecification;
+import org.eclipse.viatra.query.runtime.emf.EMFScope;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackend;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteBackendFactory;
+import org.eclipse.viatra.query.runtime.tests.util.TestQueries;
+import org.junit.Test;
+
+/**
+ * Tests that the queries of an engine with lazy materialization are demoted after idling without disturbing the
+ * clients of their results.
+ */
+public class LazyMaterializationTest {
+
+    private static final long IDLE_TIME = 20;
+
+    private static final GenericQuerySpecification<GenericPatternMatcher> SUPER_TYPES = TestQueries
+            .specification(TestQueries.query("test.superTypes", Arrays.asList("c", "s"),
+                    (body, p) -> TestQueries.feature(body, p[0], p[1], EcorePackage.Literals.ECLASS__ESUPER_TYPES)));
+    private static final GenericQuerySpecification<GenericPatternMatcher> CLASSES = TestQueries
+            .specification(TestQueries.query("test.classes", Arrays.asList("c"),
+                    (body, p) -> TestQueries.instanceOf(body, p[0], EcorePackage.Literals.ECLASS)));
+    private static final GenericQuerySpecification<GenericPatternMatcher> SUB_TYPES = TestQueries
+            .specification(TestQueries.query("test.subTypes", Arrays.asList("s", "c"),
+                    (body, p) -> TestQueries.feature(body, p[1], p[0], EcorePackage.Literals.ECLASS__ESUPER_TYPES)));
+
+    private static AdvancedViatraQueryEngine createEngine(ResourceSet model) {
+        // materialized on their first call
+        return AdvancedViatraQueryEngine.createUnmanagedEngine(new EMFScope(model),
+                TestQueries.options().withLazyMaterialization(1, IDLE_TIME).build());
+    }
+
+    private static void idle() {
+        try {
+            Thread.sleep(3 * IDLE_TIME);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void iterationSurvivesIdleTime() {
+        ResourceSet model = TestQueries.createClassChainModel(10);
+        AdvancedViatraQueryEngine engine = createEngine(model);
+        try {
+            GenericPatternMatcher superTypes = engine.getMatcher(SUPER_TYPES);
+            GenericPatternMatcher classes = engine.getMatcher(CLASSES);
+            GenericPatternMatcher subTypes = engine.getMatcher(SUB_TYPES);
+            assertEquals(10, classes.countMatches());
+
+            Set<GenericPatternMatch> matches = new HashSet<>();
+            superTypes.forEachMatch(match -> {
+                if (matches.isEmpty()) {
+                    idle();
+                }
+                // the other queries have been idle, but they are not demoted during the iteration
+                assertEquals(9, subTypes.countMatches());
+                matches.add(match);
+            });
+            assertEquals(9, matches.size());
+        } finally {
+            engine.dispose();
+        }
+    }
+
+    @Test
+    public void idleQueriesDemotedAfterModelChange() {
+        ResourceSet model = TestQueries.createClassChainModel(10);
+        AdvancedViatraQueryEngine engine = createEngine(model);
+        try {
+            GenericPatternMatcher superTypes = engine.getMatcher(SUPER_TYPES);
+            IQueryBackend backend = engine.getQueryBackend(ReteBackendFactory.INSTANCE);
+            assertEquals(9, superTypes.countMatches());
+            assertTrue(backend.getEstimatedMemoryUsage() > 0);
+            idle();
+            // idle queries are only demoted after a model change
+            assertTrue(backend.getEstimatedMemoryUsage() > 0);
+            EClass eClass = EcoreFactory.eINSTANCE.createEClass();
+            TestQueries.getPackage(model).getEClassifiers().add(eClass);
+            assertEquals(0, backend.getEstimatedMemoryUsage());
+
+            eClass.getESuperTypes().add((EClass) TestQueries.getPackage(model).getEClassifiers().get(0));
+            assertEquals(10, superTypes.countMatches());
+        } finally {
+            engine.dispose();
+        }
+    }
+
+}
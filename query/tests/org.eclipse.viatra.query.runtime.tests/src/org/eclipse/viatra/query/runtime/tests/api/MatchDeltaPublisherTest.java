@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatch;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.api.MatchDelta;
+import org.eclipse.viatra.query.runtime.api.MatchDeltaPublisher;
+import org.eclipse.viatra.query.runtime.api.MatchDeltaPublisher.Subscriber;
+import org.eclipse.viatra.query.runtime.api.MatchDeltaPublisher.Subscription;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHints;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.tests.util.TestQueries;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the deltas published by {@link MatchDeltaPublisher}; deltas are delivered on the thread modifying the model.
+ */
+public class MatchDeltaPublisherTest {
+
+    private static final PQuery SUPER_TYPE = TestQueries.query("test.superType", Arrays.asList("c", "s"),
+            (body, p) -> TestQueries.feature(body, p[0], p[1], EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+
+    /**
+     * Records the received deltas as the names of the subclasses of the appeared and disappeared matches, e.g.
+     * <code>+C5 -C3</code>, or <code>=C1 C2</code> for a snapshot.
+     */
+    private static final class RecordingSubscriber implements Subscriber<MatchDelta<GenericPatternMatch>> {
+        final List<String> events = new ArrayList<>();
+        Subscription subscription;
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(MatchDelta<GenericPatternMatch> item) {
+            if (item.isSnapshot()) {
+                events.add("=" + names(item.getAppeared()));
+            } else {
+                events.add(("+" + names(item.getAppeared()) + " -" + names(item.getDisappeared())).trim());
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            events.add("error " + throwable.getClass().getSimpleName());
+        }
+
+        @Override
+        public void onComplete() {
+            events.add("complete");
+        }
+
+        private static String names(Set<GenericPatternMatch> matches) {
+            return matches.stream().map(match -> ((EClass) match.get(0)).getName()).sorted()
+                    .collect(Collectors.joining(" "));
+        }
+    }
+
+    private ResourceSet model;
+    private AdvancedViatraQueryEngine engine;
+    private GenericPatternMatcher matcher;
+    private MatchDeltaPublisher<GenericPatternMatch> publisher;
+
+    @Before
+    public void setUp() {
+        model = TestQueries.createClassChainModel(3);
+        engine = TestQueries.createEngine(model);
+        matcher = engine.getMatcher(TestQueries.specification(SUPER_TYPE));
+        publisher = new MatchDeltaPublisher<>(matcher, Runnable::run);
+    }
+
+    @After
+    public void tearDown() {
+        publisher.close();
+        engine.dispose();
+    }
+
+    private EClass eClass(int index) {
+        return (EClass) TestQueries.getPackage(model).getEClassifier("C" + index);
+    }
+
+    private EClass addClass(String name, EClass superType) {
+        EClass newClass = EcoreFactory.eINSTANCE.createEClass();
+        newClass.setName(name);
+        newClass.getESuperTypes().add(superType);
+        TestQueries.getPackage(model).getEClassifiers().add(newClass);
+        return newClass;
+    }
+
+    @Test
+    public void snapshotFollowedByChanges() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        EClass newClass = addClass("C3", eClass(2));
+        eClass(1).getESuperTypes().clear();
+        newClass.getESuperTypes().clear();
+        assertEquals(Arrays.asList("=C1 C2", "+C3 -", "+ -C1", "+ -C3"), subscriber.events);
+    }
+
+    @Test
+    public void changesMergedWithoutDemand() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber, false);
+        EClass newClass = addClass("N", eClass(0));
+        newClass.getESuperTypes().clear();
+        addClass("M", eClass(0));
+        eClass(2).getESuperTypes().clear();
+        assertTrue(subscriber.events.isEmpty());
+
+        // the net change of all propagations since the last delta
+        subscriber.subscription.request(1);
+        assertEquals(Collections.singletonList("+M -C2"), subscriber.events);
+        subscriber.subscription.request(1);
+        addClass("K", eClass(0));
+        assertEquals(Arrays.asList("+M -C2", "+K -"), subscriber.events);
+    }
+
+    @Test
+    public void delayedPropagationPublishedAsSingleDelta() throws InvocationTargetException {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber, false);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        publisher.delayUpdatePropagation(() -> {
+            addClass("N", eClass(0));
+            addClass("M", eClass(1));
+            return null;
+        });
+        assertEquals(Collections.singletonList("+M N -"), subscriber.events);
+    }
+
+    @Test
+    public void closeCompletesAfterUndeliveredDeltas() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber, false);
+        addClass("N", eClass(0));
+        publisher.close();
+        assertTrue(subscriber.events.isEmpty());
+        assertEquals(1, publisher.getSubscriberCount());
+
+        subscriber.subscription.request(1);
+        assertEquals(Arrays.asList("+N -", "complete"), subscriber.events);
+        assertEquals(0, publisher.getSubscriberCount());
+        // the matcher is not observed anymore
+        addClass("M", eClass(0));
+        assertEquals(2, subscriber.events.size());
+    }
+
+    @Test
+    public void invalidRequestFailsStream() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(0);
+        assertEquals(Collections.singletonList("error IllegalArgumentException"), subscriber.events);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    public void cancelledSubscriptionReceivesNothing() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        RecordingSubscriber other = new RecordingSubscriber();
+        publisher.subscribe(subscriber, false);
+        publisher.subscribe(other, false);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        other.subscription.request(Long.MAX_VALUE);
+        subscriber.subscription.cancel();
+        addClass("N", eClass(0));
+        assertTrue(subscriber.events.isEmpty());
+        assertEquals(Collections.singletonList("+N -"), other.events);
+    }
+
+    @Test
+    public void engineDisposalCompletesStreams() {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber, false);
+        subscriber.subscription.request(Long.MAX_VALUE);
+        engine.dispose();
+        assertEquals(Collections.singletonList("complete"), subscriber.events);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void searchBasedMatcherRejected() {
+        new MatchDeltaPublisher<>(engine.getMatcher(TestQueries.specification(SUPER_TYPE),
+                LocalSearchHints.getDefault().build()));
+    }
+
+}
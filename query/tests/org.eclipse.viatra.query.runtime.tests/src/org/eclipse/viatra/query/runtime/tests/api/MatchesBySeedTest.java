@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchEMFBackendFactory;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackendFactory;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryResultProvider;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.matchers.tuple.ITuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteBackendFactory;
+import org.eclipse.viatra.query.runtime.tests.util.TestQueries;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Tests {@link IQueryResultProvider#getAllMatchesBySeed(TupleMask, Collection)} against evaluating each seed
+ * separately, and {@link IQueryResultProvider#forEachMatch(TupleMask, ITuple, java.util.function.Consumer)} against
+ * {@link IQueryResultProvider#getAllMatches(TupleMask, ITuple)}.
+ */
+@RunWith(Parameterized.class)
+public class MatchesBySeedTest {
+
+    @Parameters(name = "{index}: {0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(
+                new Object[] { ReteBackendFactory.INSTANCE },
+                new Object[] { LocalSearchEMFBackendFactory.INSTANCE });
+    }
+
+    @Parameter(0)
+    public IQueryBackendFactory backendFactory;
+
+    private static final PQuery SUPER_TYPE = TestQueries.query("test.superType", Arrays.asList("c", "s"),
+            (body, p) -> TestQueries.feature(body, p[0], p[1], EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+
+    private ResourceSet model;
+    private AdvancedViatraQueryEngine engine;
+    private IQueryResultProvider provider;
+
+    @Before
+    public void setUp() {
+        model = TestQueries.createClassChainModel(5);
+        engine = TestQueries.createEngine(model);
+        provider = engine.getQueryBackend(backendFactory).getResultProvider(SUPER_TYPE);
+    }
+
+    @After
+    public void tearDown() {
+        engine.dispose();
+    }
+
+    private EClass eClass(int index) {
+        EPackage ePackage = TestQueries.getPackage(model);
+        return (EClass) ePackage.getEClassifier("C" + index);
+    }
+
+    @Test
+    public void matchesOfEachSeed() {
+        TupleMask mask = TupleMask.fromSelectedIndices(2, new int[] { 0 });
+        List<ITuple> seeds = Arrays.asList(Tuples.staticArityFlatTupleOf(eClass(3)),
+                Tuples.staticArityFlatTupleOf(eClass(1)), Tuples.staticArityFlatTupleOf(eClass(0)));
+
+        Map<Tuple, List<Tuple>> result = provider.getAllMatchesBySeed(mask, seeds);
+
+        assertEquals(seeds.stream().map(ITuple::toImmutable).collect(Collectors.toList()),
+                new ArrayList<>(result.keySet()));
+        for (ITuple seed : seeds) {
+            List<Tuple> expected = provider.getAllMatches(mask, seed).collect(Collectors.toList());
+            assertEquals(expected, result.get(seed.toImmutable()));
+        }
+        assertEquals(Arrays.asList(Tuples.staticArityFlatTupleOf(eClass(3), eClass(2))),
+                result.get(Tuples.staticArityFlatTupleOf(eClass(3))));
+        assertEquals(0, result.get(Tuples.staticArityFlatTupleOf(eClass(0))).size());
+    }
+
+    @Test
+    public void duplicateSeedsEvaluatedOnce() {
+        TupleMask mask = TupleMask.fromSelectedIndices(2, new int[] { 1 });
+        List<ITuple> seeds = Arrays.asList(Tuples.staticArityFlatTupleOf(eClass(2)),
+                Tuples.staticArityFlatTupleOf(eClass(4)), Tuples.staticArityFlatTupleOf(eClass(2)));
+
+        Map<Tuple, List<Tuple>> result = provider.getAllMatchesBySeed(mask, seeds);
+
+        assertEquals(2, result.size());
+        assertEquals(Arrays.asList(Tuples.staticArityFlatTupleOf(eClass(3), eClass(2))),
+                result.get(Tuples.staticArityFlatTupleOf(eClass(2))));
+        assertEquals(0, result.get(Tuples.staticArityFlatTupleOf(eClass(4))).size());
+    }
+
+    @Test
+    public void forEachMatchVisitsAllMatches() {
+        TupleMask mask = TupleMask.fromSelectedIndices(2, new int[] { 1 });
+        for (int i = 0; i < 5; i++) {
+            ITuple seed = Tuples.staticArityFlatTupleOf(eClass(i));
+            List<Tuple> visited = new ArrayList<>();
+            int count = provider.forEachMatch(mask, seed, match -> visited.add(match.toImmutable()));
+            assertEquals(provider.getAllMatches(mask, seed).collect(Collectors.toSet()), new HashSet<>(visited));
+            assertEquals(visited.size(), count);
+        }
+        List<Tuple> visited = new ArrayList<>();
+        int count = provider.forEachMatch(new Object[2], match -> visited.add(match.toImmutable()));
+        assertEquals(provider.getAllMatches(new Object[2]).collect(Collectors.toSet()), new HashSet<>(visited));
+        assertEquals(4, count);
+    }
+
+}
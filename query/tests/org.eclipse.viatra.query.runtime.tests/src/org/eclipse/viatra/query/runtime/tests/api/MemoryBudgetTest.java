@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.api.GenericQuerySpecification;
+import org.eclipse.viatra.query.runtime.api.MemoryBudget;
+import org.eclipse.viatra.query.runtime.api.MemoryBudget.EvictionAction;
+import org.eclipse.viatra.query.runtime.emf.EMFScope;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteBackendFactory;
+import org.eclipse.viatra.query.runtime.tests.util.TestQueries;
+import org.junit.Test;
+
+/**
+ * Tests the demotion of least recently used queries by a {@link MemoryBudget}.
+ */
+public class MemoryBudgetTest {
+
+    private static final List<GenericQuerySpecification<GenericPatternMatcher>> QUERIES = Arrays.asList(
+            TestQueries.specification(TestQueries.query("test.superTypes", Arrays.asList("c", "s"),
+                    (body, p) -> TestQueries.feature(body, p[0], p[1], EcorePackage.Literals.ECLASS__ESUPER_TYPES))),
+            TestQueries.specification(TestQueries.query("test.subTypes", Arrays.asList("s", "c"),
+                    (body, p) -> TestQueries.feature(body, p[1], p[0], EcorePackage.Literals.ECLASS__ESUPER_TYPES))),
+            TestQueries.specification(TestQueries.query("test.classes", Arrays.asList("c"),
+                    (body, p) -> TestQueries.instanceOf(body, p[0], EcorePackage.Literals.ECLASS))),
+            TestQueries.specification(TestQueries.query("test.superSuperTypes", Arrays.asList("c", "s"), (body, p) -> {
+                TestQueries.feature(body, p[0], body.getOrCreateVariableByName("m"),
+                        EcorePackage.Literals.ECLASS__ESUPER_TYPES);
+                TestQueries.feature(body, body.getOrCreateVariableByName("m"), p[1],
+                        EcorePackage.Literals.ECLASS__ESUPER_TYPES);
+            })));
+
+    /**
+     * The sets of queries demoted by each eviction
+     */
+    private final List<Set<PQuery>> evictions = new ArrayList<>();
+
+    /**
+     * Creates an engine whose budget is always exceeded, so that each check demotes all queries it can
+     */
+    private AdvancedViatraQueryEngine createEngine(ResourceSet model) {
+        MemoryBudget budget = new MemoryBudget(1,
+                (engine, action, evictedQueries, usageBefore, usageAfter) -> evictions
+                        .add(new HashSet<>(evictedQueries)),
+                EvictionAction.DEMOTE_LEAST_RECENTLY_USED);
+        // promoted on their second call, which is a result provider call
+        return AdvancedViatraQueryEngine.createUnmanagedEngine(new EMFScope(model),
+                TestQueries.options().withLazyMaterialization(2, Long.MAX_VALUE).withMemoryBudget(budget).build());
+    }
+
+    private static List<Integer> countMatches(List<GenericPatternMatcher> matchers) {
+        List<Integer> counts = new ArrayList<>();
+        for (GenericPatternMatcher matcher : matchers) {
+            counts.add(matcher.countMatches());
+        }
+        return counts;
+    }
+
+    @Test
+    public void queriesDemotedInOneBatch() {
+        ResourceSet model = TestQueries.createClassChainModel(10);
+        AdvancedViatraQueryEngine engine = createEngine(model);
+        try {
+            List<GenericPatternMatcher> matchers = new ArrayList<>();
+            for (GenericQuerySpecification<GenericPatternMatcher> query : QUERIES) {
+                matchers.add(engine.getMatcher(query));
+            }
+            List<Integer> searched = countMatches(matchers);
+            assertEquals(searched, countMatches(matchers));
+            // the checks of the promotions are deferred, as they happened during result provider calls
+            assertTrue(evictions.isEmpty());
+            assertTrue(engine.getQueryBackend(ReteBackendFactory.INSTANCE).getEstimatedMemoryUsage() > 0);
+
+            engine.checkMemoryBudget();
+            assertEquals(1, evictions.size());
+            assertEquals(QUERIES.size(), evictions.get(0).size());
+            assertEquals(0, engine.getQueryBackend(ReteBackendFactory.INSTANCE).getEstimatedMemoryUsage());
+            assertEquals(searched, countMatches(matchers));
+        } finally {
+            engine.dispose();
+        }
+    }
+
+    @Test
+    public void deferredCheckAfterModelChange() {
+        ResourceSet model = TestQueries.createClassChainModel(10);
+        AdvancedViatraQueryEngine engine = createEngine(model);
+        try {
+            GenericPatternMatcher matcher = engine.getMatcher(QUERIES.get(0));
+            assertEquals(9, matcher.countMatches());
+            assertEquals(9, matcher.countMatches());
+            assertTrue(evictions.isEmpty());
+
+            EClass eClass = EcoreFactory.eINSTANCE.createEClass();
+            eClass.getESuperTypes().add((EClass) TestQueries.getPackage(model).getEClassifiers().get(0));
+            TestQueries.getPackage(model).getEClassifiers().add(eClass);
+            assertEquals(1, evictions.size());
+            assertEquals(0, engine.getQueryBackend(ReteBackendFactory.INSTANCE).getEstimatedMemoryUsage());
+            assertEquals(10, matcher.countMatches());
+        } finally {
+            engine.dispose();
+        }
+    }
+
+}
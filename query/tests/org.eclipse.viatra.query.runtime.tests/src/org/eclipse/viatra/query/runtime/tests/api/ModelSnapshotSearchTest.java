@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchEMFBackendFactory;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHints;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryResultProvider;
+import org.eclipse.viatra.query.runtime.matchers.backend.QueryEvaluationHint;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.tuple.TupleMask;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
+import org.eclipse.viatra.query.runtime.tests.util.TestQueries;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Compares the snapshot mode of the local search backend (see {@link LocalSearchHints#getDefaultSnapshot()}) to the
+ * search without base index it replaces, and to the search using the base index for inverse navigation.
+ */
+public class ModelSnapshotSearchTest {
+
+    private static final PQuery EOBJECT = TestQueries.query("test.eObject", Arrays.asList("o"),
+            (body, p) -> TestQueries.instanceOf(body, p[0], EcorePackage.Literals.EOBJECT));
+    private static final PQuery ECLASS = TestQueries.query("test.eClass", Arrays.asList("c"),
+            (body, p) -> TestQueries.instanceOf(body, p[0], EcorePackage.Literals.ECLASS));
+    private static final PQuery SUPER_TYPE = TestQueries.query("test.superType", Arrays.asList("c", "s"),
+            (body, p) -> TestQueries.feature(body, p[0], p[1], EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+
+    private ResourceSet model;
+    private AdvancedViatraQueryEngine engine;
+
+    @Before
+    public void setUp() {
+        model = TestQueries.createClassChainModel(5);
+        engine = TestQueries.createEngine(model);
+    }
+
+    @After
+    public void tearDown() {
+        engine.dispose();
+    }
+
+    private IQueryResultProvider getProvider(PQuery query, LocalSearchHints hints) {
+        QueryEvaluationHint hint = hints.build();
+        return engine.getQueryBackend(LocalSearchEMFBackendFactory.INSTANCE).getResultProvider(query, hint);
+    }
+
+    private static Set<Tuple> getMatches(IQueryResultProvider provider, int arity) {
+        return provider.getAllMatches(new Object[arity]).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void eObjectMatchesAllObjects() {
+        Set<Tuple> expected = new HashSet<>();
+        for (TreeIterator<?> it = model.getAllContents(); it.hasNext();) {
+            Object next = it.next();
+            if (next instanceof EObject) {
+                expected.add(Tuples.staticArityFlatTupleOf(next));
+            }
+        }
+        assertEquals(expected, getMatches(getProvider(EOBJECT, LocalSearchHints.getDefaultSnapshot()), 1));
+        assertEquals(expected, getMatches(getProvider(EOBJECT, LocalSearchHints.getDefaultNoBase()), 1));
+    }
+
+    @Test
+    public void classInstancesMatchNoBaseSearch() {
+        Set<Tuple> snapshot = getMatches(getProvider(ECLASS, LocalSearchHints.getDefaultSnapshot()), 1);
+        assertEquals(5, snapshot.size());
+        assertEquals(getMatches(getProvider(ECLASS, LocalSearchHints.getDefaultNoBase()), 1), snapshot);
+    }
+
+    @Test
+    public void inverseNavigationMatchesBaseIndexSearch() {
+        IQueryResultProvider snapshot = getProvider(SUPER_TYPE, LocalSearchHints.getDefaultSnapshot());
+        IQueryResultProvider baseIndex = getProvider(SUPER_TYPE, LocalSearchHints.getDefault());
+        TupleMask superTypeMask = TupleMask.fromSelectedIndices(2, new int[] { 1 });
+        for (Tuple superType : getMatches(getProvider(ECLASS, LocalSearchHints.getDefaultSnapshot()), 1)) {
+            Set<Tuple> expected = baseIndex.getAllMatches(superTypeMask, superType).collect(Collectors.toSet());
+            assertEquals(expected, snapshot.getAllMatches(superTypeMask, superType).collect(Collectors.toSet()));
+        }
+        EClass last = (EClass) TestQueries.getPackage(model).getEClassifier("C4");
+        assertEquals(0, snapshot.countMatches(superTypeMask, Tuples.staticArityFlatTupleOf(last)));
+        assertEquals(getMatches(baseIndex, 2), getMatches(snapshot, 2));
+    }
+
+}
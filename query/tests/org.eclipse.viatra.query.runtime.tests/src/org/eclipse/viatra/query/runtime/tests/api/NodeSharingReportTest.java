@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.rete.matcher.NodeSharingReport;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteBackendFactory;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteEngine;
+import org.eclipse.viatra.query.runtime.tests.util.TestQueries;
+import org.junit.Test;
+
+/**
+ * Tests the node sharing reported by {@link ReteEngine#getNodeSharingReport()} for queries that are equal modulo
+ * variable naming and constraint order.
+ */
+public class NodeSharingReportTest {
+
+    private static NodeSharingReport getReport(ResourceSet model, boolean canonicalize, PQuery... queries) {
+        AdvancedViatraQueryEngine engine = PBodyCanonicalizerTest.createEngine(model, canonicalize);
+        try {
+            for (PQuery query : queries) {
+                engine.getMatcher(TestQueries.specification(query)).countMatches();
+            }
+            return ((ReteEngine) engine.getQueryBackend(ReteBackendFactory.INSTANCE)).getNodeSharingReport();
+        } finally {
+            engine.dispose();
+        }
+    }
+
+    @Test
+    public void singleQueryHasNoSharing() {
+        ResourceSet model = TestQueries.createClassChainModel(10);
+        NodeSharingReport report = getReport(model, false,
+                PBodyCanonicalizerTest.createQuery("test.q1", "a", false, EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+        assertEquals(1, report.getQueryCount());
+        assertEquals(1, report.getBodyCount());
+        assertEquals(0, report.getSharedNodeCount());
+        assertEquals(report.getNodeCount(), report.getUnsharedNodeCount());
+        assertEquals(0, report.getSavedTupleCount());
+        assertTrue(report.getStoredTupleCount() > 0);
+    }
+
+    @Test
+    public void isomorphicBodiesShareNodes() {
+        ResourceSet model = TestQueries.createClassChainModel(10);
+        PQuery[] queries = {
+                PBodyCanonicalizerTest.createQuery("test.q1", "a", false, EcorePackage.Literals.ECLASS__ESUPER_TYPES),
+                PBodyCanonicalizerTest.createQuery("test.q2", "b", true, EcorePackage.Literals.ECLASS__ESUPER_TYPES) };
+        NodeSharingReport plain = getReport(model, false, queries);
+        NodeSharingReport canonical = getReport(model, true, queries);
+        // the fingerprints do not depend on the canonicalization
+        assertEquals(2, plain.getBodyCount());
+        assertEquals(1, plain.getDistinctBodyCount());
+        assertEquals(1, canonical.getDistinctBodyCount());
+
+        // canonical bodies are planned the same way, so only the production nodes are not shared
+        assertTrue(canonical.getSavedNodeCount() > plain.getSavedNodeCount());
+        assertEquals(canonical.getNodeCount() - 2, canonical.getSharedNodeCount());
+        assertEquals(canonical.getUnsharedNodeCount() - canonical.getNodeCount(), canonical.getSavedNodeCount());
+        assertTrue(canonical.getSavedTupleCount() > plain.getSavedTupleCount());
+        assertTrue(canonical.getEstimatedSavedMemory() > 0);
+    }
+
+    @Test
+    public void calledQueryNotAttributedToCaller() {
+        ResourceSet model = TestQueries.createClassChainModel(10);
+        PQuery called = PBodyCanonicalizerTest.createQuery("test.q1", "a", false,
+                EcorePackage.Literals.ECLASS__ESUPER_TYPES);
+        // the caller adds its own constraint, otherwise it would reuse the production node of the called query
+        PQuery caller = TestQueries.query("test.caller", Arrays.asList("c", "n"), (body, p) -> {
+            TestQueries.call(body, called, p[0], p[1]);
+            TestQueries.feature(body, p[0], body.getOrCreateVariableByName("x"), EcorePackage.Literals.ECLASS__ABSTRACT);
+        });
+        NodeSharingReport calledOnly = getReport(model, false, called);
+        NodeSharingReport both = getReport(model, false, caller);
+        assertEquals(2, both.getQueryCount());
+        assertEquals(0, both.getSharedNodeCount());
+        assertTrue(both.getNodeCount() > calledOnly.getNodeCount());
+    }
+
+}
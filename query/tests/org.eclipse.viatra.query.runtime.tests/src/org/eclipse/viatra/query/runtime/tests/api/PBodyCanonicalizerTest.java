@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.ViatraQueryEngineOptions;
+import org.eclipse.viatra.query.runtime.emf.EMFScope;
+import org.eclipse.viatra.query.runtime.matchers.backend.QueryEvaluationHint;
+import org.eclipse.viatra.query.runtime.matchers.psystem.PBody;
+import org.eclipse.viatra.query.runtime.matchers.psystem.PConstraint;
+import org.eclipse.viatra.query.runtime.matchers.psystem.PVariable;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicdeferred.ExportedParameter;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicdeferred.Inequality;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicenumerables.TypeConstraint;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PDisjunction;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.matchers.psystem.rewriters.PBodyCanonicalizer;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteBackendFactory;
+import org.eclipse.viatra.query.runtime.rete.util.ReteHintOptions;
+import org.eclipse.viatra.query.runtime.tests.util.TestQueries;
+import org.junit.Test;
+
+/**
+ * Tests that {@link PBodyCanonicalizer} brings bodies that only differ in the naming of their variables and the order
+ * of their constraints into the same form.
+ */
+public class PBodyCanonicalizerTest {
+
+    /**
+     * Creates the query <code>(c, n)</code>: <code>c</code> has a super type <code>s</code> other than itself, which
+     * has a feature named <code>n</code>. The local variables are named with the given prefix, and the constraints are
+     * added in reverse order if requested.
+     */
+    static PQuery createQuery(String name, String prefix, boolean reversed, EStructuralFeature superTypes) {
+        return TestQueries.query(name, Arrays.asList("c", "n"), (body, p) -> {
+            PVariable superType = body.getOrCreateVariableByName(prefix + "s");
+            PVariable feature = body.getOrCreateVariableByName(prefix + "f");
+            List<Consumer<PBody>> constraints = new ArrayList<>();
+            constraints.add(b -> TestQueries.instanceOf(b, p[0], EcorePackage.Literals.ECLASS));
+            constraints.add(b -> TestQueries.feature(b, p[0], superType, superTypes));
+            constraints.add(b -> TestQueries.feature(b, superType, feature,
+                    EcorePackage.Literals.ECLASS__ESTRUCTURAL_FEATURES));
+            constraints.add(b -> TestQueries.feature(b, feature, p[1], EcorePackage.Literals.ENAMED_ELEMENT__NAME));
+            constraints.add(b -> new Inequality(b, p[0], superType));
+            if (reversed) {
+                Collections.reverse(constraints);
+            }
+            constraints.forEach(constraint -> constraint.accept(body));
+        });
+    }
+
+    private static PBody getBody(PQuery query) {
+        return query.getDisjunctBodies().getBodies().iterator().next();
+    }
+
+    /**
+     * Describes the constraints of a body in order, with variables replaced by their position of first occurrence
+     */
+    private static List<String> describe(PBody body) {
+        List<PVariable> variables = new ArrayList<>();
+        List<String> result = new ArrayList<>();
+        for (PConstraint constraint : body.getConstraints()) {
+            if (constraint instanceof ExportedParameter) {
+                continue;
+            }
+            String label = constraint instanceof TypeConstraint
+                    ? ((TypeConstraint) constraint).getSupplierKey().getStringID()
+                    : constraint.getClass().getSimpleName();
+            List<PVariable> arguments = constraint instanceof TypeConstraint
+                    ? Arrays.stream(((TypeConstraint) constraint).getVariablesTuple().getElements())
+                            .map(PVariable.class::cast).collect(Collectors.toList())
+                    : new ArrayList<>(constraint.getAffectedVariables());
+            List<Integer> indices = new ArrayList<>();
+            for (PVariable argument : arguments) {
+                if (!variables.contains(argument)) {
+                    variables.add(argument);
+                }
+                indices.add(variables.indexOf(argument));
+            }
+            if (!(constraint instanceof TypeConstraint)) {
+                // the arguments of other constraints used here are not ordered
+                Collections.sort(indices);
+            }
+            result.add(label + " " + indices);
+        }
+        return result;
+    }
+
+    @Test
+    public void fingerprintIgnoresNamesAndOrder() {
+        PQuery query = createQuery("test.q1", "a", false, EcorePackage.Literals.ECLASS__ESUPER_TYPES);
+        PQuery variant = createQuery("test.q2", "b", true, EcorePackage.Literals.ECLASS__ESUPER_TYPES);
+        assertEquals(PBodyCanonicalizer.fingerprint(getBody(query)), PBodyCanonicalizer.fingerprint(getBody(variant)));
+    }
+
+    @Test
+    public void fingerprintDistinguishesBodies() {
+        PQuery query = createQuery("test.q1", "a", false, EcorePackage.Literals.ECLASS__ESUPER_TYPES);
+        PQuery other = createQuery("test.q2", "a", false, EcorePackage.Literals.ECLASS__EALL_SUPER_TYPES);
+        assertNotEquals(PBodyCanonicalizer.fingerprint(getBody(query)),
+                PBodyCanonicalizer.fingerprint(getBody(other)));
+        // the parameters are not interchangeable
+        PQuery swapped = TestQueries.query("test.q3", Arrays.asList("c", "s"),
+                (body, p) -> TestQueries.feature(body, p[1], p[0], EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+        PQuery unswapped = TestQueries.query("test.q4", Arrays.asList("c", "s"),
+                (body, p) -> TestQueries.feature(body, p[0], p[1], EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+        assertNotEquals(PBodyCanonicalizer.fingerprint(getBody(swapped)),
+                PBodyCanonicalizer.fingerprint(getBody(unswapped)));
+    }
+
+    @Test
+    public void rewrittenBodiesHaveSameOrder() {
+        PQuery query = createQuery("test.q1", "a", false, EcorePackage.Literals.ECLASS__ESUPER_TYPES);
+        PQuery variant = createQuery("test.q2", "b", true, EcorePackage.Literals.ECLASS__ESUPER_TYPES);
+        assertNotEquals(describe(getBody(query)), describe(getBody(variant)));
+
+        PBodyCanonicalizer canonicalizer = new PBodyCanonicalizer();
+        Set<PBody> bodies = canonicalizer.rewrite(query.getDisjunctBodies()).getBodies();
+        Set<PBody> variantBodies = canonicalizer.rewrite(variant.getDisjunctBodies()).getBodies();
+        assertEquals(describe(bodies.iterator().next()), describe(variantBodies.iterator().next()));
+        assertEquals(PBodyCanonicalizer.fingerprint(getBody(query)),
+                PBodyCanonicalizer.fingerprint(bodies.iterator().next()));
+    }
+
+    @Test
+    public void disabledCanonicalizerKeepsDisjunction() {
+        PQuery query = createQuery("test.q1", "a", false, EcorePackage.Literals.ECLASS__ESUPER_TYPES);
+        PBodyCanonicalizer canonicalizer = new PBodyCanonicalizer() {
+            @Override
+            protected boolean shouldCanonicalize(PQuery query) {
+                return false;
+            }
+        };
+        PDisjunction disjunction = query.getDisjunctBodies();
+        assertSame(disjunction, canonicalizer.rewrite(disjunction));
+    }
+
+    @Test
+    public void canonicalizationKeepsMatches() {
+        ResourceSet model = TestQueries.createClassChainModel(10);
+        PQuery query = createQuery("test.q1", "a", true, EcorePackage.Literals.ECLASS__ESUPER_TYPES);
+        assertEquals(getMatches(model, query, false), getMatches(model, query, true));
+    }
+
+    static Set<List<Object>> getMatches(ResourceSet model, PQuery query, boolean canonicalize) {
+        AdvancedViatraQueryEngine engine = createEngine(model, canonicalize);
+        try {
+            return engine.getMatcher(TestQueries.specification(query)).getAllMatches().stream()
+                    .map(match -> Arrays.asList(match.toArray())).collect(Collectors.toSet());
+        } finally {
+            engine.dispose();
+        }
+    }
+
+    static AdvancedViatraQueryEngine createEngine(ResourceSet model, boolean canonicalize) {
+        QueryEvaluationHint hint = new QueryEvaluationHint(
+                Collections.singletonMap(ReteHintOptions.canonicalizeBodies, canonicalize),
+                ReteBackendFactory.INSTANCE);
+        ViatraQueryEngineOptions options = TestQueries.options().withDefaultHint(hint).build();
+        return AdvancedViatraQueryEngine.createUnmanagedEngine(new EMFScope(model), options);
+    }
+
+}
@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.api.GenericQueryGroup;
+import org.eclipse.viatra.query.runtime.api.GenericQuerySpecification;
+import org.eclipse.viatra.query.runtime.api.IQuerySpecification;
+import org.eclipse.viatra.query.runtime.api.MemoryBudget;
+import org.eclipse.viatra.query.runtime.api.MemoryBudget.EvictionAction;
+import org.eclipse.viatra.query.runtime.api.QueryResultCache;
+import org.eclipse.viatra.query.runtime.api.ViatraQueryEngineOptions;
+import org.eclipse.viatra.query.runtime.emf.EMFScope;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchEMFBackendFactory;
+import org.eclipse.viatra.query.runtime.matchers.backend.IMatcherCapability;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackend;
+import org.eclipse.viatra.query.runtime.matchers.backend.IQueryBackendFactory;
+import org.eclipse.viatra.query.runtime.matchers.backend.QueryEvaluationHint;
+import org.eclipse.viatra.query.runtime.matchers.context.IQueryBackendContext;
+import org.eclipse.viatra.query.runtime.matchers.psystem.PVariable;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteBackendFactory;
+import org.eclipse.viatra.query.runtime.rete.util.ReteHintOptions;
+import org.eclipse.viatra.query.runtime.tests.util.TestQueries;
+import org.junit.Test;
+
+/**
+ * Compares the results of queries prepared in parallel to the results of queries compiled one by one, and checks that
+ * the backends wrapped by the engine prepare the queries they evaluate.
+ */
+public class ParallelQueryPreparationTest {
+
+    private static final PQuery SUPER_TYPE = TestQueries.query("test.superType", Arrays.asList("c", "s"),
+            (body, p) -> TestQueries.feature(body, p[0], p[1], EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+
+    /**
+     * Creates queries of several bodies calling each other
+     */
+    private static List<GenericQuerySpecification<GenericPatternMatcher>> createQueries(int count) {
+        List<GenericQuerySpecification<GenericPatternMatcher>> specifications = new ArrayList<>();
+        PQuery previous = SUPER_TYPE;
+        for (int i = 0; i < count; i++) {
+            PQuery called = previous;
+            PQuery query = TestQueries.query("test.chain" + i, Arrays.asList("c", "s"), (body, p) -> {
+                PVariable middle = body.getOrCreateVariableByName("m");
+                TestQueries.call(body, called, p[0], middle);
+                TestQueries.feature(body, middle, p[1], EcorePackage.Literals.ECLASS__ESUPER_TYPES);
+            }, (body, p) -> {
+                TestQueries.feature(body, p[0], p[1], EcorePackage.Literals.ECLASS__ESUPER_TYPES);
+                TestQueries.feature(body, p[1], body.getOrCreateVariableByName("n"),
+                        EcorePackage.Literals.ENAMED_ELEMENT__NAME);
+            });
+            specifications.add(TestQueries.specification(query));
+            previous = query;
+        }
+        return specifications;
+    }
+
+    private static List<Set<List<Object>>> getMatches(ResourceSet model, int parallelism) {
+        List<GenericQuerySpecification<GenericPatternMatcher>> specifications = createQueries(20);
+        AdvancedViatraQueryEngine engine = TestQueries.createEngine(model);
+        try {
+            if (parallelism > 0) {
+                QueryEvaluationHint hint = new QueryEvaluationHint(
+                        Collections.singletonMap(ReteHintOptions.preparationParallelism, parallelism),
+                        ReteBackendFactory.INSTANCE);
+                engine.prepareGroup(GenericQueryGroup.of(specifications.toArray(new IQuerySpecification<?>[0])),
+                        hint);
+            }
+            return specifications.stream()
+                    .map(specification -> engine.getMatcher(specification).getAllMatches().stream()
+                            .map(match -> Arrays.asList(match.toArray())).collect(Collectors.toSet()))
+                    .collect(Collectors.toList());
+        } finally {
+            engine.dispose();
+        }
+    }
+
+    /**
+     * Creates the backends of a wrapped factory, recording the queries prepared in them
+     */
+    private static final class RecordingBackendFactory implements IQueryBackendFactory {
+        private final IQueryBackendFactory factory;
+        private final Set<PQuery> preparedQueries = new HashSet<>();
+
+        RecordingBackendFactory(IQueryBackendFactory factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public IQueryBackend create(IQueryBackendContext context) {
+            IQueryBackend backend = factory.create(context);
+            return (IQueryBackend) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { IQueryBackend.class }, (proxy, method, args) -> {
+                        if (method.getName().equals("prepareQueries")) {
+                            @SuppressWarnings("unchecked")
+                            Collection<PQuery> queries = (Collection<PQuery>) args[0];
+                            preparedQueries.addAll(queries);
+                        } else if (method.getName().equals("getFactory")) {
+                            return this;
+                        }
+                        try {
+                            return method.invoke(backend, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+
+        @Override
+        public Class<? extends IQueryBackend> getBackendClass() {
+            return factory.getBackendClass();
+        }
+
+        @Override
+        public IMatcherCapability calculateRequiredCapability(PQuery query, QueryEvaluationHint hint) {
+            return factory.calculateRequiredCapability(query, hint);
+        }
+
+        @Override
+        public boolean isCaching() {
+            return factory.isCaching();
+        }
+    }
+
+    /**
+     * Prepares a group of queries in an engine with the given options, and checks which backends prepared them
+     */
+    private static void checkPreparation(ViatraQueryEngineOptions.Builder options, boolean searchedFirst) {
+        ResourceSet model = TestQueries.createClassChainModel(30);
+        // the queries evaluated by search prepare their dependencies recursively, so the call chain is kept short
+        List<Set<List<Object>>> expected = getMatches(model, 0).subList(0, 5);
+        RecordingBackendFactory rete = new RecordingBackendFactory(ReteBackendFactory.INSTANCE);
+        RecordingBackendFactory search = new RecordingBackendFactory(LocalSearchEMFBackendFactory.INSTANCE);
+        List<GenericQuerySpecification<GenericPatternMatcher>> specifications = createQueries(5);
+        AdvancedViatraQueryEngine engine = AdvancedViatraQueryEngine.createUnmanagedEngine(new EMFScope(model),
+                options.withDefaultBackend(rete).withDefaultCachingBackend(rete).withDefaultSearchBackend(search)
+                        .build());
+        try {
+            QueryEvaluationHint hint = new QueryEvaluationHint(
+                    Collections.singletonMap(ReteHintOptions.preparationParallelism, 4), rete);
+            engine.prepareGroup(GenericQueryGroup.of(specifications.toArray(new IQuerySpecification<?>[0])), hint);
+            Set<PQuery> queries = specifications.stream().map(IQuerySpecification::getInternalQueryRepresentation)
+                    .collect(Collectors.toSet());
+            assertEquals(searchedFirst ? Collections.emptySet() : queries, rete.preparedQueries);
+            assertEquals(searchedFirst ? queries : Collections.emptySet(), search.preparedQueries);
+            assertEquals(expected, specifications.stream()
+                    .map(specification -> engine.getMatcher(specification).getAllMatches().stream()
+                            .map(match -> Arrays.asList(match.toArray())).collect(Collectors.toSet()))
+                    .collect(Collectors.toList()));
+        } finally {
+            engine.dispose();
+        }
+    }
+
+    @Test
+    public void parallelPreparationComputesSameMatches() {
+        ResourceSet model = TestQueries.createClassChainModel(30);
+        List<Set<List<Object>>> expected = getMatches(model, 0);
+        // the direct and second-level super types of the 30 classes
+        assertEquals(29 + 28, expected.get(0).size());
+        assertEquals(expected, getMatches(model, 1));
+        assertEquals(expected, getMatches(model, 4));
+        assertEquals(expected, getMatches(model, 64));
+    }
+
+    @Test
+    public void resultCachingBackendPreparesUncachedQueries() {
+        checkPreparation(TestQueries.options().withResultCache(new QueryResultCache(1000), () -> 1), false);
+    }
+
+    @Test
+    public void memoryBudgetBackendPreparesMaterializedQueries() {
+        checkPreparation(TestQueries.options().withMemoryBudget(
+                new MemoryBudget(Long.MAX_VALUE, null, EvictionAction.DEMOTE_LEAST_RECENTLY_USED)), false);
+    }
+
+    @Test
+    public void lazyMaterializingBackendPreparesSearchedQueries() {
+        checkPreparation(TestQueries.options().withLazyMaterialization(2, 1000), true);
+    }
+
+}
@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceImpl;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.base.api.BaseIndexOptions;
+import org.eclipse.viatra.query.runtime.emf.EMFScope;
+import org.eclipse.viatra.query.runtime.matchers.psystem.PVariable;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.tests.util.TestQueries;
+import org.junit.Test;
+
+/**
+ * Compares the index built by a parallel full-model traversal to the one built by a sequential traversal.
+ */
+public class ParallelTraversalTest {
+
+    private static final PQuery SUPER_TYPE_NAME = TestQueries.query("test.superTypeName",
+            Arrays.asList("c", "s", "n"), (body, p) -> {
+                TestQueries.feature(body, p[0], p[1], EcorePackage.Literals.ECLASS__ESUPER_TYPES);
+                TestQueries.feature(body, p[1], p[2], EcorePackage.Literals.ENAMED_ELEMENT__NAME);
+            });
+    private static final PQuery CLASS = TestQueries.query("test.class", Arrays.asList("c"),
+            (body, p) -> TestQueries.instanceOf(body, p[0], EcorePackage.Literals.ECLASS));
+    private static final PQuery ATTRIBUTE_OWNER = TestQueries.query("test.attributeOwner", Arrays.asList("c", "a"),
+            (body, p) -> {
+                PVariable feature = body.getOrCreateVariableByName("f");
+                TestQueries.feature(body, p[0], feature, EcorePackage.Literals.ECLASS__ESTRUCTURAL_FEATURES);
+                TestQueries.feature(body, feature, p[1], EcorePackage.Literals.ENAMED_ELEMENT__NAME);
+            });
+
+    /**
+     * Creates a model of many resources; one of them refers to an unresolvable proxy, so it is traversed sequentially.
+     */
+    private static ResourceSet createModel(int resourceCount, int classCount) {
+        ResourceSet resourceSet = new ResourceSetImpl();
+        List<EClass> classes = new ArrayList<>();
+        for (int r = 0; r < resourceCount; r++) {
+            Resource resource = new ResourceImpl(URI.createURI("test" + r + ".ecore"));
+            resourceSet.getResources().add(resource);
+            EPackage ePackage = EcoreFactory.eINSTANCE.createEPackage();
+            ePackage.setName("p" + r);
+            resource.getContents().add(ePackage);
+            for (int i = 0; i < classCount; i++) {
+                EClass eClass = EcoreFactory.eINSTANCE.createEClass();
+                eClass.setName("C" + r + "_" + i);
+                eClass.getEStructuralFeatures().add(EcoreFactory.eINSTANCE.createEAttribute());
+                eClass.getEStructuralFeatures().get(0).setName("a" + i);
+                if (!classes.isEmpty()) {
+                    eClass.getESuperTypes().add(classes.get((r * 31 + i * 17) % classes.size()));
+                }
+                ePackage.getEClassifiers().add(eClass);
+                classes.add(eClass);
+            }
+        }
+        EClass proxy = EcoreFactory.eINSTANCE.createEClass();
+        ((InternalEObject) proxy).eSetProxyURI(URI.createURI("missing.ecore#//Missing"));
+        classes.get(classes.size() / 2).getESuperTypes().add(proxy);
+        return resourceSet;
+    }
+
+    private static Set<List<Object>> getMatches(ResourceSet model, int parallelism, PQuery query) {
+        BaseIndexOptions options = new BaseIndexOptions().withTraversalParallelism(parallelism);
+        AdvancedViatraQueryEngine engine = AdvancedViatraQueryEngine.createUnmanagedEngine(
+                new EMFScope(model, options), TestQueries.options().build());
+        try {
+            GenericPatternMatcher matcher = engine.getMatcher(TestQueries.specification(query));
+            return matcher.getAllMatches().stream().map(match -> Arrays.asList(match.toArray()))
+                    .collect(Collectors.toSet());
+        } finally {
+            engine.dispose();
+        }
+    }
+
+    @Test
+    public void parallelTraversalIndexesSameModel() {
+        ResourceSet model = createModel(20, 50);
+        assertEquals(1000, getMatches(model, 1, CLASS).size());
+        for (PQuery query : Arrays.asList(SUPER_TYPE_NAME, CLASS, ATTRIBUTE_OWNER)) {
+            Set<List<Object>> sequential = getMatches(model, 1, query);
+            assertEquals(sequential, getMatches(model, 4, query));
+            assertEquals(sequential, getMatches(model, 64, query));
+        }
+    }
+
+}
@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.api.GenericQuerySpecification;
+import org.eclipse.viatra.query.runtime.api.QueryResultCache;
+import org.eclipse.viatra.query.runtime.emf.EMFScope;
+import org.eclipse.viatra.query.runtime.matchers.backend.QueryEvaluationHint;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteBackendFactory;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteEngine;
+import org.eclipse.viatra.query.runtime.rete.util.ReteHintOptions;
+import org.eclipse.viatra.query.runtime.tests.util.TestQueries;
+import org.junit.Test;
+
+/**
+ * Tests that engines with a {@link QueryResultCache} share the match sets they enumerate.
+ */
+public class QueryResultCacheTest {
+
+    private static final GenericQuerySpecification<GenericPatternMatcher> SUPER_TYPES = TestQueries
+            .specification(TestQueries.query("test.superTypes", Arrays.asList("c", "s"),
+                    (body, p) -> TestQueries.feature(body, p[0], p[1], EcorePackage.Literals.ECLASS__ESUPER_TYPES)));
+
+    private static final GenericQuerySpecification<GenericPatternMatcher> SUPER_SUPER_TYPES = TestQueries
+            .specification(TestQueries.query("test.superSuperTypes", Arrays.asList("c", "s", "t"), (body, p) -> {
+                TestQueries.feature(body, p[0], p[1], EcorePackage.Literals.ECLASS__ESUPER_TYPES);
+                TestQueries.feature(body, p[1], p[2], EcorePackage.Literals.ECLASS__ESUPER_TYPES);
+            }));
+
+    private static AdvancedViatraQueryEngine createEngine(ResourceSet model, QueryResultCache cache, Object version) {
+        return AdvancedViatraQueryEngine.createUnmanagedEngine(new EMFScope(model),
+                TestQueries.options().withResultCache(cache, () -> version).build());
+    }
+
+    private static Set<List<Object>> getMatches(GenericPatternMatcher matcher) {
+        return matcher.getAllMatches().stream().map(match -> Arrays.asList(match.toArray()))
+                .collect(Collectors.toSet());
+    }
+
+    @Test
+    public void matchSetStoredWhenEnumerated() {
+        ResourceSet model = TestQueries.createClassChainModel(10);
+        QueryResultCache cache = new QueryResultCache(100);
+        AdvancedViatraQueryEngine engine = createEngine(model, cache, 1);
+        try {
+            GenericPatternMatcher matcher = engine.getMatcher(SUPER_TYPES);
+            assertEquals(9, matcher.countMatches());
+            assertTrue(matcher.hasMatch());
+            assertEquals(0, cache.getSize());
+            Set<List<Object>> matches = getMatches(matcher);
+            assertEquals(9, cache.getSize());
+
+            AdvancedViatraQueryEngine other = createEngine(model, cache, 1);
+            try {
+                long hits = cache.getHitCount();
+                assertEquals(matches, getMatches(other.getMatcher(SUPER_TYPES)));
+                assertEquals(hits + 1, cache.getHitCount());
+            } finally {
+                other.dispose();
+            }
+        } finally {
+            engine.dispose();
+        }
+    }
+
+    @Test
+    public void partialEnumerationNotStored() {
+        ResourceSet model = TestQueries.createClassChainModel(10);
+        QueryResultCache cache = new QueryResultCache(100);
+        AdvancedViatraQueryEngine engine = createEngine(model, cache, 1);
+        try {
+            GenericPatternMatcher matcher = engine.getMatcher(SUPER_TYPES);
+            assertEquals(3, matcher.streamAllMatches().limit(3).count());
+            assertEquals(0, cache.getSize());
+            matcher.forEachMatch(matcher.newMatch(TestQueries.getPackage(model).getEClassifiers().get(1), null),
+                    match -> {
+                    });
+            assertEquals(0, cache.getSize());
+            assertEquals(9, matcher.streamAllMatches().count());
+            assertEquals(9, cache.getSize());
+        } finally {
+            engine.dispose();
+        }
+    }
+
+    @Test
+    public void matchSetsSeparatedByHints() {
+        ResourceSet model = TestQueries.createClassChainModel(10);
+        QueryResultCache cache = new QueryResultCache(100);
+        QueryEvaluationHint hint = new QueryEvaluationHint(
+                Collections.singletonMap(ReteHintOptions.canonicalizeBodies, true), ReteBackendFactory.INSTANCE);
+        AdvancedViatraQueryEngine engine = createEngine(model, cache, 1);
+        try {
+            getMatches(engine.getMatcher(SUPER_TYPES));
+            AdvancedViatraQueryEngine other = createEngine(model, cache, 1);
+            try {
+                long misses = cache.getMissCount();
+                getMatches(other.getMatcher(SUPER_TYPES, hint));
+                assertEquals(misses + 1, cache.getMissCount());
+                assertEquals(18, cache.getSize());
+            } finally {
+                other.dispose();
+            }
+        } finally {
+            engine.dispose();
+        }
+    }
+
+    @Test
+    public void lookupsBeyondProjectionLimit() {
+        ResourceSet model = TestQueries.createClassChainModel(10);
+        QueryResultCache cache = new QueryResultCache(100);
+        AdvancedViatraQueryEngine engine = createEngine(model, cache, 1);
+        try {
+            Set<List<Object>> matches = getMatches(engine.getMatcher(SUPER_SUPER_TYPES));
+            assertEquals(8, matches.size());
+            AdvancedViatraQueryEngine other = createEngine(model, cache, 1);
+            try {
+                GenericPatternMatcher matcher = other.getMatcher(SUPER_SUPER_TYPES);
+                // all seven seed masks are looked up, more than the projection indices kept per match set
+                for (int mask = 1; mask < 8; mask++) {
+                    for (List<Object> match : matches) {
+                        Object[] seed = new Object[3];
+                        for (int i = 0; i < 3; i++) {
+                            seed[i] = (mask & 1 << i) != 0 ? match.get(i) : null;
+                        }
+                        long expected = matches.stream().filter(candidate -> {
+                            for (int i = 0; i < 3; i++) {
+                                if (seed[i] != null && seed[i] != candidate.get(i)) {
+                                    return false;
+                                }
+                            }
+                            return true;
+                        }).count();
+                        assertEquals(expected, matcher.countMatches(matcher.newMatch(seed)));
+                    }
+                }
+                assertEquals(8, cache.getSize());
+            } finally {
+                other.dispose();
+            }
+        } finally {
+            engine.dispose();
+        }
+    }
+
+    @Test
+    public void unwrappedBackendIsRete() {
+        ResourceSet model = TestQueries.createClassChainModel(3);
+        AdvancedViatraQueryEngine engine = createEngine(model, new QueryResultCache(100), 1);
+        try {
+            engine.getMatcher(SUPER_TYPES).countMatches();
+            assertTrue(engine.getUnwrappedQueryBackend(ReteBackendFactory.INSTANCE) instanceof ReteEngine);
+        } finally {
+            engine.dispose();
+        }
+    }
+
+}
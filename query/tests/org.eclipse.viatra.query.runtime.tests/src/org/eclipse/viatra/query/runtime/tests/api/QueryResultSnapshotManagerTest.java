@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatch;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.api.GenericQuerySpecification;
+import org.eclipse.viatra.query.runtime.api.MatchSetSnapshot;
+import org.eclipse.viatra.query.runtime.api.QueryResultSnapshot;
+import org.eclipse.viatra.query.runtime.api.QueryResultSnapshotManager;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchHints;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.tests.util.TestQueries;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the snapshots published by {@link QueryResultSnapshotManager}.
+ */
+public class QueryResultSnapshotManagerTest {
+
+    private static final PQuery SUPER_TYPE = TestQueries.query("test.superType", Arrays.asList("c", "s"),
+            (body, p) -> TestQueries.feature(body, p[0], p[1], EcorePackage.Literals.ECLASS__ESUPER_TYPES));
+    private static final GenericQuerySpecification<GenericPatternMatcher> SPECIFICATION = TestQueries
+            .specification(SUPER_TYPE);
+
+    private ResourceSet model;
+    private AdvancedViatraQueryEngine engine;
+    private QueryResultSnapshotManager manager;
+
+    @Before
+    public void setUp() {
+        model = TestQueries.createClassChainModel(5);
+        engine = TestQueries.createEngine(model);
+        manager = new QueryResultSnapshotManager(engine);
+    }
+
+    @After
+    public void tearDown() {
+        manager.dispose();
+        engine.dispose();
+    }
+
+    private EClass eClass(int index) {
+        return (EClass) TestQueries.getPackage(model).getEClassifier("C" + index);
+    }
+
+    private EClass addClass(String name, EClass superType) {
+        EClass newClass = EcoreFactory.eINSTANCE.createEClass();
+        newClass.setName(name);
+        newClass.getESuperTypes().add(superType);
+        TestQueries.getPackage(model).getEClassifiers().add(newClass);
+        return newClass;
+    }
+
+    @Test
+    public void incrementalMatchSetPublishedAfterEachChange() {
+        GenericPatternMatcher matcher = engine.getMatcher(SPECIFICATION);
+        manager.register(matcher);
+        QueryResultSnapshot before = manager.getCurrentSnapshot();
+        assertEquals(4, before.getMatchSet(matcher).countMatches());
+
+        addClass("C5", eClass(4));
+        QueryResultSnapshot after = manager.getCurrentSnapshot();
+
+        assertTrue(after.getEpoch() > before.getEpoch());
+        assertEquals(5, after.getMatchSet(matcher).countMatches());
+        // earlier snapshots are not affected by later changes
+        assertEquals(4, before.getMatchSet(matcher).countMatches());
+        assertEquals(new HashSet<>(matcher.getAllMatches()), after.getMatchSet(matcher).getAllMatches());
+    }
+
+    @Test
+    public void filteredReadsMatchLiveMatcher() {
+        GenericPatternMatcher matcher = engine.getMatcher(SPECIFICATION);
+        manager.register(matcher);
+        addClass("D", eClass(2));
+        MatchSetSnapshot<GenericPatternMatch> matchSet = manager.getCurrentSnapshot().getMatchSet(matcher);
+
+        for (int i = 0; i < 5; i++) {
+            GenericPatternMatch bySuperType = matcher.newMatch(null, eClass(i));
+            assertEquals(new HashSet<>(matcher.getAllMatches(bySuperType)), matchSet.getAllMatches(bySuperType));
+            assertEquals(matcher.countMatches(bySuperType), matchSet.countMatches(bySuperType));
+            GenericPatternMatch bySubType = matcher.newMatch(eClass(i), null);
+            assertEquals(new HashSet<>(matcher.getAllMatches(bySubType)), matchSet.getAllMatches(bySubType));
+        }
+        assertTrue(matchSet.hasMatch(matcher.newMatch(eClass(1), eClass(0))));
+        assertFalse(matchSet.hasMatch(matcher.newMatch(eClass(0), eClass(1))));
+    }
+
+    @Test
+    public void removedMatchesNotPublished() {
+        GenericPatternMatcher matcher = engine.getMatcher(SPECIFICATION);
+        manager.register(matcher);
+        EPackage ePackage = TestQueries.getPackage(model);
+        for (int i = 0; i < 100; i++) {
+            addClass("N" + i, eClass(i % 5));
+        }
+        assertEquals(104, manager.getCurrentSnapshot().getMatchSet(matcher).countMatches());
+        ePackage.getEClassifiers().removeIf(classifier -> classifier.getName().startsWith("N"));
+
+        MatchSetSnapshot<GenericPatternMatch> matchSet = manager.getCurrentSnapshot().getMatchSet(matcher);
+        assertEquals(4, matchSet.countMatches());
+        assertEquals(new HashSet<>(matcher.getAllMatches()), matchSet.getAllMatches());
+    }
+
+    @Test
+    public void searchMatchSetPublishedExplicitly() {
+        GenericPatternMatcher matcher = engine.getMatcher(SPECIFICATION,
+                LocalSearchHints.getDefault().build());
+        manager.register(matcher);
+        long epoch = manager.getCurrentSnapshot().getEpoch();
+
+        addClass("C5", eClass(4));
+        // epochs do not end automatically while a search-based matcher is registered
+        assertEquals(epoch, manager.getCurrentSnapshot().getEpoch());
+        assertEquals(4, manager.getCurrentSnapshot().getMatchSet(matcher).countMatches());
+
+        manager.publish();
+        assertEquals(5, manager.getCurrentSnapshot().getMatchSet(matcher).countMatches());
+    }
+
+}
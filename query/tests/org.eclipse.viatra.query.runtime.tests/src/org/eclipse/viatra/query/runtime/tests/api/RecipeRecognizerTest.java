@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.viatra.query.runtime.rete.recipes.InputRecipe;
+import org.eclipse.viatra.query.runtime.rete.recipes.JoinRecipe;
+import org.eclipse.viatra.query.runtime.rete.recipes.ProductionRecipe;
+import org.eclipse.viatra.query.runtime.rete.recipes.RecipesFactory;
+import org.eclipse.viatra.query.runtime.rete.recipes.RecipesPackage;
+import org.eclipse.viatra.query.runtime.rete.recipes.ReteNodeRecipe;
+import org.eclipse.viatra.query.runtime.rete.recipes.TrimmerRecipe;
+import org.eclipse.viatra.query.runtime.rete.recipes.helper.RecipeRecognizer;
+import org.eclipse.viatra.query.runtime.rete.recipes.helper.RecipesHelper;
+import org.junit.Test;
+
+/**
+ * Tests that {@link RecipeRecognizer} finds the same canonical recipes as a linear scan over all known canonical
+ * recipes of the same class, also when a recursive production recipe is connected after recipes referring to it have
+ * been made canonical.
+ */
+public class RecipeRecognizerTest {
+
+    private static final RecipesFactory FACTORY = RecipesFactory.eINSTANCE;
+
+    /**
+     * Reference implementation: compares a recipe with all canonical recipes of the same class, using the same
+     * equivalence as {@link RecipeRecognizer}.
+     */
+    private static class LinearScanRecognizer implements UnaryOperator<ReteNodeRecipe> {
+        private final Map<EClass, List<ReteNodeRecipe>> canonicalRecipes = new HashMap<>();
+        private long nextEquivalenceClassID = 0;
+
+        @Override
+        public ReteNodeRecipe apply(ReteNodeRecipe recipe) {
+            List<ReteNodeRecipe> sameClass = canonicalRecipes.computeIfAbsent(recipe.eClass(), c -> new ArrayList<>());
+            for (ReteNodeRecipe knownRecipe : sameClass) {
+                if (new EquivalenceHelper().equals(recipe, knownRecipe)) {
+                    recipe.getEquivalenceClassIDs().add(knownRecipe.getEquivalenceClassIDs().get(0));
+                    return knownRecipe;
+                }
+            }
+            recipe.getEquivalenceClassIDs().add(nextEquivalenceClassID++);
+            sameClass.add(recipe);
+            return recipe;
+        }
+    }
+
+    /**
+     * Structural equality of recipes, except that recipes with a common equivalence class are equivalent
+     */
+    private static class EquivalenceHelper extends EcoreUtil.EqualityHelper {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean haveEqualFeature(EObject eObject1, EObject eObject2, EStructuralFeature feature) {
+            return RecipesPackage.Literals.RETE_NODE_RECIPE__EQUIVALENCE_CLASS_IDS.equals(feature)
+                    || super.haveEqualFeature(eObject1, eObject2, feature);
+        }
+
+        @Override
+        public boolean equals(EObject eObject1, EObject eObject2) {
+            if (eObject1 instanceof ReteNodeRecipe && eObject2 instanceof ReteNodeRecipe
+                    && !Collections.disjoint(((ReteNodeRecipe) eObject1).getEquivalenceClassIDs(),
+                            ((ReteNodeRecipe) eObject2).getEquivalenceClassIDs())) {
+                return true;
+            }
+            return super.equals(eObject1, eObject2);
+        }
+    }
+
+    /**
+     * Builds and canonicalizes a set of recipes similar to the ones compiled for a recursive query.
+     *
+     * @return for each built recipe, the index of the first built recipe it was found equivalent to
+     */
+    private static List<Integer> canonicalize(UnaryOperator<ReteNodeRecipe> recognizer) {
+        List<ReteNodeRecipe> recipes = new ArrayList<>();
+        List<Integer> canonicalIndices = new ArrayList<>();
+        UnaryOperator<ReteNodeRecipe> register = recipe -> {
+            ReteNodeRecipe canonical = recognizer.apply(recipe);
+            recipes.add(recipe);
+            canonicalIndices.add(recipes.indexOf(canonical));
+            return recipe;
+        };
+
+        List<InputRecipe> inputs = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            String key = "key" + i % 4;
+            inputs.add((InputRecipe) register.apply(RecipesHelper.inputRecipe(key, key, 2)));
+        }
+        // cut off production recipe of the recursive query, its parents are connected after compilation
+        ProductionRecipe production = production();
+        register.apply(production);
+
+        for (InputRecipe input : inputs) {
+            register.apply(trimmer(input, 0));
+            register.apply(trimmer(input, 1));
+        }
+        for (int i = 0; i < 4; i++) {
+            register.apply(join(inputs.get(i), inputs.get(i + 4)));
+            register.apply(join(inputs.get(i + 4), inputs.get(i)));
+        }
+        register.apply(trimmer(production, 0));
+        JoinRecipe recursiveJoin = join(inputs.get(0), production);
+        register.apply(recursiveJoin);
+
+        // compilation of the recursive query is finished, see RecursionCutoffPoint#mend
+        production.getParents().add(inputs.get(0));
+        production.getParents().add(register.apply(trimmer(recursiveJoin, 0, 2)));
+
+        // recipes referring to the connected production recipe are recognized again
+        register.apply(production());
+        register.apply(trimmer(production, 0));
+        register.apply(join(inputs.get(0), production));
+        register.apply(join(inputs.get(4), production));
+        ProductionRecipe equivalentProduction = production();
+        equivalentProduction.getParents().add(inputs.get(4));
+        equivalentProduction.getParents().add(trimmer(join(inputs.get(4), production), 0, 2));
+        register.apply(equivalentProduction);
+        register.apply(trimmer(equivalentProduction, 0));
+        return canonicalIndices;
+    }
+
+    private static ProductionRecipe production() {
+        ProductionRecipe recipe = FACTORY.createProductionRecipe();
+        recipe.setPatternFQN("test.reach");
+        recipe.setPattern("test.reach");
+        recipe.getMappedIndices().put("a", 0);
+        recipe.getMappedIndices().put("b", 1);
+        return recipe;
+    }
+
+    private static TrimmerRecipe trimmer(ReteNodeRecipe parent, int... columns) {
+        TrimmerRecipe recipe = FACTORY.createTrimmerRecipe();
+        recipe.setParent(parent);
+        recipe.setMask(RecipesHelper.mask(parent.getArity(), columns));
+        return recipe;
+    }
+
+    /**
+     * Joins the second column of the left parent with the first column of the right parent.
+     */
+    private static JoinRecipe join(ReteNodeRecipe left, ReteNodeRecipe right) {
+        JoinRecipe recipe = FACTORY.createJoinRecipe();
+        recipe.setLeftParent(RecipesHelper.projectionIndexerRecipe(left, RecipesHelper.mask(2, 1)));
+        recipe.setRightParent(RecipesHelper.projectionIndexerRecipe(right, RecipesHelper.mask(2, 0)));
+        recipe.setRightParentComplementaryMask(RecipesHelper.mask(2, 1));
+        return recipe;
+    }
+
+    @Test
+    public void sameCanonicalRecipesAsLinearScan() {
+        List<Integer> expected = canonicalize(new LinearScanRecognizer());
+        List<Integer> actual = canonicalize(new RecipeRecognizer()::canonicalizeRecipe);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void recursiveRecipesRecognizedAfterMend() {
+        List<Integer> canonicalIndices = canonicalize(new RecipeRecognizer()::canonicalizeRecipe);
+        int size = canonicalIndices.size();
+        // an unconnected production recipe is no longer equivalent to the connected one
+        assertEquals(size - 6, (int) canonicalIndices.get(size - 6));
+        // the recipes referring to the connected production recipe and the ones equivalent to it are shared
+        for (int i = size - 5; i < size; i++) {
+            assertNotEquals(i, (int) canonicalIndices.get(i));
+        }
+    }
+}
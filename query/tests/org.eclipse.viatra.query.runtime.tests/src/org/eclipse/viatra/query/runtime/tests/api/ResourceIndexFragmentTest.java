@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EDataType;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceImpl;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.eclipse.viatra.query.runtime.base.api.BaseIndexOptions;
+import org.eclipse.viatra.query.runtime.base.api.IndexingLevel;
+import org.eclipse.viatra.query.runtime.base.api.NavigationHelper;
+import org.eclipse.viatra.query.runtime.base.api.ViatraBaseFactory;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests that resources indexed from persisted index fragments are indexed the same way as by traversal.
+ */
+public class ResourceIndexFragmentTest {
+
+    private static final String NS_URI = "http://www.eclipse.org/viatra/query/tests/fragment";
+
+    private static final EPackage PACKAGE = EcoreFactory.eINSTANCE.createEPackage();
+    private static final EClass NODE = EcoreFactory.eINSTANCE.createEClass();
+    private static final EAttribute NAME = attribute("name", EcorePackage.Literals.ESTRING);
+    private static final EAttribute SIZE = attribute("size", EcorePackage.Literals.EINT);
+    private static final EAttribute WEIGHT = attribute("weight", EcorePackage.Literals.EDOUBLE);
+    private static final EAttribute ACTIVE = attribute("active", EcorePackage.Literals.EBOOLEAN);
+    // stored by its literal
+    private static final EAttribute SERIAL = attribute("serial", EcorePackage.Literals.EBIG_INTEGER);
+    private static final EReference CHILDREN = EcoreFactory.eINSTANCE.createEReference();
+    private static final EReference NEXT = EcoreFactory.eINSTANCE.createEReference();
+    private static final List<EStructuralFeature> FEATURES = Arrays.asList(NAME, SIZE, WEIGHT, ACTIVE, SERIAL,
+            CHILDREN, NEXT);
+
+    static {
+        PACKAGE.setName("fragment");
+        PACKAGE.setNsPrefix("fragment");
+        PACKAGE.setNsURI(NS_URI);
+        NODE.setName("Node");
+        CHILDREN.setName("children");
+        CHILDREN.setContainment(true);
+        CHILDREN.setUpperBound(-1);
+        CHILDREN.setEType(NODE);
+        NEXT.setName("next");
+        NEXT.setEType(NODE);
+        NODE.getEStructuralFeatures().addAll(FEATURES);
+        PACKAGE.getEClassifiers().add(NODE);
+        // features are persisted by URI, so the metamodel is contained in a resource
+        new ResourceImpl(URI.createURI(NS_URI)).getContents().add(PACKAGE);
+    }
+
+    private static EAttribute attribute(String name, EDataType type) {
+        EAttribute attribute = EcoreFactory.eINSTANCE.createEAttribute();
+        attribute.setName(name);
+        attribute.setEType(type);
+        return attribute;
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path modelFolder;
+    private Path fragmentFolder;
+    private URI modelURI;
+
+    @Before
+    public void setUp() throws IOException {
+        modelFolder = folder.newFolder("model").toPath();
+        fragmentFolder = folder.newFolder("fragments").toPath();
+        modelURI = URI.createFileURI(modelFolder.resolve("test.xmi").toString());
+        saveModel(10);
+    }
+
+    private static ResourceSet createResourceSet() {
+        ResourceSet resourceSet = new ResourceSetImpl();
+        resourceSet.getPackageRegistry().put(NS_URI, PACKAGE);
+        resourceSet.getResourceFactoryRegistry().getExtensionToFactoryMap().put("xmi", new XMIResourceFactoryImpl());
+        return resourceSet;
+    }
+
+    private void saveModel(int nodeCount) throws IOException {
+        Resource resource = createResourceSet().createResource(modelURI);
+        EObject root = EcoreUtil.create(NODE);
+        root.eSet(NAME, "root");
+        resource.getContents().add(root);
+        EObject previous = root;
+        for (int i = 0; i < nodeCount; i++) {
+            EObject node = EcoreUtil.create(NODE);
+            node.eSet(NAME, "n" + i);
+            node.eSet(SIZE, i % 3);
+            node.eSet(WEIGHT, i / 2.0);
+            node.eSet(ACTIVE, i % 2 == 0);
+            node.eSet(SERIAL, BigInteger.valueOf(i).shiftLeft(70));
+            node.eSet(NEXT, previous);
+            @SuppressWarnings("unchecked")
+            List<EObject> children = (List<EObject>) root.eGet(CHILDREN);
+            children.add(node);
+            previous = node;
+        }
+        resource.save(Collections.emptyMap());
+    }
+
+    /**
+     * Loads the model into an active index and returns the indexed values of the tested features, with objects
+     * identified by their URI fragment.
+     */
+    private List<Object> loadAndIndex(Path fragmentLocation) {
+        ResourceSet resourceSet = createResourceSet();
+        BaseIndexOptions options = new BaseIndexOptions().withResourceIndexFragmentLocation(fragmentLocation);
+        NavigationHelper index = ViatraBaseFactory.getInstance().createNavigationHelper(resourceSet, options,
+                Logger.getLogger(getClass()));
+        try {
+            index.registerEStructuralFeatures(new HashSet<>(FEATURES), IndexingLevel.FULL);
+            index.registerEClasses(Collections.singleton(NODE), IndexingLevel.FULL);
+            Resource resource = resourceSet.getResource(modelURI, true);
+            EObject root = resource.getContents().get(0);
+            return Arrays.asList(toFragments(resource, index.getAllInstances(NODE)),
+                    FEATURES.stream()
+                            .map(feature -> index.getValuesOfFeature(feature).stream()
+                                    .map(value -> value instanceof EObject
+                                            ? resource.getURIFragment((EObject) value) : value)
+                                    .collect(Collectors.toSet()))
+                            .collect(Collectors.toList()),
+                    toFragments(resource, index.findByFeatureValue(1, SIZE)),
+                    toFragments(resource, index.findByFeatureValue(true, ACTIVE)),
+                    toFragments(resource, index.findByFeatureValue(BigInteger.valueOf(3).shiftLeft(70), SERIAL)),
+                    toFragments(resource, index.getInverseReferences(root, NEXT)));
+        } finally {
+            index.dispose();
+        }
+    }
+
+    private static Set<String> toFragments(Resource resource, Set<? extends EObject> eObjects) {
+        return eObjects.stream().map(resource::getURIFragment).collect(Collectors.toSet());
+    }
+
+    private static List<Path> listFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    private Path getFragmentFile() throws IOException {
+        List<Path> fragments = listFiles(fragmentFolder);
+        assertEquals(1, fragments.size());
+        return fragments.get(0);
+    }
+
+    @Test
+    public void fragmentStoredInConfiguredLocation() throws IOException {
+        loadAndIndex(fragmentFolder);
+        getFragmentFile();
+        assertEquals(Collections.singletonList(modelFolder.resolve("test.xmi")), listFiles(modelFolder));
+    }
+
+    @Test
+    public void unchangedResourceIndexedFromFragment() throws IOException {
+        // the resource was saved long before its fragment is recorded, so it is identified by its timestamp
+        File modelFile = modelFolder.resolve("test.xmi").toFile();
+        modelFile.setLastModified(modelFile.lastModified() - 10000);
+        List<Object> expected = loadAndIndex(null);
+        assertEquals(expected, loadAndIndex(fragmentFolder));
+        Path fragment = getFragmentFile();
+        FileTime recorded = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(fragment, recorded);
+
+        // the fragment is not written again if it was used
+        assertEquals(expected, loadAndIndex(fragmentFolder));
+        assertEquals(recorded, Files.getLastModifiedTime(fragment));
+        // attribute values are restored with their types
+        assertEquals(new HashSet<>(Arrays.asList("//@children.1", "//@children.4", "//@children.7")),
+                expected.get(2));
+        assertEquals(5, ((Set<?>) expected.get(3)).size());
+        assertEquals(Collections.singleton("//@children.3"), expected.get(4));
+        assertEquals(Collections.singleton("//@children.0"), expected.get(5));
+    }
+
+    @Test
+    public void touchedResourceIndexedFromFragment() throws IOException {
+        List<Object> expected = loadAndIndex(fragmentFolder);
+        Path fragment = getFragmentFile();
+        Files.setLastModifiedTime(fragment, FileTime.fromMillis(0));
+        File modelFile = modelFolder.resolve("test.xmi").toFile();
+        modelFile.setLastModified(modelFile.lastModified() - 10000);
+
+        // the contents are unchanged, so the fragment is used and written again with the new timestamp
+        assertEquals(expected, loadAndIndex(fragmentFolder));
+        assertNotEquals(FileTime.fromMillis(0), Files.getLastModifiedTime(fragment));
+    }
+
+    @Test
+    public void recentlyModifiedResourceVerifiedByHash() throws IOException {
+        loadAndIndex(fragmentFolder);
+        // the resource is changed right after the fragment was recorded, keeping its length and timestamp
+        Path modelPath = modelFolder.resolve("test.xmi");
+        FileTime timeStamp = Files.getLastModifiedTime(modelPath);
+        String contents = new String(Files.readAllBytes(modelPath), StandardCharsets.UTF_8);
+        assertTrue(contents.contains("name=\"n1\""));
+        Files.write(modelPath, contents.replace("name=\"n1\"", "name=\"m1\"").getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(modelPath, timeStamp);
+
+        List<Object> expected = loadAndIndex(null);
+        assertTrue(((Set<?>) ((List<?>) expected.get(1)).get(0)).contains("m1"));
+        assertEquals(expected, loadAndIndex(fragmentFolder));
+    }
+
+    @Test
+    public void changedResourceIndexedByTraversal() throws IOException {
+        loadAndIndex(fragmentFolder);
+        saveModel(20);
+        List<Object> expected = loadAndIndex(null);
+        assertEquals(21, ((Set<?>) expected.get(0)).size());
+        assertEquals(expected, loadAndIndex(fragmentFolder));
+        assertEquals(expected, loadAndIndex(fragmentFolder));
+    }
+
+}
@@ -0,0 +1,337 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.EcorePackage;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.api.GenericQuerySpecification;
+import org.eclipse.viatra.query.runtime.emf.EMFScope;
+import org.eclipse.viatra.query.runtime.matchers.psystem.PVariable;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuple;
+import org.eclipse.viatra.query.runtime.matchers.util.Direction;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteEngine;
+import org.eclipse.viatra.query.runtime.rete.matcher.TimelyReteBackendFactory;
+import org.eclipse.viatra.query.runtime.rete.network.Node;
+import org.eclipse.viatra.query.runtime.rete.network.Receiver;
+import org.eclipse.viatra.query.runtime.rete.network.ReteContainer;
+import org.eclipse.viatra.query.runtime.rete.network.Supplier;
+import org.eclipse.viatra.query.runtime.rete.network.communication.CommunicationGroup;
+import org.eclipse.viatra.query.runtime.rete.network.communication.MessageSelector;
+import org.eclipse.viatra.query.runtime.rete.network.communication.Timestamp;
+import org.eclipse.viatra.query.runtime.rete.network.communication.timely.TimelyCommunicationGroup;
+import org.eclipse.viatra.query.runtime.rete.network.mailbox.Mailbox;
+import org.eclipse.viatra.query.runtime.rete.traceability.TraceInfo;
+import org.eclipse.viatra.query.runtime.tests.util.TestQueries;
+import org.junit.Test;
+
+/**
+ * Compares the results of a recursive query evaluated with the first-only timeline representation to the results of
+ * the faithful timeline representation after every model change, delivering the mailboxes of recursive communication
+ * groups in topological order and in the reverse order, and counts the batches of messages sent by the nodes of these
+ * groups.
+ */
+public class TimelyRecursiveDeliveryOrderTest {
+
+    private static final int CLASS_COUNT = 30;
+
+    /**
+     * Counts the batches of consecutive messages sent by the same node, i.e. the deliveries of a set of nodes that sent
+     * messages
+     */
+    private static final class MessageLog {
+        private long batchCount = 0;
+        private Object lastSender;
+
+        void log(Object sender) {
+            if (lastSender != sender) {
+                batchCount++;
+                lastSender = sender;
+            }
+        }
+    }
+
+    /**
+     * A receiver that is not registered in the communication tracker, and only logs the messages posted to it
+     */
+    private static final class LoggingReceiver implements Receiver, Mailbox {
+        private final MessageLog log;
+        private CommunicationGroup group;
+
+        LoggingReceiver(MessageLog log) {
+            this.log = log;
+        }
+
+        @Override
+        public void postMessage(Direction direction, Tuple update, Timestamp timestamp) {
+            log.log(this);
+        }
+
+        @Override
+        public void deliverAll(MessageSelector selector) {
+            // messages are not stored
+        }
+
+        @Override
+        public Receiver getReceiver() {
+            return this;
+        }
+
+        @Override
+        public CommunicationGroup getCurrentGroup() {
+            return group;
+        }
+
+        @Override
+        public void setCurrentGroup(CommunicationGroup group) {
+            this.group = group;
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            // messages are not stored
+        }
+
+        @Override
+        public void update(Direction direction, Tuple updateElement, Timestamp timestamp) {
+            // messages are not delivered
+        }
+
+        @Override
+        public Mailbox getMailbox() {
+            return this;
+        }
+
+        @Override
+        public void appendParent(Supplier supplier) {
+            // not needed
+        }
+
+        @Override
+        public void removeParent(Supplier supplier) {
+            // not needed
+        }
+
+        @Override
+        public Collection<Supplier> getParents() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public ReteContainer getContainer() {
+            return null;
+        }
+
+        @Override
+        public long getNodeId() {
+            return 0;
+        }
+
+        @Override
+        public void setTag(Object tag) {
+            // not needed
+        }
+
+        @Override
+        public Object getTag() {
+            return null;
+        }
+
+        @Override
+        public Set<TraceInfo> getTraceInfos() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public void assignTraceInfo(TraceInfo traceInfo) {
+            // not needed
+        }
+
+        @Override
+        public void acceptPropagatedTraceInfo(TraceInfo traceInfo) {
+            // not needed
+        }
+    }
+
+    /**
+     * Creates the transitive closure of super types, joining the recursive query with itself, so that both inputs of
+     * the join are in the recursive group.
+     */
+    private static PQuery createReachability() {
+        PQuery[] queries = new PQuery[1];
+        queries[0] = TestQueries.query("test.reach", Arrays.asList("a", "b"),
+                (body, p) -> TestQueries.feature(body, p[0], p[1], EcorePackage.Literals.ECLASS__ESUPER_TYPES),
+                (body, p) -> {
+                    PVariable middle = body.getOrCreateVariableByName("m");
+                    TestQueries.call(body, queries[0], p[0], middle);
+                    TestQueries.call(body, queries[0], middle, p[1]);
+                });
+        return queries[0];
+    }
+
+    private static Set<List<Object>> computeReachability(List<EClass> classes) {
+        Set<List<Object>> result = new HashSet<>();
+        for (EClass eClass : classes) {
+            Deque<EClass> queue = new ArrayDeque<>(eClass.getESuperTypes());
+            Set<EClass> visited = new HashSet<>();
+            while (!queue.isEmpty()) {
+                EClass superType = queue.poll();
+                if (visited.add(superType)) {
+                    result.add(Arrays.asList(eClass, superType));
+                    queue.addAll(superType.getESuperTypes());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Set<List<Object>> getMatches(GenericPatternMatcher matcher) {
+        return matcher.getAllMatches().stream().map(match -> Arrays.asList(match.toArray()))
+                .collect(Collectors.toSet());
+    }
+
+    private static AdvancedViatraQueryEngine createEngine(ResourceSet model, TimelyReteBackendFactory factory) {
+        return AdvancedViatraQueryEngine.createUnmanagedEngine(new EMFScope(model),
+                TestQueries.options().withDefaultBackend(factory).withDefaultCachingBackend(factory).build());
+    }
+
+    /**
+     * Attaches a {@link LoggingReceiver} to each node of the recursive communication groups, and optionally reverses
+     * the order in which the mailboxes of these groups are delivered at a given timestamp.
+     */
+    private static MessageLog instrument(AdvancedViatraQueryEngine engine, boolean reverseOrder) {
+        ReteEngine reteEngine = (ReteEngine) engine.getQueryBackend(TimelyReteBackendFactory.FIRST_ONLY_SEQUENTIAL);
+        MessageLog log = new MessageLog();
+        Set<TimelyCommunicationGroup> recursiveGroups = new HashSet<>();
+        for (ReteContainer container : reteEngine.getReteNet().getContainers()) {
+            for (Node node : container.getAllNodes()) {
+                CommunicationGroup group = container.getCommunicationTracker().getGroup(node);
+                if (group != null && group.isRecursive()) {
+                    recursiveGroups.add((TimelyCommunicationGroup) group);
+                    if (node instanceof Supplier) {
+                        ((Supplier) node).appendChild(new LoggingReceiver(log));
+                    }
+                }
+            }
+        }
+        assertFalse(recursiveGroups.isEmpty());
+        for (TimelyCommunicationGroup group : recursiveGroups) {
+            // recursive groups are ordered regardless of the timeline representation
+            assertNotNull(group.getComparator());
+            if (reverseOrder) {
+                group.setComparatorAndReorderMailboxes(group.getComparator().reversed());
+            }
+        }
+        return log;
+    }
+
+    /**
+     * @param acyclic
+     *            if true, classes only get super types with a smaller index
+     * @return the number of batches of messages sent by the nodes of recursive groups, if they are delivered in
+     *         topological order and in the reverse order, respectively
+     */
+    private static long[] checkRandomUpdates(boolean acyclic, long seed) {
+        ResourceSet model = TestQueries.createClassChainModel(0);
+        EPackage ePackage = TestQueries.getPackage(model);
+        List<EClass> classes = new ArrayList<>();
+        Random random = new Random(seed);
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            EClass eClass = EcoreFactory.eINSTANCE.createEClass();
+            eClass.setName("C" + i);
+            ePackage.getEClassifiers().add(eClass);
+            classes.add(eClass);
+        }
+        for (int i = 1; i < CLASS_COUNT; i++) {
+            addRandomSuperType(classes, i, acyclic, random);
+        }
+        GenericQuerySpecification<GenericPatternMatcher> reach = TestQueries.specification(createReachability());
+        AdvancedViatraQueryEngine faithfulEngine = createEngine(model, TimelyReteBackendFactory.FAITHFUL_SEQUENTIAL);
+        AdvancedViatraQueryEngine orderedEngine = createEngine(model, TimelyReteBackendFactory.FIRST_ONLY_SEQUENTIAL);
+        AdvancedViatraQueryEngine reversedEngine = createEngine(model, TimelyReteBackendFactory.FIRST_ONLY_SEQUENTIAL);
+        try {
+            GenericPatternMatcher faithful = faithfulEngine.getMatcher(reach);
+            GenericPatternMatcher ordered = orderedEngine.getMatcher(reach);
+            GenericPatternMatcher reversed = reversedEngine.getMatcher(reach);
+            MessageLog orderedLog = instrument(orderedEngine, false);
+            MessageLog reversedLog = instrument(reversedEngine, true);
+            assertEquals(computeReachability(classes), getMatches(faithful));
+            for (int step = 0; step < 300; step++) {
+                int index = random.nextInt(CLASS_COUNT);
+                EClass eClass = classes.get(index);
+                if (random.nextBoolean() && !eClass.getESuperTypes().isEmpty()) {
+                    eClass.getESuperTypes().remove(random.nextInt(eClass.getESuperTypes().size()));
+                } else {
+                    addRandomSuperType(classes, index, acyclic, random);
+                }
+                Set<List<Object>> expected = computeReachability(classes);
+                assertEquals("Step " + step, expected, getMatches(faithful));
+                assertEquals("Step " + step, expected, getMatches(ordered));
+                assertEquals("Step " + step, expected, getMatches(reversed));
+            }
+            return new long[] { orderedLog.batchCount, reversedLog.batchCount };
+        } finally {
+            faithfulEngine.dispose();
+            orderedEngine.dispose();
+            reversedEngine.dispose();
+        }
+    }
+
+    private static void addRandomSuperType(List<EClass> classes, int index, boolean acyclic, Random random) {
+        if (acyclic && index == 0) {
+            return;
+        }
+        EClass eClass = classes.get(index);
+        EClass superType = classes.get(random.nextInt(acyclic ? index : classes.size()));
+        if (!eClass.getESuperTypes().contains(superType)) {
+            eClass.getESuperTypes().add(superType);
+        }
+    }
+
+    @Test
+    public void recursionOnAcyclicModel() {
+        long[] batchCounts = checkRandomUpdates(true, 1);
+        assertTrue(Arrays.toString(batchCounts), batchCounts[0] <= batchCounts[1]);
+    }
+
+    @Test
+    public void recursionOnCyclicModel() {
+        // derivations of the same tuple at several timestamps reach the join from both sides
+        long[] batchCounts = checkRandomUpdates(false, 2);
+        assertTrue(Arrays.toString(batchCounts), batchCounts[0] < batchCounts[1]);
+    }
+
+}
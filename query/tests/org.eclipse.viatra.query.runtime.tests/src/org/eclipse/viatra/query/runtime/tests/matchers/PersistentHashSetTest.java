@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.matchers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.eclipse.viatra.query.runtime.matchers.util.PersistentHashSet;
+import org.junit.Test;
+
+/**
+ * Compares {@link PersistentHashSet} to {@link HashSet}, including elements with colliding hashes.
+ */
+public class PersistentHashSetTest {
+
+    /**
+     * An element whose hash is given explicitly.
+     */
+    private static final class Element {
+        final int id;
+        final int hash;
+
+        Element(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Element && ((Element) obj).id == id;
+        }
+
+        @Override
+        public String toString() {
+            return "E" + id;
+        }
+    }
+
+    private static void assertSameContents(Set<Element> expected, PersistentHashSet<Element> actual) {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected, new HashSet<>(actual));
+        for (Element element : expected) {
+            assertTrue(actual.contains(element));
+        }
+    }
+
+    private void checkRandomChanges(int hashRange) {
+        Random random = new Random(hashRange);
+        Set<Element> expected = new HashSet<>();
+        PersistentHashSet.Builder<Element> builder = PersistentHashSet.<Element>empty().toBuilder();
+        List<Set<Element>> expectedVersions = new ArrayList<>();
+        List<PersistentHashSet<Element>> versions = new ArrayList<>();
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 200; i++) {
+                int id = random.nextInt(1000);
+                Element element = new Element(id, id % hashRange);
+                if (random.nextInt(3) == 0) {
+                    assertEquals(expected.remove(element), builder.remove(element));
+                } else {
+                    assertEquals(expected.add(element), builder.add(element));
+                }
+                assertEquals(expected.size(), builder.size());
+            }
+            expectedVersions.add(new HashSet<>(expected));
+            versions.add(builder.build());
+        }
+        // versions are not affected by later changes of the builder
+        for (int i = 0; i < versions.size(); i++) {
+            assertSameContents(expectedVersions.get(i), versions.get(i));
+        }
+    }
+
+    @Test
+    public void randomChangesWithDistinctHashes() {
+        checkRandomChanges(Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void randomChangesWithCollidingHashes() {
+        checkRandomChanges(7);
+    }
+
+    @Test
+    public void derivedBuildersShareNothingMutable() {
+        PersistentHashSet.Builder<Element> builder = PersistentHashSet.<Element>empty().toBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.add(new Element(i, i));
+        }
+        PersistentHashSet<Element> base = builder.build();
+
+        PersistentHashSet.Builder<Element> derived = base.toBuilder();
+        derived.remove(new Element(5, 5));
+        derived.add(new Element(100, 100));
+        builder.clear();
+
+        assertEquals(100, base.size());
+        assertTrue(base.contains(new Element(5, 5)));
+        assertFalse(base.contains(new Element(100, 100)));
+        PersistentHashSet<Element> derivedVersion = derived.build();
+        assertEquals(100, derivedVersion.size());
+        assertFalse(derivedVersion.contains(new Element(5, 5)));
+        assertTrue(derivedVersion.contains(new Element(100, 100)));
+        assertEquals(0, builder.build().size());
+    }
+
+}
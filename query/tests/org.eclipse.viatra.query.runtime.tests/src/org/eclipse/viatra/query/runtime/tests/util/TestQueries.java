@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2010-2026, Eclipse VIATRA Project
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License v. 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-v20.html.
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+package org.eclipse.viatra.query.runtime.tests.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceImpl;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.viatra.query.runtime.api.AdvancedViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.GenericPatternMatcher;
+import org.eclipse.viatra.query.runtime.api.GenericQuerySpecification;
+import org.eclipse.viatra.query.runtime.api.ViatraQueryEngine;
+import org.eclipse.viatra.query.runtime.api.ViatraQueryEngineOptions;
+import org.eclipse.viatra.query.runtime.api.impl.BaseGeneratedEMFPQuery;
+import org.eclipse.viatra.query.runtime.api.scope.QueryScope;
+import org.eclipse.viatra.query.runtime.emf.EMFScope;
+import org.eclipse.viatra.query.runtime.emf.types.EClassTransitiveInstancesKey;
+import org.eclipse.viatra.query.runtime.emf.types.EStructuralFeatureInstancesKey;
+import org.eclipse.viatra.query.runtime.localsearch.matcher.integration.LocalSearchEMFBackendFactory;
+import org.eclipse.viatra.query.runtime.matchers.psystem.PBody;
+import org.eclipse.viatra.query.runtime.matchers.psystem.PVariable;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicdeferred.ExportedParameter;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicenumerables.PositivePatternCall;
+import org.eclipse.viatra.query.runtime.matchers.psystem.basicenumerables.TypeConstraint;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PParameter;
+import org.eclipse.viatra.query.runtime.matchers.psystem.queries.PQuery;
+import org.eclipse.viatra.query.runtime.matchers.tuple.Tuples;
+import org.eclipse.viatra.query.runtime.rete.matcher.ReteBackendFactory;
+
+/**
+ * Helpers for tests that define queries directly as {@link PBody PBodies}, without the pattern language; the instance
+ * models are Ecore models, so no generated metamodel code is required.
+ */
+public final class TestQueries {
+
+    private TestQueries() {/*Utility class constructor*/}
+
+    /**
+     * Defines the constraints of a body; the body variables of the parameters are passed in parameter order.
+     */
+    @FunctionalInterface
+    public interface BodyDefinition extends BiConsumer<PBody, PVariable[]> {
+    }
+
+    private static final class TestQuery extends BaseGeneratedEMFPQuery {
+        private final String name;
+        private final List<PParameter> parameters;
+        private final List<BodyDefinition> bodies;
+
+        TestQuery(String name, List<String> parameterNames, List<BodyDefinition> bodies) {
+            this.name = name;
+            this.parameters = parameterNames.stream().map(PParameter::new).collect(Collectors.toList());
+            this.bodies = bodies;
+        }
+
+        @Override
+        public String getFullyQualifiedName() {
+            return name;
+        }
+
+        @Override
+        public List<PParameter> getParameters() {
+            return parameters;
+        }
+
+        @Override
+        protected Set<PBody> doGetContainedBodies() {
+            Set<PBody> result = new LinkedHashSet<>();
+            for (BodyDefinition definition : bodies) {
+                PBody body = new PBody(this);
+                PVariable[] variables = new PVariable[parameters.size()];
+                List<ExportedParameter> exported = new ArrayList<>();
+                for (int i = 0; i < variables.length; i++) {
+                    variables[i] = body.getOrCreateVariableByName(parameters.get(i).getName());
+                    exported.add(new ExportedParameter(body, variables[i], parameters.get(i)));
+                }
+                body.setSymbolicParameters(exported);
+                definition.accept(body, variables);
+                result.add(body);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Creates a query with the given parameters and bodies.
+     */
+    public static PQuery query(String name, List<String> parameterNames, BodyDefinition... bodies) {
+        return new TestQuery(name, parameterNames, Arrays.asList(bodies));
+    }
+
+    /**
+     * Creates a generic query specification for a query over an {@link EMFScope}.
+     */
+    public static GenericQuerySpecification<GenericPatternMatcher> specification(PQuery query) {
+        return new GenericQuerySpecification<GenericPatternMatcher>(query) {
+
+            @Override
+            public Class<? extends QueryScope> getPreferredScopeClass() {
+                return EMFScope.class;
+            }
+
+            @Override
+            protected GenericPatternMatcher instantiate(ViatraQueryEngine engine) {
+                return defaultInstantiate(engine);
+            }
+
+            @Override
+            public GenericPatternMatcher instantiate() {
+                return new GenericPatternMatcher(this);
+            }
+        };
+    }
+
+    /**
+     * Engine options with explicitly given backends (Rete for incremental, local search for search-based
+     * evaluation), so that the tests do not depend on the backends registered in the platform.
+     */
+    public static ViatraQueryEngineOptions.Builder options() {
+        return ViatraQueryEngineOptions.defineOptions()
+                .withDefaultBackend(ReteBackendFactory.INSTANCE)
+                .withDefaultCachingBackend(ReteBackendFactory.INSTANCE)
+                .withDefaultSearchBackend(LocalSearchEMFBackendFactory.INSTANCE);
+    }
+
+    /**
+     * Creates an unmanaged engine on the given model with the {@link #options() default test options}.
+     */
+    public static AdvancedViatraQueryEngine createEngine(ResourceSet model) {
+        return AdvancedViatraQueryEngine.createUnmanagedEngine(new EMFScope(model), options().build());
+    }
+
+    /**
+     * Adds a type constraint on the instances of the given class.
+     */
+    public static void instanceOf(PBody body, PVariable variable, EClass eClass) {
+        new TypeConstraint(body, Tuples.flatTupleOf(variable), new EClassTransitiveInstancesKey(eClass));
+    }
+
+    /**
+     * Adds a type constraint on the values of the given feature.
+     */
+    public static void feature(PBody body, PVariable source, PVariable target, EStructuralFeature feature) {
+        new TypeConstraint(body, Tuples.flatTupleOf(source, target), new EStructuralFeatureInstancesKey(feature));
+    }
+
+    /**
+     * Adds a positive call of the given query.
+     */
+    public static void call(PBody body, PQuery query, PVariable... arguments) {
+        new PositivePatternCall(body, Tuples.flatTupleOf((Object[]) arguments), query);
+    }
+
+    /**
+     * Creates a resource set with a single package of the given number of classes named <code>C0</code>,
+     * <code>C1</code>, ...; class <code>Ci</code> is a subclass of <code>C(i-1)</code> and has a reference
+     * <code>ri</code> to <code>C(i+1)</code>, the last one to <code>C0</code>.
+     */
+    public static ResourceSet createClassChainModel(int classCount) {
+        ResourceSet resourceSet = new ResourceSetImpl();
+        Resource resource = new ResourceImpl(URI.createURI("test.ecore"));
+        resourceSet.getResources().add(resource);
+        EPackage ePackage = EcoreFactory.eINSTANCE.createEPackage();
+        ePackage.setName("test");
+        resource.getContents().add(ePackage);
+        List<EClass> classes = new ArrayList<>();
+        for (int i = 0; i < classCount; i++) {
+            EClass eClass = EcoreFactory.eINSTANCE.createEClass();
+            eClass.setName("C" + i);
+            if (i > 0) {
+                eClass.getESuperTypes().add(classes.get(i - 1));
+            }
+            ePackage.getEClassifiers().add(eClass);
+            classes.add(eClass);
+        }
+        for (int i = 0; i < classCount; i++) {
+            EReference reference = EcoreFactory.eINSTANCE.createEReference();
+            reference.setName("r" + i);
+            reference.setEType(classes.get((i + 1) % classCount));
+            classes.get(i).getEStructuralFeatures().add(reference);
+        }
+        return resourceSet;
+    }
+
+    /**
+     * @return the package of a model created by {@link #createClassChainModel(int)}
+     */
+    public static EPackage getPackage(ResourceSet resourceSet) {
+        return (EPackage) resourceSet.getResources().get(0).getContents().get(0);
+    }
+}